@@ -1,5 +1,6 @@
 package com.lukas783.mdt;
 
+import com.lukas783.mdt.cli.BatchRunner;
 import com.lukas783.mdt.ui.MainPanel;
 
 import javax.swing.*;
@@ -23,35 +24,54 @@ public class MavenDevelopmentTool {
     /**
      * The entry-point of the application. Creates a JFrame and sets configuration for the frame, then
      * adds the main panel to the center of the frame and lets the panel handle application display and
-     * control from there.
+     * control from there. When the command-line asks for a batch run, the {@link BatchRunner} runs the named
+     * task list instead, without creating any user interface, and the application exits with its status.
      * @param args arguments passed to the application through command-line.
      */
     public static void main(String[] args) {
-        try {
-            boolean landfSet = false;
-            for (UIManager.LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
-                if("Nimbus".equals(info.getName())) {
-                    UIManager.setLookAndFeel(info.getClassName());
-                    landfSet = true;
+        if (BatchRunner.isBatchInvocation(args))
+            System.exit(new BatchRunner(System.out, System.err).run(args));
+
+        // The user interface is started from its own class, so that a batch run never loads any Swing or AWT class
+        UserInterface.launch();
+    }
+
+    /**
+     * Starts the user interface of the application. Kept apart from {@link MavenDevelopmentTool} because the
+     * JVM loads the classes a method refers to when the class holding it is loaded.
+     */
+    private static class UserInterface {
+
+        /**
+         * Sets the look and feel of the application, then creates and shows the main frame.
+         */
+        private static void launch() {
+            try {
+                boolean landfSet = false;
+                for (UIManager.LookAndFeelInfo info : UIManager.getInstalledLookAndFeels()) {
+                    if("Nimbus".equals(info.getName())) {
+                        UIManager.setLookAndFeel(info.getClassName());
+                        landfSet = true;
+                    }
                 }
-            }
-            if(!landfSet)
-                UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+                if(!landfSet)
+                    UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
 
-            JFrame frame = new JFrame("Maven Development Tool");
-            frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-            frame.add(new MainPanel(), BorderLayout.CENTER);
-            frame.pack();
-            frame.setLocationRelativeTo(null);
-            frame.setVisible(true);
-        } catch(UnsupportedLookAndFeelException ulafe) {
-            logger.log(Level.SEVERE, "Look & Feel style not supported.", ulafe);
-        } catch(InstantiationException ie) {
-            logger.log(Level.SEVERE, "Unable to instantiate system Look & Feel.", ie);
-        } catch(IllegalAccessException iae) {
-            logger.log(Level.SEVERE, "You do not have permission to access the system Look & Feel.", iae);
-        } catch(ClassNotFoundException cnfe) {
-            logger.log(Level.SEVERE, "Unable to find system Look & Feel class.", cnfe);
+                JFrame frame = new JFrame("Maven Development Tool");
+                frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+                frame.add(new MainPanel(), BorderLayout.CENTER);
+                frame.pack();
+                frame.setLocationRelativeTo(null);
+                frame.setVisible(true);
+            } catch(UnsupportedLookAndFeelException ulafe) {
+                logger.log(Level.SEVERE, "Look & Feel style not supported.", ulafe);
+            } catch(InstantiationException ie) {
+                logger.log(Level.SEVERE, "Unable to instantiate system Look & Feel.", ie);
+            } catch(IllegalAccessException iae) {
+                logger.log(Level.SEVERE, "You do not have permission to access the system Look & Feel.", iae);
+            } catch(ClassNotFoundException cnfe) {
+                logger.log(Level.SEVERE, "Unable to find system Look & Feel class.", cnfe);
+            }
         }
     }
 
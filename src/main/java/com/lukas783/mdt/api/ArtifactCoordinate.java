@@ -0,0 +1,103 @@
+package com.lukas783.mdt.api;
+
+/**
+ * A POJO that defines the GAV (groupId, artifactId, version) coordinate of a maven artifact. Two coordinates
+ * are considered equal when their groupId and artifactId match, the version is only used to decide whether
+ * a reference to an artifact can be satisfied by a particular project.
+ *
+ * @author Lucas Carpenter
+ */
+public class ArtifactCoordinate {
+
+    // Declaration of variables held by the object
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+
+    /**
+     * Constructs an {@link ArtifactCoordinate} object.
+     * @param groupId The groupId of the artifact.
+     * @param artifactId The artifactId of the artifact.
+     * @param version The version of the artifact, may be null if the version isn't known.
+     */
+    public ArtifactCoordinate(String groupId, String artifactId, String version) {
+        this.groupId = groupId;
+        this.artifactId = artifactId;
+        this.version = version;
+    }
+
+    /**
+     * Retrieves the groupId of the artifact.
+     * @return The groupId of the artifact.
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * Retrieves the artifactId of the artifact.
+     * @return The artifactId of the artifact.
+     */
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    /**
+     * Retrieves the version of the artifact.
+     * @return The version of the artifact, or null if the version isn't known.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves the 'groupId:artifactId' key used to match the artifact against other projects.
+     * @return The 'groupId:artifactId' key of the artifact.
+     */
+    public String getKey() {
+        return groupId + ":" + artifactId;
+    }
+
+    /**
+     * Determines whether a project with this coordinate is able to satisfy a reference to another coordinate.
+     * The reference is satisfied if the keys match and the referenced version is either unknown, an
+     * unresolved property expression, or the same version as this coordinate.
+     * @param reference The coordinate being referenced, usually a dependency or parent declaration.
+     * @return True if this coordinate satisfies the reference, False otherwise.
+     */
+    public boolean satisfies(ArtifactCoordinate reference) {
+        if (!getKey().equals(reference.getKey()))
+            return false;
+        return version == null ||
+                reference.version == null ||
+                reference.version.contains("${") ||
+                version.contains("${") ||
+                version.equals(reference.version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ArtifactCoordinate))
+            return false;
+        return getKey().equals(((ArtifactCoordinate) o).getKey());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        return getKey().hashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return version == null ? getKey() : getKey() + ":" + version;
+    }
+}
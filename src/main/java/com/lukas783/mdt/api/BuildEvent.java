@@ -0,0 +1,141 @@
+package com.lukas783.mdt.api;
+
+import java.util.UUID;
+
+/**
+ * A single step in the life of a task during a run, such as the task being queued, Maven starting to build one of
+ * the modules in its reactor, or the task finishing. Events are published to every
+ * {@link IProcessServiceListener} as they happen, so listeners can follow the progress of each task without
+ * reading its output.
+ *
+ * @author Lucas Carpenter
+ */
+public class BuildEvent {
+
+    /**
+     * The kinds of steps a task goes through during a run.
+     */
+    public enum Type {
+        /** The task is waiting for its turn to run. */
+        QUEUED,
+        /** The task has started running. */
+        STARTED,
+        /** Maven has started building one of the modules in the task's reactor. */
+        MODULE_STARTED,
+        /** Maven has started running the tests of the current module. */
+        TESTS_RUNNING,
+        /** The task finished successfully. */
+        FINISHED,
+        /** The task failed or was stopped. */
+        FAILED,
+        /** The task was skipped, because a task it depends on failed or the run was cancelled. */
+        SKIPPED;
+
+        /**
+         * Checks whether a task's part in the run is over once it has reached this step.
+         * @return True for {@link #FINISHED}, {@link #FAILED} and {@link #SKIPPED}, False otherwise.
+         */
+        public boolean isTerminal() {
+            return this == FINISHED || this == FAILED || this == SKIPPED;
+        }
+    }
+
+    // Declaration of variables describing the event
+    private final UUID taskId;
+    private final Type type;
+    private final long timestamp;
+    private final String moduleName;
+    private final int moduleIndex;
+    private final int moduleCount;
+    private final long peakResidentBytes;
+
+    /**
+     * Constructs a {@link BuildEvent} object that happened just now and carries no module or memory information.
+     * @param taskId The {@link UUID} of the task the event belongs to.
+     * @param type The {@link Type} of the event.
+     */
+    public BuildEvent(UUID taskId, Type type) {
+        this(taskId, type, System.currentTimeMillis(), null, 0, 0, -1);
+    }
+
+    /**
+     * Constructs a {@link BuildEvent} object.
+     * @param taskId The {@link UUID} of the task the event belongs to.
+     * @param type The {@link Type} of the event.
+     * @param timestamp When the event happened, in milliseconds since the epoch.
+     * @param moduleName The name of the module being built, or null if the event isn't about a module.
+     * @param moduleIndex The position of the module in the reactor, counting from 1, or 0 if unknown.
+     * @param moduleCount The number of modules in the reactor, or 0 if unknown.
+     * @param peakResidentBytes The most memory the task's build held at once, in bytes, or -1 if unknown.
+     */
+    public BuildEvent(UUID taskId, Type type, long timestamp, String moduleName, int moduleIndex, int moduleCount,
+                      long peakResidentBytes) {
+        this.taskId = taskId;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.moduleName = moduleName;
+        this.moduleIndex = moduleIndex;
+        this.moduleCount = moduleCount;
+        this.peakResidentBytes = peakResidentBytes;
+    }
+
+    /**
+     * @return The {@link UUID} of the task the event belongs to.
+     */
+    public UUID getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * @return The {@link Type} of the event.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return When the event happened, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The name of the module being built, or null if the event isn't about a module.
+     */
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    /**
+     * @return The position of the module in the reactor, counting from 1, or 0 if unknown.
+     */
+    public int getModuleIndex() {
+        return moduleIndex;
+    }
+
+    /**
+     * @return The number of modules in the reactor, or 0 if unknown.
+     */
+    public int getModuleCount() {
+        return moduleCount;
+    }
+
+    /**
+     * @return The most memory the task's build held at once, in bytes, or -1 if unknown.
+     */
+    public long getPeakResidentBytes() {
+        return peakResidentBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return type + " " + taskId +
+                (moduleName != null ? " " + moduleName + " [" + moduleIndex + "/" + moduleCount + "]" : "") +
+                (peakResidentBytes >= 0 ? ", peak memory " + (peakResidentBytes >> 20) + " MB" : "") +
+                " at " + timestamp;
+    }
+}
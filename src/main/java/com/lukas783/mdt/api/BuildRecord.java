@@ -0,0 +1,325 @@
+package com.lukas783.mdt.api;
+
+import java.util.UUID;
+
+/**
+ * A POJO describing a single execution of a task, as kept by the
+ * {@link com.lukas783.mdt.service.BuildHistoryStore}: when it completed, how long each of its phases took, how the
+ * Maven build ended, and how much processor time and memory the build used, and with how much heap.
+ *
+ * @author Lucas Carpenter
+ */
+public class BuildRecord {
+
+    // Declaration of variables describing the execution
+    private final UUID taskId;
+    private final long completedAt;
+    private final byte[] fingerprint;
+    private final int wallMillis;
+    private final int fingerprintMillis;
+    private final int buildMillis;
+    private final int artifactMillis;
+    private final int exitCode;
+    private final int cpuMillis;
+    private final long peakResidentBytes;
+    private final int heapMegabytes;
+    private final boolean succeeded;
+    private final boolean built;
+    private final boolean outOfMemory;
+
+    /**
+     * Private constructor used by the {@link Builder} to create a new {@link BuildRecord} object.
+     * @param builder The builder holding the values of the record.
+     */
+    private BuildRecord(Builder builder) {
+        this.taskId = builder.taskId;
+        this.completedAt = builder.completedAt;
+        this.fingerprint = builder.fingerprint;
+        this.wallMillis = builder.wallMillis;
+        this.fingerprintMillis = builder.fingerprintMillis;
+        this.buildMillis = builder.buildMillis;
+        this.artifactMillis = builder.artifactMillis;
+        this.exitCode = builder.exitCode;
+        this.cpuMillis = builder.cpuMillis;
+        this.peakResidentBytes = builder.peakResidentBytes;
+        this.heapMegabytes = builder.heapMegabytes;
+        this.succeeded = builder.succeeded;
+        this.built = builder.built;
+        this.outOfMemory = builder.outOfMemory;
+    }
+
+    /**
+     * @return The {@link UUID} of the task that was executed.
+     */
+    public UUID getTaskId() {
+        return taskId;
+    }
+
+    /**
+     * @return When the execution started, in milliseconds since the epoch.
+     */
+    public long getStartedAt() {
+        return completedAt - wallMillis;
+    }
+
+    /**
+     * @return When the execution completed, in milliseconds since the epoch.
+     */
+    public long getCompletedAt() {
+        return completedAt;
+    }
+
+    /**
+     * @return The fingerprint of the task's inputs, or null if the task couldn't be fingerprinted.
+     */
+    public byte[] getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return How long the whole execution took, in milliseconds.
+     */
+    public int getWallMillis() {
+        return wallMillis;
+    }
+
+    /**
+     * @return How long fingerprinting the task's inputs took, in milliseconds.
+     */
+    public int getFingerprintMillis() {
+        return fingerprintMillis;
+    }
+
+    /**
+     * @return How long the Maven build took, in milliseconds, or 0 if Maven wasn't run.
+     */
+    public int getBuildMillis() {
+        return buildMillis;
+    }
+
+    /**
+     * @return How long renaming, copying and unpackaging the artifact took, in milliseconds.
+     */
+    public int getArtifactMillis() {
+        return artifactMillis;
+    }
+
+    /**
+     * @return The exit code of the Maven build, or {@link ProcessResult#NOT_RUN} if Maven wasn't run to completion.
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return How much processor time the Maven build used, in milliseconds, or -1 if it wasn't measured.
+     */
+    public int getCpuMillis() {
+        return cpuMillis;
+    }
+
+    /**
+     * @return The most memory the Maven build held at once, in bytes, or -1 if it wasn't measured.
+     */
+    public long getPeakResidentBytes() {
+        return peakResidentBytes;
+    }
+
+    /**
+     * @return The maximum heap the Maven build was started with, in megabytes, or 0 if it was left to Maven's own
+     *         settings.
+     */
+    public int getHeapMegabytes() {
+        return heapMegabytes;
+    }
+
+    /**
+     * @return True if the execution succeeded, False otherwise.
+     */
+    public boolean isSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return True if Maven was run, False if the build was skipped because the task was up-to-date or failed
+     *         before its build started.
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * @return True if the Maven build, or a JVM it forked, ran out of memory.
+     */
+    public boolean isOutOfMemory() {
+        return outOfMemory;
+    }
+
+    /**
+     * A builder class used to set up and create new {@link BuildRecord} objects. The values of an execution are
+     * filled in as its phases complete, so the builder may be handed from one thread to the next along with the
+     * execution, as long as only one thread uses it at a time.
+     */
+    public static class Builder {
+
+        // Declaration of private builder variables
+        private UUID taskId;
+        private long completedAt;
+        private byte[] fingerprint;
+        private int wallMillis;
+        private int fingerprintMillis;
+        private int buildMillis;
+        private int artifactMillis;
+        private int exitCode = ProcessResult.NOT_RUN;
+        private int cpuMillis = -1;
+        private long peakResidentBytes = -1;
+        private int heapMegabytes;
+        private boolean succeeded;
+        private boolean built;
+        private boolean outOfMemory;
+
+        /**
+         * Sets the id of the task that was executed.
+         * @param taskId The {@link UUID} of the task.
+         * @return A modified builder
+         */
+        public Builder taskId(UUID taskId) {
+            this.taskId = taskId;
+            return this;
+        }
+
+        /**
+         * Sets when the execution completed.
+         * @param completedAt The completion time, in milliseconds since the epoch.
+         * @return A modified builder
+         */
+        public Builder completedAt(long completedAt) {
+            this.completedAt = completedAt;
+            return this;
+        }
+
+        /**
+         * Sets the fingerprint of the task's inputs.
+         * @param fingerprint The fingerprint, may be null.
+         * @return A modified builder
+         */
+        public Builder fingerprint(byte[] fingerprint) {
+            this.fingerprint = fingerprint;
+            return this;
+        }
+
+        /**
+         * Sets how long the whole execution took.
+         * @param wallMillis The duration, in milliseconds.
+         * @return A modified builder
+         */
+        public Builder wallMillis(long wallMillis) {
+            this.wallMillis = clamp(wallMillis);
+            return this;
+        }
+
+        /**
+         * Sets how long fingerprinting the task's inputs took.
+         * @param fingerprintMillis The duration, in milliseconds.
+         * @return A modified builder
+         */
+        public Builder fingerprintMillis(long fingerprintMillis) {
+            this.fingerprintMillis = clamp(fingerprintMillis);
+            return this;
+        }
+
+        /**
+         * Sets how the Maven build turned out, marking the execution as built.
+         * @param result The {@link ProcessResult} of the Maven build.
+         * @return A modified builder
+         */
+        public Builder buildResult(ProcessResult result) {
+            this.built = true;
+            this.buildMillis = clamp(result.getWallTimeMillis());
+            this.exitCode = result.getExitCode();
+            this.cpuMillis = result.getCpuTimeMillis() < 0 ? -1 : clamp(result.getCpuTimeMillis());
+            this.peakResidentBytes = result.getPeakResidentBytes();
+            return this;
+        }
+
+        /**
+         * Sets the maximum heap the Maven build was started with.
+         * @param heapMegabytes The maximum heap, in megabytes, or 0 if it was left to Maven's own settings.
+         * @return A modified builder
+         */
+        public Builder heapMegabytes(int heapMegabytes) {
+            this.heapMegabytes = Math.max(0, heapMegabytes);
+            return this;
+        }
+
+        /**
+         * Sets whether the Maven build, or a JVM it forked, ran out of memory.
+         * @param outOfMemory True if the build ran out of memory, False otherwise.
+         * @return A modified builder
+         */
+        public Builder outOfMemory(boolean outOfMemory) {
+            this.outOfMemory = outOfMemory;
+            return this;
+        }
+
+        /**
+         * Sets how long renaming, copying and unpackaging the artifact took.
+         * @param artifactMillis The duration, in milliseconds.
+         * @return A modified builder
+         */
+        public Builder artifactMillis(long artifactMillis) {
+            this.artifactMillis = clamp(artifactMillis);
+            return this;
+        }
+
+        /**
+         * Sets whether the execution succeeded.
+         * @param succeeded True if the execution succeeded, False otherwise.
+         * @return A modified builder
+         */
+        public Builder succeeded(boolean succeeded) {
+            this.succeeded = succeeded;
+            return this;
+        }
+
+        /**
+         * Sets every value of a record read back from storage.
+         * @param exitCode The exit code of the Maven build.
+         * @param buildMillis How long the Maven build took, in milliseconds.
+         * @param artifactMillis How long the artifact stage took, in milliseconds.
+         * @param cpuMillis How much processor time the build used, in milliseconds.
+         * @param peakResidentBytes The peak memory of the build, in bytes.
+         * @param built Whether Maven was run.
+         * @return A modified builder
+         */
+        public Builder stored(int exitCode, int buildMillis, int artifactMillis, int cpuMillis,
+                              long peakResidentBytes, boolean built) {
+            this.exitCode = exitCode;
+            this.buildMillis = buildMillis;
+            this.artifactMillis = artifactMillis;
+            this.cpuMillis = cpuMillis;
+            this.peakResidentBytes = peakResidentBytes;
+            this.built = built;
+            return this;
+        }
+
+        /**
+         * Builds the record.
+         * @return A new {@link BuildRecord}, or null if no task id was set.
+         */
+        public BuildRecord build() {
+            if (taskId == null)
+                return null;
+            return new BuildRecord(this);
+        }
+
+        /**
+         * Clamps a duration to the range stored in a record.
+         * @param millis The duration, in milliseconds.
+         * @return The duration, between 0 and {@link Integer#MAX_VALUE}.
+         */
+        private static int clamp(long millis) {
+            return (int) Math.max(0, Math.min(Integer.MAX_VALUE, millis));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.lukas783.mdt.api;
+
+import java.io.File;
+
+/**
+ * A POJO that describes an artifact found in a project's build directory: the file itself, and the classifier and
+ * extension its name was built from.
+ *
+ * @author Lucas Carpenter
+ */
+public class BuiltArtifact {
+
+    // Declaration of variables held by the object
+    private final File file;
+    private final String classifier;
+    private final String extension;
+    private final boolean main;
+
+    /**
+     * Constructs a {@link BuiltArtifact} object.
+     * @param file The artifact file.
+     * @param classifier The classifier of the artifact, or null if it has none.
+     * @param extension The extension of the artifact, such as 'jar' or 'tar.gz'.
+     * @param main True if the artifact is the main artifact of the project's packaging, False otherwise.
+     */
+    public BuiltArtifact(File file, String classifier, String extension, boolean main) {
+        this.file = file;
+        this.classifier = classifier;
+        this.extension = extension;
+        this.main = main;
+    }
+
+    /**
+     * Retrieves the artifact file.
+     * @return The artifact file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Retrieves the classifier of the artifact, such as 'sources' or 'javadoc'.
+     * @return The classifier of the artifact, or null if it has none.
+     */
+    public String getClassifier() {
+        return classifier;
+    }
+
+    /**
+     * Retrieves the extension of the artifact.
+     * @return The extension of the artifact, without the leading dot.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Checks whether the artifact is the main artifact of the project's packaging, rather than an attached one.
+     * @return True if the artifact is the main artifact, False otherwise.
+     */
+    public boolean isMain() {
+        return main;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return file.getName();
+    }
+}
@@ -0,0 +1,282 @@
+package com.lukas783.mdt.api;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A POJO that defines the effective form of a POM file. Combines the values read by {@link PomInfo} with the
+ * properties inherited from the chain of parent POM files, and interpolates any '${...}' expressions in the
+ * values it hands out. Instances are created by {@link com.lukas783.mdt.build.EffectivePomResolver}.
+ *
+ * @author Lucas Carpenter
+ */
+public class EffectivePom {
+
+    // Declaration of constants used by the class
+    private static final int MAX_INTERPOLATION_DEPTH = 16;
+
+    // Declaration of variables used by the class
+    private final File pomFile;
+    private final PomInfo pomInfo;
+    private final EffectivePom parent;
+    private final Map<String, String> properties;
+
+    /**
+     * Constructs an {@link EffectivePom} object, merging the properties of the POM file over the properties
+     * of its parent and adding the built-in project properties.
+     * @param pomFile The POM file the object describes.
+     * @param pomInfo The parsed form of the POM file.
+     * @param parent The effective form of the parent POM file, or null if it has no parent or it couldn't be found.
+     */
+    public EffectivePom(File pomFile, PomInfo pomInfo, EffectivePom parent) {
+        this.pomFile = pomFile;
+        this.pomInfo = pomInfo;
+        this.parent = parent;
+
+        // Inherited properties are overridden by the project's own properties
+        Map<String, String> merged = new HashMap<>();
+        if (parent != null)
+            merged.putAll(parent.properties);
+        merged.putAll(pomInfo.getProperties());
+
+        // Built-in properties describe this project, never the parent
+        String groupId = firstValue("project.groupId", "project.parent.groupId");
+        String artifactId = firstValue("project.artifactId", null);
+        String version = firstValue("project.version", "project.parent.version");
+        String basedir = pomFile.getAbsoluteFile().getParent();
+        putBuiltIn(merged, "groupId", groupId);
+        putBuiltIn(merged, "artifactId", artifactId);
+        putBuiltIn(merged, "version", version);
+        putBuiltIn(merged, "parent.groupId", firstValue("project.parent.groupId", null));
+        putBuiltIn(merged, "parent.artifactId", firstValue("project.parent.artifactId", null));
+        putBuiltIn(merged, "parent.version", firstValue("project.parent.version", null));
+        putBuiltIn(merged, "basedir", basedir);
+        if (basedir != null)
+            merged.put("basedir", basedir);
+
+        this.properties = Collections.unmodifiableMap(merged);
+    }
+
+    /**
+     * Retrieves the POM file the object describes.
+     * @return The POM file.
+     */
+    public File getPomFile() {
+        return pomFile;
+    }
+
+    /**
+     * Retrieves the parsed form of the POM file.
+     * @return The {@link PomInfo} object of the POM file.
+     */
+    public PomInfo getPomInfo() {
+        return pomInfo;
+    }
+
+    /**
+     * Retrieves the effective form of the parent POM file.
+     * @return The parent {@link EffectivePom}, or null if there is no parent or it couldn't be found.
+     */
+    public EffectivePom getParent() {
+        return parent;
+    }
+
+    /**
+     * Retrieves the merged, uninterpolated properties visible to the project.
+     * @return An unmodifiable mapping of property names to property values.
+     */
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Retrieves the interpolated value of a node of the POM file.
+     * @param mapId The node ID string to retrieve.
+     * @return The trimmed and interpolated value of the node, or null if the node doesn't exist or is empty.
+     */
+    public String getValue(String mapId) {
+        return interpolate(firstValue(mapId, null));
+    }
+
+    /**
+     * Retrieves the interpolated groupId of the project, inherited from the parent if not declared.
+     * @return The groupId of the project, or null if it couldn't be found.
+     */
+    public String getGroupId() {
+        return interpolate(firstValue("project.groupId", "project.parent.groupId"));
+    }
+
+    /**
+     * Retrieves the interpolated artifactId of the project.
+     * @return The artifactId of the project, or null if it couldn't be found.
+     */
+    public String getArtifactId() {
+        return getValue("project.artifactId");
+    }
+
+    /**
+     * Retrieves the interpolated version of the project, inherited from the parent if not declared.
+     * @return The version of the project, or null if it couldn't be found.
+     */
+    public String getVersion() {
+        return interpolate(firstValue("project.version", "project.parent.version"));
+    }
+
+    /**
+     * Retrieves the interpolated coordinate of the project.
+     * @return The {@link ArtifactCoordinate} of the project, or null if no groupId or artifactId could be found.
+     */
+    public ArtifactCoordinate getCoordinate() {
+        String groupId = getGroupId();
+        String artifactId = getArtifactId();
+        if (groupId == null || artifactId == null)
+            return null;
+        return new ArtifactCoordinate(groupId, artifactId, getVersion());
+    }
+
+    /**
+     * Retrieves the interpolated packaging of the project.
+     * @return The packaging of the project, 'jar' if it doesn't declare one.
+     */
+    public String getPackaging() {
+        String packaging = getValue("project.packaging");
+        return packaging == null ? "jar" : packaging;
+    }
+
+    /**
+     * Retrieves the interpolated file name, without extension, the project's artifacts are built under. The name
+     * is inherited from the parent if not declared, and interpolated against this project's properties.
+     * @return The final name of the project's artifacts, or null if no artifactId or version could be found.
+     */
+    public String getFinalName() {
+        String finalName = interpolate(inheritedValue("project.build.finalName"));
+        if (finalName != null)
+            return finalName;
+        String artifactId = getArtifactId();
+        String version = getVersion();
+        return artifactId == null || version == null ? null : artifactId + "-" + version;
+    }
+
+    /**
+     * Retrieves the directory the project is built into, inherited from the parent if not declared.
+     * @return The build directory of the project, 'target' below the project's directory if it doesn't declare one.
+     */
+    public File getBuildDirectory() {
+        String basedirValue = properties.get("project.basedir");
+        File basedir = new File(basedirValue == null ? "." : basedirValue);
+        String directory = interpolate(inheritedValue("project.build.directory"));
+        if (directory == null || directory.contains("${"))
+            return new File(basedir, "target");
+        File file = new File(directory);
+        return file.isAbsolute() ? file : new File(basedir, directory);
+    }
+
+    /**
+     * Retrieves the interpolated classifier the project's packaging plugin attaches to the main artifact,
+     * inherited from the parent if not declared.
+     * @return The classifier of the main artifact, or null if it has none.
+     */
+    public String getClassifier() {
+        for (EffectivePom pom = this; pom != null; pom = pom.parent) {
+            if (pom.pomInfo.getPackagingClassifier() != null)
+                return interpolate(pom.pomInfo.getPackagingClassifier());
+        }
+        return null;
+    }
+
+    /**
+     * Replaces every '${name}' expression in a value with the value of the named property. Property values
+     * are interpolated as well, up to a fixed depth to guard against properties that refer to themselves.
+     * Expressions naming an unknown property are left as they are.
+     * @param value The value to interpolate, may be null.
+     * @return The interpolated value, or null if the value was null.
+     */
+    public String interpolate(String value) {
+        return interpolate(value, 0);
+    }
+
+    /**
+     * Interpolates a value, tracking how deeply nested the current interpolation is.
+     * @param value The value to interpolate.
+     * @param depth The number of property values currently being interpolated.
+     * @return The interpolated value.
+     */
+    private String interpolate(String value, int depth) {
+        if (value == null || value.indexOf("${") == -1 || depth > MAX_INTERPOLATION_DEPTH)
+            return value;
+
+        StringBuilder result = new StringBuilder(value.length());
+        int position = 0;
+        int start;
+        while ((start = value.indexOf("${", position)) != -1) {
+            int end = value.indexOf('}', start + 2);
+            if (end == -1)
+                break;
+
+            result.append(value, position, start);
+            String replacement = lookup(value.substring(start + 2, end));
+            if (replacement == null)
+                result.append(value, start, end + 1);
+            else
+                result.append(interpolate(replacement, depth + 1));
+            position = end + 1;
+        }
+        result.append(value, position, value.length());
+        return result.toString();
+    }
+
+    /**
+     * Looks up the value of a single property, including the 'pom.' alias of the built-in project properties
+     * and 'env.' environment variables.
+     * @param name The name of the property.
+     * @return The uninterpolated value of the property, or null if it isn't known.
+     */
+    private String lookup(String name) {
+        String value = properties.get(name);
+        if (value == null && name.startsWith("pom."))
+            value = properties.get("project." + name.substring(4));
+        if (value == null && name.startsWith("env."))
+            value = System.getenv(name.substring(4));
+        return value;
+    }
+
+    /**
+     * Retrieves the first non-empty value of two nodes of the POM file.
+     * @param mapId The node ID string to try first.
+     * @param fallbackMapId The node ID string to try second, may be null.
+     * @return The trimmed value of the first non-empty node, or null if neither has a value.
+     */
+    private String firstValue(String mapId, String fallbackMapId) {
+        String value = pomInfo.getNodeValue(mapId);
+        if ((value == null || value.trim().length() == 0) && fallbackMapId != null)
+            value = pomInfo.getNodeValue(fallbackMapId);
+        return value == null || value.trim().length() == 0 ? null : value.trim();
+    }
+
+    /**
+     * Retrieves the first non-empty value of a node in this POM file or, failing that, in its chain of parents.
+     * @param mapId The node ID string to retrieve.
+     * @return The trimmed, uninterpolated value of the node, or null if no POM file in the chain has a value.
+     */
+    private String inheritedValue(String mapId) {
+        for (EffectivePom pom = this; pom != null; pom = pom.parent) {
+            String value = pom.firstValue(mapId, null);
+            if (value != null)
+                return value;
+        }
+        return null;
+    }
+
+    /**
+     * Adds a built-in 'project.' property if it has a value.
+     * @param properties The properties to add to.
+     * @param name The name of the property, without the 'project.' prefix.
+     * @param value The value of the property, may be null.
+     */
+    private static void putBuiltIn(Map<String, String> properties, String name, String value) {
+        if (value != null)
+            properties.put("project." + name, value);
+    }
+}
@@ -0,0 +1,83 @@
+package com.lukas783.mdt.api;
+
+/**
+ * A POJO that describes how the extraction of an archive went: how many entries the archive held, how many of
+ * them were written out, how many were already up to date at their destination, and how much was written.
+ *
+ * @author Lucas Carpenter
+ */
+public class ExtractionResult {
+
+    // Declaration of variables held by the object
+    private final long entryCount;
+    private final long extractedCount;
+    private final long unchangedCount;
+    private final long bytesWritten;
+    private final long wallTimeMillis;
+
+    /**
+     * Constructs an {@link ExtractionResult} object.
+     * @param entryCount The number of file entries in the archive.
+     * @param extractedCount The number of file entries written to their destination.
+     * @param unchangedCount The number of file entries skipped because their destination already matched them.
+     * @param bytesWritten The number of bytes written to the destination.
+     * @param wallTimeMillis How long the extraction took, in milliseconds.
+     */
+    public ExtractionResult(long entryCount, long extractedCount, long unchangedCount, long bytesWritten,
+                            long wallTimeMillis) {
+        this.entryCount = entryCount;
+        this.extractedCount = extractedCount;
+        this.unchangedCount = unchangedCount;
+        this.bytesWritten = bytesWritten;
+        this.wallTimeMillis = wallTimeMillis;
+    }
+
+    /**
+     * Retrieves the number of file entries in the archive.
+     * @return The number of file entries.
+     */
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Retrieves the number of file entries written to their destination.
+     * @return The number of extracted file entries.
+     */
+    public long getExtractedCount() {
+        return extractedCount;
+    }
+
+    /**
+     * Retrieves the number of file entries skipped because their destination already matched them.
+     * @return The number of unchanged file entries.
+     */
+    public long getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    /**
+     * Retrieves the number of bytes written to the destination.
+     * @return The number of bytes written.
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Retrieves how long the extraction took.
+     * @return The wall clock time of the extraction, in milliseconds.
+     */
+    public long getWallTimeMillis() {
+        return wallTimeMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return entryCount + " entries (" + extractedCount + " extracted, " + unchangedCount + " unchanged), " +
+                bytesWritten + " bytes written in " + String.format("%.1f", wallTimeMillis / 1000.0) + "s";
+    }
+}
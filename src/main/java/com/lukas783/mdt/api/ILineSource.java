@@ -0,0 +1,35 @@
+package com.lukas783.mdt.api;
+
+/**
+ * An interface that can be implemented by any class that holds lines of text for display. Used by
+ * {@link com.lukas783.mdt.ui.ConsoleView} to paint only the lines it needs, without asking for the whole text.
+ *
+ * @author Lucas Carpenter
+ */
+public interface ILineSource {
+    /**
+     * A required method that retrieves the number of lines currently available.
+     * @return The number of lines available through {@link #getLine(int)}.
+     */
+    public int getLineCount();
+
+    /**
+     * A required method that retrieves a single line, without its line separator.
+     * @param index The index of the line, where 0 is the first line currently available.
+     * @return The line, or an empty string if the index is out of range.
+     */
+    public String getLine(int index);
+
+    /**
+     * A required method that retrieves the length of the longest line available.
+     * @return The length of the longest line, in characters.
+     */
+    public int getLongestLine();
+
+    /**
+     * A required method that retrieves how many lines have been removed from the front of the source since it
+     * was created. Comparing the value before and after a change tells how far the available lines have shifted.
+     * @return The total number of lines no longer available.
+     */
+    public long getEvictedLines();
+}
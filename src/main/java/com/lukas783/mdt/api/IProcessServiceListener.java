@@ -2,6 +2,8 @@ package com.lukas783.mdt.api;
 
 import com.lukas783.mdt.service.ProcessService;
 
+import java.util.List;
+
 /**
  * A listener interface that can be implemented by any class that needs to listen to
  * the {@link com.lukas783.mdt.service.ProcessService} singleton service.
@@ -11,7 +13,8 @@ import com.lukas783.mdt.service.ProcessService;
 public interface IProcessServiceListener {
     /**
      * A required method that is meant to be called when {@link ProcessService#executeProcessTasks()}
-     * finishes.
+     * finishes. Output is delivered in batches that may hold many lines, from the service's output thread
+     * rather than the thread that produced the output.
      * @param processOutput The most recent output string from a command line execution.
      */
     public void processOutputAppend(String processOutput);
@@ -33,4 +36,29 @@ public interface IProcessServiceListener {
      * @param task The {@link MavenTask} object to remove from the service.
      */
     public void taskRemoved(MavenTask task);
+
+    /**
+     * An optional method that is meant to be called when {@link ProcessService#addTasks(List)} finishes. Defaults to
+     * calling {@link #taskAdded(MavenTask)} for every task, listeners that can handle the tasks at once should
+     * override it.
+     * @param tasks The {@link MavenTask} objects added to, or updated in, the service.
+     */
+    public default void tasksAdded(List<MavenTask> tasks) {
+        for (MavenTask task : tasks)
+            taskAdded(task);
+    }
+
+    /**
+     * An optional method that is meant to be called when {@link ProcessService#reorderTaskPosition(int, int)}
+     * finishes.
+     */
+    public default void tasksReordered() { }
+
+    /**
+     * An optional method that is meant to be called whenever a task reaches a new step during a run. Events are
+     * delivered straight from the thread running the task, or reading its output, so implementations must be
+     * thread-safe and return quickly.
+     * @param event The {@link BuildEvent} describing the step.
+     */
+    public default void buildEventOccurred(BuildEvent event) { }
 }
@@ -0,0 +1,26 @@
+package com.lukas783.mdt.api;
+
+/**
+ * An interface that can be implemented by any class that decides whether there are enough resources left to
+ * start another task. Used by {@link com.lukas783.mdt.build.TaskScheduler} before starting each task, on top of
+ * its limit on the number of tasks running at once.
+ *
+ * @author Lucas Carpenter
+ */
+public interface IResourceGovernor {
+    /**
+     * A required method that sets aside the resources a task needs, if there are enough left. Only called from
+     * the scheduler's own thread.
+     * @param task The {@link MavenTask} object about to be started.
+     * @param mustAdmit True if no other task is running, in which case the task must be admitted even if it needs
+     *                  more than the budget, as it would otherwise never run.
+     * @return True if the task may start, False if it has to wait for running tasks to finish.
+     */
+    public boolean tryAcquire(MavenTask task, boolean mustAdmit);
+
+    /**
+     * A required method that gives back the resources set aside for a task once it has finished.
+     * @param task The {@link MavenTask} object that finished.
+     */
+    public void release(MavenTask task);
+}
@@ -0,0 +1,51 @@
+package com.lukas783.mdt.api;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * An interface that can be implemented by any class that knows how to run a single {@link MavenTask}.
+ * Used by {@link com.lukas783.mdt.build.TaskScheduler} to hand off tasks once they are ready to run.
+ *
+ * @author Lucas Carpenter
+ */
+public interface ITaskExecutor {
+    /**
+     * A required method that is meant to run a single task to completion before returning. May be called
+     * from several threads at the same time.
+     * @param task The {@link MavenTask} object to run.
+     * @return True if the task succeeded, False if it failed and tasks depending on it shouldn't run.
+     */
+    public boolean executeTask(MavenTask task);
+
+    /**
+     * An optional method that runs a single task until it no longer needs its slot, then leaves the rest of it,
+     * such as copying what it built, to finish in the background. Tasks depending on the task are only started
+     * once the returned stage has completed. May be called from several threads at the same time.
+     * @param task The {@link MavenTask} object to run.
+     * @return A stage completing with True if the task succeeded, False if it failed and tasks depending on it
+     *         shouldn't run. Runs the task to completion with {@link #executeTask(MavenTask)} by default.
+     */
+    public default CompletionStage<Boolean> startTask(MavenTask task) {
+        return CompletableFuture.completedFuture(executeTask(task));
+    }
+
+    /**
+     * An optional method called instead of {@link #executeTask(MavenTask)} for a task that won't be run
+     * because another task failed, or because the run was cancelled.
+     * @param task The {@link MavenTask} object that won't be run.
+     * @param failedTask The {@link MavenTask} object whose failure caused the task to be skipped, or null if
+     *                   the run was cancelled.
+     */
+    public default void skipTask(MavenTask task, MavenTask failedTask) { }
+
+    /**
+     * An optional method that estimates how long a task will take to run, so that tasks with a lot of work ahead
+     * of them can be started first. Called once for every task before any task is run.
+     * @param task The {@link MavenTask} object to estimate.
+     * @return The estimated duration in milliseconds, or -1 if there is no estimate.
+     */
+    public default long estimateDurationMillis(MavenTask task) {
+        return -1;
+    }
+}
@@ -1,17 +1,19 @@
 package com.lukas783.mdt.api;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import com.lukas783.mdt.util.BinaryIO;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.InputStream;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,6 +22,10 @@ import java.util.logging.Logger;
  * a project into an artifact. The purpose of this object is to map the node values and attributes
  * of an XML POM file into an easy-to-access map to retrieve particular values and attributes from
  * a given XML POM file.
+ * <p>
+ * The file is read in a single streaming pass, so no document tree is ever built. Optionally, only
+ * a given set of paths can be read, in which case any part of the file that can't contain one of the
+ * paths is skipped over without being stored.
  *
  * @author Lucas Carpenter
  */
@@ -28,10 +34,47 @@ public class PomInfo {
     // Declaration of logger for debug/error handling messages.
     private final static Logger logger = Logger.getLogger(PomInfo.class.getName());
 
+    // Declaration of constants used by the class
+    private static final String PROPERTIES_PREFIX = "project.properties.";
+    private static final String DEPENDENCY_PATH = "project.dependencies.dependency";
+    private static final String DEPENDENCY_GROUP_PATH = DEPENDENCY_PATH + ".groupId";
+    private static final String DEPENDENCY_ARTIFACT_PATH = DEPENDENCY_PATH + ".artifactId";
+    private static final String DEPENDENCY_VERSION_PATH = DEPENDENCY_PATH + ".version";
+    private static final String MODULE_PATH = "project.modules.module";
+    private static final String PLUGIN_PATH = "project.build.plugins.plugin";
+    private static final String PLUGIN_ARTIFACT_PATH = PLUGIN_PATH + ".artifactId";
+    private static final String PLUGIN_CLASSIFIER_PATH = PLUGIN_PATH + ".configuration.classifier";
+    private static final Set<String> PACKAGING_PLUGINS = new HashSet<>(Arrays.asList(
+            "maven-jar-plugin", "maven-war-plugin", "maven-ear-plugin", "maven-ejb-plugin", "maven-rar-plugin"));
+
+    // Declaration of the factory used to create stream readers, without DTD or external entity support
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    static {
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
 
     // Declaration of variables used by the class
-    private Map<String, String> nodeValueMap;
-    private Map<String, Map<String, String>> nodeAttributeMap;
+    private Map<String, String> nodeValueMap = new HashMap<>();
+    private Map<String, Map<String, String>> nodeAttributeMap = new HashMap<>();
+    private List<ArtifactCoordinate> dependencies = new ArrayList<>();
+    private List<String> modules = new ArrayList<>();
+    private String packagingClassifier;
+
+    // Declaration of variables only used while parsing
+    private Set<String> paths;
+    private Set<String> pathPrefixes;
+    private int pathsRemaining;
+    private String dependencyGroupId;
+    private String dependencyArtifactId;
+    private String dependencyVersion;
+    private String pluginArtifactId;
+    private String pluginClassifier;
+
+    /**
+     * Constructs an empty {@link PomInfo} object, used by {@link #readFrom(DataInput)}.
+     */
+    private PomInfo() { }
 
     /**
      * Constructs a {@link PomInfo} object. Reads a file and attempts to map the values and attributes of the
@@ -39,82 +82,372 @@ public class PomInfo {
      * @param pomFile The file to attempt to parse, should be in an XML format.
      */
     public PomInfo(File pomFile) {
-        try {
-            // Attempt to parse the file into a document
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = dbf.newDocumentBuilder();
-            Document doc = builder.parse(pomFile);
-
-            // normalize the parsed document
-            doc.getDocumentElement().normalize();
-
-            // get the list of root-level nodes.
-            NodeList nodes = doc.getChildNodes();
-
-            // build our internal map to store node values and attributes
-            nodeValueMap = new HashMap<>();
-            nodeAttributeMap = new HashMap<>();
-
-            // Parse the list of root-level nodes into a mapping of values and attribute lists
-            parseChildren("", nodes);
-        } catch(ParserConfigurationException pce) {
-            logger.log(Level.SEVERE, "POM file configuration couldn't be parsed.", pce);
-        } catch(SAXException saxe) {
-            logger.log(Level.SEVERE, "POM has invalid schema configuration.", saxe);
+        this(pomFile, null);
+    }
+
+    /**
+     * Constructs a {@link PomInfo} object that only maps the values and attributes of the given paths, and of
+     * any node below them. Reading stops as soon as a value has been found for every path. Dependencies are
+     * only read if {@code project.dependencies.dependency} is one of the paths, and modules only if
+     * {@code project.modules.module} is one of the paths.
+     * @param pomFile The file to attempt to parse, should be in an XML format.
+     * @param paths The node ID strings to read, or null to read the whole file.
+     */
+    public PomInfo(File pomFile, Set<String> paths) {
+        if (paths != null) {
+            this.paths = paths;
+            this.pathPrefixes = new HashSet<>();
+            for (String path : paths) {
+                for (int i = path.indexOf('.'); i != -1; i = path.indexOf('.', i + 1))
+                    pathPrefixes.add(path.substring(0, i));
+            }
+            this.pathsRemaining = paths.size();
+        }
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(pomFile))) {
+            XMLStreamReader reader;
+            synchronized (inputFactory) {
+                reader = inputFactory.createXMLStreamReader(in);
+            }
+            try {
+                parse(reader);
+            } finally {
+                reader.close();
+            }
+        } catch(XMLStreamException xse) {
+            logger.log(Level.SEVERE, "POM has invalid schema configuration.", xse);
         } catch(IOException ioe) {
             logger.log(Level.SEVERE, "Unable to read POM file.", ioe);
         }
+
+        this.paths = null;
+        this.pathPrefixes = null;
+    }
+
+    /**
+     * Reads a {@link PomInfo} object previously written by {@link #writeTo(DataOutput)}.
+     * @param in The input to read from.
+     * @return The {@link PomInfo} object read.
+     * @throws IOException If the input couldn't be read from.
+     */
+    public static PomInfo readFrom(DataInput in) throws IOException {
+        PomInfo pomInfo = new PomInfo();
+
+        int valueCount = in.readInt();
+        for (int i = 0; i < valueCount; i++)
+            pomInfo.nodeValueMap.put(BinaryIO.readString(in), BinaryIO.readString(in));
+
+        int attributeNodeCount = in.readInt();
+        for (int i = 0; i < attributeNodeCount; i++) {
+            String node = BinaryIO.readString(in);
+            int attributeCount = in.readInt();
+            Map<String, String> attributeMap = new HashMap<>();
+            for (int j = 0; j < attributeCount; j++)
+                attributeMap.put(BinaryIO.readString(in), BinaryIO.readString(in));
+            pomInfo.nodeAttributeMap.put(node, attributeMap);
+        }
+
+        int dependencyCount = in.readInt();
+        for (int i = 0; i < dependencyCount; i++) {
+            pomInfo.dependencies.add(new ArtifactCoordinate(
+                    BinaryIO.readString(in), BinaryIO.readString(in), BinaryIO.readString(in)));
+        }
+
+        int moduleCount = in.readInt();
+        for (int i = 0; i < moduleCount; i++)
+            pomInfo.modules.add(BinaryIO.readString(in));
+
+        pomInfo.packagingClassifier = BinaryIO.readString(in);
+        return pomInfo;
+    }
+
+    /**
+     * Writes the mapped values, attributes, dependencies, modules and packaging classifier of the object in a
+     * compact binary form that can be read back with {@link #readFrom(DataInput)}.
+     * @param out The output to write to.
+     * @throws IOException If the output couldn't be written to.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(nodeValueMap.size());
+        for (Map.Entry<String, String> entry : nodeValueMap.entrySet()) {
+            BinaryIO.writeString(out, entry.getKey());
+            BinaryIO.writeString(out, entry.getValue());
+        }
+
+        out.writeInt(nodeAttributeMap.size());
+        for (Map.Entry<String, Map<String, String>> node : nodeAttributeMap.entrySet()) {
+            BinaryIO.writeString(out, node.getKey());
+            out.writeInt(node.getValue().size());
+            for (Map.Entry<String, String> attribute : node.getValue().entrySet()) {
+                BinaryIO.writeString(out, attribute.getKey());
+                BinaryIO.writeString(out, attribute.getValue());
+            }
+        }
+
+        out.writeInt(dependencies.size());
+        for (ArtifactCoordinate dependency : dependencies) {
+            BinaryIO.writeString(out, dependency.getGroupId());
+            BinaryIO.writeString(out, dependency.getArtifactId());
+            BinaryIO.writeString(out, dependency.getVersion());
+        }
+
+        out.writeInt(modules.size());
+        for (String module : modules)
+            BinaryIO.writeString(out, module);
+
+        BinaryIO.writeString(out, packagingClassifier);
     }
 
     /**
-     * Recursively parses the nodes of an XML file into a mapping of attributes and values.
-     * The values parsed only parse if the node is reading the #text portion of the node.
-     * Otherwise, it attempts to parse the attributes available, if none are available, we
-     * retrieve a list of that node's children.
-     * @param currentPath The current path to the node value stored currently.
-     * @param node The {@link NodeList} item currently being processed.
-     */
-    private void parseChildren(String currentPath, NodeList node) {
-        // Loop through the list of items in the NodeList
-        for (int i = 0; i < node.getLength(); i++) {
-            // Handle this only if we are parsing a given nodes #text field
-            if(node.item(i).getNodeName().endsWith("#text")) {
-                // Remove the '.' from the current path
-                String newNodeName = currentPath.substring(0, currentPath.length() - 1);
-
-                // Put the #text value of the node into the mapping of node values
-                nodeValueMap.put(newNodeName, node.item(i).getNodeValue());
-
-                // Retrieve the list of this node's children and parse them as well.
-                NodeList childNode = node.item(i).getChildNodes();
-                if (childNode != null) {
-                    parseChildren(currentPath + ".", childNode);
-                }
-            // Handle this only if the current node being checked doesn't have a #text tag
-            } else {
-                // Get the mapping of attributes for the node and build a new hash map object.
-                NamedNodeMap attributeNodeMap = node.item(i).getAttributes();
-                Map<String, String> attributeMap = new HashMap<>();
-
-                // If the node has attributes, populate the hashmap of attributes for the node with values
-                if (attributeNodeMap != null) {
-                    for (int j = 0; j < attributeNodeMap.getLength(); j++) {
-                        attributeMap.put(attributeNodeMap.item(j).getNodeName(), attributeNodeMap.item(j).getNodeValue());
+     * Streams through the elements of an XML file, mapping the text of every element without child elements
+     * and the attributes of every element that has attributes. The current path is kept in a single buffer
+     * that is only turned into a String when a value is actually stored.
+     * @param reader The {@link XMLStreamReader} positioned at the start of the document.
+     * @throws XMLStreamException If the document isn't well-formed XML.
+     */
+    private void parse(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder path = new StringBuilder(64);
+        StringBuilder text = new StringBuilder();
+        int[] pathLengths = new int[16];
+        int depth = 0;
+        int wantedDepth = -1;
+        boolean leaf = false;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    // Extend the path with the new element
+                    if (depth == pathLengths.length)
+                        pathLengths = Arrays.copyOf(pathLengths, depth * 2);
+                    pathLengths[depth++] = path.length();
+                    if (path.length() > 0)
+                        path.append('.');
+                    if (reader.getPrefix() != null && reader.getPrefix().length() > 0)
+                        path.append(reader.getPrefix()).append(':');
+                    path.append(reader.getLocalName());
+                    text.setLength(0);
+                    leaf = true;
+
+                    // When only reading some paths, skip any element that can't lead to one of them
+                    if (paths != null && wantedDepth == -1) {
+                        String currentPath = path.toString();
+                        if (paths.contains(currentPath)) {
+                            wantedDepth = depth;
+                        } else if (!pathPrefixes.contains(currentPath)) {
+                            skipElement(reader);
+                            path.setLength(pathLengths[--depth]);
+                            leaf = false;
+                            break;
+                        }
                     }
-                }
 
-                // Place our built hashmap into the table of attributes
-                nodeAttributeMap.put(currentPath + node.item(i).getNodeName(), attributeMap);
+                    if (reader.getAttributeCount() > 0 || reader.getNamespaceCount() > 0)
+                        parseAttributes(path.toString(), reader);
 
-                // Recurse the list of this node's children and parse them as well.
-                NodeList childNode = node.item(i).getChildNodes();
-                if (childNode != null) {
-                    parseChildren(currentPath + node.item(i).getNodeName() + ".", childNode);
-                }
+                    if (pathEquals(path, DEPENDENCY_PATH)) {
+                        dependencyGroupId = null;
+                        dependencyArtifactId = null;
+                        dependencyVersion = null;
+                    }
+                    if (pathEquals(path, PLUGIN_PATH)) {
+                        pluginArtifactId = null;
+                        pluginClassifier = null;
+                    }
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    // Only text directly inside an element without child elements is kept
+                    if (leaf)
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    if (leaf && storeValue(path, text.toString()))
+                        return;
+                    if (pathEquals(path, DEPENDENCY_PATH) && dependencyGroupId != null && dependencyArtifactId != null)
+                        dependencies.add(
+                                new ArtifactCoordinate(dependencyGroupId, dependencyArtifactId, dependencyVersion));
+                    if (pathEquals(path, PLUGIN_PATH) && pluginClassifier != null &&
+                            PACKAGING_PLUGINS.contains(pluginArtifactId))
+                        packagingClassifier = pluginClassifier;
+                    if (depth == wantedDepth)
+                        wantedDepth = -1;
+
+                    // Shorten the path back to the parent element, which is no longer a leaf
+                    path.setLength(pathLengths[--depth]);
+                    leaf = false;
+                    break;
             }
         }
     }
 
+    /**
+     * Stores the text value of an element without child elements, noting it down as part of a dependency or
+     * module or plugin declaration where needed.
+     * @param path The path of the element.
+     * @param value The text value of the element.
+     * @return True if every requested path has now been found and parsing can stop, False otherwise.
+     */
+    private boolean storeValue(StringBuilder path, String value) {
+        if (pathEquals(path, DEPENDENCY_GROUP_PATH))
+            dependencyGroupId = value.trim();
+        else if (pathEquals(path, DEPENDENCY_ARTIFACT_PATH))
+            dependencyArtifactId = value.trim();
+        else if (pathEquals(path, DEPENDENCY_VERSION_PATH))
+            dependencyVersion = value.trim();
+        else if (pathEquals(path, MODULE_PATH))
+            modules.add(value.trim());
+        else if (pathEquals(path, PLUGIN_ARTIFACT_PATH))
+            pluginArtifactId = value.trim();
+        else if (pathEquals(path, PLUGIN_CLASSIFIER_PATH) && value.trim().length() > 0)
+            pluginClassifier = value.trim();
+
+        String key = path.toString();
+        boolean found = nodeValueMap.put(key, value) == null && paths != null && paths.contains(key);
+        return found && --pathsRemaining == 0;
+    }
+
+    /**
+     * Stores the attributes, and namespace declarations, of the element the reader is positioned at.
+     * @param path The path of the element.
+     * @param reader The {@link XMLStreamReader} positioned at a start element.
+     */
+    private void parseAttributes(String path, XMLStreamReader reader) {
+        Map<String, String> attributeMap = new HashMap<>();
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            String prefix = reader.getNamespacePrefix(i);
+            attributeMap.put(prefix == null || prefix.length() == 0 ? "xmlns" : "xmlns:" + prefix,
+                    reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String prefix = reader.getAttributePrefix(i);
+            String name = reader.getAttributeLocalName(i);
+            attributeMap.put(prefix == null || prefix.length() == 0 ? name : prefix + ":" + name,
+                    reader.getAttributeValue(i));
+        }
+        nodeAttributeMap.put(path, attributeMap);
+    }
+
+    /**
+     * Skips over the element the reader is positioned at, including all of its children.
+     * @param reader The {@link XMLStreamReader} positioned at a start element.
+     * @throws XMLStreamException If the document isn't well-formed XML.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    /**
+     * Compares the current path buffer to a path without turning the buffer into a String.
+     * @param path The current path buffer.
+     * @param other The path to compare against.
+     * @return True if both paths are the same, False otherwise.
+     */
+    private static boolean pathEquals(StringBuilder path, String other) {
+        if (path.length() != other.length())
+            return false;
+        for (int i = path.length() - 1; i >= 0; i--) {
+            if (path.charAt(i) != other.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the value of a node with surrounding whitespace removed.
+     * @param mapId The node ID string to retrieve.
+     * @return The trimmed value of the node, or null if the node doesn't exist or is empty.
+     */
+    private String getTrimmedValue(String mapId) {
+        String value = getNodeValue(mapId);
+        if (value == null || value.trim().length() == 0)
+            return null;
+        return value.trim();
+    }
+
+    /**
+     * Retrieves the coordinate of the project described by the POM file. If the project doesn't declare
+     * its own groupId or version, the values of the parent project are used instead.
+     * @return The {@link ArtifactCoordinate} of the project, or null if no groupId or artifactId could be found.
+     */
+    public ArtifactCoordinate getCoordinate() {
+        String groupId = getTrimmedValue("project.groupId");
+        if (groupId == null)
+            groupId = getTrimmedValue("project.parent.groupId");
+
+        String version = getTrimmedValue("project.version");
+        if (version == null)
+            version = getTrimmedValue("project.parent.version");
+
+        String artifactId = getTrimmedValue("project.artifactId");
+        if (groupId == null || artifactId == null)
+            return null;
+
+        return new ArtifactCoordinate(groupId, artifactId, version);
+    }
+
+    /**
+     * Retrieves the coordinate of the parent project declared by the POM file.
+     * @return The {@link ArtifactCoordinate} of the parent project, or null if the POM declares no parent.
+     */
+    public ArtifactCoordinate getParent() {
+        String groupId = getTrimmedValue("project.parent.groupId");
+        String artifactId = getTrimmedValue("project.parent.artifactId");
+        if (groupId == null || artifactId == null)
+            return null;
+
+        return new ArtifactCoordinate(groupId, artifactId, getTrimmedValue("project.parent.version"));
+    }
+
+    /**
+     * Retrieves the properties declared by the project itself, without any inherited properties and without
+     * any interpolation applied to their values.
+     * @return A new mapping of property names to trimmed property values.
+     */
+    public Map<String, String> getProperties() {
+        Map<String, String> properties = new HashMap<>();
+        for (Map.Entry<String, String> entry : nodeValueMap.entrySet()) {
+            if (entry.getKey().startsWith(PROPERTIES_PREFIX))
+                properties.put(entry.getKey().substring(PROPERTIES_PREFIX.length()), entry.getValue().trim());
+        }
+        return properties;
+    }
+
+    /**
+     * Retrieves the coordinates of every dependency declared by the project.
+     * @return An unmodifiable list of dependency coordinates, in the order they were declared.
+     */
+    public List<ArtifactCoordinate> getDependencies() {
+        return Collections.unmodifiableList(dependencies);
+    }
+
+    /**
+     * Retrieves the relative paths of every module declared by the project.
+     * @return An unmodifiable list of module paths, in the order they were declared.
+     */
+    public List<String> getModules() {
+        return Collections.unmodifiableList(modules);
+    }
+
+    /**
+     * Retrieves the classifier the project's packaging plugin, such as the maven-jar-plugin, is configured to
+     * attach to the main artifact. The node mapping only keeps the last value of each path, which may belong to any
+     * plugin, so the classifier is noted down while the plugin that declares it is being parsed.
+     * @return The uninterpolated classifier of the main artifact, or null if the packaging plugin declares none.
+     */
+    public String getPackagingClassifier() {
+        return packagingClassifier;
+    }
+
     /**
      * Retrieves the #text value of a given node.
      * @param mapId The node ID string to retrieve.
@@ -131,15 +464,16 @@ public class PomInfo {
      * @return The value of the node's attribute, as a String.
      */
     public String getAttributeValue(String nodeString, String attributeString) {
-        return nodeAttributeMap.get(nodeString).get(attributeString);
+        return getAttributes(nodeString).get(attributeString);
     }
 
     /**
      * Retrieves the particular mapping of attributes for a given node string ID.
      * @param nodeString The node ID string.
-     * @return The mapping of attribute ID strings to attribute value strings.
+     * @return The mapping of attribute ID strings to attribute value strings, empty if the node has no attributes.
      */
     public Map<String, String> getAttributes(String nodeString) {
-        return nodeAttributeMap.get(nodeString);
+        Map<String, String> attributes = nodeAttributeMap.get(nodeString);
+        return attributes == null ? Collections.<String, String>emptyMap() : attributes;
     }
 }
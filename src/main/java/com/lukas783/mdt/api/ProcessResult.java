@@ -0,0 +1,125 @@
+package com.lukas783.mdt.api;
+
+/**
+ * A POJO that describes how a child process finished: its exit code, how long it ran, how much processor time it
+ * used, how much memory it held at its peak, and how much output it wrote to each of its output streams.
+ *
+ * @author Lucas Carpenter
+ */
+public class ProcessResult {
+
+    // Declaration of the exit code used when a process couldn't be started or waited on
+    public static final int NOT_RUN = -1;
+
+    // Declaration of variables held by the object
+    private final int exitCode;
+    private final long wallTimeMillis;
+    private final long cpuTimeMillis;
+    private final long stdoutBytes;
+    private final long stderrBytes;
+    private final long peakResidentBytes;
+
+    /**
+     * Constructs a {@link ProcessResult} object.
+     * @param exitCode The exit code of the process, or {@link #NOT_RUN} if it couldn't be run to completion.
+     * @param wallTimeMillis How long the process ran, in milliseconds.
+     * @param cpuTimeMillis How much processor time the process and its children used, in milliseconds, or -1
+     *                      if it couldn't be measured.
+     * @param stdoutBytes The number of bytes the process wrote to its standard output.
+     * @param stderrBytes The number of bytes the process wrote to its standard error.
+     */
+    public ProcessResult(int exitCode, long wallTimeMillis, long cpuTimeMillis, long stdoutBytes, long stderrBytes) {
+        this(exitCode, wallTimeMillis, cpuTimeMillis, stdoutBytes, stderrBytes, -1);
+    }
+
+    /**
+     * Constructs a {@link ProcessResult} object.
+     * @param exitCode The exit code of the process, or {@link #NOT_RUN} if it couldn't be run to completion.
+     * @param wallTimeMillis How long the process ran, in milliseconds.
+     * @param cpuTimeMillis How much processor time the process and its children used, in milliseconds, or -1
+     *                      if it couldn't be measured.
+     * @param stdoutBytes The number of bytes the process wrote to its standard output.
+     * @param stderrBytes The number of bytes the process wrote to its standard error.
+     * @param peakResidentBytes The most memory the process and its children held at once, in bytes, or -1 if it
+     *                          couldn't be measured.
+     */
+    public ProcessResult(int exitCode, long wallTimeMillis, long cpuTimeMillis, long stdoutBytes, long stderrBytes,
+                         long peakResidentBytes) {
+        this.exitCode = exitCode;
+        this.wallTimeMillis = wallTimeMillis;
+        this.cpuTimeMillis = cpuTimeMillis;
+        this.stdoutBytes = stdoutBytes;
+        this.stderrBytes = stderrBytes;
+        this.peakResidentBytes = peakResidentBytes;
+    }
+
+    /**
+     * Retrieves the exit code of the process.
+     * @return The exit code, or {@link #NOT_RUN} if the process couldn't be run to completion.
+     */
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * Checks whether the process ran to completion and exited with an exit code of 0.
+     * @return True if the process succeeded, False otherwise.
+     */
+    public boolean isSuccess() {
+        return exitCode == 0;
+    }
+
+    /**
+     * Retrieves how long the process ran.
+     * @return The wall clock time of the process, in milliseconds.
+     */
+    public long getWallTimeMillis() {
+        return wallTimeMillis;
+    }
+
+    /**
+     * Retrieves how much processor time the process and its children used. The time is sampled while the
+     * process runs, so it may fall slightly short of the real total.
+     * @return The processor time, in milliseconds, or -1 if it couldn't be measured.
+     */
+    public long getCpuTimeMillis() {
+        return cpuTimeMillis;
+    }
+
+    /**
+     * Retrieves how many bytes the process wrote to its standard output.
+     * @return The number of bytes written to standard output.
+     */
+    public long getStdoutBytes() {
+        return stdoutBytes;
+    }
+
+    /**
+     * Retrieves how many bytes the process wrote to its standard error.
+     * @return The number of bytes written to standard error.
+     */
+    public long getStderrBytes() {
+        return stderrBytes;
+    }
+
+    /**
+     * Retrieves the most memory the process and its children held at once. The memory is sampled while the
+     * process runs, so short-lived peaks may be missed.
+     * @return The peak resident set size, in bytes, or -1 if it couldn't be measured.
+     */
+    public long getPeakResidentBytes() {
+        return peakResidentBytes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "exit code " + exitCode +
+                " in " + String.format("%.1f", wallTimeMillis / 1000.0) + "s" +
+                (cpuTimeMillis >= 0 ? " (CPU " + String.format("%.1f", cpuTimeMillis / 1000.0) + "s)" : "") +
+                (peakResidentBytes >= 0 ? ", peak memory " + (peakResidentBytes >> 20) + " MB" : "") +
+                ", " + stdoutBytes + " bytes of output, " + stderrBytes + " bytes of error output";
+    }
+}
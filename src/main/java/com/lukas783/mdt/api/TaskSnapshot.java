@@ -0,0 +1,183 @@
+package com.lukas783.mdt.api;
+
+import java.util.*;
+
+/**
+ * An immutable, ordered version of the list of tasks held by {@link com.lukas783.mdt.service.ProcessService}. A
+ * snapshot never changes once it has been created, so it can be handed to any number of readers on any thread
+ * without copying or locking. Changing the list creates a new snapshot with the next version number, which
+ * readers can use to tell whether the list has changed since they last looked.
+ *
+ * Tasks can be looked up by position or by id in constant time. The mapping of ids to positions is worked out
+ * the first time a task is looked up by id, and a new snapshot reuses the mapping of the one it was created from
+ * whenever no task changed position.
+ *
+ * @author Lucas Carpenter
+ */
+public final class TaskSnapshot extends AbstractList<MavenTask> implements RandomAccess {
+
+    /**
+     * The snapshot of an empty task list.
+     */
+    public static final TaskSnapshot EMPTY = new TaskSnapshot(new MavenTask[0], 0, Collections.emptyMap());
+
+    // Declaration of variables held by the snapshot
+    private final MavenTask[] tasks;
+    private final long version;
+    private volatile Map<UUID, Integer> slots;
+
+    /**
+     * Constructs a {@link TaskSnapshot} object.
+     * @param tasks The tasks of the snapshot, which must not be changed afterwards.
+     * @param version The version of the snapshot.
+     * @param slots The mapping of task ids to positions, or null to work it out when it is first needed.
+     */
+    private TaskSnapshot(MavenTask[] tasks, long version, Map<UUID, Integer> slots) {
+        this.tasks = tasks;
+        this.version = version;
+        this.slots = slots;
+    }
+
+    /**
+     * Retrieves the version of the snapshot, which increases every time the task list changes.
+     * @return The version of the snapshot.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MavenTask get(int index) {
+        return tasks[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return tasks.length;
+    }
+
+    /**
+     * Retrieves a task by its id.
+     * @param id The {@link UUID} of the task.
+     * @return The {@link MavenTask}, or null if the snapshot doesn't hold a task with the id.
+     */
+    public MavenTask getTask(UUID id) {
+        Integer slot = slots().get(id);
+        return slot == null ? null : tasks[slot];
+    }
+
+    /**
+     * Retrieves the position of a task by its id.
+     * @param id The {@link UUID} of the task.
+     * @return The position of the task, or -1 if the snapshot doesn't hold a task with the id.
+     */
+    public int indexOf(UUID id) {
+        Integer slot = slots().get(id);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Creates a snapshot with tasks added to the end of the list. Tasks whose id is already in the list replace
+     * the task with that id where it stands instead.
+     * @param added The tasks to add, in the order they should be listed in.
+     * @return The new {@link TaskSnapshot}, or this snapshot if there are no tasks to add.
+     */
+    public TaskSnapshot withAdded(List<MavenTask> added) {
+        if (added.isEmpty())
+            return this;
+
+        Map<UUID, Integer> newSlots = new HashMap<>(slots());
+        MavenTask[] newTasks = Arrays.copyOf(tasks, tasks.length + added.size());
+        int size = tasks.length;
+        for (MavenTask task : added) {
+            Integer slot = newSlots.get(task.getId());
+            if (slot != null) {
+                newTasks[slot] = task;
+            } else {
+                newSlots.put(task.getId(), size);
+                newTasks[size++] = task;
+            }
+        }
+        if (size < newTasks.length)
+            newTasks = Arrays.copyOf(newTasks, size);
+        return new TaskSnapshot(newTasks, version + 1, Collections.unmodifiableMap(newSlots));
+    }
+
+    /**
+     * Creates a snapshot with a task replacing the task that has the same id.
+     * @param task The {@link MavenTask} to replace the existing task with.
+     * @return The new {@link TaskSnapshot}, or this snapshot if it doesn't hold a task with the same id.
+     */
+    public TaskSnapshot withReplaced(MavenTask task) {
+        int slot = indexOf(task.getId());
+        if (slot == -1)
+            return this;
+
+        MavenTask[] newTasks = tasks.clone();
+        newTasks[slot] = task;
+        return new TaskSnapshot(newTasks, version + 1, slots);
+    }
+
+    /**
+     * Creates a snapshot without the task that has an id.
+     * @param id The {@link UUID} of the task to remove.
+     * @return The new {@link TaskSnapshot}, or this snapshot if it doesn't hold a task with the id.
+     */
+    public TaskSnapshot without(UUID id) {
+        int slot = indexOf(id);
+        if (slot == -1)
+            return this;
+
+        MavenTask[] newTasks = new MavenTask[tasks.length - 1];
+        System.arraycopy(tasks, 0, newTasks, 0, slot);
+        System.arraycopy(tasks, slot + 1, newTasks, slot, tasks.length - slot - 1);
+        return new TaskSnapshot(newTasks, version + 1, null);
+    }
+
+    /**
+     * Creates a snapshot with a task moved to another position, shifting the tasks in between by one.
+     * @param from The position of the task to move.
+     * @param to The position the task should end up at.
+     * @return The new {@link TaskSnapshot}, or this snapshot if the task doesn't move.
+     * @throws IndexOutOfBoundsException If either position is outside of the list.
+     */
+    public TaskSnapshot withMoved(int from, int to) {
+        if (from < 0 || from >= tasks.length || to < 0 || to >= tasks.length)
+            throw new IndexOutOfBoundsException("Unable to move task from: " + from + " to: " + to +
+                    ", size: " + tasks.length);
+        if (from == to)
+            return this;
+
+        MavenTask[] newTasks = tasks.clone();
+        MavenTask moved = newTasks[from];
+        if (from < to)
+            System.arraycopy(tasks, from + 1, newTasks, from, to - from);
+        else
+            System.arraycopy(tasks, to, newTasks, to + 1, from - to);
+        newTasks[to] = moved;
+        return new TaskSnapshot(newTasks, version + 1, null);
+    }
+
+    /**
+     * Retrieves the mapping of task ids to positions, working it out if this is the first time it is needed.
+     * Working it out more than once at the same time is harmless, as every thread arrives at the same mapping.
+     * @return The read-only mapping of task ids to positions.
+     */
+    private Map<UUID, Integer> slots() {
+        Map<UUID, Integer> current = slots;
+        if (current == null) {
+            Map<UUID, Integer> built = new HashMap<>(tasks.length * 2);
+            for (int i = 0; i < tasks.length; i++)
+                built.put(tasks[i].getId(), i);
+            current = Collections.unmodifiableMap(built);
+            slots = current;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,175 @@
+package com.lukas783.mdt.build;
+
+import com.lukas783.mdt.api.BuiltArtifact;
+import com.lukas783.mdt.api.EffectivePom;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locates the artifacts a project builds into its build directory. The file name of the main artifact is worked out
+ * from the project's final name, the classifier of its packaging plugin and the extension of its packaging, so
+ * that it can be checked for directly. Only when it isn't where it is expected, or when every artifact is asked for,
+ * is the build directory listed, and that listing is kept until {@link #invalidate()} is called.
+ *
+ * @author Lucas Carpenter
+ */
+public class ArtifactLocator {
+
+    // Declaration of the extensions of the packagings that aren't named after their extension
+    private static final Map<String, String> PACKAGING_EXTENSIONS = new HashMap<>();
+    static {
+        PACKAGING_EXTENSIONS.put("maven-plugin", "jar");
+        PACKAGING_EXTENSIONS.put("ejb", "jar");
+        PACKAGING_EXTENSIONS.put("ejb-client", "jar");
+        PACKAGING_EXTENSIONS.put("bundle", "jar");
+        PACKAGING_EXTENSIONS.put("test-jar", "jar");
+        PACKAGING_EXTENSIONS.put("java-source", "jar");
+        PACKAGING_EXTENSIONS.put("javadoc", "jar");
+    }
+
+    // Declaration of variables used by the locator
+    private final File buildDirectory;
+    private final String finalName;
+    private final String classifier;
+    private final String extension;
+    private List<BuiltArtifact> listing;
+
+    /**
+     * Constructs an {@link ArtifactLocator} for the project described by an effective POM.
+     * @param effectivePom The {@link EffectivePom} of the project.
+     */
+    public ArtifactLocator(EffectivePom effectivePom) {
+        this(effectivePom.getBuildDirectory(), effectivePom.getFinalName(), effectivePom.getPackaging(),
+                effectivePom.getClassifier());
+    }
+
+    /**
+     * Constructs an {@link ArtifactLocator}.
+     * @param buildDirectory The directory the project is built into.
+     * @param finalName The file name, without extension, the project's artifacts are built under.
+     * @param packaging The packaging of the project.
+     * @param classifier The classifier of the main artifact, or null if it has none.
+     */
+    public ArtifactLocator(File buildDirectory, String finalName, String packaging, String classifier) {
+        this.buildDirectory = buildDirectory;
+        this.finalName = finalName;
+        this.classifier = classifier == null || classifier.isEmpty() ? null : classifier;
+        String mappedExtension = PACKAGING_EXTENSIONS.get(packaging);
+        this.extension = mappedExtension == null ? packaging : mappedExtension;
+    }
+
+    /**
+     * Retrieves the directory the project is built into.
+     * @return The build directory of the project.
+     */
+    public File getBuildDirectory() {
+        return buildDirectory;
+    }
+
+    /**
+     * Retrieves the path the main artifact is expected to be built at.
+     * @return The expected file of the main artifact.
+     */
+    public File getExpectedFile() {
+        return new File(buildDirectory, finalName + (classifier == null ? "" : "-" + classifier) + "." + extension);
+    }
+
+    /**
+     * Locates the main artifact of the project. The expected path is checked first, and only if nothing is there
+     * is the build directory listed, in which case an artifact with the expected classifier and extension, or
+     * failing that any artifact without a classifier, is taken instead.
+     * @return The main {@link BuiltArtifact}, or null if the project hasn't built one.
+     */
+    public BuiltArtifact locateMain() {
+        File expectedFile = getExpectedFile();
+        if (expectedFile.isFile())
+            return new BuiltArtifact(expectedFile, classifier, extension, true);
+
+        BuiltArtifact fallback = null;
+        for (BuiltArtifact artifact : locateAll()) {
+            if (artifact.isMain())
+                return artifact;
+            if (fallback == null && artifact.getClassifier() == null)
+                fallback = artifact;
+        }
+        return fallback;
+    }
+
+    /**
+     * Locates every artifact the project has built, from a listing of its build directory that is taken once and
+     * then reused.
+     * @return An unmodifiable list of the {@link BuiltArtifact}s found, main artifact first, then artifacts without
+     * a classifier, then attached artifacts, each ordered by name.
+     */
+    public synchronized List<BuiltArtifact> locateAll() {
+        if (listing == null)
+            listing = list();
+        return listing;
+    }
+
+    /**
+     * Forgets the listing of the build directory, so that it is taken again the next time it is needed. Call
+     * after anything that may have changed the build directory, such as a build.
+     */
+    public synchronized void invalidate() {
+        listing = null;
+    }
+
+    /**
+     * Lists the build directory and works out the classifier and extension of every file named after the project.
+     * @return An unmodifiable, ordered list of the {@link BuiltArtifact}s found.
+     */
+    private List<BuiltArtifact> list() {
+        String[] names = finalName == null ? null : buildDirectory.list();
+        if (names == null)
+            return Collections.emptyList();
+
+        List<BuiltArtifact> artifacts = new ArrayList<>();
+        for (String name : names) {
+            if (name.length() <= finalName.length() + 1 || !name.startsWith(finalName))
+                continue;
+            char separator = name.charAt(finalName.length());
+            String artifactClassifier = null;
+            String artifactExtension;
+            if (separator == '.') {
+                artifactExtension = name.substring(finalName.length() + 1);
+            } else if (separator == '-') {
+                int dot = name.indexOf('.', finalName.length() + 1);
+                if (dot == -1 || dot == finalName.length() + 1)
+                    continue;
+                artifactClassifier = name.substring(finalName.length() + 1, dot);
+                artifactExtension = name.substring(dot + 1);
+            } else {
+                continue;
+            }
+            File file = new File(buildDirectory, name);
+            if (!file.isFile())
+                continue;
+            boolean main = artifactExtension.equals(extension) &&
+                    (classifier == null ? artifactClassifier == null : classifier.equals(artifactClassifier));
+            artifacts.add(new BuiltArtifact(file, artifactClassifier, artifactExtension, main));
+        }
+
+        artifacts.sort((first, second) -> {
+            int rank = Integer.compare(rank(first), rank(second));
+            return rank != 0 ? rank : first.getFile().getName().compareTo(second.getFile().getName());
+        });
+        return Collections.unmodifiableList(artifacts);
+    }
+
+    /**
+     * Ranks an artifact for ordering: main artifact, then artifacts without a classifier, then attached artifacts.
+     * @param artifact The artifact to rank.
+     * @return The rank of the artifact, lower first.
+     */
+    private static int rank(BuiltArtifact artifact) {
+        if (artifact.isMain())
+            return 0;
+        return artifact.getClassifier() == null ? 1 : 2;
+    }
+}
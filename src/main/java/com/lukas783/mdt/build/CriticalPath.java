@@ -0,0 +1,144 @@
+package com.lukas783.mdt.build;
+
+import com.lukas783.mdt.api.MavenTask;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The chain of tasks that decided how long a run took, as worked out by the {@link TaskScheduler} once the run is
+ * over. The chain ends with the task that finished last, and each task before it is the dependency that finished
+ * last before the next task could start. Shortening any task on the chain shortens the run, so the longest task
+ * on it is the first one worth splitting up.
+ *
+ * @author Lucas Carpenter
+ */
+public class CriticalPath {
+
+    /**
+     * The critical path of a run that didn't run any tasks.
+     */
+    public static final CriticalPath EMPTY = new CriticalPath(Collections.<Step>emptyList(), 0);
+
+    /**
+     * A single task on the critical path.
+     */
+    public static class Step {
+        private final MavenTask task;
+        private final long startMillis;
+        private final long durationMillis;
+        private final long waitMillis;
+        private final long estimatedMillis;
+
+        /**
+         * Constructs a new step.
+         * @param task The {@link MavenTask} that ran.
+         * @param startMillis When the task started, in milliseconds since the run started.
+         * @param durationMillis How long the task ran for, in milliseconds.
+         * @param waitMillis How long the task waited for a free slot after it was ready, in milliseconds.
+         * @param estimatedMillis How long the task was estimated to take, in milliseconds, or -1 if unknown.
+         */
+        public Step(MavenTask task, long startMillis, long durationMillis, long waitMillis, long estimatedMillis) {
+            this.task = task;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+            this.waitMillis = waitMillis;
+            this.estimatedMillis = estimatedMillis;
+        }
+
+        /**
+         * @return The {@link MavenTask} that ran.
+         */
+        public MavenTask getTask() {
+            return task;
+        }
+
+        /**
+         * @return When the task started, in milliseconds since the run started.
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * @return How long the task ran for, in milliseconds.
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * @return How long the task waited for a free slot after it was ready, in milliseconds.
+         */
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        /**
+         * @return How long the task was estimated to take, in milliseconds, or -1 if unknown.
+         */
+        public long getEstimatedMillis() {
+            return estimatedMillis;
+        }
+    }
+
+    // Declaration of variables describing the path
+    private final List<Step> steps;
+    private final long wallMillis;
+
+    /**
+     * Constructs a {@link CriticalPath} object.
+     * @param steps The tasks on the path, in the order they ran.
+     * @param wallMillis How long the whole run took, in milliseconds.
+     */
+    public CriticalPath(List<Step> steps, long wallMillis) {
+        this.steps = Collections.unmodifiableList(steps);
+        this.wallMillis = wallMillis;
+    }
+
+    /**
+     * @return The tasks on the path, in the order they ran.
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return How long the whole run took, in milliseconds.
+     */
+    public long getWallMillis() {
+        return wallMillis;
+    }
+
+    /**
+     * @return How long the tasks on the path ran for in total, in milliseconds.
+     */
+    public long getRunningMillis() {
+        long total = 0;
+        for (Step step : steps)
+            total += step.durationMillis;
+        return total;
+    }
+
+    /**
+     * @return How long the tasks on the path waited for free slots in total, in milliseconds.
+     */
+    public long getWaitingMillis() {
+        long total = 0;
+        for (Step step : steps)
+            total += step.waitMillis;
+        return total;
+    }
+
+    /**
+     * @return The task on the path that ran for the longest, or null if the path is empty.
+     */
+    public Step getLongestStep() {
+        Step longest = null;
+        for (Step step : steps) {
+            if (longest == null || step.durationMillis > longest.durationMillis)
+                longest = step;
+        }
+        return longest;
+    }
+}
@@ -0,0 +1,413 @@
+package com.lukas783.mdt.build;
+
+import com.lukas783.mdt.api.ArtifactCoordinate;
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.api.PomInfo;
+import com.lukas783.mdt.service.PomCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * A graph of the dependencies between {@link MavenTask} objects. Each task's POM file is read with
+ * {@link PomInfo}, and the parent, dependencies and modules it declares are resolved against the coordinates
+ * and directories of the other tasks in the graph. An edge from task A to task B means task A has to be built
+ * before task B, either because B depends on A, B uses A as its parent, or A lists B as one of its modules.
+ * <p>
+ * The graph is maintained incrementally. Updating a task only re-reads its POM file if the working directory
+ * or the POM file itself has changed, and only the edges touching that task are re-resolved.
+ *
+ * @author Lucas Carpenter
+ */
+public class DependencyGraph {
+
+    /**
+     * The internal representation of a single task in the graph.
+     */
+    private static class Node {
+        private MavenTask task;
+        private File directory;
+        private long pomModified;
+        private long pomLength;
+        private ArtifactCoordinate coordinate;
+        private List<ArtifactCoordinate> references = new ArrayList<>();
+        private List<File> moduleDirectories = new ArrayList<>();
+        private Set<UUID> upstream = new LinkedHashSet<>();
+        private Set<UUID> downstream = new LinkedHashSet<>();
+    }
+
+    // Declaration of variables used by the class
+    private final Map<UUID, Node> nodes = new LinkedHashMap<>();
+    private final Map<String, Set<UUID>> providers = new HashMap<>();
+    private final Map<String, Set<UUID>> consumers = new HashMap<>();
+    private final Map<File, Set<UUID>> tasksByDirectory = new HashMap<>();
+    private final Map<File, Set<UUID>> aggregatorsByModule = new HashMap<>();
+
+    /**
+     * Adds a task to the graph, or updates it if the graph already contains a task with the same id.
+     * @param task The {@link MavenTask} to add or update.
+     * @return True if the edges of the graph changed, False if only the task object was replaced.
+     */
+    public synchronized boolean update(MavenTask task) {
+        File directory = canonicalFile(new File(task.getWorkingDirectory()));
+        File pomFile = new File(directory, "pom.xml");
+
+        // If nothing the graph depends on has changed, just swap in the new task object
+        Node node = nodes.get(task.getId());
+        if (node != null &&
+                node.directory.equals(directory) &&
+                node.pomModified == pomFile.lastModified() &&
+                node.pomLength == pomFile.length()) {
+            node.task = task;
+            return false;
+        }
+
+        if (node != null)
+            detach(node);
+
+        node = new Node();
+        node.task = task;
+        node.directory = directory;
+        node.pomModified = pomFile.lastModified();
+        node.pomLength = pomFile.length();
+
+        if (pomFile.isFile()) {
+            PomInfo pomInfo = PomCache.getInstance().get(pomFile);
+            node.coordinate = pomInfo.getCoordinate();
+            if (pomInfo.getParent() != null)
+                node.references.add(pomInfo.getParent());
+            node.references.addAll(pomInfo.getDependencies());
+            for (String module : pomInfo.getModules())
+                node.moduleDirectories.add(canonicalFile(new File(directory, module)));
+        }
+
+        nodes.put(task.getId(), node);
+        attach(task.getId(), node);
+        return true;
+    }
+
+    /**
+     * Removes a task and every edge touching it from the graph.
+     * @param id The {@link UUID} of the task to remove.
+     * @return True if the task was part of the graph, False otherwise.
+     */
+    public synchronized boolean remove(UUID id) {
+        Node node = nodes.remove(id);
+        if (node == null)
+            return false;
+        detach(node);
+        return true;
+    }
+
+    /**
+     * Retrieves the tasks that have to be built directly before a given task.
+     * @param id The {@link UUID} of the task.
+     * @return The set of upstream task ids, empty if the task isn't part of the graph.
+     */
+    public synchronized Set<UUID> getUpstream(UUID id) {
+        Node node = nodes.get(id);
+        return node == null ? Collections.<UUID>emptySet() : new LinkedHashSet<>(node.upstream);
+    }
+
+    /**
+     * Retrieves the tasks that have to be built directly after a given task.
+     * @param id The {@link UUID} of the task.
+     * @return The set of downstream task ids, empty if the task isn't part of the graph.
+     */
+    public synchronized Set<UUID> getDownstream(UUID id) {
+        Node node = nodes.get(id);
+        return node == null ? Collections.<UUID>emptySet() : new LinkedHashSet<>(node.downstream);
+    }
+
+    /**
+     * Retrieves the closest upstream tasks of a given task that are part of a given scope. Upstream tasks
+     * outside of the scope are looked through, so if A is built before B and B before C, but B is not in the
+     * scope, A is still returned as an upstream task of C.
+     * @param id The {@link UUID} of the task.
+     * @param scope The ids of the tasks to consider.
+     * @return The set of upstream task ids that are part of the scope.
+     */
+    public synchronized Set<UUID> getUpstreamWithin(UUID id, Set<UUID> scope) {
+        Set<UUID> result = new LinkedHashSet<>();
+        Set<UUID> visited = new HashSet<>();
+        Deque<UUID> toVisit = new ArrayDeque<>(getUpstream(id));
+
+        while (!toVisit.isEmpty()) {
+            UUID current = toVisit.pop();
+            if (current.equals(id) || !visited.add(current))
+                continue;
+            if (scope.contains(current))
+                result.add(current);
+            else
+                toVisit.addAll(nodes.get(current).upstream);
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the set of tasks affected by a change to a given task. This is the task itself followed by
+     * every task that is directly or transitively built after it.
+     * @param id The {@link UUID} of the changed task.
+     * @return The affected tasks, in breadth-first order starting with the changed task.
+     */
+    public synchronized List<MavenTask> getAffected(UUID id) {
+        List<MavenTask> affected = new ArrayList<>();
+        Set<UUID> visited = new HashSet<>();
+        Deque<UUID> toVisit = new ArrayDeque<>();
+        if (nodes.containsKey(id))
+            toVisit.add(id);
+
+        while (!toVisit.isEmpty()) {
+            UUID current = toVisit.poll();
+            if (!visited.add(current))
+                continue;
+            Node node = nodes.get(current);
+            affected.add(node.task);
+            toVisit.addAll(node.downstream);
+        }
+        return affected;
+    }
+
+    /**
+     * Orders a list of tasks so that every task comes after the tasks it has to be built after. Where the graph
+     * doesn't force an order, the order of the provided list is kept. Tasks that are part of a cycle can't be
+     * ordered and are placed at the end, in the order of the provided list.
+     * @param tasks The tasks to order.
+     * @return A new list containing the provided tasks in build order.
+     */
+    public synchronized List<MavenTask> topologicalOrder(List<MavenTask> tasks) {
+        Map<UUID, Integer> positions = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++)
+            positions.put(tasks.get(i).getId(), i);
+
+        // Count how many in-scope tasks each task is waiting on
+        int[] waitingOn = new int[tasks.size()];
+        List<List<Integer>> dependents = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++)
+            dependents.add(new ArrayList<>());
+        for (int i = 0; i < tasks.size(); i++) {
+            for (UUID upstream : getUpstreamWithin(tasks.get(i).getId(), positions.keySet())) {
+                dependents.get(positions.get(upstream)).add(i);
+                waitingOn[i]++;
+            }
+        }
+
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (waitingOn[i] == 0)
+                ready.add(i);
+        }
+
+        List<MavenTask> ordered = new ArrayList<>(tasks.size());
+        boolean[] placed = new boolean[tasks.size()];
+        while (!ready.isEmpty()) {
+            int index = ready.poll();
+            ordered.add(tasks.get(index));
+            placed[index] = true;
+            for (int dependent : dependents.get(index)) {
+                if (--waitingOn[dependent] == 0)
+                    ready.add(dependent);
+            }
+        }
+
+        // Anything left over is part of, or waiting on, a cycle
+        for (int i = 0; i < tasks.size(); i++) {
+            if (!placed[i])
+                ordered.add(tasks.get(i));
+        }
+        return ordered;
+    }
+
+    /**
+     * Finds every cycle in the graph using Tarjan's strongly connected components algorithm.
+     * @return A list of cycles, each being the list of tasks that are part of the cycle.
+     */
+    public synchronized List<List<MavenTask>> findCycles() {
+        List<List<MavenTask>> cycles = new ArrayList<>();
+        Map<UUID, Integer> indices = new HashMap<>();
+        Map<UUID, Integer> lowLinks = new HashMap<>();
+        Deque<UUID> stack = new ArrayDeque<>();
+        Set<UUID> onStack = new HashSet<>();
+
+        for (UUID id : nodes.keySet()) {
+            if (!indices.containsKey(id))
+                strongConnect(id, indices, lowLinks, stack, onStack, cycles);
+        }
+        return cycles;
+    }
+
+    /**
+     * Visits a single node for {@link #findCycles()}, recording any strongly connected component rooted at it.
+     * @param id The id of the node to visit.
+     * @param indices The visit index of every visited node.
+     * @param lowLinks The lowest visit index reachable from every visited node.
+     * @param stack The stack of nodes in the component currently being built.
+     * @param onStack The set of nodes currently on the stack.
+     * @param cycles The list of cycles found so far.
+     */
+    private void strongConnect(UUID id, Map<UUID, Integer> indices, Map<UUID, Integer> lowLinks,
+                               Deque<UUID> stack, Set<UUID> onStack, List<List<MavenTask>> cycles) {
+        indices.put(id, indices.size());
+        lowLinks.put(id, indices.get(id));
+        stack.push(id);
+        onStack.add(id);
+
+        for (UUID downstream : nodes.get(id).downstream) {
+            if (!indices.containsKey(downstream)) {
+                strongConnect(downstream, indices, lowLinks, stack, onStack, cycles);
+                lowLinks.put(id, Math.min(lowLinks.get(id), lowLinks.get(downstream)));
+            } else if (onStack.contains(downstream)) {
+                lowLinks.put(id, Math.min(lowLinks.get(id), indices.get(downstream)));
+            }
+        }
+
+        // The node is the root of a component, pop the component off of the stack
+        if (lowLinks.get(id).equals(indices.get(id))) {
+            List<MavenTask> component = new ArrayList<>();
+            UUID member;
+            do {
+                member = stack.pop();
+                onStack.remove(member);
+                component.add(0, nodes.get(member).task);
+            } while (!member.equals(id));
+
+            if (component.size() > 1)
+                cycles.add(component);
+        }
+    }
+
+    /**
+     * Registers a node with the lookup tables and resolves every edge going into or out of it.
+     * @param id The id of the node.
+     * @param node The node to attach.
+     */
+    private void attach(UUID id, Node node) {
+        register(tasksByDirectory, node.directory, id);
+        if (node.coordinate != null)
+            register(providers, node.coordinate.getKey(), id);
+        for (ArtifactCoordinate reference : node.references)
+            register(consumers, reference.getKey(), id);
+        for (File moduleDirectory : node.moduleDirectories)
+            register(aggregatorsByModule, moduleDirectory, id);
+
+        // Resolve the tasks this node references
+        for (ArtifactCoordinate reference : node.references) {
+            for (UUID provider : lookup(providers, reference.getKey())) {
+                if (nodes.get(provider).coordinate.satisfies(reference))
+                    link(provider, id);
+            }
+        }
+        for (File moduleDirectory : node.moduleDirectories) {
+            for (UUID module : lookup(tasksByDirectory, moduleDirectory))
+                link(id, module);
+        }
+
+        // Resolve the tasks that reference this node
+        if (node.coordinate != null) {
+            for (UUID consumer : lookup(consumers, node.coordinate.getKey())) {
+                for (ArtifactCoordinate reference : nodes.get(consumer).references) {
+                    if (node.coordinate.satisfies(reference))
+                        link(id, consumer);
+                }
+            }
+        }
+        for (UUID aggregator : lookup(aggregatorsByModule, node.directory))
+            link(aggregator, id);
+    }
+
+    /**
+     * Unregisters a node from the lookup tables and removes every edge going into or out of it.
+     * @param node The node to detach.
+     */
+    private void detach(Node node) {
+        UUID id = node.task.getId();
+        unregister(tasksByDirectory, node.directory, id);
+        if (node.coordinate != null)
+            unregister(providers, node.coordinate.getKey(), id);
+        for (ArtifactCoordinate reference : node.references)
+            unregister(consumers, reference.getKey(), id);
+        for (File moduleDirectory : node.moduleDirectories)
+            unregister(aggregatorsByModule, moduleDirectory, id);
+
+        for (UUID upstream : node.upstream) {
+            if (nodes.containsKey(upstream))
+                nodes.get(upstream).downstream.remove(id);
+        }
+        for (UUID downstream : node.downstream) {
+            if (nodes.containsKey(downstream))
+                nodes.get(downstream).upstream.remove(id);
+        }
+        node.upstream.clear();
+        node.downstream.clear();
+    }
+
+    /**
+     * Adds an edge between two nodes, ignoring edges from a node to itself.
+     * @param upstream The id of the node to build first.
+     * @param downstream The id of the node to build after.
+     */
+    private void link(UUID upstream, UUID downstream) {
+        if (upstream.equals(downstream))
+            return;
+        nodes.get(upstream).downstream.add(downstream);
+        nodes.get(downstream).upstream.add(upstream);
+    }
+
+    /**
+     * Adds an id to the set of ids stored under a key of a lookup table.
+     * @param table The lookup table.
+     * @param key The key to store the id under.
+     * @param id The id to store.
+     * @param <K> The type of key used by the lookup table.
+     */
+    private static <K> void register(Map<K, Set<UUID>> table, K key, UUID id) {
+        Set<UUID> ids = table.get(key);
+        if (ids == null) {
+            ids = new LinkedHashSet<>();
+            table.put(key, ids);
+        }
+        ids.add(id);
+    }
+
+    /**
+     * Removes an id from the set of ids stored under a key of a lookup table.
+     * @param table The lookup table.
+     * @param key The key the id is stored under.
+     * @param id The id to remove.
+     * @param <K> The type of key used by the lookup table.
+     */
+    private static <K> void unregister(Map<K, Set<UUID>> table, K key, UUID id) {
+        Set<UUID> ids = table.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty())
+                table.remove(key);
+        }
+    }
+
+    /**
+     * Retrieves a copy of the ids stored under a key of a lookup table.
+     * @param table The lookup table.
+     * @param key The key to look up.
+     * @param <K> The type of key used by the lookup table.
+     * @return A copy of the ids stored under the key, empty if there are none.
+     */
+    private static <K> List<UUID> lookup(Map<K, Set<UUID>> table, K key) {
+        Set<UUID> ids = table.get(key);
+        return ids == null ? Collections.<UUID>emptyList() : new ArrayList<>(ids);
+    }
+
+    /**
+     * Resolves a file to its canonical form so that different spellings of the same directory match.
+     * @param file The file to resolve.
+     * @return The canonical file, or the absolute file if the canonical file couldn't be resolved.
+     */
+    private static File canonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException ioe) {
+            return file.getAbsoluteFile();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.lukas783.mdt.build;
+
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.service.BuildHistoryStore;
+import com.lukas783.mdt.service.FingerprintStore;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Estimates how long each task of a run will take, so the {@link TaskScheduler} can start the tasks with the most
+ * work ahead of them first. A task that has been built before is estimated by the {@link BuildHistoryStore}. A
+ * task that hasn't is estimated from the size of its sources, at the rate the tasks with a history build their
+ * sources at, or at a default rate if none of them have one. Source sizes are taken from the file states the
+ * {@link FingerprintStore} remembers, so the source tree is only walked for a task that was never fingerprinted.
+ *
+ * @author Lucas Carpenter
+ */
+public class DurationEstimator {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(DurationEstimator.class.getName());
+
+    // Declaration of constants used by the source size heuristic
+    private static final long BASE_MILLIS = Long.getLong("mdt.schedule.baseMillis", 5000L);
+    private static final long DEFAULT_MILLIS_PER_KB = Long.getLong("mdt.schedule.millisPerKb", 20L);
+    private static final String SOURCE_DIRECTORY = "src";
+
+    // Declaration of variables used by the estimator
+    private final Map<UUID, Long> estimates = new HashMap<>();
+    private final Set<UUID> fromHistory = new HashSet<>();
+
+    /**
+     * Constructs an estimator for the tasks of a run, estimating every task up front.
+     * @param tasks The tasks of the run.
+     */
+    public DurationEstimator(List<MavenTask> tasks) {
+        // Work out how fast the tasks with a history build their sources
+        List<MavenTask> withoutHistory = new ArrayList<>();
+        double historyMillis = 0;
+        double historyKb = 0;
+        for (MavenTask task : tasks) {
+            long predicted = BuildHistoryStore.getInstance().predictDurationMillis(task.getId());
+            if (predicted < 0) {
+                withoutHistory.add(task);
+                continue;
+            }
+            estimates.put(task.getId(), predicted);
+            fromHistory.add(task.getId());
+            long rememberedBytes = rememberedSourceBytes(task);
+            if (rememberedBytes > 0) {
+                historyMillis += Math.max(0, predicted - BASE_MILLIS);
+                historyKb += rememberedBytes / 1024.0;
+            }
+        }
+        double millisPerKb = historyKb > 0 ? historyMillis / historyKb : DEFAULT_MILLIS_PER_KB;
+
+        for (MavenTask task : withoutHistory) {
+            long sourceBytes = rememberedSourceBytes(task);
+            if (sourceBytes <= 0)
+                sourceBytes = walkSourceBytes(task);
+            estimates.put(task.getId(), BASE_MILLIS + (long) (sourceBytes / 1024.0 * millisPerKb));
+        }
+    }
+
+    /**
+     * Retrieves the estimated duration of a task.
+     * @param task The {@link MavenTask} to estimate.
+     * @return The estimated duration in milliseconds, or -1 if the task isn't part of the run.
+     */
+    public long estimate(MavenTask task) {
+        Long estimate = estimates.get(task.getId());
+        return estimate == null ? -1 : estimate;
+    }
+
+    /**
+     * Checks whether a task was estimated from its build history rather than from the size of its sources.
+     * @param id The {@link UUID} of the task.
+     * @return True if the estimate comes from the task's history, False otherwise.
+     */
+    public boolean isFromHistory(UUID id) {
+        return fromHistory.contains(id);
+    }
+
+    /**
+     * Adds up the sizes of a task's input files as remembered from the last time it was fingerprinted.
+     * @param task The {@link MavenTask} to measure.
+     * @return The total size in bytes, or 0 if the task was never fingerprinted.
+     */
+    private static long rememberedSourceBytes(MavenTask task) {
+        long total = 0;
+        for (FingerprintStore.FileState state : FingerprintStore.getInstance().getFileStates(task.getId()).values())
+            total += state.getLength();
+        return total;
+    }
+
+    /**
+     * Adds up the sizes of every file below a task's source directory.
+     * @param task The {@link MavenTask} to measure.
+     * @return The total size in bytes, or 0 if the source directory doesn't exist or couldn't be read.
+     */
+    private static long walkSourceBytes(MavenTask task) {
+        Path sourceDirectory;
+        try {
+            sourceDirectory = Paths.get(task.getWorkingDirectory(), SOURCE_DIRECTORY);
+        } catch (InvalidPathException ipe) {
+            return 0;
+        }
+        if (!Files.isDirectory(sourceDirectory))
+            return 0;
+        long[] total = new long[1];
+        try {
+            Files.walkFileTree(sourceDirectory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    total[0] += attributes.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Unable to measure sources of task: " + task.getTaskName(), ioe);
+        }
+        return total[0];
+    }
+}
@@ -0,0 +1,135 @@
+package com.lukas783.mdt.build;
+
+import com.lukas783.mdt.api.ArtifactCoordinate;
+import com.lukas783.mdt.api.EffectivePom;
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.api.PomInfo;
+import com.lukas783.mdt.service.PomCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Logger;
+
+/**
+ * Resolves POM files into their {@link EffectivePom} form by walking the chain of parent POM files. A parent
+ * is located through its relativePath first, which defaults to '../pom.xml', and through the POM files of the
+ * other tasks in the run second. Every resolved POM file is remembered, so a parent shared by many tasks is
+ * usually only resolved once per resolver. A single resolver is meant to be shared by every task of a single run.
+ *
+ * Resolving never holds a lock while POM files are read, so tasks resolving on several threads don't wait on each
+ * other's disk reads. Two threads that reach the same unresolved POM file at the same time both resolve it, and
+ * the first one to finish is the one remembered, which is cheap as the {@link PomCache} already holds the parsed
+ * file by then.
+ *
+ * @author Lucas Carpenter
+ */
+public class EffectivePomResolver {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(EffectivePomResolver.class.getName());
+
+    // Declaration of variables used by the class
+    private final Map<String, File> pomFilesByKey = new HashMap<>();
+    private final ConcurrentMap<File, EffectivePom> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new resolver that can find parent POM files among the POM files of the given tasks.
+     * @param tasks The tasks of the run.
+     */
+    public EffectivePomResolver(List<MavenTask> tasks) {
+        for (MavenTask task : tasks) {
+            File pomFile = canonicalFile(new File(task.getWorkingDirectory(), "pom.xml"));
+            if (!pomFile.isFile())
+                continue;
+            ArtifactCoordinate coordinate = PomCache.getInstance().get(pomFile).getCoordinate();
+            if (coordinate != null && !pomFilesByKey.containsKey(coordinate.getKey()))
+                pomFilesByKey.put(coordinate.getKey(), pomFile);
+        }
+    }
+
+    /**
+     * Resolves a POM file into its effective form. May be called from several threads at the same time.
+     * @param pomFile The POM file to resolve.
+     * @return The {@link EffectivePom} of the file.
+     */
+    public EffectivePom resolve(File pomFile) {
+        return resolve(canonicalFile(pomFile), new HashSet<>());
+    }
+
+    /**
+     * Resolves a POM file into its effective form, along with the chain of parents it hasn't been reached through.
+     * @param key The canonical POM file to resolve.
+     * @param descendants The POM files being resolved on the current thread that the file is a parent of, used
+     *                    to guard against parent chains that loop back on themselves.
+     * @return The {@link EffectivePom} of the file.
+     */
+    private EffectivePom resolve(File key, Set<File> descendants) {
+        EffectivePom effectivePom = resolved.get(key);
+        if (effectivePom != null)
+            return effectivePom;
+
+        PomInfo pomInfo = PomCache.getInstance().get(key);
+        EffectivePom parent = null;
+        File parentFile = findParent(key, pomInfo);
+        if (parentFile != null) {
+            descendants.add(key);
+            if (descendants.contains(parentFile))
+                logger.warning("POM file: " + parentFile + " is its own ancestor, ignoring its parent.");
+            else
+                parent = resolve(parentFile, descendants);
+            descendants.remove(key);
+        }
+
+        effectivePom = new EffectivePom(key, pomInfo, parent);
+        EffectivePom existing = resolved.putIfAbsent(key, effectivePom);
+        return existing != null ? existing : effectivePom;
+    }
+
+    /**
+     * Locates the parent POM file of a POM file.
+     * @param pomFile The POM file whose parent to find.
+     * @param pomInfo The parsed form of the POM file.
+     * @return The parent POM file, or null if the POM has no parent or the parent couldn't be found locally.
+     */
+    private File findParent(File pomFile, PomInfo pomInfo) {
+        ArtifactCoordinate parent = pomInfo.getParent();
+        if (parent == null)
+            return null;
+
+        // Try the relative path first, an empty relativePath element disables the lookup
+        String relativePath = pomInfo.getNodeValue("project.parent.relativePath");
+        if (relativePath == null)
+            relativePath = "../pom.xml";
+        if (relativePath.trim().length() > 0) {
+            File candidate = new File(pomFile.getParentFile(), relativePath.trim());
+            if (candidate.isDirectory())
+                candidate = new File(candidate, "pom.xml");
+            candidate = canonicalFile(candidate);
+            if (candidate.isFile() && !candidate.equals(pomFile)) {
+                ArtifactCoordinate coordinate = PomCache.getInstance().get(candidate).getCoordinate();
+                if (coordinate != null && coordinate.getKey().equals(parent.getKey()))
+                    return candidate;
+            }
+        }
+
+        // Fall back to the POM file of another task in the run
+        File sibling = pomFilesByKey.get(parent.getKey());
+        return sibling == null || sibling.equals(pomFile) ? null : sibling;
+    }
+
+    /**
+     * Resolves a file to its canonical form so that different spellings of the same file match.
+     * @param file The file to resolve.
+     * @return The canonical file, or the absolute file if the canonical file couldn't be resolved.
+     */
+    private static File canonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException ioe) {
+            return file.getAbsoluteFile();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.lukas783.mdt.build;
+
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.service.FingerprintStore;
+import com.lukas783.mdt.service.FingerprintStore.FileState;
+import com.lukas783.mdt.util.Checksums;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Computes a fingerprint of the inputs of a {@link MavenTask}. The inputs are the task's 'pom.xml', the POM files of
+ * its chain of parents, every file below its 'src' directory, the goal the task runs, and the fingerprints of the
+ * tasks it is built after. The source tree is walked in parallel, and a file's contents are only hashed if its size
+ * or modified time differ from the last time it was fingerprinted, as remembered by the {@link FingerprintStore}.
+ *
+ * @author Lucas Carpenter
+ */
+public class Fingerprinter {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(Fingerprinter.class.getName());
+
+    // Declaration of the pool used to walk source trees, shared by every fingerprinter
+    private static final ForkJoinPool walkPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Computes the fingerprint of a task's inputs and remembers the state of every input file for next time.
+     * @param task The task to fingerprint.
+     * @param parentPomFiles The POM files of the task's chain of parents, which can change what the task builds
+     *                       without being part of the task.
+     * @param upstreamFingerprints The fingerprints of the tasks this task is built after, in a stable order.
+     * @return The fingerprint of the task's inputs.
+     * @throws IOException If the working directory of the task couldn't be walked.
+     */
+    public byte[] fingerprint(MavenTask task, List<Path> parentPomFiles, List<byte[]> upstreamFingerprints)
+            throws IOException {
+        Path root = Paths.get(task.getWorkingDirectory()).toAbsolutePath();
+        Map<String, FileState> previous = FingerprintStore.getInstance().getFileStates(task.getId());
+
+        // Gather the state of every input file, sorted so the fingerprint doesn't depend on walk order
+        List<FileState> states = new ArrayList<>();
+        Path pomFile = root.resolve("pom.xml");
+        if (Files.isRegularFile(pomFile))
+            states.add(stateOf(root, pomFile, Files.readAttributes(pomFile, BasicFileAttributes.class), previous));
+        for (Path parentPomFile : parentPomFiles) {
+            Path file = parentPomFile.toAbsolutePath().normalize();
+            if (Files.isRegularFile(file) && !file.equals(pomFile))
+                states.add(stateOf(root, file, Files.readAttributes(file, BasicFileAttributes.class), previous));
+        }
+        Path sourceDirectory = root.resolve("src");
+        if (Files.isDirectory(sourceDirectory, LinkOption.NOFOLLOW_LINKS))
+            states.addAll(walkPool.invoke(new DirectoryWalk(root, sourceDirectory, previous)));
+        Collections.sort(states, (a, b) -> a.getPath().compareTo(b.getPath()));
+
+        // Combine everything into a single hash
+        MessageDigest digest = Checksums.newDigest();
+        digest.update((byte) (task.doInstall() ? 1 : 0));
+        Map<String, FileState> current = new HashMap<>(states.size() * 2);
+        for (FileState state : states) {
+            digest.update(state.getPath().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(state.getHash());
+            current.put(state.getPath(), state);
+        }
+        for (byte[] upstreamFingerprint : upstreamFingerprints)
+            digest.update(upstreamFingerprint);
+
+        FingerprintStore.getInstance().setFileStates(task.getId(), current);
+        return digest.digest();
+    }
+
+    /**
+     * Retrieves the state of a single file, reusing the previous hash if the file hasn't been touched.
+     * @param root The working directory of the task.
+     * @param file The file to retrieve the state of.
+     * @param attributes The attributes of the file.
+     * @param previous The file states from the last time the task was fingerprinted.
+     * @return The current state of the file.
+     * @throws IOException If the file had to be hashed and couldn't be read.
+     */
+    private static FileState stateOf(Path root, Path file, BasicFileAttributes attributes,
+                                     Map<String, FileState> previous) throws IOException {
+        String path;
+        try {
+            path = root.relativize(file).toString().replace('\\', '/');
+        } catch (IllegalArgumentException iae) {
+            // Parent POM files on another drive can't be reached relative to the working directory
+            path = file.toString().replace('\\', '/');
+        }
+        long length = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        FileState state = previous.get(path);
+        if (state != null && state.getLength() == length && state.getModified() == modified)
+            return state;
+        return new FileState(path, length, modified, Checksums.sha256(file.toFile()));
+    }
+
+    /**
+     * A fork/join task that gathers the states of every file below a directory, forking a new task for every
+     * sub-directory. Symbolic links to directories are not followed, to avoid walking in circles.
+     */
+    private static class DirectoryWalk extends RecursiveTask<List<FileState>> {
+
+        // Declaration of variables used by the walk
+        private final Path root;
+        private final Path directory;
+        private final Map<String, FileState> previous;
+
+        /**
+         * Constructs a new walk over a single directory.
+         * @param root The working directory of the task.
+         * @param directory The directory to walk.
+         * @param previous The file states from the last time the task was fingerprinted.
+         */
+        private DirectoryWalk(Path root, Path directory, Map<String, FileState> previous) {
+            this.root = root;
+            this.directory = directory;
+            this.previous = previous;
+        }
+
+        /**
+         * Walks the directory.
+         * {@inheritDoc}
+         */
+        @Override
+        protected List<FileState> compute() {
+            List<FileState> states = new ArrayList<>();
+            List<DirectoryWalk> subWalks = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes = Files.readAttributes(
+                            entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        DirectoryWalk subWalk = new DirectoryWalk(root, entry, previous);
+                        subWalk.fork();
+                        subWalks.add(subWalk);
+                    } else if (attributes.isSymbolicLink()) {
+                        // Only follow links to regular files
+                        if (Files.isRegularFile(entry))
+                            states.add(stateOf(root, entry, Files.readAttributes(entry, BasicFileAttributes.class),
+                                    previous));
+                    } else if (attributes.isRegularFile()) {
+                        states.add(stateOf(root, entry, attributes, previous));
+                    }
+                }
+            } catch (IOException ioe) {
+                // An unreadable file can't be fingerprinted, so make sure the fingerprint never matches
+                logger.log(Level.WARNING, "Unable to fingerprint directory: " + directory, ioe);
+                states.add(new FileState(root.relativize(directory) + "/?", -1, -1,
+                        UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8)));
+            }
+
+            for (DirectoryWalk subWalk : subWalks)
+                states.addAll(subWalk.join());
+            return states;
+        }
+    }
+}
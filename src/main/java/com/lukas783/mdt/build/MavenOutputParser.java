@@ -0,0 +1,153 @@
+package com.lukas783.mdt.build;
+
+import com.lukas783.mdt.api.BuildEvent;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Follows the output of a single Maven build line by line, turning the lines that mark the progress of the build
+ * into {@link BuildEvent} objects. Maven announces every module of the reactor with a line such as
+ * <pre>
+ * [INFO] Building core 1.0-SNAPSHOT                                        [2/5]
+ * </pre>
+ * and Surefire announces the tests of a module with a ' T E S T S' banner. The parser also notes whether the build,
+ * or a JVM it forked, reported running out of memory. Every line of a build passes through
+ * the parser, so lines are inspected in place, and nothing is allocated unless the line marks progress. Maven
+ * versions that don't print the module counter are counted as they go, so a single-module build is always module
+ * 1 of 1.
+ *
+ * @author Lucas Carpenter
+ */
+public class MavenOutputParser implements Consumer<String> {
+
+    // Declaration of constants used to recognise progress lines
+    private static final String BUILDING_PREFIX = "[INFO] Building ";
+    private static final String TESTS_BANNER = "T E S T S";
+    private static final int TESTS_BANNER_MAX_LINE = 32;
+    private static final String OUT_OF_MEMORY_ERROR = "java.lang.OutOfMemoryError";
+
+    // Declaration of variables used by the parser
+    private final UUID taskId;
+    private final Consumer<BuildEvent> events;
+    private int modulesSeen;
+    private boolean testsReported;
+    private volatile boolean outOfMemory;
+
+    /**
+     * Constructs a parser for the build of a single task.
+     * @param taskId The {@link UUID} of the task the build belongs to.
+     * @param events The {@link Consumer} to hand every {@link BuildEvent} found to.
+     */
+    public MavenOutputParser(UUID taskId, Consumer<BuildEvent> events) {
+        this.taskId = taskId;
+        this.events = events;
+    }
+
+    /**
+     * Inspects a single line of output. Lines may be handed over from the threads reading standard output and
+     * standard error at the same time.
+     * @param line The line, which may still end with its line separator.
+     */
+    @Override
+    public void accept(String line) {
+        if (line.startsWith(BUILDING_PREFIX))
+            parseModuleLine(line);
+        else if (line.length() <= TESTS_BANNER_MAX_LINE && line.indexOf(TESTS_BANNER) >= 0)
+            reportTests();
+        else if (!outOfMemory && line.indexOf(OUT_OF_MEMORY_ERROR) >= 0)
+            outOfMemory = true;
+    }
+
+    /**
+     * Retrieves whether the build, or a JVM it forked, reported running out of memory so far.
+     * @return True if an {@link OutOfMemoryError} was reported, False otherwise.
+     */
+    public boolean isOutOfMemory() {
+        return outOfMemory;
+    }
+
+    /**
+     * Parses a line starting with the reactor prefix, publishing a module event unless it turns out to be a
+     * plugin's 'Building jar: ...' style line.
+     * @param line The line to parse.
+     */
+    private void parseModuleLine(String line) {
+        int start = BUILDING_PREFIX.length();
+        int end = line.length();
+        while (end > start && line.charAt(end - 1) <= ' ')
+            end--;
+        if (end == start)
+            return;
+
+        // Plugins announce the archives they build with a first word ending in a colon
+        int firstSpace = line.indexOf(' ', start);
+        int firstWordEnd = firstSpace < 0 || firstSpace > end ? end : firstSpace;
+        if (line.charAt(firstWordEnd - 1) == ':')
+            return;
+
+        // Pick the '[n/m]' counter off the end of the line, if Maven printed one
+        int index = 0;
+        int count = 0;
+        int nameEnd = end;
+        if (line.charAt(end - 1) == ']') {
+            int open = line.lastIndexOf('[', end - 1);
+            int slash = open < start ? -1 : line.indexOf('/', open);
+            if (slash > open && slash < end - 1) {
+                index = parseCount(line, open + 1, slash);
+                count = parseCount(line, slash + 1, end - 1);
+                if (index > 0 && count > 0)
+                    nameEnd = open;
+            }
+        }
+        while (nameEnd > start && line.charAt(nameEnd - 1) == ' ')
+            nameEnd--;
+        String moduleName = line.substring(start, nameEnd);
+
+        BuildEvent event;
+        synchronized (this) {
+            if (index <= 0 || count <= 0) {
+                index = ++modulesSeen;
+                count = index;
+            } else {
+                modulesSeen = index;
+            }
+            testsReported = false;
+            event = new BuildEvent(taskId, BuildEvent.Type.MODULE_STARTED, System.currentTimeMillis(),
+                    moduleName, index, count, -1);
+        }
+        events.accept(event);
+    }
+
+    /**
+     * Publishes a tests event for the current module, unless one has been published for it already.
+     */
+    private void reportTests() {
+        synchronized (this) {
+            if (testsReported)
+                return;
+            testsReported = true;
+        }
+        events.accept(new BuildEvent(taskId, BuildEvent.Type.TESTS_RUNNING));
+    }
+
+    /**
+     * Parses a positive decimal number from part of a line, without creating a substring.
+     * @param line The line holding the number.
+     * @param from The position of the first digit.
+     * @param to The position after the last digit.
+     * @return The number, or -1 if the part is empty, holds anything but digits, or is too long.
+     */
+    private static int parseCount(String line, int from, int to) {
+        if (from >= to || to - from > 9)
+            return -1;
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
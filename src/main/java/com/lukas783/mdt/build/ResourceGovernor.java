@@ -0,0 +1,218 @@
+package com.lukas783.mdt.build;
+
+import com.lukas783.mdt.api.BuildRecord;
+import com.lukas783.mdt.api.IResourceGovernor;
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.service.BuildHistoryStore;
+import com.lukas783.mdt.util.SystemResources;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admits tasks against a budget of processors and memory, so that the Maven builds running at the same time, and
+ * the test JVMs they fork, don't take more than the machine, or the container, can give them. The budget is
+ * worked out once per run by {@link SystemResources}.
+ *
+ * Every admitted task is granted a share of the processors, which its build is told to use as Maven's thread
+ * count, and an amount of memory. The memory a task needs is estimated from the peak memory of its recent builds
+ * in the {@link BuildHistoryStore}, whether they succeeded or not, with some headroom on top, or a default amount
+ * for a task whose memory has never been measured. A task is only started if its grant fits in what running tasks
+ * have left of the budget, except when nothing else is running.
+ *
+ * Once a task's memory has been measured, its build's heap is capped to fit in its grant, so that the build
+ * can't grow past what was set aside for it. The cap is never set below the heap its last successful build had,
+ * which for a build that was left to Maven's own heap settings is taken to be as much as the whole build held,
+ * so the cap can't creep down from one run to the next. If a build runs out of memory, its next build gets
+ * twice the heap.
+ *
+ * @author Lucas Carpenter
+ */
+public class ResourceGovernor implements IResourceGovernor {
+
+    // Declaration of constants used by the governor
+    private static final int MEMORY_PERCENT = Integer.getInteger("mdt.governor.memoryPercent", 80);
+    private static final int HEADROOM_PERCENT = Integer.getInteger("mdt.governor.headroomPercent", 125);
+    private static final long DEFAULT_TASK_MEMORY_BYTES =
+            Long.getLong("mdt.governor.defaultTaskMemoryMb", 1536L) << 20;
+    private static final int HEAP_PERCENT = Integer.getInteger("mdt.governor.heapPercent", 75);
+    private static final int MIN_HEAP_MEGABYTES = 256;
+    private static final int OUT_OF_MEMORY_GROWTH = 2;
+
+    /**
+     * The processors and memory set aside for a single task.
+     */
+    public static class Grant {
+        private final int threads;
+        private final long memoryBytes;
+        private final int heapMegabytes;
+
+        /**
+         * Constructs a new grant.
+         * @param threads The number of processors granted.
+         * @param memoryBytes The memory granted, in bytes.
+         * @param heapMegabytes The maximum heap of the task's build, in megabytes, or 0 to leave it to Maven.
+         */
+        private Grant(int threads, long memoryBytes, int heapMegabytes) {
+            this.threads = threads;
+            this.memoryBytes = memoryBytes;
+            this.heapMegabytes = heapMegabytes;
+        }
+
+        /**
+         * @return The number of threads the task's build should use.
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * @return The memory set aside for the task, in bytes.
+         */
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        /**
+         * @return The maximum heap of the task's build, in megabytes, or 0 if it is left to Maven's own settings.
+         */
+        public int getHeapMegabytes() {
+            return heapMegabytes;
+        }
+
+        /**
+         * Works out the Maven JVM options that keep the build's heap within the grant, leaving the rest of the
+         * grant for the JVM's own memory and the test JVMs the build forks.
+         * @param mavenOpts The Maven JVM options already set, may be null.
+         * @return The Maven JVM options with a heap limit added, or null if the grant doesn't cap the heap or the
+         *         options already set a limit of their own.
+         */
+        public String getMavenOpts(String mavenOpts) {
+            if (heapMegabytes <= 0 || mavenOpts != null && mavenOpts.contains("-Xmx"))
+                return null;
+            String heapOption = "-Xmx" + heapMegabytes + "m";
+            if (mavenOpts == null || mavenOpts.trim().isEmpty())
+                return heapOption;
+            return mavenOpts.trim() + " " + heapOption;
+        }
+    }
+
+    // Declaration of variables used by the governor
+    private final int processorBudget;
+    private final long memoryBudget;
+    private final int threadsPerTask;
+    private final Map<UUID, Grant> grants = new ConcurrentHashMap<>();
+    private int reservedThreads;
+    private long reservedMemory;
+
+    /**
+     * Constructs a governor with a budget of what the system has available right now.
+     * @param maxConcurrentTasks The most tasks the scheduler runs at once, used to share out the processors.
+     * @return A new {@link ResourceGovernor}.
+     */
+    public static ResourceGovernor forCurrentSystem(int maxConcurrentTasks) {
+        long availableMemory = SystemResources.availableMemoryBytes();
+        return new ResourceGovernor(SystemResources.availableProcessors(),
+                availableMemory < 0 ? -1 : availableMemory / 100 * MEMORY_PERCENT, maxConcurrentTasks);
+    }
+
+    /**
+     * Constructs a governor with a budget.
+     * @param processorBudget The number of processors the builds may keep busy, at least 1.
+     * @param memoryBudget The memory the builds may take, in bytes, or -1 if memory isn't limited.
+     * @param maxConcurrentTasks The most tasks the scheduler runs at once, used to share out the processors.
+     */
+    public ResourceGovernor(int processorBudget, long memoryBudget, int maxConcurrentTasks) {
+        this.processorBudget = Math.max(1, processorBudget);
+        this.memoryBudget = memoryBudget;
+        this.threadsPerTask = Math.max(1, this.processorBudget / Math.max(1, maxConcurrentTasks));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean tryAcquire(MavenTask task, boolean mustAdmit) {
+        Grant grant = createGrant(task);
+        if (!mustAdmit) {
+            if (reservedThreads + grant.threads > processorBudget)
+                return false;
+            if (memoryBudget >= 0 && reservedMemory + grant.memoryBytes > memoryBudget)
+                return false;
+        }
+        reservedThreads += grant.threads;
+        reservedMemory += grant.memoryBytes;
+        grants.put(task.getId(), grant);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void release(MavenTask task) {
+        Grant grant = grants.remove(task.getId());
+        if (grant != null) {
+            reservedThreads -= grant.threads;
+            reservedMemory -= grant.memoryBytes;
+        }
+    }
+
+    /**
+     * Retrieves what was set aside for a running task.
+     * @param id The {@link UUID} of the task.
+     * @return The task's {@link Grant}, or null if the task isn't running.
+     */
+    public Grant getGrant(UUID id) {
+        return grants.get(id);
+    }
+
+    /**
+     * @return The number of processors the builds may keep busy.
+     */
+    public int getProcessorBudget() {
+        return processorBudget;
+    }
+
+    /**
+     * @return The memory the builds may take, in bytes, or -1 if memory isn't limited.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Works out what to set aside for a task's build, from the peak memory of its recent builds with headroom on
+     * top, and the heap of its last successful build and of its last build, if that ran out of memory.
+     * @param task The {@link MavenTask} to work out the grant of.
+     * @return The {@link Grant} of the task.
+     */
+    private Grant createGrant(MavenTask task) {
+        BuildHistoryStore history = BuildHistoryStore.getInstance();
+        long peak = history.predictPeakResidentBytes(task.getId());
+        long memory = peak <= 0 ? DEFAULT_TASK_MEMORY_BYTES : peak / 100 * HEADROOM_PERCENT;
+
+        // Only cap the heap once the build's memory has been measured, and never below what last succeeded
+        long heapMegabytes = 0;
+        if (peak > 0) {
+            heapMegabytes = Math.max(MIN_HEAP_MEGABYTES, (memory >> 20) * HEAP_PERCENT / 100);
+            BuildRecord successful = history.getLatestSuccessfulBuild(task.getId());
+            if (successful != null && successful.getHeapMegabytes() > 0)
+                heapMegabytes = Math.max(heapMegabytes, successful.getHeapMegabytes());
+            else if (successful != null && successful.getPeakResidentBytes() > 0)
+                heapMegabytes = Math.max(heapMegabytes, successful.getPeakResidentBytes() >> 20);
+        }
+
+        // Give a build that ran out of memory twice the heap it had, or Maven's own heap if it was already on it
+        BuildRecord latest = history.getLatest(task.getId());
+        if (latest != null && latest.isBuilt() && latest.isOutOfMemory()) {
+            heapMegabytes = latest.getHeapMegabytes() <= 0 ? 0 :
+                    Math.max(heapMegabytes, (long) latest.getHeapMegabytes() * OUT_OF_MEMORY_GROWTH);
+            memory *= OUT_OF_MEMORY_GROWTH;
+        }
+
+        memory = Math.max(memory, (heapMegabytes << 20) / HEAP_PERCENT * 100);
+        return new Grant(threadsPerTask, memory, (int) Math.min(Integer.MAX_VALUE, heapMegabytes));
+    }
+}
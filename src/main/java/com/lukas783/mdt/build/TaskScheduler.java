@@ -0,0 +1,463 @@
+package com.lukas783.mdt.build;
+
+import com.lukas783.mdt.api.IResourceGovernor;
+import com.lukas783.mdt.api.ITaskExecutor;
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.util.CancellationToken;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a list of {@link MavenTask} objects in parallel while respecting the dependencies between them.
+ * A task is only started once every task that builds one of its dependencies has completed. Tasks that
+ * don't depend on each other run at the same time, up to the configured concurrency limit. When more
+ * tasks are ready than there are free slots, the task with the longest chain of work ahead of it is started
+ * first, so that long chains aren't left to run on their own at the end of the run. The work ahead of a task is
+ * its own estimated duration plus the longest chain among the tasks depending on it, using the estimates of the
+ * {@link ITaskExecutor}. Tasks with as much work ahead of them, or without estimates, are started in list order.
+ * If the scheduler has an {@link IResourceGovernor}, a ready task is only started once the governor admits it,
+ * and the next ready task that it does admit is started in the meantime.
+ * A task started with {@link ITaskExecutor#startTask(MavenTask)} gives up its slot, and its grant, as soon as the
+ * call returns, but the tasks depending on it wait until the stage it returned has completed, and fail with it.
+ * When a task fails, every task depending on it is skipped, and if the scheduler is set to fail fast no
+ * other task is started either. Once the run is cancelled no further task is started.
+ *
+ * Once the run is over the scheduler works out its {@link CriticalPath}, the chain of tasks that decided how long
+ * the run took.
+ *
+ * @author Lucas Carpenter
+ */
+public class TaskScheduler {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(TaskScheduler.class.getName());
+
+    // Declaration of variables used by the class
+    private final int maxConcurrentTasks;
+    private final boolean failFast;
+    private final IResourceGovernor governor;
+
+    /**
+     * Constructs a new scheduler that keeps running tasks unrelated to a failed task.
+     * @param maxConcurrentTasks The maximum number of tasks allowed to run at the same time, at least 1.
+     */
+    public TaskScheduler(int maxConcurrentTasks) {
+        this(maxConcurrentTasks, false);
+    }
+
+    /**
+     * Constructs a new scheduler.
+     * @param maxConcurrentTasks The maximum number of tasks allowed to run at the same time, at least 1.
+     * @param failFast True to stop starting any task once a task fails, False to only skip the tasks that
+     *                 depend on the failed task.
+     */
+    public TaskScheduler(int maxConcurrentTasks, boolean failFast) {
+        this(maxConcurrentTasks, failFast, null);
+    }
+
+    /**
+     * Constructs a new scheduler that only starts the tasks a governor admits.
+     * @param maxConcurrentTasks The maximum number of tasks allowed to run at the same time, at least 1.
+     * @param failFast True to stop starting any task once a task fails, False to only skip the tasks that
+     *                 depend on the failed task.
+     * @param governor The {@link IResourceGovernor} that admits each task, or null to admit every task.
+     */
+    public TaskScheduler(int maxConcurrentTasks, boolean failFast, IResourceGovernor governor) {
+        this.maxConcurrentTasks = Math.max(1, maxConcurrentTasks);
+        this.failFast = failFast;
+        this.governor = governor;
+    }
+
+    /**
+     * Runs every task in the provided list with the provided executor, blocking until all tasks have completed
+     * or been skipped.
+     * @param tasks The tasks to run, in the order they should be preferred when several are equally urgent.
+     * @param graph The {@link DependencyGraph} used to decide which tasks have to wait on which other tasks.
+     * @param executor The {@link ITaskExecutor} that runs a single task.
+     * @return The {@link CriticalPath} of the run.
+     */
+    public CriticalPath execute(List<MavenTask> tasks, DependencyGraph graph, ITaskExecutor executor) {
+        return execute(tasks, graph, executor, null);
+    }
+
+    /**
+     * Runs every task in the provided list with the provided executor, blocking until all tasks have completed
+     * or been skipped. Tasks that haven't started when the cancellation token is cancelled are skipped.
+     * @param tasks The tasks to run, in the order they should be preferred when several are equally urgent.
+     * @param graph The {@link DependencyGraph} used to decide which tasks have to wait on which other tasks.
+     * @param executor The {@link ITaskExecutor} that runs a single task.
+     * @param token The {@link CancellationToken} of the run, or null if the run can't be cancelled.
+     * @return The {@link CriticalPath} of the run.
+     */
+    public CriticalPath execute(List<MavenTask> tasks, DependencyGraph graph, ITaskExecutor executor,
+                                CancellationToken token) {
+        int taskCount = tasks.size();
+        if (taskCount == 0)
+            return CriticalPath.EMPTY;
+
+        // Build the graph of which tasks have to wait on which other tasks
+        List<List<Integer>> dependents = buildDependents(tasks, graph);
+        int[] waitingOn = new int[taskCount];
+        for (List<Integer> taskDependents : dependents) {
+            for (int dependent : taskDependents)
+                waitingOn[dependent]++;
+        }
+
+        // Ready tasks are ordered by the work ahead of them, then by their position in the list
+        long[] estimates = estimate(tasks, executor);
+        long[] workAhead = workAhead(estimates, dependents);
+        PriorityQueue<Integer> ready = new PriorityQueue<>((first, second) -> workAhead[first] != workAhead[second] ?
+                Long.compare(workAhead[second], workAhead[first]) : Integer.compare(first, second));
+        for (int i = 0; i < taskCount; i++) {
+            if (waitingOn[i] == 0)
+                ready.add(i);
+        }
+
+        // Each started task reports the index of the task once it gives up its slot, and its complement once it
+        // has completed
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(maxConcurrentTasks, taskCount));
+        BlockingQueue<Integer> events = new LinkedBlockingQueue<>();
+        boolean[] started = new boolean[taskCount];
+        boolean[] failed = new boolean[taskCount];
+        long[] startNanos = new long[taskCount];
+        long[] finishNanos = new long[taskCount];
+        long runStartNanos = System.nanoTime();
+        int running = 0;
+        int completing = 0;
+        int finished = 0;
+
+        try {
+            while (finished < taskCount) {
+                // Skip every task not yet started once the run is cancelled, then wait on the running tasks
+                if (token != null && token.isCancelled()) {
+                    finished += skipAll(tasks, started, null, executor);
+                    ready.clear();
+                    if (running == 0 && completing == 0)
+                        break;
+                }
+
+                // Fill every free slot with a ready task the governor admits, holding back the rest
+                List<Integer> heldBack = new ArrayList<>();
+                while (running < maxConcurrentTasks && !ready.isEmpty()) {
+                    int index = ready.poll();
+                    MavenTask task = tasks.get(index);
+                    if (!admit(task, running == 0)) {
+                        heldBack.add(index);
+                        continue;
+                    }
+                    started[index] = true;
+                    pool.execute(() -> {
+                        startNanos[index] = System.nanoTime();
+                        CompletionStage<Boolean> completion;
+                        try {
+                            completion = executor.startTask(task);
+                        } catch (Throwable e) {
+                            logger.log(Level.SEVERE, "Unhandled exception running task: " + task.getTaskName(), e);
+                            completion = CompletableFuture.completedFuture(false);
+                        }
+                        events.add(index);
+                        completion.whenComplete((succeeded, error) -> {
+                            if (error != null) {
+                                logger.log(Level.SEVERE, "Unhandled exception completing task: " +
+                                        task.getTaskName(), error);
+                            }
+                            failed[index] = succeeded == null || !succeeded;
+                            finishNanos[index] = System.nanoTime();
+                            events.add(~index);
+                        });
+                    });
+                    running++;
+                }
+                ready.addAll(heldBack);
+
+                // Nothing is running or completing and nothing is ready, so the remaining tasks depend on each
+                // other. Fall back to list order by releasing the earliest task that hasn't started yet.
+                if (running == 0 && completing == 0) {
+                    for (int i = 0; i < taskCount; i++) {
+                        if (!started[i]) {
+                            logger.warning("Circular dependency found, starting task: " +
+                                    tasks.get(i).getTaskName() + " before its dependencies.");
+                            ready.add(i);
+                            break;
+                        }
+                    }
+                    continue;
+                }
+
+                // Wait on the next task to give up its slot, or to complete and release any task only waiting on it
+                int event = events.take();
+                if (event >= 0) {
+                    release(tasks.get(event));
+                    running--;
+                    completing++;
+                    continue;
+                }
+                int index = ~event;
+                completing--;
+                finished++;
+                if (failed[index]) {
+                    finished += skipAfterFailure(index, tasks, dependents, started, executor);
+                    ready.removeIf(readyIndex -> started[readyIndex]);
+                    continue;
+                }
+                for (int dependent : dependents.get(index)) {
+                    if (--waitingOn[dependent] == 0 && !started[dependent])
+                        ready.add(dependent);
+                }
+            }
+        } catch (InterruptedException ie) {
+            logger.log(Level.SEVERE, "Task scheduler was interrupted while waiting on tasks.", ie);
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+        return criticalPath(tasks, dependents, estimates, startNanos, finishNanos, runStartNanos);
+    }
+
+    /**
+     * Asks the governor, if there is one, whether a task may start.
+     * @param task The task about to be started.
+     * @param mustAdmit True if no other task is running.
+     * @return True if the task may start, False if it has to wait.
+     */
+    private boolean admit(MavenTask task, boolean mustAdmit) {
+        if (governor == null)
+            return true;
+        try {
+            return governor.tryAcquire(task, mustAdmit);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Unhandled exception admitting task: " + task.getTaskName(), e);
+            return true;
+        }
+    }
+
+    /**
+     * Tells the governor, if there is one, that a task has finished.
+     * @param task The task that finished.
+     */
+    private void release(MavenTask task) {
+        if (governor == null)
+            return;
+        try {
+            governor.release(task);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Unhandled exception releasing task: " + task.getTaskName(), e);
+        }
+    }
+
+    /**
+     * Asks the executor for the estimated duration of every task.
+     * @param tasks The tasks being run.
+     * @param executor The {@link ITaskExecutor} to ask.
+     * @return The estimated duration of each task in milliseconds, or -1 where there is no estimate.
+     */
+    private long[] estimate(List<MavenTask> tasks, ITaskExecutor executor) {
+        long[] estimates = new long[tasks.size()];
+        for (int i = 0; i < estimates.length; i++) {
+            try {
+                estimates[i] = executor.estimateDurationMillis(tasks.get(i));
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Unable to estimate task: " + tasks.get(i).getTaskName(), e);
+                estimates[i] = -1;
+            }
+        }
+        return estimates;
+    }
+
+    /**
+     * Works out the work ahead of every task, its own estimated duration plus the longest chain among the tasks
+     * depending on it. Tasks are worked out from the end of each chain back, starting with the tasks nothing
+     * depends on. Tasks in a dependency cycle are never reached that way, and only count the chains of the tasks
+     * depending on them that aren't in the cycle.
+     * @param estimates The estimated duration of each task in milliseconds, or -1 where there is no estimate.
+     * @param dependents The indices of the tasks depending on each task.
+     * @return The work ahead of each task, in milliseconds.
+     */
+    private static long[] workAhead(long[] estimates, List<List<Integer>> dependents) {
+        int taskCount = estimates.length;
+        List<List<Integer>> upstream = new ArrayList<>(taskCount);
+        int[] remaining = new int[taskCount];
+        for (int i = 0; i < taskCount; i++)
+            upstream.add(new ArrayList<>());
+        for (int i = 0; i < taskCount; i++) {
+            remaining[i] = dependents.get(i).size();
+            for (int dependent : dependents.get(i))
+                upstream.get(dependent).add(i);
+        }
+
+        long[] workAhead = new long[taskCount];
+        boolean[] done = new boolean[taskCount];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int i = 0; i < taskCount; i++) {
+            if (remaining[i] == 0)
+                queue.add(i);
+        }
+        while (!queue.isEmpty()) {
+            int index = queue.poll();
+            workAhead[index] = Math.max(0, estimates[index]) + longestDependent(index, dependents, workAhead);
+            done[index] = true;
+            for (int upstreamIndex : upstream.get(index)) {
+                if (--remaining[upstreamIndex] == 0)
+                    queue.add(upstreamIndex);
+            }
+        }
+        for (int i = 0; i < taskCount; i++) {
+            if (!done[i])
+                workAhead[i] = Math.max(0, estimates[i]) + longestDependent(i, dependents, workAhead);
+        }
+        return workAhead;
+    }
+
+    /**
+     * Finds the longest chain among the tasks depending on a task.
+     * @param index The index of the task.
+     * @param dependents The indices of the tasks depending on each task.
+     * @param workAhead The work ahead of each task worked out so far, 0 for the rest.
+     * @return The largest work ahead of any task depending on the task, in milliseconds.
+     */
+    private static long longestDependent(int index, List<List<Integer>> dependents, long[] workAhead) {
+        long longest = 0;
+        for (int dependent : dependents.get(index))
+            longest = Math.max(longest, workAhead[dependent]);
+        return longest;
+    }
+
+    /**
+     * Works out the critical path of a finished run. The path is followed back from the task that finished last,
+     * each time to the dependency that finished last before the task started.
+     * @param tasks The tasks that were run.
+     * @param dependents The indices of the tasks depending on each task.
+     * @param estimates The estimated duration of each task in milliseconds, or -1 where there is no estimate.
+     * @param startNanos When each task started, 0 for tasks that never ran.
+     * @param finishNanos When each task finished, 0 for tasks that never ran or didn't finish.
+     * @param runStartNanos When the run started.
+     * @return The {@link CriticalPath} of the run.
+     */
+    private static CriticalPath criticalPath(List<MavenTask> tasks, List<List<Integer>> dependents, long[] estimates,
+                                             long[] startNanos, long[] finishNanos, long runStartNanos) {
+        int last = -1;
+        for (int i = 0; i < tasks.size(); i++) {
+            if (finishNanos[i] != 0 && (last == -1 || finishNanos[i] > finishNanos[last]))
+                last = i;
+        }
+        if (last == -1)
+            return CriticalPath.EMPTY;
+
+        Deque<CriticalPath.Step> steps = new ArrayDeque<>();
+        for (int current = last; current != -1; ) {
+            int gate = -1;
+            for (int i = 0; i < tasks.size(); i++) {
+                if (finishNanos[i] != 0 && finishNanos[i] <= startNanos[current] &&
+                        dependents.get(i).contains(current) &&
+                        (gate == -1 || finishNanos[i] > finishNanos[gate]))
+                    gate = i;
+            }
+            long readyNanos = gate == -1 ? runStartNanos : finishNanos[gate];
+            steps.addFirst(new CriticalPath.Step(tasks.get(current),
+                    TimeUnit.NANOSECONDS.toMillis(startNanos[current] - runStartNanos),
+                    TimeUnit.NANOSECONDS.toMillis(finishNanos[current] - startNanos[current]),
+                    TimeUnit.NANOSECONDS.toMillis(Math.max(0, startNanos[current] - readyNanos)),
+                    estimates[current]));
+            current = gate;
+        }
+        return new CriticalPath(new ArrayList<>(steps),
+                TimeUnit.NANOSECONDS.toMillis(finishNanos[last] - runStartNanos));
+    }
+
+    /**
+     * Skips the tasks that can no longer run after a task has failed, which is every task that hasn't started
+     * yet when failing fast, or every task depending on the failed task, directly or not, otherwise. Skipped
+     * tasks have to be removed from the ready queue by the caller.
+     * @param failedIndex The index of the failed task.
+     * @param tasks The tasks being run.
+     * @param dependents The indices of the tasks depending on each task.
+     * @param started Whether each task has been started or skipped, updated with the skipped tasks.
+     * @param executor The {@link ITaskExecutor} to tell about each skipped task.
+     * @return The number of tasks skipped.
+     */
+    private int skipAfterFailure(int failedIndex, List<MavenTask> tasks, List<List<Integer>> dependents,
+                                 boolean[] started, ITaskExecutor executor) {
+        if (failFast)
+            return skipAll(tasks, started, tasks.get(failedIndex), executor);
+
+        List<Integer> toSkip = new ArrayList<>();
+        Deque<Integer> queue = new ArrayDeque<>(dependents.get(failedIndex));
+        boolean[] seen = new boolean[tasks.size()];
+        while (!queue.isEmpty()) {
+            int index = queue.poll();
+            if (seen[index])
+                continue;
+            seen[index] = true;
+            if (!started[index])
+                toSkip.add(index);
+            queue.addAll(dependents.get(index));
+        }
+        Collections.sort(toSkip);
+
+        for (int index : toSkip) {
+            started[index] = true;
+            skip(tasks.get(index), tasks.get(failedIndex), executor);
+        }
+        return toSkip.size();
+    }
+
+    /**
+     * Skips every task that hasn't been started yet.
+     * @param tasks The tasks being run.
+     * @param started Whether each task has been started or skipped, updated with the skipped tasks.
+     * @param failedTask The task whose failure caused the skip, or null if the run was cancelled.
+     * @param executor The {@link ITaskExecutor} to tell about each skipped task.
+     * @return The number of tasks skipped.
+     */
+    private int skipAll(List<MavenTask> tasks, boolean[] started, MavenTask failedTask, ITaskExecutor executor) {
+        int skipped = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            if (!started[i]) {
+                started[i] = true;
+                skip(tasks.get(i), failedTask, executor);
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Tells the executor about a skipped task.
+     * @param task The skipped task.
+     * @param failedTask The task whose failure caused the skip, or null if the run was cancelled.
+     * @param executor The {@link ITaskExecutor} to tell about the skipped task.
+     */
+    private void skip(MavenTask task, MavenTask failedTask, ITaskExecutor executor) {
+        try {
+            executor.skipTask(task, failedTask);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Unhandled exception skipping task: " + task.getTaskName(), e);
+        }
+    }
+
+    /**
+     * Builds the list of dependent task indices for each task from the edges of a {@link DependencyGraph}.
+     * Tasks that are part of the graph but not part of the list are looked through, so ordering is kept
+     * even when a task in the middle of a chain isn't being run.
+     * @param tasks The tasks to build the dependent lists for.
+     * @param graph The {@link DependencyGraph} containing the tasks.
+     * @return A list where the entry at index i contains the indices of every task that depends on task i.
+     */
+    private List<List<Integer>> buildDependents(List<MavenTask> tasks, DependencyGraph graph) {
+        List<List<Integer>> dependents = new ArrayList<>(tasks.size());
+        Map<UUID, Integer> positions = new LinkedHashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            dependents.add(new ArrayList<>());
+            positions.put(tasks.get(i).getId(), i);
+        }
+
+        for (int i = 0; i < tasks.size(); i++) {
+            for (UUID upstream : graph.getUpstreamWithin(tasks.get(i).getId(), positions.keySet()))
+                dependents.get(positions.get(upstream)).add(i);
+        }
+        return dependents;
+    }
+}
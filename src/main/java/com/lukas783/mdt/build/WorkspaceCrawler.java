@@ -0,0 +1,152 @@
+package com.lukas783.mdt.build;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Crawls a directory tree for Maven projects, handing over every 'pom.xml' file as soon as it is found. The tree is
+ * crawled in parallel, with a fork/join task for every directory. Directories that never hold projects of their
+ * own, such as build output and version control directories, are skipped along with everything below them.
+ * Symbolic links to directories are followed, but every directory is only crawled once, so links that lead back
+ * up the tree, or to a directory that is crawled anyway, don't lead the crawl in circles.
+ *
+ * @author Lucas Carpenter
+ */
+public class WorkspaceCrawler {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(WorkspaceCrawler.class.getName());
+
+    // Declaration of constants used by the crawler
+    private static final String POM_FILE_NAME = "pom.xml";
+    private static final Set<String> SKIPPED_DIRECTORIES = new HashSet<>(Arrays.asList(
+            System.getProperty("mdt.discovery.skip", "target,.git,.svn,.hg,node_modules").split(",")));
+
+    // Declaration of the pool used to crawl directory trees, shared by every crawler
+    private static final ForkJoinPool crawlPool = new ForkJoinPool(Integer.getInteger("mdt.discovery.threads",
+            Math.max(4, Runtime.getRuntime().availableProcessors() * 2)));
+
+    // Declaration of variables used by the crawler
+    private final Set<Object> visitedDirectories = ConcurrentHashMap.newKeySet();
+    private final AtomicLong directoryCount = new AtomicLong();
+    private final AtomicLong pomCount = new AtomicLong();
+
+    /**
+     * Crawls a directory tree, blocking until the whole tree has been crawled. The consumer is called from the
+     * crawl's worker threads, possibly from several at the same time, so it must be thread-safe.
+     * @param root The directory to crawl.
+     * @param consumer The {@link Consumer} to hand every 'pom.xml' file found to.
+     * @throws IOException If the root directory couldn't be read.
+     */
+    public void crawl(Path root, Consumer<Path> consumer) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(root, BasicFileAttributes.class);
+        if (!attributes.isDirectory())
+            throw new NotDirectoryException(root.toString());
+        if (visit(root, attributes))
+            crawlPool.invoke(new DirectoryCrawl(root.toAbsolutePath(), consumer));
+    }
+
+    /**
+     * Retrieves the number of directories crawled so far.
+     * @return The number of directories crawled.
+     */
+    public long getDirectoryCount() {
+        return directoryCount.get();
+    }
+
+    /**
+     * Retrieves the number of 'pom.xml' files found so far.
+     * @return The number of POM files found.
+     */
+    public long getPomCount() {
+        return pomCount.get();
+    }
+
+    /**
+     * Marks a directory as visited, identifying it by its file key where the file system provides one, so that a
+     * directory reached through several links is recognised as the same directory.
+     * @param directory The directory to visit.
+     * @param attributes The attributes of the directory, following links.
+     * @return True if the directory hadn't been visited yet, False otherwise.
+     */
+    private boolean visit(Path directory, BasicFileAttributes attributes) {
+        Object key = attributes.fileKey();
+        if (key == null) {
+            try {
+                key = directory.toRealPath();
+            } catch (IOException ioe) {
+                logger.log(Level.FINE, "Unable to resolve directory: " + directory, ioe);
+                return false;
+            }
+        }
+        return visitedDirectories.add(key);
+    }
+
+    /**
+     * A fork/join task that crawls a single directory, forking a new task for every sub-directory.
+     */
+    private class DirectoryCrawl extends RecursiveAction {
+
+        // Declaration of variables used by the crawl
+        private final Path directory;
+        private final Consumer<Path> consumer;
+
+        /**
+         * Constructs a new crawl over a single directory.
+         * @param directory The directory to crawl.
+         * @param consumer The {@link Consumer} to hand every 'pom.xml' file found to.
+         */
+        private DirectoryCrawl(Path directory, Consumer<Path> consumer) {
+            this.directory = directory;
+            this.consumer = consumer;
+        }
+
+        /**
+         * Crawls the directory.
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            directoryCount.incrementAndGet();
+            List<DirectoryCrawl> subCrawls = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    String name = entry.getFileName().toString();
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (IOException ioe) {
+                        // Broken links and files removed while crawling are simply passed over
+                        continue;
+                    }
+
+                    if (attributes.isDirectory()) {
+                        if (!SKIPPED_DIRECTORIES.contains(name) && visit(entry, attributes)) {
+                            DirectoryCrawl subCrawl = new DirectoryCrawl(entry, consumer);
+                            subCrawl.fork();
+                            subCrawls.add(subCrawl);
+                        }
+                    } else if (name.equals(POM_FILE_NAME) && attributes.isRegularFile()) {
+                        pomCount.incrementAndGet();
+                        consumer.accept(entry);
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                logger.log(Level.FINE, "Unable to crawl directory: " + directory, e);
+            }
+
+            for (DirectoryCrawl subCrawl : subCrawls)
+                subCrawl.join();
+        }
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * A group of classes that plan and drive the execution of tasks, such as the scheduler that decides which
+ * tasks are able to run at the same time.
+ */
+package com.lukas783.mdt.build;
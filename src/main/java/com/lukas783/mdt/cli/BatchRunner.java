@@ -0,0 +1,278 @@
+package com.lukas783.mdt.cli;
+
+import com.lukas783.mdt.api.IProcessServiceListener;
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.service.ProcessService;
+import com.lukas783.mdt.service.RunHandle;
+import com.lukas783.mdt.service.TaskLogStore;
+import com.lukas783.mdt.util.TaskListFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs a saved task list from the command-line, without creating any user interface, so that task lists can be
+ * run on build agents and servers. The tasks are handed straight to the {@link ProcessService}, their output is
+ * streamed to standard output unless asked not to, and every task's output is also kept in its log in the
+ * {@link TaskLogStore}. The exit status tells how the run went:
+ * <ul>
+ *     <li>{@link #EXIT_SUCCESS} if every enabled task succeeded,</li>
+ *     <li>{@link #EXIT_TASKS_FAILED} if any task failed or was skipped because of a failure,</li>
+ *     <li>{@link #EXIT_USAGE} if the arguments were wrong or the task list couldn't be loaded,</li>
+ *     <li>{@link #EXIT_CANCELLED} if the run was cancelled or ran into its timeout.</li>
+ * </ul>
+ *
+ * @author Lucas Carpenter
+ */
+public class BatchRunner {
+
+    // Declare a logger for debug/error logging
+    private static final Logger logger = Logger.getLogger(BatchRunner.class.getName());
+
+    // Declaration of the exit statuses of a batch run
+    public static final int EXIT_SUCCESS = 0;
+    public static final int EXIT_TASKS_FAILED = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_CANCELLED = 3;
+
+    // Declaration of how long an interrupted run is given to kill its processes before the JVM exits
+    private static final long SHUTDOWN_GRACE_SECONDS = 10;
+
+    // Declaration of the streams the runner writes to
+    private final PrintStream out;
+    private final PrintStream err;
+
+    // Declaration of the options of the run
+    private File taskListFile;
+    private boolean quiet;
+
+    /**
+     * Constructs a {@link BatchRunner}.
+     * @param out The stream to write task output and the summary of the run to.
+     * @param err The stream to write usage and error messages to.
+     */
+    public BatchRunner(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Checks whether the command-line asks for a batch run rather than the user interface.
+     * @param args The arguments passed to the application.
+     * @return True if the application should run as a batch runner, False otherwise.
+     */
+    public static boolean isBatchInvocation(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--batch") || arg.equals("-b"))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Runs the task list named by the command-line.
+     * @param args The arguments passed to the application.
+     * @return The exit status of the run.
+     */
+    public int run(String[] args) {
+        if (!parseArguments(args))
+            return EXIT_USAGE;
+
+        List<MavenTask> tasks;
+        try {
+            tasks = TaskListFile.read(taskListFile);
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Unable to load task list: " + taskListFile, ioe);
+            err.println("Unable to load task list: " + ioe.getMessage());
+            return EXIT_USAGE;
+        }
+
+        ProcessService service = ProcessService.getInstance();
+        for (MavenTask task : tasks)
+            service.addTask(task);
+
+        // Only stream the output of the run itself, not the messages about the tasks being added
+        service.flushExecutionOutput();
+        IProcessServiceListener listener = quiet ? null : new OutputListener();
+        if (listener != null)
+            service.addListener(listener);
+
+        RunHandle run = service.startProcessTasks();
+        Thread shutdownHook = new Thread(() -> {
+            run.cancel();
+            try {
+                run.await(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }, "mdt-batch-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        try {
+            run.await();
+        } catch (InterruptedException ie) {
+            run.cancel();
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ise) {
+            // The JVM is already shutting down, and the hook is what cancelled the run
+        }
+
+        service.flushExecutionOutput();
+        if (listener != null)
+            service.removeListener(listener);
+        printSummary(tasks, run);
+
+        if (run.isCancelled())
+            return EXIT_CANCELLED;
+        return run.isSuccess() ? EXIT_SUCCESS : EXIT_TASKS_FAILED;
+    }
+
+    /**
+     * Parses the command-line, applying the options of the run to the {@link ProcessService}.
+     * @param args The arguments passed to the application.
+     * @return True if the arguments were valid and the run should go ahead, False otherwise.
+     */
+    private boolean parseArguments(String[] args) {
+        ProcessService service = ProcessService.getInstance();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--batch":
+                    case "-b":
+                        taskListFile = new File(value(args, ++i));
+                        break;
+                    case "--quiet":
+                    case "-q":
+                        quiet = true;
+                        break;
+                    case "--concurrency":
+                        service.setMaxConcurrentTasks(Integer.parseInt(value(args, ++i)));
+                        break;
+                    case "--fail-fast":
+                        service.setFailFast(true);
+                        break;
+                    case "--task-timeout":
+                        service.setTaskTimeoutSeconds(Long.parseLong(value(args, ++i)));
+                        break;
+                    case "--run-timeout":
+                        service.setRunTimeoutSeconds(Long.parseLong(value(args, ++i)));
+                        break;
+                    case "--workers":
+                        service.setExecutionMode(ProcessService.ExecutionMode.WORKER);
+                        break;
+                    case "--rebuild":
+                        service.setSkipUpToDateTasks(false);
+                        break;
+                    case "--help":
+                    case "-h":
+                        printUsage(out);
+                        return false;
+                    default:
+                        err.println("Unknown option: " + args[i]);
+                        printUsage(err);
+                        return false;
+                }
+            }
+        } catch (IllegalArgumentException iae) {
+            // NumberFormatException is an IllegalArgumentException too
+            err.println("Invalid option value: " + iae.getMessage());
+            printUsage(err);
+            return false;
+        }
+        if (taskListFile == null) {
+            printUsage(err);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the value that follows an option.
+     * @param args The arguments passed to the application.
+     * @param index The index of the value.
+     * @return The value.
+     * @throws IllegalArgumentException If the option is the last argument.
+     */
+    private static String value(String[] args, int index) {
+        if (index >= args.length)
+            throw new IllegalArgumentException(args[index - 1] + " needs a value.");
+        return args[index];
+    }
+
+    /**
+     * Prints how the run went, and where the log of every task that ran can be found.
+     * @param tasks The tasks of the run.
+     * @param run The {@link RunHandle} of the finished run.
+     */
+    private void printSummary(List<MavenTask> tasks, RunHandle run) {
+        if (quiet) {
+            for (MavenTask task : tasks) {
+                File log = task.getEnabled() ? TaskLogStore.getInstance().getLatestLog(task.getId()) : null;
+                if (log != null)
+                    out.println("Log of task: " + task.getTaskName() + ": " + log);
+            }
+        }
+        out.println("Tasks succeeded: " + run.getSucceededCount() +
+                ", failed: " + run.getFailedCount() +
+                ", skipped: " + run.getSkippedCount() +
+                (run.isCancelled() ? ". The run was cancelled because " + run.getCancelReason() + "." : "."));
+        out.flush();
+    }
+
+    /**
+     * Prints the usage of the batch runner.
+     * @param stream The stream to print to.
+     */
+    private static void printUsage(PrintStream stream) {
+        stream.println("Usage: --batch <task list file> [options]");
+        stream.println("  -q, --quiet              Only write task output to the task logs, not standard output");
+        stream.println("  --concurrency <n>        Run up to n tasks at the same time");
+        stream.println("  --fail-fast              Stop starting tasks after the first failure");
+        stream.println("  --task-timeout <s>       Kill a task that runs longer than s seconds");
+        stream.println("  --run-timeout <s>        Cancel the run if it runs longer than s seconds");
+        stream.println("  --workers                Build on resident maven workers instead of forking maven");
+        stream.println("  --rebuild                Build every task, even tasks that are up-to-date");
+        stream.println("Exit status: 0 if every task succeeded, 1 if a task failed or was skipped, " +
+                "2 on bad usage, 3 if the run was cancelled or timed out.");
+    }
+
+    /**
+     * Streams the output of the run to the runner's output stream.
+     */
+    private class OutputListener implements IProcessServiceListener {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void processOutputAppend(String processOutput) {
+            out.print(processOutput);
+            out.flush();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void taskAdded(MavenTask task) { }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void taskUpdated(MavenTask task) { }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void taskRemoved(MavenTask task) { }
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * A group of classes that run the application from the command-line, without a user interface. Nothing in this
+ * package may use Swing or AWT, so that it starts quickly and works on machines without a display.
+ */
+package com.lukas783.mdt.cli;
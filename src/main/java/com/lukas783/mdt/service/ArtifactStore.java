@@ -0,0 +1,467 @@
+package com.lukas783.mdt.service;
+
+import com.lukas783.mdt.api.BuiltArtifact;
+import com.lukas783.mdt.util.BinaryIO;
+import com.lukas783.mdt.util.Checksums;
+import com.lukas783.mdt.util.DataDirectory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A singleton-service that keeps a content-addressed store of built artifacts. Artifact files are stored once
+ * per distinct content hash, and are looked up by the input fingerprint of the build that produced them. A task
+ * whose fingerprint matches a stored entry can have its artifacts restored into its target directory instead
+ * of being built. Restores always copy the stored files, as maven rewrites the artifacts in a target directory
+ * in place, and would write straight into the store through a hard link.
+ * <p>
+ * Stored files are never modified once published, and files being restored are pinned so that eviction can't
+ * delete them part way through, which makes it safe for tasks running in parallel to restore at the same time.
+ * The least recently used entries are evicted once the stored files exceed the configured size.
+ *
+ * @author Lucas Carpenter
+ */
+public class ArtifactStore {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(ArtifactStore.class.getName());
+
+    // Declaration of constants used by the store
+    private static final int FILE_MAGIC = 0x4D444153;
+    private static final int FILE_VERSION = 1;
+    private static final long DEFAULT_MAX_BYTES = Long.getLong("mdt.artifactStore.maxBytes", 2L * 1024 * 1024 * 1024);
+
+    // Declaration of the internal instance to always use
+    private static ArtifactStore INSTANCE;
+
+    /**
+     * A single artifact file belonging to an entry.
+     */
+    private static class StoredArtifact {
+        private String fileName;
+        private String hash;
+    }
+
+    /**
+     * The artifacts produced by a single input fingerprint.
+     */
+    private static class StoreEntry {
+        private List<StoredArtifact> artifacts = new ArrayList<>();
+        private byte[] outputHash;
+    }
+
+    /**
+     * A single content-addressed file, along with what it looked like when it was published.
+     */
+    private static class Blob {
+        private long length;
+        private long modified;
+    }
+
+    // Declaration of variables used by the store
+    private final File blobDirectory;
+    private final File indexFile;
+    private final LinkedHashMap<String, StoreEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Blob> blobs = new HashMap<>();
+    private final Map<String, Integer> pins = new HashMap<>();
+    private long totalBytes;
+    private volatile long maxBytes;
+    private boolean dirty;
+
+    /**
+     * The public facing method to get an instance of the class.
+     * @return An instance of {@link ArtifactStore}
+     */
+    public static synchronized ArtifactStore getInstance() {
+        if(INSTANCE == null)
+            INSTANCE = new ArtifactStore(DataDirectory.getFile("artifacts"));
+        return INSTANCE;
+    }
+
+    /**
+     * The private facing constructor used by the public-facing {@link #getInstance()} method
+     * to create a new service instance reference if one does not already exist. Loads the index of any
+     * previously stored artifacts and saves the index again when the application shuts down.
+     * @param directory The directory to keep the store in.
+     */
+    private ArtifactStore(File directory) {
+        this.blobDirectory = new File(directory, "blobs");
+        this.indexFile = new File(directory, "index.bin");
+        this.maxBytes = DEFAULT_MAX_BYTES;
+        if (!blobDirectory.isDirectory() && !blobDirectory.mkdirs())
+            logger.warning("Unable to create artifact store directory: " + blobDirectory);
+        load();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::save));
+    }
+
+    /**
+     * Stores the artifacts produced by a build under the build's input fingerprint.
+     * @param fingerprint The input fingerprint of the build.
+     * @param artifacts The {@link BuiltArtifact}s produced by the build.
+     * @return A hash of the stored artifacts' names and contents, or null if they couldn't be stored.
+     */
+    public byte[] put(byte[] fingerprint, List<BuiltArtifact> artifacts) {
+        StoreEntry entry = new StoreEntry();
+        try {
+            for (BuiltArtifact builtArtifact : artifacts) {
+                File artifact = builtArtifact.getFile();
+                StoredArtifact stored = new StoredArtifact();
+                stored.fileName = artifact.getName();
+                stored.hash = Checksums.toHex(Checksums.sha256(artifact));
+                publish(stored.hash, artifact);
+                entry.artifacts.add(stored);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to store built artifacts in the artifact store.", ioe);
+            return null;
+        }
+        entry.outputHash = outputHash(entry.artifacts);
+
+        synchronized (this) {
+            entries.put(Checksums.toHex(fingerprint), entry);
+            dirty = true;
+            evict();
+        }
+        return entry.outputHash;
+    }
+
+    /**
+     * Restores the artifacts stored under an input fingerprint into a directory, replacing any existing files
+     * with the same names.
+     * @param fingerprint The input fingerprint to restore the artifacts of.
+     * @param targetDirectory The directory to restore the artifacts into.
+     * @return The hash of the restored artifacts, as returned by {@link #put(byte[], List)}, or null if
+     * nothing was stored under the fingerprint or the artifacts couldn't be restored.
+     */
+    public byte[] restore(byte[] fingerprint, File targetDirectory) {
+        String key = Checksums.toHex(fingerprint);
+        StoreEntry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null || entry.artifacts.isEmpty())
+                return null;
+
+            // Make sure nobody has modified a stored file, then pin every file
+            boolean modified = false;
+            for (StoredArtifact stored : entry.artifacts) {
+                Blob blob = blobs.get(stored.hash);
+                File blobFile = blobFile(stored.hash);
+                if (blob == null || blobFile.length() != blob.length || blobFile.lastModified() != blob.modified) {
+                    logger.warning("Stored artifact: " + stored.fileName +
+                            " was modified, dropping it from the store.");
+                    dropBlob(stored.hash);
+                    modified = true;
+                }
+            }
+            if (modified) {
+                entries.remove(key);
+                dirty = true;
+                return null;
+            }
+            for (StoredArtifact stored : entry.artifacts)
+                pins.merge(stored.hash, 1, Integer::sum);
+        }
+
+        try {
+            if (!targetDirectory.isDirectory() && !targetDirectory.mkdirs())
+                throw new IOException("Unable to create directory: " + targetDirectory);
+            for (StoredArtifact stored : entry.artifacts)
+                copyOut(blobFile(stored.hash), new File(targetDirectory, stored.fileName));
+            return entry.outputHash;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to restore artifacts from the artifact store.", ioe);
+            return null;
+        } finally {
+            synchronized (this) {
+                for (StoredArtifact stored : entry.artifacts)
+                    pins.merge(stored.hash, -1, (a, b) -> a + b == 0 ? null : a + b);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the hash of the artifacts stored under an input fingerprint without restoring them.
+     * @param fingerprint The input fingerprint to look up.
+     * @return The hash of the stored artifacts, or null if nothing is stored under the fingerprint.
+     */
+    public synchronized byte[] getOutputHash(byte[] fingerprint) {
+        StoreEntry entry = entries.get(Checksums.toHex(fingerprint));
+        return entry == null ? null : entry.outputHash;
+    }
+
+    /**
+     * Retrieves the maximum total size of the stored files.
+     * @return The maximum size in bytes.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the maximum total size of the stored files, evicting entries if the store is currently larger.
+     * @param maxBytes The maximum size in bytes.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        evict();
+    }
+
+    /**
+     * Writes the index of the store to its file if it changed since it was last loaded or saved. The file is
+     * written to a temporary file first and then moved into place, so a crash never leaves a partial index.
+     */
+    public synchronized void save() {
+        if (!dirty)
+            return;
+
+        File temporaryFile = new File(indexFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(blobs.size());
+            for (Map.Entry<String, Blob> blob : blobs.entrySet()) {
+                BinaryIO.writeString(out, blob.getKey());
+                out.writeLong(blob.getValue().length);
+                out.writeLong(blob.getValue().modified);
+            }
+            out.writeInt(entries.size());
+            for (Map.Entry<String, StoreEntry> entry : entries.entrySet()) {
+                BinaryIO.writeString(out, entry.getKey());
+                out.write(entry.getValue().outputHash);
+                out.writeInt(entry.getValue().artifacts.size());
+                for (StoredArtifact stored : entry.getValue().artifacts) {
+                    BinaryIO.writeString(out, stored.fileName);
+                    BinaryIO.writeString(out, stored.hash);
+                }
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to write artifact store index: " + temporaryFile, ioe);
+            return;
+        }
+
+        try {
+            BinaryIO.replaceFile(temporaryFile, indexFile);
+            dirty = false;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to replace artifact store index: " + indexFile, ioe);
+        }
+    }
+
+    /**
+     * Reads the index of any previously stored artifacts. Entries whose files have gone missing are dropped.
+     */
+    private synchronized void load() {
+        if (!indexFile.isFile())
+            return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                logger.info("Ignoring artifact store index with unknown format: " + indexFile);
+                return;
+            }
+
+            int blobCount = in.readInt();
+            for (int i = 0; i < blobCount; i++) {
+                String hash = BinaryIO.readString(in);
+                Blob blob = new Blob();
+                blob.length = in.readLong();
+                blob.modified = in.readLong();
+                if (blobFile(hash).isFile() && detach(hash)) {
+                    blobs.put(hash, blob);
+                    totalBytes += blob.length;
+                }
+            }
+
+            int entryCount = in.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String key = BinaryIO.readString(in);
+                StoreEntry entry = new StoreEntry();
+                entry.outputHash = new byte[32];
+                in.readFully(entry.outputHash);
+                int artifactCount = in.readInt();
+                boolean complete = true;
+                for (int j = 0; j < artifactCount; j++) {
+                    StoredArtifact stored = new StoredArtifact();
+                    stored.fileName = BinaryIO.readString(in);
+                    stored.hash = BinaryIO.readString(in);
+                    complete &= blobs.containsKey(stored.hash);
+                    entry.artifacts.add(stored);
+                }
+                if (complete)
+                    entries.put(key, entry);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to read artifact store index, starting with an empty store.", ioe);
+            entries.clear();
+            blobs.clear();
+            totalBytes = 0;
+        }
+    }
+
+    /**
+     * Copies a file into the store under its content hash, unless a file with the same hash is already stored.
+     * The file is copied to a temporary name first and then moved into place, so a stored file is never seen
+     * partially written.
+     * @param hash The content hash of the file.
+     * @param file The file to store.
+     * @throws IOException If the file couldn't be copied.
+     */
+    private void publish(String hash, File file) throws IOException {
+        synchronized (this) {
+            if (blobs.containsKey(hash))
+                return;
+        }
+
+        File blobFile = blobFile(hash);
+        File temporaryFile = new File(blobDirectory, hash + "." + UUID.randomUUID() + ".tmp");
+        Files.copy(file.toPath(), temporaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        BinaryIO.replaceFile(temporaryFile, blobFile);
+
+        synchronized (this) {
+            if (!blobs.containsKey(hash)) {
+                Blob blob = new Blob();
+                blob.length = blobFile.length();
+                blob.modified = blobFile.lastModified();
+                blobs.put(hash, blob);
+                totalBytes += blob.length;
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries, and deletes any stored file no longer used by an entry, until the
+     * stored files fit within the configured size. Pinned files are never deleted. Must be called while holding
+     * the store's lock.
+     */
+    private void evict() {
+        Iterator<StoreEntry> iterator = entries.values().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            dirty = true;
+            deleteUnusedBlobs();
+        }
+    }
+
+    /**
+     * Deletes every stored file that is neither used by an entry nor pinned. Must be called while holding the
+     * store's lock.
+     */
+    private void deleteUnusedBlobs() {
+        Set<String> used = new HashSet<>(pins.keySet());
+        for (StoreEntry entry : entries.values()) {
+            for (StoredArtifact stored : entry.artifacts)
+                used.add(stored.hash);
+        }
+
+        Iterator<Map.Entry<String, Blob>> iterator = blobs.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Blob> blob = iterator.next();
+            if (!used.contains(blob.getKey())) {
+                if (!blobFile(blob.getKey()).delete())
+                    logger.warning("Unable to delete stored artifact: " + blobFile(blob.getKey()));
+                totalBytes -= blob.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops a modified stored file from the store, along with every entry that uses it, and deletes any stored
+     * file no longer used as a result. Must be called while holding the store's lock.
+     * @param hash The content hash of the modified file.
+     */
+    private void dropBlob(String hash) {
+        Blob blob = blobs.remove(hash);
+        if (blob != null)
+            totalBytes -= blob.length;
+        if (!blobFile(hash).delete())
+            logger.warning("Unable to delete stored artifact: " + blobFile(hash));
+        entries.values().removeIf(entry -> {
+            for (StoredArtifact stored : entry.artifacts) {
+                if (stored.hash.equals(hash))
+                    return true;
+            }
+            return false;
+        });
+        dirty = true;
+        deleteUnusedBlobs();
+    }
+
+    /**
+     * Makes sure a stored file isn't shared with a file outside of the store, which earlier versions of the store
+     * left behind by restoring through hard links, by replacing a shared file with a copy of it. The copy keeps
+     * the file's modification time, so it still matches the index.
+     * @param hash The content hash of the stored file.
+     * @return True if the stored file isn't shared any longer, False if it couldn't be replaced.
+     */
+    private boolean detach(String hash) {
+        File blobFile = blobFile(hash);
+        try {
+            if (((Number) Files.getAttribute(blobFile.toPath(), "unix:nlink")).intValue() <= 1)
+                return true;
+            File temporaryFile = new File(blobDirectory, hash + "." + UUID.randomUUID() + ".tmp");
+            Files.copy(blobFile.toPath(), temporaryFile.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+            BinaryIO.replaceFile(temporaryFile, blobFile);
+            return true;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // The file system doesn't count links, and so doesn't support hard links either
+            return true;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to detach stored artifact: " + blobFile, ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Copies a stored file to a target path. The file is copied to a temporary name next to the target first and
+     * then moved into place, so the target is never seen partially written.
+     * @param blobFile The stored file.
+     * @param target The path to place the file at.
+     * @throws IOException If the file couldn't be copied.
+     */
+    private static void copyOut(File blobFile, File target) throws IOException {
+        File temporaryFile = new File(target.getAbsoluteFile().getParentFile(),
+                "." + target.getName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.copy(blobFile.toPath(), temporaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            BinaryIO.replaceFile(temporaryFile, target);
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    /**
+     * Computes a single hash over the names and content hashes of a set of artifacts.
+     * @param artifacts The artifacts to hash.
+     * @return The hash of the artifacts.
+     */
+    private static byte[] outputHash(List<StoredArtifact> artifacts) {
+        List<StoredArtifact> sorted = new ArrayList<>(artifacts);
+        Collections.sort(sorted, (a, b) -> a.fileName.compareTo(b.fileName));
+        MessageDigest digest = Checksums.newDigest();
+        for (StoredArtifact stored : sorted) {
+            digest.update(stored.fileName.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(stored.hash.getBytes(StandardCharsets.UTF_8));
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Retrieves the location of a stored file.
+     * @param hash The content hash of the file.
+     * @return The stored file.
+     */
+    private File blobFile(String hash) {
+        return new File(blobDirectory, hash);
+    }
+}
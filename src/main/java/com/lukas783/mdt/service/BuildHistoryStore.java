@@ -0,0 +1,500 @@
+package com.lukas783.mdt.service;
+
+import com.lukas783.mdt.api.BuildRecord;
+import com.lukas783.mdt.util.DataDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A singleton-service that keeps an append-only history of every execution of every task, so that slow tasks and
+ * regressions can be spotted and the length of upcoming builds can be predicted. Each execution is a fixed-size
+ * {@link BuildRecord} appended to a binary file in the application's data directory. Records are appended in the
+ * order the executions completed, so the executions of any span of time are found with a binary search over the
+ * file, and only the records in that span are read.
+ *
+ * When the store is opened the file is read once to index the records of every task by position and completion
+ * time, and to remember how long the most recent builds of each task took and how much memory they held, along
+ * with which of its builds was the last to succeed.
+ * Duration predictions are a percentile over those recent builds, so they follow a task whose build time drifts
+ * without being thrown off by a single unusually fast or slow build.
+ *
+ * @author Lucas Carpenter
+ */
+public class BuildHistoryStore {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(BuildHistoryStore.class.getName());
+
+    // Declaration of constants used by the store's file format
+    private static final int FILE_MAGIC = 0x4D444248;
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 96;
+    private static final int FINGERPRINT_SIZE = 32;
+    private static final int RECORDS_PER_READ = 64 * 1024 / RECORD_SIZE;
+    private static final int FLAG_SUCCEEDED = 1;
+    private static final int FLAG_BUILT = 2;
+    private static final int FLAG_FINGERPRINT = 4;
+    private static final int FLAG_OUT_OF_MEMORY = 8;
+
+    // Declaration of constants used by predictions
+    private static final int PREDICTION_WINDOW = Math.max(1, Integer.getInteger("mdt.history.window", 20));
+    private static final int PREDICTION_PERCENTILE =
+            Math.max(1, Math.min(100, Integer.getInteger("mdt.history.percentile", 75)));
+
+    // Declaration of the internal instance to always use
+    private static BuildHistoryStore INSTANCE;
+
+    /**
+     * The positions and completion times of the records of a single task, along with the durations of its most
+     * recent successful builds, the peak memory of its most recent builds whether they succeeded or not, and the
+     * position of its last successful build.
+     */
+    private static class TaskHistory {
+        private int[] records = new int[8];
+        private long[] completedAts = new long[8];
+        private int size;
+        private final long[] recentMillis = new long[PREDICTION_WINDOW];
+        private int recentCount;
+        private int recentNext;
+        private final long[] recentPeaks = new long[PREDICTION_WINDOW];
+        private int peakCount;
+        private int peakNext;
+        private int latestSuccessfulBuild = -1;
+    }
+
+    // Declaration of variables used by the store
+    private final File historyFile;
+    private final Map<UUID, TaskHistory> histories = new HashMap<>();
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE);
+    private FileChannel channel;
+    private int recordCount;
+    private long lastCompletedAt;
+
+    /**
+     * The public facing method to get an instance of the class.
+     * @return An instance of {@link BuildHistoryStore}
+     */
+    public static synchronized BuildHistoryStore getInstance() {
+        if(INSTANCE == null)
+            INSTANCE = new BuildHistoryStore(DataDirectory.getFile("history.bin"));
+        return INSTANCE;
+    }
+
+    /**
+     * The private facing constructor used by the public-facing {@link #getInstance()} method
+     * to create a new service instance reference if one does not already exist. Opens the history file and
+     * indexes the records already in it.
+     * @param historyFile The file to keep the history in.
+     */
+    private BuildHistoryStore(File historyFile) {
+        this.historyFile = historyFile;
+        open();
+    }
+
+    /**
+     * Appends the record of an execution to the history. Records are kept in the order they are appended, so a
+     * record completing before the last one appended is treated as completing at the same time.
+     * @param record The {@link BuildRecord} of the execution.
+     */
+    public synchronized void append(BuildRecord record) {
+        if (channel == null)
+            return;
+        long completedAt = Math.max(record.getCompletedAt(), lastCompletedAt);
+        int flags = (record.isSucceeded() ? FLAG_SUCCEEDED : 0) | (record.isBuilt() ? FLAG_BUILT : 0) |
+                (record.isOutOfMemory() ? FLAG_OUT_OF_MEMORY : 0);
+        byte[] fingerprint = record.getFingerprint();
+        if (fingerprint != null && fingerprint.length == FINGERPRINT_SIZE)
+            flags |= FLAG_FINGERPRINT;
+
+        recordBuffer.clear();
+        recordBuffer.putLong(record.getTaskId().getMostSignificantBits());
+        recordBuffer.putLong(record.getTaskId().getLeastSignificantBits());
+        recordBuffer.putLong(completedAt);
+        if ((flags & FLAG_FINGERPRINT) != 0)
+            recordBuffer.put(fingerprint);
+        else
+            recordBuffer.position(recordBuffer.position() + FINGERPRINT_SIZE);
+        recordBuffer.putInt(record.getWallMillis());
+        recordBuffer.putInt(record.getFingerprintMillis());
+        recordBuffer.putInt(record.getBuildMillis());
+        recordBuffer.putInt(record.getArtifactMillis());
+        recordBuffer.putInt(record.getExitCode());
+        recordBuffer.putInt(record.getCpuMillis());
+        recordBuffer.putLong(record.getPeakResidentBytes());
+        recordBuffer.put((byte) flags);
+        recordBuffer.position(RECORD_SIZE - 4);
+        recordBuffer.putInt(record.getHeapMegabytes());
+        recordBuffer.flip();
+
+        try {
+            long position = recordPosition(recordCount);
+            while (recordBuffer.hasRemaining())
+                position += channel.write(recordBuffer, position);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to append to build history: " + historyFile, ioe);
+            return;
+        }
+        index(record.getTaskId(), recordCount++, completedAt, record.getWallMillis(), record.getPeakResidentBytes(),
+                flags);
+        lastCompletedAt = completedAt;
+    }
+
+    /**
+     * Retrieves the records of every execution that completed within a span of time.
+     * @param from The start of the span, in milliseconds since the epoch, inclusive.
+     * @param to The end of the span, in milliseconds since the epoch, exclusive.
+     * @return The records, in the order the executions completed.
+     */
+    public synchronized List<BuildRecord> query(long from, long to) {
+        List<BuildRecord> records = new ArrayList<>();
+        if (channel == null || from >= to)
+            return records;
+        try {
+            int first = findFirstCompletedAt(from);
+            int last = findFirstCompletedAt(to);
+            ByteBuffer buffer = ByteBuffer.allocate(Math.min(last - first, RECORDS_PER_READ) * RECORD_SIZE);
+            for (int start = first; start < last; start += RECORDS_PER_READ) {
+                int count = Math.min(last - start, RECORDS_PER_READ);
+                buffer.clear().limit(count * RECORD_SIZE);
+                readFully(buffer, recordPosition(start));
+                for (int i = 0; i < count; i++) {
+                    buffer.position(i * RECORD_SIZE);
+                    records.add(decode(buffer));
+                }
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to read build history: " + historyFile, ioe);
+        }
+        return records;
+    }
+
+    /**
+     * Retrieves the records of every execution of a task that completed within a span of time.
+     * @param id The {@link UUID} of the task.
+     * @param from The start of the span, in milliseconds since the epoch, inclusive.
+     * @param to The end of the span, in milliseconds since the epoch, exclusive.
+     * @return The records, in the order the executions completed.
+     */
+    public synchronized List<BuildRecord> query(UUID id, long from, long to) {
+        List<BuildRecord> records = new ArrayList<>();
+        TaskHistory history = histories.get(id);
+        if (channel == null || history == null || from >= to)
+            return records;
+        int first = lowerBound(history.completedAts, history.size, from);
+        int last = lowerBound(history.completedAts, history.size, to);
+        try {
+            for (int i = first; i < last; i++) {
+                recordBuffer.clear();
+                readFully(recordBuffer, recordPosition(history.records[i]));
+                recordBuffer.flip();
+                records.add(decode(recordBuffer));
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to read build history: " + historyFile, ioe);
+        }
+        return records;
+    }
+
+    /**
+     * Retrieves the record of the most recent execution of a task.
+     * @param id The {@link UUID} of the task.
+     * @return The {@link BuildRecord}, or null if the task has never been executed.
+     */
+    public synchronized BuildRecord getLatest(UUID id) {
+        TaskHistory history = histories.get(id);
+        if (history == null)
+            return null;
+        long completedAt = history.completedAts[history.size - 1];
+        List<BuildRecord> latest = query(id, completedAt, completedAt + 1);
+        return latest.isEmpty() ? null : latest.get(latest.size() - 1);
+    }
+
+    /**
+     * Retrieves the record of the most recent successful build of a task. Executions that skipped the Maven build
+     * aren't counted.
+     * @param id The {@link UUID} of the task.
+     * @return The {@link BuildRecord}, or null if the task has never been built successfully.
+     */
+    public synchronized BuildRecord getLatestSuccessfulBuild(UUID id) {
+        TaskHistory history = histories.get(id);
+        if (channel == null || history == null || history.latestSuccessfulBuild < 0)
+            return null;
+        try {
+            recordBuffer.clear();
+            readFully(recordBuffer, recordPosition(history.latestSuccessfulBuild));
+            recordBuffer.flip();
+            return decode(recordBuffer);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to read build history: " + historyFile, ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Predicts how long the next build of a task will take, as a percentile of how long its most recent
+     * successful builds took. Executions that skipped the Maven build aren't counted.
+     * @param id The {@link UUID} of the task.
+     * @return The predicted duration, in milliseconds, or -1 if the task has never been built successfully.
+     */
+    public synchronized long predictDurationMillis(UUID id) {
+        TaskHistory history = histories.get(id);
+        if (history == null || history.recentCount == 0)
+            return -1;
+        long[] recent = Arrays.copyOf(history.recentMillis, history.recentCount);
+        Arrays.sort(recent);
+        int rank = (int) Math.ceil(PREDICTION_PERCENTILE / 100.0 * recent.length);
+        return recent[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * Predicts how much memory the next build of a task will hold at its peak, as the most any of its recent
+     * builds held. Failed builds are counted too, as a build that failed for lack of memory held at least as much
+     * as it got. The largest rather than a percentile is used, as running out of memory costs far more than
+     * setting aside too much.
+     * @param id The {@link UUID} of the task.
+     * @return The predicted peak memory, in bytes, or -1 if no recent build of the task had its memory measured.
+     */
+    public synchronized long predictPeakResidentBytes(UUID id) {
+        TaskHistory history = histories.get(id);
+        if (history == null)
+            return -1;
+        long peak = -1;
+        for (int i = 0; i < history.peakCount; i++)
+            peak = Math.max(peak, history.recentPeaks[i]);
+        return peak;
+    }
+
+    /**
+     * Retrieves the number of executions in the history.
+     * @return The number of records in the history.
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Opens the history file, creating it if it doesn't exist, and indexes the records in it. A file with an
+     * unknown format is moved aside rather than overwritten, and a record left partially written by a crash is
+     * cut off.
+     */
+    private synchronized void open() {
+        try {
+            channel = FileChannel.open(historyFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            if (channel.size() >= HEADER_SIZE && !hasValidHeader()) {
+                channel.close();
+                File backupFile = new File(historyFile.getPath() + ".bak");
+                logger.warning("Moving build history with unknown format aside to: " + backupFile);
+                Files.move(historyFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                channel = FileChannel.open(historyFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            if (channel.size() < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(FILE_MAGIC).putInt(FILE_VERSION).flip();
+                channel.truncate(0);
+                while (header.hasRemaining())
+                    channel.write(header, HEADER_SIZE - header.remaining());
+            }
+
+            long recordBytes = channel.size() - HEADER_SIZE;
+            if (recordBytes % RECORD_SIZE != 0) {
+                logger.warning("Cutting off a partially written record at the end of: " + historyFile);
+                channel.truncate(HEADER_SIZE + recordBytes / RECORD_SIZE * RECORD_SIZE);
+            }
+            load((int) Math.min(Integer.MAX_VALUE, recordBytes / RECORD_SIZE));
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to open build history, executions won't be recorded: " +
+                    historyFile, ioe);
+            histories.clear();
+            recordCount = 0;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException closeException) {
+                    logger.log(Level.FINE, "Unable to close build history: " + historyFile, closeException);
+                }
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Checks that the history file starts with the header of a known format.
+     * @return True if the header is valid, False otherwise.
+     * @throws IOException If the header couldn't be read.
+     */
+    private boolean hasValidHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        header.flip();
+        return header.getInt() == FILE_MAGIC && header.getInt() == FILE_VERSION;
+    }
+
+    /**
+     * Reads every record in the history file in large sequential reads, indexing each one.
+     * @param count The number of records in the file.
+     * @throws IOException If the file couldn't be read.
+     */
+    private void load(int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORDS_PER_READ * RECORD_SIZE);
+        for (int start = 0; start < count; start += RECORDS_PER_READ) {
+            int chunk = Math.min(count - start, RECORDS_PER_READ);
+            buffer.clear().limit(chunk * RECORD_SIZE);
+            readFully(buffer, recordPosition(start));
+            for (int i = 0; i < chunk; i++) {
+                int offset = i * RECORD_SIZE;
+                UUID id = new UUID(buffer.getLong(offset), buffer.getLong(offset + 8));
+                long completedAt = Math.max(buffer.getLong(offset + 16), lastCompletedAt);
+                index(id, start + i, completedAt, buffer.getInt(offset + 56), buffer.getLong(offset + 80),
+                        buffer.get(offset + 88));
+                lastCompletedAt = completedAt;
+            }
+        }
+        recordCount = count;
+    }
+
+    /**
+     * Adds a record to the index of its task, and to the task's recent builds if it was a build.
+     * @param id The {@link UUID} of the task.
+     * @param record The position of the record in the file.
+     * @param completedAt When the execution completed, in milliseconds since the epoch.
+     * @param wallMillis How long the execution took, in milliseconds.
+     * @param peakResidentBytes The peak memory of the build, in bytes, or -1 if it wasn't measured.
+     * @param flags The flags of the record.
+     */
+    private void index(UUID id, int record, long completedAt, int wallMillis, long peakResidentBytes, int flags) {
+        TaskHistory history = histories.computeIfAbsent(id, key -> new TaskHistory());
+        if (history.size == history.records.length) {
+            history.records = Arrays.copyOf(history.records, history.size * 2);
+            history.completedAts = Arrays.copyOf(history.completedAts, history.size * 2);
+        }
+        history.records[history.size] = record;
+        history.completedAts[history.size++] = completedAt;
+
+        if ((flags & FLAG_BUILT) == 0)
+            return;
+        if (peakResidentBytes > 0) {
+            history.recentPeaks[history.peakNext] = peakResidentBytes;
+            history.peakNext = (history.peakNext + 1) % history.recentPeaks.length;
+            history.peakCount = Math.min(history.peakCount + 1, history.recentPeaks.length);
+        }
+        if ((flags & FLAG_SUCCEEDED) != 0) {
+            history.recentMillis[history.recentNext] = wallMillis;
+            history.recentNext = (history.recentNext + 1) % history.recentMillis.length;
+            history.recentCount = Math.min(history.recentCount + 1, history.recentMillis.length);
+            history.latestSuccessfulBuild = record;
+        }
+    }
+
+    /**
+     * Finds the first record in the file that completed at or after a time, reading only the completion times of
+     * the records the binary search visits.
+     * @param time The time, in milliseconds since the epoch.
+     * @return The position of the record, or the number of records if every record completed before the time.
+     * @throws IOException If the file couldn't be read.
+     */
+    private int findFirstCompletedAt(long time) throws IOException {
+        ByteBuffer completedAt = ByteBuffer.allocate(8);
+        int low = 0;
+        int high = recordCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            completedAt.clear();
+            readFully(completedAt, recordPosition(middle) + 16);
+            if (completedAt.getLong(0) < time)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * Decodes the record at the position of a buffer.
+     * @param buffer The buffer holding the record, positioned at its start.
+     * @return The decoded {@link BuildRecord}.
+     */
+    private static BuildRecord decode(ByteBuffer buffer) {
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        long completedAt = buffer.getLong();
+        byte[] fingerprint = new byte[FINGERPRINT_SIZE];
+        buffer.get(fingerprint);
+        int wallMillis = buffer.getInt();
+        int fingerprintMillis = buffer.getInt();
+        int buildMillis = buffer.getInt();
+        int artifactMillis = buffer.getInt();
+        int exitCode = buffer.getInt();
+        int cpuMillis = buffer.getInt();
+        long peakResidentBytes = buffer.getLong();
+        int flags = buffer.get();
+        buffer.position(buffer.position() + 3);
+        int heapMegabytes = buffer.getInt();
+        return new BuildRecord.Builder()
+                .taskId(id)
+                .completedAt(completedAt)
+                .fingerprint((flags & FLAG_FINGERPRINT) != 0 ? fingerprint : null)
+                .wallMillis(wallMillis)
+                .fingerprintMillis(fingerprintMillis)
+                .stored(exitCode, buildMillis, artifactMillis, cpuMillis, peakResidentBytes,
+                        (flags & FLAG_BUILT) != 0)
+                .heapMegabytes(heapMegabytes)
+                .outOfMemory((flags & FLAG_OUT_OF_MEMORY) != 0)
+                .succeeded((flags & FLAG_SUCCEEDED) != 0)
+                .build();
+    }
+
+    /**
+     * Reads from the history file until a buffer is full.
+     * @param buffer The buffer to fill.
+     * @param position The position in the file to read from.
+     * @throws IOException If the file couldn't be read, or ended before the buffer was full.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new IOException("Unexpected end of build history: " + historyFile);
+            position += read;
+        }
+    }
+
+    /**
+     * Works out where a record starts in the history file.
+     * @param record The position of the record.
+     * @return The byte offset of the record.
+     */
+    private static long recordPosition(int record) {
+        return HEADER_SIZE + (long) record * RECORD_SIZE;
+    }
+
+    /**
+     * Finds the first of a sorted run of times that is at or after a time.
+     * @param times The sorted times.
+     * @param size The number of times in use.
+     * @param time The time to look for.
+     * @return The position of the first time at or after the time, or the size if there is none.
+     */
+    private static int lowerBound(long[] times, int size, long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (times[middle] < time)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
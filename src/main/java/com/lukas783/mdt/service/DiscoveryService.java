@@ -0,0 +1,194 @@
+package com.lukas783.mdt.service;
+
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.api.PomInfo;
+import com.lukas783.mdt.build.WorkspaceCrawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A singleton-service that discovers the Maven projects below a directory and creates a task for each of them,
+ * so a checkout with hundreds of projects doesn't have to be added one task at a time. The directory is crawled by
+ * a {@link WorkspaceCrawler}, every POM found is parsed through the {@link PomCache} on the crawler's threads, and
+ * the new tasks are handed to {@link ProcessService} in batches while the crawl is still going, so they appear in
+ * the task table as they are found.
+ *
+ * Every project gets a task that installs it, so projects that depend on each other can be built as separate tasks.
+ * Aggregator projects, which declare modules, get a disabled task, since their modules get tasks of their own.
+ * Projects that already have a task are left alone.
+ *
+ * @author Lucas Carpenter
+ */
+public class DiscoveryService {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(DiscoveryService.class.getName());
+
+    // Declaration of constants used by the service
+    private static final long DELIVERY_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("mdt.discovery.deliveryMillis", 100L));
+
+    // Declaration of the internal instance to always use
+    private static DiscoveryService INSTANCE;
+
+    // Declaration of variables used by the service
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * The public facing method to get an instance of the class.
+     * @return An instance of {@link DiscoveryService}
+     */
+    public static synchronized DiscoveryService getInstance() {
+        if(INSTANCE == null)
+            INSTANCE = new DiscoveryService();
+        return INSTANCE;
+    }
+
+    /**
+     * The private facing constructor used by the public-facing {@link #getInstance()} method
+     * to create a new service instance reference if one does not already exist.
+     */
+    private DiscoveryService() { }
+
+    /**
+     * Starts discovering the projects below a directory on a background thread. Must be called on the thread that
+     * owns the service's task list, such as the event dispatch thread, as the projects that already have a task are
+     * noted down before the crawl starts. Only one discovery runs at a time.
+     * @param root The directory to discover projects below.
+     * @param deliverOn The {@link Executor} that adds the new tasks to {@link ProcessService}.
+     * @return True if the discovery was started, False if a discovery is already running.
+     */
+    public boolean discover(File root, Executor deliverOn) {
+        if (!running.compareAndSet(false, true)) {
+            ProcessService.getInstance().appendExecutionOutput(
+                    "Projects are already being discovered, wait for that to finish first." +
+                            System.getProperty("line.separator"));
+            return false;
+        }
+
+        Set<String> knownDirectories = ConcurrentHashMap.newKeySet();
+        for (MavenTask task : ProcessService.getInstance().getTasks())
+            knownDirectories.add(normalize(Paths.get(task.getWorkingDirectory())));
+
+        Thread discoveryThread = new Thread(() -> {
+            try {
+                run(root.toPath(), knownDirectories, deliverOn);
+            } finally {
+                running.set(false);
+            }
+        }, "mdt-discovery");
+        discoveryThread.setDaemon(true);
+        discoveryThread.start();
+        return true;
+    }
+
+    /**
+     * Crawls the directory, creating a task for every new project found and delivering the tasks every delivery
+     * interval, then delivers whatever is left once the crawl has finished.
+     * @param root The directory to discover projects below.
+     * @param knownDirectories The normalized working directories of the projects that already have a task.
+     * @param deliverOn The {@link Executor} that adds the new tasks to {@link ProcessService}.
+     */
+    private void run(Path root, Set<String> knownDirectories, Executor deliverOn) {
+        ProcessService.getInstance().appendExecutionOutput(
+                "Discovering maven projects below: " + root + System.getProperty("line.separator"));
+
+        long start = System.nanoTime();
+        ConcurrentLinkedQueue<MavenTask> found = new ConcurrentLinkedQueue<>();
+        AtomicLong lastDelivery = new AtomicLong(start);
+        AtomicLong newCount = new AtomicLong();
+        WorkspaceCrawler crawler = new WorkspaceCrawler();
+        try {
+            crawler.crawl(root, pomFile -> {
+                Path directory = pomFile.getParent();
+                if (!knownDirectories.add(normalize(directory)))
+                    return;
+                MavenTask task = createTask(pomFile.toFile(), directory);
+                if (task == null)
+                    return;
+                found.add(task);
+                newCount.incrementAndGet();
+
+                long now = System.nanoTime();
+                long last = lastDelivery.get();
+                if (now - last >= DELIVERY_INTERVAL_NANOS && lastDelivery.compareAndSet(last, now))
+                    deliver(found, deliverOn);
+            });
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to discover projects below: " + root, ioe);
+            ProcessService.getInstance().appendExecutionOutput(
+                    "Unable to discover maven projects below: " + root + ", " + ioe.getMessage() +
+                            System.getProperty("line.separator"));
+            return;
+        }
+        deliver(found, deliverOn);
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        ProcessService.getInstance().appendExecutionOutput(
+                "Discovered " + crawler.getPomCount() + " maven projects below: " + root + ", " +
+                        newCount.get() + " of them new, in " + String.format("%.1f", elapsed / 1000.0) + "s (" +
+                        crawler.getDirectoryCount() + " directories crawled)." +
+                        System.getProperty("line.separator"));
+    }
+
+    /**
+     * Hands every task found so far to {@link ProcessService}, ordered by working directory.
+     * @param found The queue of tasks found but not yet delivered.
+     * @param deliverOn The {@link Executor} that adds the tasks to {@link ProcessService}.
+     */
+    private static void deliver(ConcurrentLinkedQueue<MavenTask> found, Executor deliverOn) {
+        List<MavenTask> batch = new ArrayList<>();
+        MavenTask task;
+        while ((task = found.poll()) != null)
+            batch.add(task);
+        if (batch.isEmpty())
+            return;
+        batch.sort(Comparator.comparing(MavenTask::getWorkingDirectory));
+        deliverOn.execute(() -> ProcessService.getInstance().addTasks(batch));
+    }
+
+    /**
+     * Creates the task for a project, named after its artifactId, or its directory if the POM doesn't declare one.
+     * @param pomFile The POM file of the project.
+     * @param directory The directory of the project.
+     * @return The new {@link MavenTask}, or null if no valid task could be created.
+     */
+    private static MavenTask createTask(File pomFile, Path directory) {
+        PomInfo pomInfo = PomCache.getInstance().get(pomFile);
+        String artifactId = pomInfo.getNodeValue("project.artifactId");
+        String taskName = artifactId == null || artifactId.trim().isEmpty() ?
+                String.valueOf(directory.getFileName()) : artifactId.trim();
+        return new MavenTask.Builder()
+                .taskName(taskName)
+                .workingDirectory(directory.toString())
+                .copyToDirectory("")
+                .renameString("")
+                .doInstall(true)
+                .enabled(pomInfo.getModules().isEmpty())
+                .build();
+    }
+
+    /**
+     * Normalizes a directory, so that the same directory is always written the same way.
+     * @param directory The directory to normalize.
+     * @return The absolute, normalized path of the directory.
+     */
+    private static String normalize(Path directory) {
+        return directory.toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,295 @@
+package com.lukas783.mdt.service;
+
+import com.lukas783.mdt.util.BinaryIO;
+import com.lukas783.mdt.util.DataDirectory;
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A singleton-service that remembers the input fingerprint of the last successful build of every task, as well
+ * as the size, modified time and content hash of every input file seen while fingerprinting. Remembering the
+ * file states lets {@link com.lukas783.mdt.build.Fingerprinter} skip hashing files that haven't been touched.
+ * The store is persisted to a compact binary file in the application's data directory.
+ *
+ * @author Lucas Carpenter
+ */
+public class FingerprintStore {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(FingerprintStore.class.getName());
+
+    // Declaration of constants used by the store
+    private static final int FILE_MAGIC = 0x4D444653;
+    private static final int FILE_VERSION = 1;
+
+    // Declaration of the internal instance to always use
+    private static FingerprintStore INSTANCE;
+
+    /**
+     * A POJO holding the state of a single input file the last time it was fingerprinted.
+     */
+    public static class FileState {
+        private final String path;
+        private final long length;
+        private final long modified;
+        private final byte[] hash;
+
+        /**
+         * Constructs a new file state.
+         * @param path The path of the file, relative to the task's working directory.
+         * @param length The size of the file in bytes.
+         * @param modified The modified time of the file in milliseconds.
+         * @param hash The hash of the file's contents.
+         */
+        public FileState(String path, long length, long modified, byte[] hash) {
+            this.path = path;
+            this.length = length;
+            this.modified = modified;
+            this.hash = hash;
+        }
+
+        /**
+         * Retrieves the path of the file, relative to the task's working directory.
+         * @return The relative path of the file.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Retrieves the size of the file.
+         * @return The size of the file in bytes.
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Retrieves the modified time of the file.
+         * @return The modified time of the file in milliseconds.
+         */
+        public long getModified() {
+            return modified;
+        }
+
+        /**
+         * Retrieves the hash of the file's contents.
+         * @return The hash of the file's contents.
+         */
+        public byte[] getHash() {
+            return hash;
+        }
+    }
+
+    /**
+     * Everything the store knows about a single task.
+     */
+    private static class TaskRecord {
+        private byte[] successfulFingerprint;
+        private Map<String, FileState> fileStates = new HashMap<>();
+    }
+
+    // Declaration of variables used by the store
+    private final File storeFile;
+    private final Map<UUID, TaskRecord> records = new HashMap<>();
+    private boolean dirty;
+
+    /**
+     * The public facing method to get an instance of the class.
+     * @return An instance of {@link FingerprintStore}
+     */
+    public static synchronized FingerprintStore getInstance() {
+        if(INSTANCE == null)
+            INSTANCE = new FingerprintStore(DataDirectory.getFile("fingerprints.bin"));
+        return INSTANCE;
+    }
+
+    /**
+     * The private facing constructor used by the public-facing {@link #getInstance()} method
+     * to create a new service instance reference if one does not already exist. Loads any previously
+     * persisted records and saves the store again when the application shuts down.
+     * @param storeFile The file to persist the store to.
+     */
+    private FingerprintStore(File storeFile) {
+        this.storeFile = storeFile;
+        load();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::save));
+    }
+
+    /**
+     * Retrieves the fingerprint of the last successful build of a task.
+     * @param id The {@link UUID} of the task.
+     * @return The fingerprint, or null if the task never built successfully or has changed since.
+     */
+    public synchronized byte[] getSuccessfulFingerprint(UUID id) {
+        TaskRecord record = records.get(id);
+        return record == null ? null : record.successfulFingerprint;
+    }
+
+    /**
+     * Records the fingerprint of a successful build of a task.
+     * @param id The {@link UUID} of the task.
+     * @param fingerprint The fingerprint of the task's inputs when it was built.
+     */
+    public synchronized void recordSuccess(UUID id, byte[] fingerprint) {
+        record(id).successfulFingerprint = fingerprint;
+        dirty = true;
+    }
+
+    /**
+     * Forgets the last successful build of a task, so the next run always builds it.
+     * @param id The {@link UUID} of the task.
+     */
+    public synchronized void clearSuccess(UUID id) {
+        TaskRecord record = records.get(id);
+        if (record != null && record.successfulFingerprint != null) {
+            record.successfulFingerprint = null;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Retrieves the states of the input files of a task from the last time it was fingerprinted.
+     * @param id The {@link UUID} of the task.
+     * @return A read-only mapping of relative file paths to file states, empty if the task was never fingerprinted.
+     */
+    public synchronized Map<String, FileState> getFileStates(UUID id) {
+        TaskRecord record = records.get(id);
+        return record == null ? Collections.<String, FileState>emptyMap() : record.fileStates;
+    }
+
+    /**
+     * Replaces the states of the input files of a task.
+     * @param id The {@link UUID} of the task.
+     * @param fileStates A mapping of relative file paths to file states.
+     */
+    public synchronized void setFileStates(UUID id, Map<String, FileState> fileStates) {
+        record(id).fileStates = fileStates;
+        dirty = true;
+    }
+
+    /**
+     * Removes everything the store knows about a task.
+     * @param id The {@link UUID} of the task.
+     */
+    public synchronized void remove(UUID id) {
+        if (records.remove(id) != null)
+            dirty = true;
+    }
+
+    /**
+     * Writes the store to its file if it changed since it was last loaded or saved. The file is written to a
+     * temporary file first and then moved into place, so a crash never leaves a partially written store.
+     */
+    public synchronized void save() {
+        if (!dirty)
+            return;
+
+        File temporaryFile = new File(storeFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(records.size());
+            for (Map.Entry<UUID, TaskRecord> entry : records.entrySet()) {
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                writeHash(out, entry.getValue().successfulFingerprint);
+                out.writeInt(entry.getValue().fileStates.size());
+                for (FileState state : entry.getValue().fileStates.values()) {
+                    BinaryIO.writeString(out, state.path);
+                    out.writeLong(state.length);
+                    out.writeLong(state.modified);
+                    writeHash(out, state.hash);
+                }
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to write fingerprint store file: " + temporaryFile, ioe);
+            return;
+        }
+
+        try {
+            BinaryIO.replaceFile(temporaryFile, storeFile);
+            dirty = false;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to replace fingerprint store file: " + storeFile, ioe);
+        }
+    }
+
+    /**
+     * Reads any previously persisted records from the store file. A missing, outdated, or corrupt file simply
+     * results in an empty store.
+     */
+    private synchronized void load() {
+        if (!storeFile.isFile())
+            return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(storeFile)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                logger.info("Ignoring fingerprint store file with unknown format: " + storeFile);
+                return;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID id = new UUID(in.readLong(), in.readLong());
+                TaskRecord record = new TaskRecord();
+                record.successfulFingerprint = readHash(in);
+                int fileCount = in.readInt();
+                for (int j = 0; j < fileCount; j++) {
+                    FileState state = new FileState(BinaryIO.readString(in), in.readLong(), in.readLong(),
+                            readHash(in));
+                    record.fileStates.put(state.path, state);
+                }
+                records.put(id, record);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to read fingerprint store file, starting with an empty store.", ioe);
+            records.clear();
+        }
+    }
+
+    /**
+     * Retrieves the record of a task, creating it if needed.
+     * @param id The {@link UUID} of the task.
+     * @return The record of the task.
+     */
+    private TaskRecord record(UUID id) {
+        TaskRecord record = records.get(id);
+        if (record == null) {
+            record = new TaskRecord();
+            records.put(id, record);
+        }
+        return record;
+    }
+
+    /**
+     * Writes a length-prefixed hash, which may be null.
+     * @param out The output to write to.
+     * @param hash The hash to write.
+     * @throws IOException If the output couldn't be written to.
+     */
+    private static void writeHash(DataOutput out, byte[] hash) throws IOException {
+        out.writeByte(hash == null ? 0 : hash.length);
+        if (hash != null)
+            out.write(hash);
+    }
+
+    /**
+     * Reads a hash written by {@link #writeHash(DataOutput, byte[])}.
+     * @param in The input to read from.
+     * @return The hash read, or null if no hash was written.
+     * @throws IOException If the input couldn't be read from.
+     */
+    private static byte[] readHash(DataInput in) throws IOException {
+        int length = in.readUnsignedByte();
+        if (length == 0)
+            return null;
+        byte[] hash = new byte[length];
+        in.readFully(hash);
+        return hash;
+    }
+}
@@ -0,0 +1,320 @@
+package com.lukas783.mdt.service;
+
+import com.lukas783.mdt.util.DataDirectory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decouples the threads producing process output from the listeners consuming it. Producers push output into a
+ * bounded, lock-free queue and return immediately. A single consumer thread wakes up on a fixed cadence, joins
+ * everything queued since its last wake-up into chunks, and hands each chunk to a sink. When the queue is full
+ * the configured {@link OverflowPolicy} decides whether producers wait, output is dropped, or output is spilled
+ * to a file. Output can be pushed along with an observer, such as the parser of the build producing it, which the
+ * consumer thread hands the output to before delivering it, so that producers never wait on observers either.
+ * Output that doesn't make it through the queue is handed to its observer on the producer's thread.
+ * The spill file is started over by {@link #clearSpill()}, which the owner calls at the start of each run, so it
+ * only ever holds the output of a single run.
+ *
+ * Nothing waits on the consumer forever. A flush gives up once its timeout has passed, and once the consumer
+ * thread has died producers stop waiting for room and their output is dropped.
+ *
+ * @author Lucas Carpenter
+ */
+public class OutputPipeline {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(OutputPipeline.class.getName());
+
+    // Declaration of constants used by the pipeline
+    private static final long BLOCK_PARK_NANOS = 100_000L;
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * The policies available for output pushed while the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** The producer waits until the consumer has made room, slowing the producing process down. */
+        BLOCK,
+        /** The output is thrown away, and the number of dropped pushes is reported in the output. */
+        DROP,
+        /** The output is written to a spill file, and the number of spilled pushes is reported in the output. */
+        SPILL
+    }
+
+    // Declaration of variables used by the pipeline
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong pushed = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final int capacity;
+    private final long cadenceNanos;
+    private final int maxChunkLength;
+    private final long flushTimeoutNanos;
+    private final Consumer<String> sink;
+    private final File spillFile;
+    private final Thread consumer;
+    private volatile OverflowPolicy overflowPolicy;
+    private Writer spillWriter;
+
+    /**
+     * A single push of output, along with the observer to hand it to.
+     */
+    private static class Entry {
+        private final String output;
+        private final Consumer<String> observer;
+
+        /**
+         * Constructs a new entry.
+         * @param output The output pushed.
+         * @param observer The observer of the output, or null if it has none.
+         */
+        private Entry(String output, Consumer<String> observer) {
+            this.output = output;
+            this.observer = observer;
+        }
+    }
+
+    /**
+     * Constructs a new pipeline and starts its consumer thread.
+     * @param capacity The maximum number of pushes that may be queued at once.
+     * @param cadenceMillis How often, in milliseconds, the consumer delivers queued output.
+     * @param maxChunkLength The maximum number of characters delivered to the sink in a single chunk.
+     * @param flushTimeoutMillis How long, in milliseconds, a flush waits on the consumer before giving up.
+     * @param overflowPolicy What to do with output pushed while the queue is full.
+     * @param sink The consumer of delivered chunks, only ever called from the pipeline's consumer thread.
+     */
+    public OutputPipeline(int capacity, long cadenceMillis, int maxChunkLength, long flushTimeoutMillis,
+                          OverflowPolicy overflowPolicy, Consumer<String> sink) {
+        this.capacity = Math.max(1, capacity);
+        this.cadenceNanos = Math.max(1, cadenceMillis) * 1_000_000L;
+        this.maxChunkLength = Math.max(1, maxChunkLength);
+        this.flushTimeoutNanos = Math.max(0, flushTimeoutMillis) * 1_000_000L;
+        this.overflowPolicy = overflowPolicy;
+        this.sink = sink;
+        this.spillFile = DataDirectory.getFile("output-spill.log");
+
+        consumer = new Thread(this::consume, "mdt-output-pipeline");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Pushes output into the pipeline. Never blocks unless the queue is full and the overflow policy is
+     * {@link OverflowPolicy#BLOCK}.
+     * @param output The output to push.
+     */
+    public void push(String output) {
+        push(output, null);
+    }
+
+    /**
+     * Pushes output into the pipeline, to be handed to an observer on the consumer thread before it is delivered.
+     * Never blocks unless the queue is full and the overflow policy is {@link OverflowPolicy#BLOCK}.
+     * @param output The output to push.
+     * @param observer The observer of the output, or null if it has none.
+     */
+    public void push(String output, Consumer<String> observer) {
+        while (true) {
+            int current = queued.get();
+            if (current < capacity) {
+                if (queued.compareAndSet(current, current + 1)) {
+                    queue.offer(new Entry(output, observer));
+                    pushed.incrementAndGet();
+                    return;
+                }
+                continue;
+            }
+
+            switch (overflowPolicy) {
+                case DROP:
+                    observe(observer, output);
+                    dropped.incrementAndGet();
+                    return;
+                case SPILL:
+                    observe(observer, output);
+                    spill(output);
+                    return;
+                default:
+                    // Apply backpressure by making the producer wait on the consumer, unless it is gone for good
+                    if (!consumer.isAlive()) {
+                        observe(observer, output);
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    LockSupport.unpark(consumer);
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Waits until everything pushed before this call has been delivered to the sink, the flush timeout has passed,
+     * or the consumer thread has died.
+     * @return True if everything pushed before this call was delivered, False if the flush gave up.
+     */
+    public boolean flush() {
+        long target = pushed.get();
+        long deadline = System.nanoTime() + flushTimeoutNanos;
+        while (delivered.get() < target) {
+            if (!consumer.isAlive()) {
+                logger.warning("Output pipeline consumer has died, " + (target - delivered.get()) +
+                        " pushes of output were not delivered.");
+                return false;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                logger.warning("Output pipeline flush timed out with " + (target - delivered.get()) +
+                        " pushes of output still to deliver.");
+                return false;
+            }
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+        return true;
+    }
+
+    /**
+     * Starts the spill file over, so that it only holds output spilled from here on.
+     */
+    public synchronized void clearSpill() {
+        try {
+            if (spillWriter != null)
+                spillWriter.close();
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to close spill file: " + spillFile, ioe);
+        }
+        spillWriter = null;
+        if (spillFile.exists() && !spillFile.delete())
+            logger.warning("Unable to delete spill file: " + spillFile);
+    }
+
+    /**
+     * Retrieves the policy used for output pushed while the queue is full.
+     * @return The current {@link OverflowPolicy}.
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets the policy used for output pushed while the queue is full.
+     * @param overflowPolicy The new {@link OverflowPolicy}.
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * The body of the consumer thread. Delivers queued output once per cadence, for as long as the
+     * application runs.
+     */
+    private void consume() {
+        StringBuilder chunk = new StringBuilder(maxChunkLength);
+        while (true) {
+            LockSupport.parkNanos(cadenceNanos);
+
+            long drained = 0;
+            Entry entry;
+            while ((entry = queue.poll()) != null) {
+                queued.decrementAndGet();
+                drained++;
+                observe(entry.observer, entry.output);
+                if (chunk.length() > 0 && chunk.length() + entry.output.length() > maxChunkLength)
+                    deliver(chunk);
+                chunk.append(entry.output);
+            }
+
+            // Let the listeners know about any output that didn't make it through the queue
+            appendOverflowNotice(chunk, dropped.getAndSet(0), " pushes of output were dropped.");
+            long spilledCount = spilled.getAndSet(0);
+            if (spilledCount > 0) {
+                flushSpill();
+                appendOverflowNotice(chunk, spilledCount, " pushes of output were spilled to: " + spillFile);
+            }
+
+            if (chunk.length() > 0)
+                deliver(chunk);
+            delivered.addAndGet(drained);
+        }
+    }
+
+    /**
+     * Hands output to its observer, if it has one.
+     * @param observer The observer of the output, or null if it has none.
+     * @param output The output.
+     */
+    private static void observe(Consumer<String> observer, String output) {
+        if (observer == null)
+            return;
+        try {
+            observer.accept(output);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Output pipeline observer threw an exception.", e);
+        }
+    }
+
+    /**
+     * Hands a chunk to the sink and clears it for reuse.
+     * @param chunk The chunk to deliver.
+     */
+    private void deliver(StringBuilder chunk) {
+        try {
+            sink.accept(chunk.toString());
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Output pipeline sink threw an exception.", e);
+        }
+        chunk.setLength(0);
+    }
+
+    /**
+     * Appends a notice about overflowed output to a chunk, if there was any overflowed output.
+     * @param chunk The chunk to append to.
+     * @param count The number of overflowed pushes.
+     * @param message The message to follow the count with.
+     */
+    private static void appendOverflowNotice(StringBuilder chunk, long count, String message) {
+        if (count > 0)
+            chunk.append("[Output pipeline] ").append(count).append(message).append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Flushes any output written to the spill file so far.
+     */
+    private synchronized void flushSpill() {
+        try {
+            if (spillWriter != null)
+                spillWriter.flush();
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to flush spilled output to: " + spillFile, ioe);
+        }
+    }
+
+    /**
+     * Writes output that didn't fit in the queue to the spill file. The first spill after the pipeline was created
+     * or the spill file was cleared starts the file over.
+     * @param output The output to spill.
+     */
+    private synchronized void spill(String output) {
+        try {
+            if (spillWriter == null) {
+                spillWriter = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(spillFile, false), StandardCharsets.UTF_8));
+            }
+            spillWriter.write(output);
+            spilled.incrementAndGet();
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to spill output to: " + spillFile, ioe);
+            dropped.incrementAndGet();
+        }
+    }
+}
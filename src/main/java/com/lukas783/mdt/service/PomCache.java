@@ -0,0 +1,271 @@
+package com.lukas783.mdt.service;
+
+import com.lukas783.mdt.api.PomInfo;
+import com.lukas783.mdt.util.BinaryIO;
+import com.lukas783.mdt.util.Checksums;
+import com.lukas783.mdt.util.DataDirectory;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A singleton-service that caches parsed {@link PomInfo} objects so that a POM file is only parsed again
+ * after it changes. Only the parts of a POM file the application reads are parsed, skipping over sections such
+ * as dependency management, profiles and reporting. Entries are validated against the file's modified time and
+ * size, and if those have changed, against a hash of the file's contents. The least recently used entries are
+ * evicted once the cache holds more than its configured number of entries. The cache is persisted to a compact
+ * binary file in the application's data directory so that it survives restarts of the application.
+ *
+ * @author Lucas Carpenter
+ */
+public class PomCache {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(PomCache.class.getName());
+
+    // Declaration of constants used by the cache
+    private static final int FILE_MAGIC = 0x4D445450;
+    private static final int FILE_VERSION = 3;
+    private static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("mdt.pomCache.maxEntries", 1000);
+
+    // Declaration of the paths parsed out of every POM file: the coordinates, parent and properties resolved by
+    // EffectivePom, the build values and packaging plugins ArtifactLocator needs, and the dependencies and modules
+    // DependencyGraph and DiscoveryService need. Cached entries only hold these, so the file version has to change
+    // along with them
+    private static final Set<String> PARSED_PATHS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "project.groupId", "project.artifactId", "project.version", "project.packaging",
+            "project.parent", "project.properties",
+            "project.build.finalName", "project.build.directory", "project.build.plugins.plugin",
+            "project.dependencies.dependency", "project.modules.module")));
+
+    // Declaration of the internal instance to always use
+    private static PomCache INSTANCE;
+
+    /**
+     * A single cached POM file.
+     */
+    private static class CacheEntry {
+        private long modified;
+        private long length;
+        private byte[] hash;
+        private PomInfo pomInfo;
+    }
+
+    // Declaration of variables used by the cache
+    private final File cacheFile;
+    private final LinkedHashMap<String, CacheEntry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile int maxEntries;
+    private boolean dirty;
+
+    /**
+     * The public facing method to get an instance of the class.
+     * @return An instance of {@link PomCache}
+     */
+    public static synchronized PomCache getInstance() {
+        if(INSTANCE == null)
+            INSTANCE = new PomCache(DataDirectory.getFile("pom-cache.bin"));
+        return INSTANCE;
+    }
+
+    /**
+     * The private facing constructor used by the public-facing {@link #getInstance()} method
+     * to create a new service instance reference if one does not already exist. Loads any previously
+     * persisted entries and saves the cache again when the application shuts down.
+     * @param cacheFile The file to persist the cache to.
+     */
+    private PomCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+        this.maxEntries = Math.max(1, DEFAULT_MAX_ENTRIES);
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        load();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::save));
+    }
+
+    /**
+     * Retrieves the parsed form of a POM file, parsing it only if it isn't cached or has changed since
+     * it was cached.
+     * @param pomFile The POM file to retrieve.
+     * @return The {@link PomInfo} object for the file.
+     */
+    public PomInfo get(File pomFile) {
+        String key = pomFile.getAbsolutePath();
+        long modified = pomFile.lastModified();
+        long length = pomFile.length();
+        byte[] hash = null;
+
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+
+        if (entry != null) {
+            // The file hasn't been touched since it was cached
+            if (entry.modified == modified && entry.length == length) {
+                hits.incrementAndGet();
+                return entry.pomInfo;
+            }
+
+            // The file has been touched, but its contents may still be the same
+            hash = hash(pomFile);
+            if (entry.length == length && hash != null && Arrays.equals(entry.hash, hash)) {
+                synchronized (this) {
+                    entry.modified = modified;
+                    dirty = true;
+                }
+                hits.incrementAndGet();
+                return entry.pomInfo;
+            }
+        }
+
+        misses.incrementAndGet();
+        CacheEntry newEntry = new CacheEntry();
+        newEntry.modified = modified;
+        newEntry.length = length;
+        newEntry.hash = hash != null ? hash : hash(pomFile);
+        newEntry.pomInfo = new PomInfo(pomFile, PARSED_PATHS);
+
+        // Only cache files that could be hashed, so the entry can always be validated later
+        if (newEntry.hash != null) {
+            synchronized (this) {
+                entries.put(key, newEntry);
+                dirty = true;
+            }
+        }
+        return newEntry.pomInfo;
+    }
+
+    /**
+     * Retrieves the number of lookups that were answered from the cache.
+     * @return The number of cache hits since the application started.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Retrieves the number of lookups that had to parse the POM file.
+     * @return The number of cache misses since the application started.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Retrieves the maximum number of entries held by the cache.
+     * @return The maximum number of entries.
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of entries held by the cache, evicting the least recently used entries if the
+     * cache currently holds more.
+     * @param maxEntries The maximum number of entries, values below 1 are treated as 1.
+     */
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() > this.maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Writes the cache to its file if it changed since it was last loaded or saved. The file is written to a
+     * temporary file first and then moved into place, so a crash never leaves a partially written cache.
+     */
+    public synchronized void save() {
+        if (!dirty)
+            return;
+
+        File temporaryFile = new File(cacheFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, CacheEntry> entry : entries.entrySet()) {
+                BinaryIO.writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().modified);
+                out.writeLong(entry.getValue().length);
+                out.writeByte(entry.getValue().hash.length);
+                out.write(entry.getValue().hash);
+                entry.getValue().pomInfo.writeTo(out);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to write POM cache file: " + temporaryFile, ioe);
+            return;
+        }
+
+        try {
+            BinaryIO.replaceFile(temporaryFile, cacheFile);
+            dirty = false;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to replace POM cache file: " + cacheFile, ioe);
+        }
+    }
+
+    /**
+     * Reads any previously persisted entries from the cache file. A missing, outdated, or corrupt file simply
+     * results in an empty cache.
+     */
+    private synchronized void load() {
+        if (!cacheFile.isFile())
+            return;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                logger.info("Ignoring POM cache file with unknown format: " + cacheFile);
+                return;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = BinaryIO.readString(in);
+                CacheEntry entry = new CacheEntry();
+                entry.modified = in.readLong();
+                entry.length = in.readLong();
+                entry.hash = new byte[in.readUnsignedByte()];
+                in.readFully(entry.hash);
+                entry.pomInfo = PomInfo.readFrom(in);
+                entries.put(key, entry);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to read POM cache file, starting with an empty cache.", ioe);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Hashes the contents of a POM file.
+     * @param pomFile The POM file to hash.
+     * @return The hash of the file, or null if the file couldn't be read.
+     */
+    private static byte[] hash(File pomFile) {
+        try {
+            return Checksums.sha256(pomFile);
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Unable to hash POM file: " + pomFile, ioe);
+            return null;
+        }
+    }
+}
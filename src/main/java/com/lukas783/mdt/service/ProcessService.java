@@ -1,17 +1,48 @@
 package com.lukas783.mdt.service;
 
+import com.lukas783.mdt.api.BuildEvent;
+import com.lukas783.mdt.api.BuildRecord;
+import com.lukas783.mdt.api.BuiltArtifact;
+import com.lukas783.mdt.api.EffectivePom;
+import com.lukas783.mdt.api.ExtractionResult;
 import com.lukas783.mdt.api.IProcessServiceListener;
+import com.lukas783.mdt.api.ITaskExecutor;
 import com.lukas783.mdt.api.MavenTask;
-import com.lukas783.mdt.api.PomInfo;
+import com.lukas783.mdt.api.ProcessResult;
+import com.lukas783.mdt.api.TaskSnapshot;
+import com.lukas783.mdt.build.ArtifactLocator;
+import com.lukas783.mdt.build.CriticalPath;
+import com.lukas783.mdt.build.DependencyGraph;
+import com.lukas783.mdt.build.DurationEstimator;
+import com.lukas783.mdt.build.EffectivePomResolver;
+import com.lukas783.mdt.build.Fingerprinter;
+import com.lukas783.mdt.build.MavenOutputParser;
+import com.lukas783.mdt.build.ResourceGovernor;
+import com.lukas783.mdt.build.TaskScheduler;
+import com.lukas783.mdt.util.ArchiveExtractor;
+import com.lukas783.mdt.util.ArtifactFiles;
+import com.lukas783.mdt.util.CancellationToken;
 import com.lukas783.mdt.util.CommandLine;
+import com.lukas783.mdt.util.LogFileWriter;
+import com.lukas783.mdt.util.ProcessTree;
+import com.lukas783.mdt.worker.MavenWorkerPool;
 
 import java.io.File;
-import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.apache.commons.io.filefilter.RegexFileFilter;
-
 /**
  * A singleton-service class that can be called statically by any class that needs to use it.
  * Keeps a list of listeners that implement {@link IProcessServiceListener} to fire events
@@ -22,22 +53,103 @@ public class ProcessService {
     // Declaration of logger for debug/error handling messages.
     private static final Logger logger = Logger.getLogger(ProcessService.class.getName());
 
-    // Declaration of the internal instance to always use
-    private static ProcessService INSTANCE;
+    // Declaration of the default number of tasks allowed to run at the same time
+    private static final int DEFAULT_MAX_CONCURRENT_TASKS = Integer.getInteger("mdt.maxConcurrentTasks",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+
+    // Declaration of how much slower than predicted, in percent and in total, a build must be to be reported
+    private static final int SLOW_BUILD_PERCENT = Integer.getInteger("mdt.history.slowPercent", 150);
+    private static final long SLOW_BUILD_MIN_MILLIS = Long.getLong("mdt.history.slowMinMillis", 10_000L);
+
+    /**
+     * The ways the service can run the maven build of a task.
+     */
+    public enum ExecutionMode {
+        /** Every build forks a new 'mvn' process through the system's shell. */
+        FORK,
+        /** Builds run on a pool of resident maven JVMs, falling back to forking if no worker can be started. */
+        WORKER
+    }
+
+    // Declaration of how built artifacts are copied and unpackaged by the artifact stage of a task. Copies are only
+    // hard linked if asked to, as maven rewrites the artifacts in target/ in place on the next build without clean
+    private static final boolean HARD_LINK_COPIES =
+            Boolean.parseBoolean(System.getProperty("mdt.copy.hardLink", "false"));
+    private static final boolean VERIFY_COPIES = Boolean.parseBoolean(System.getProperty("mdt.copy.verify", "true"));
+    private static final boolean SKIP_UNCHANGED_ENTRIES =
+            Boolean.parseBoolean(System.getProperty("mdt.unpack.skipUnchanged", "true"));
 
     // Declaration of listeners the service will need to fire events to
-    private ArrayList<IProcessServiceListener> listeners;
+    private List<IProcessServiceListener> listeners;
+
+    private OutputPipeline outputPipeline;
+
+    // Declaration of the threads renaming and copying built artifacts while later tasks build
+    private ExecutorService ioExecutor;
+
+    // Declaration of the current version of the task list, replaced as a whole under the lock whenever it changes
+    private final Object taskLock = new Object();
+    private volatile TaskSnapshot taskSnapshot = TaskSnapshot.EMPTY;
+
+    private DependencyGraph dependencyGraph;
+
+    private volatile int maxConcurrentTasks;
+
+    private volatile boolean skipUpToDateTasks;
+
+    private volatile boolean failFast;
+
+    private volatile long taskTimeoutSeconds;
+
+    private volatile ExecutionMode executionMode;
+
+    private volatile long runTimeoutSeconds;
+
+    private RunHandle currentRun;
+
+    // Declaration of the log, cancellation token and output parser of the task being executed by the current thread
+    private final ThreadLocal<LogFileWriter> currentTaskLog = new ThreadLocal<>();
+    private final ThreadLocal<CancellationToken> currentTaskToken = new ThreadLocal<>();
+    private final ThreadLocal<MavenOutputParser> currentTaskParser = new ThreadLocal<>();
+
+    /**
+     * The state shared by every task of a single call to {@link #executeProcessTasks()}.
+     */
+    private static class RunContext {
+        private final EffectivePomResolver pomResolver;
+        private final CancellationToken token;
+        private final ResourceGovernor governor;
+        private final Fingerprinter fingerprinter = new Fingerprinter();
+        private final Map<UUID, byte[]> fingerprints = new ConcurrentHashMap<>();
+        private final Map<UUID, CompletableFuture<Boolean>> artifactStages = new ConcurrentHashMap<>();
+
+        /**
+         * Constructs the context of a new run.
+         * @param pomResolver The {@link EffectivePomResolver} shared by every task of the run.
+         * @param token The {@link CancellationToken} of the run.
+         * @param governor The {@link ResourceGovernor} that admits every task of the run.
+         */
+        private RunContext(EffectivePomResolver pomResolver, CancellationToken token, ResourceGovernor governor) {
+            this.pomResolver = pomResolver;
+            this.token = token;
+            this.governor = governor;
+        }
+    }
 
-    private ArrayList<MavenTask> taskList;
+    /**
+     * Holds the internal instance to always use. The instance is created the first time the holder is used, which
+     * the JVM does exactly once however many threads ask for the service at the same time.
+     */
+    private static class InstanceHolder {
+        private static final ProcessService INSTANCE = new ProcessService();
+    }
 
     /**
-     * The public facing method to get an instance of the class.
+     * The public facing method to get an instance of the class. Safe to call from any thread.
      * @return An instance of {@link ProcessService}
      */
     public static ProcessService getInstance() {
-        if(INSTANCE == null)
-            INSTANCE = new ProcessService();
-        return INSTANCE;
+        return InstanceHolder.INSTANCE;
     }
 
     /**
@@ -45,171 +157,705 @@ public class ProcessService {
      * to create a new service instance reference if one does not already exist.
      */
     private ProcessService() {
-        listeners = new ArrayList<>();
-        taskList = new ArrayList<>();
+        listeners = new CopyOnWriteArrayList<>();
+        outputPipeline = new OutputPipeline(
+                Integer.getInteger("mdt.output.capacity", 10000),
+                Long.getLong("mdt.output.cadenceMillis", 50L),
+                Integer.getInteger("mdt.output.maxChunkLength", 64 * 1024),
+                Long.getLong("mdt.output.flushTimeoutMillis", 10_000L),
+                OutputPipeline.OverflowPolicy.valueOf(System.getProperty("mdt.output.overflowPolicy", "BLOCK")),
+                this::fireProcessOutput);
+        ioExecutor = Executors.newFixedThreadPool(Math.max(1, Integer.getInteger("mdt.io.threads", 2)), r -> {
+            Thread thread = new Thread(r, "mdt-artifact-io");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dependencyGraph = new DependencyGraph();
+        maxConcurrentTasks = DEFAULT_MAX_CONCURRENT_TASKS;
+        skipUpToDateTasks = Boolean.parseBoolean(System.getProperty("mdt.skipUpToDate", "true"));
+        failFast = Boolean.parseBoolean(System.getProperty("mdt.failFast", "false"));
+        taskTimeoutSeconds = Long.getLong("mdt.taskTimeoutSeconds", 0L);
+        runTimeoutSeconds = Long.getLong("mdt.runTimeoutSeconds", 0L);
+        executionMode = ExecutionMode.valueOf(System.getProperty("mdt.executionMode", "FORK"));
     }
 
     /**
-     * Executes the current tasks by using the {@link CommandLine#ExecuteCommandLine(File, String)} method
+     * Executes the current tasks, blocking until every task has finished or been skipped. Interrupting the
+     * calling thread cancels the run.
+     * @see #startProcessTasks()
      */
     public void executeProcessTasks() {
-        for(MavenTask task : taskList) {
+        RunHandle run = startProcessTasks();
+        try {
+            run.await();
+        } catch (InterruptedException ie) {
+            run.cancel();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts executing the current tasks on a new thread, unless a run is already in progress. Each task's
+     * processes are killed if the task runs longer than {@link #getTaskTimeoutSeconds()}, and the whole run is
+     * cancelled if it runs longer than {@link #getRunTimeoutSeconds()}.
+     * @return The {@link RunHandle} of the new run, or of the run already in progress.
+     */
+    public synchronized RunHandle startProcessTasks() {
+        if (currentRun != null && !currentRun.isDone())
+            return currentRun;
+        RunHandle run = new RunHandle(new CancellationToken(runTimeoutSeconds * 1000L));
+        currentRun = run;
+        Thread runThread = new Thread(() -> {
+            try {
+                runProcessTasks(run);
+            } finally {
+                run.finish();
+            }
+        }, "mdt-process-run");
+        runThread.start();
+        return run;
+    }
+
+    /**
+     * Retrieves the handle of the most recent run.
+     * @return The {@link RunHandle} of the most recent run, or null if no run has been started.
+     */
+    public synchronized RunHandle getCurrentRun() {
+        return currentRun;
+    }
+
+    /**
+     * Executes the current tasks by using the {@link CommandLine#ExecuteCommandLine(File, String)} method.
+     * Enabled tasks are handed to a {@link TaskScheduler} so that tasks which don't depend on each other
+     * can run at the same time, up to {@link #getMaxConcurrentTasks()} tasks at once, starting the tasks with the
+     * longest chain of work ahead of them first, as estimated by a {@link DurationEstimator}. Tasks depending on a
+     * failed task are skipped, as is every task not yet started if {@link #getFailFast()} is set or the run
+     * is cancelled. The critical path of the run is reported once it is over.
+     * @param handle The {@link RunHandle} of the run, which counts how its tasks turned out.
+     */
+    private void runProcessTasks(RunHandle handle) {
+        CancellationToken token = handle.getToken();
+        List<MavenTask> tasks = getTasks();
+        outputPipeline.clearSpill();
+
+        // Pick up any POM files that changed on disk since the graph was last updated
+        for(MavenTask task : tasks)
+            dependencyGraph.update(task);
+
+        // Report cycles up front, as the tasks in them can't be built in a correct order
+        for(List<MavenTask> cycle : dependencyGraph.findCycles()) {
+            StringBuilder cycleString = new StringBuilder();
+            for(MavenTask task : cycle)
+                cycleString.append(task.getTaskName()).append(" -> ");
+            cycleString.append(cycle.get(0).getTaskName());
+            appendExecutionOutput(
+                    "Circular dependency between tasks: " +
+                            cycleString +
+                            System.getProperty("line.separator"));
+        }
+
+        List<MavenTask> enabledTasks = new ArrayList<>();
+        for(MavenTask task : tasks) {
             if (task.getEnabled()) {
+                enabledTasks.add(task);
+                fireBuildEvent(new BuildEvent(task.getId(), BuildEvent.Type.QUEUED));
+            } else {
                 appendExecutionOutput(
-                        "Processing Task: " +
+                        "Skipping Task: " +
                                 task.getTaskName() +
+                                " due to not being enabled." +
                                 System.getProperty("line.separator"));
+            }
+        }
 
-                StringBuilder commandString = new StringBuilder();
+        // Share one run context across the run so parents common to many tasks are only resolved once
+        ResourceGovernor governor = ResourceGovernor.forCurrentSystem(maxConcurrentTasks);
+        appendExecutionOutput(
+                "Resource budget: " +
+                        governor.getProcessorBudget() +
+                        " processors and " +
+                        (governor.getMemoryBudget() < 0 ?
+                                "unlimited memory" :
+                                (governor.getMemoryBudget() >> 20) + " MB of memory") +
+                        " for up to " +
+                        maxConcurrentTasks +
+                        " concurrent tasks." +
+                        System.getProperty("line.separator"));
+        RunContext run = new RunContext(new EffectivePomResolver(tasks), token, governor);
+        DurationEstimator estimator = new DurationEstimator(enabledTasks);
+        TaskScheduler scheduler = new TaskScheduler(maxConcurrentTasks, failFast, governor);
+        CriticalPath criticalPath = scheduler.execute(enabledTasks, dependencyGraph, new ITaskExecutor() {
+            @Override
+            public boolean executeTask(MavenTask task) {
+                return startTask(task).toCompletableFuture().join();
+            }
 
-                // Build the command to traverse to the proper working directory.
-                File workingDirectory = new File(task.getWorkingDirectory());
+            @Override
+            public CompletionStage<Boolean> startTask(MavenTask task) {
+                return ProcessService.this.executeTask(task, run).thenApply(succeeded -> {
+                    handle.taskFinished(succeeded);
+                    return succeeded;
+                });
+            }
 
-                // Check that the directory to do work in is a real directory.
-                if (!workingDirectory.isDirectory()) {
-                    logger.warning("Provided MavenTask: " + task.getTaskName() + " has bad working directory.");
-                    continue;
-                }
+            @Override
+            public void skipTask(MavenTask task, MavenTask failedTask) {
+                handle.taskSkipped();
+                fireBuildEvent(new BuildEvent(task.getId(), BuildEvent.Type.SKIPPED));
+                appendExecutionOutput(
+                        "Skipping Task: " +
+                                task.getTaskName() +
+                                (failedTask == null ?
+                                        " due to the run being cancelled." :
+                                        " due to task: " + failedTask.getTaskName() + " failing.") +
+                                System.getProperty("line.separator"));
+            }
 
-                // Validate that the working directory contains a POM file to execute a maven task
-                File pomFile = new File(task.getWorkingDirectory() + "/pom.xml");
-                if(!pomFile.exists()) {
-                    appendExecutionOutput(
-                            "POM file for task: " +
-                                    task.getTaskName() +
-                                    " does not exist, skipping task." +
-                                    System.getProperty("line.separator"));
-                    continue;
+            @Override
+            public long estimateDurationMillis(MavenTask task) {
+                return estimator.estimate(task);
+            }
+        }, token);
+
+        // Wait for the renames and copies that are still running on the I/O threads, and the tasks they complete
+        CompletableFuture.allOf(run.artifactStages.values().toArray(new CompletableFuture<?>[0])).join();
+
+        reportCriticalPath(criticalPath, estimator);
+
+        if (token.isCancelled()) {
+            appendExecutionOutput(
+                    "Processing was cancelled because " +
+                            token.getReason() +
+                            "." +
+                            System.getProperty("line.separator"));
+        }
+
+        // Persist any newly parsed POM files and fingerprints, and let the user know how well the cache is doing
+        PomCache.getInstance().save();
+        FingerprintStore.getInstance().save();
+        ArtifactStore.getInstance().save();
+        appendExecutionOutput(
+                "POM cache hits: " +
+                        PomCache.getInstance().getHits() +
+                        ", misses: " +
+                        PomCache.getInstance().getMisses() +
+                        System.getProperty("line.separator"));
+        flushExecutionOutput();
+    }
+
+    /**
+     * Reports the critical path of a run: every task on it with how long it ran, waited for a free slot, and was
+     * estimated to take, followed by the task on it that ran for the longest, which is the first one worth
+     * splitting up to make runs shorter.
+     * @param criticalPath The {@link CriticalPath} of the run.
+     * @param estimator The {@link DurationEstimator} the run was scheduled with.
+     */
+    private void reportCriticalPath(CriticalPath criticalPath, DurationEstimator estimator) {
+        if (criticalPath.getSteps().isEmpty())
+            return;
+
+        StringBuilder report = new StringBuilder("Critical path of the run, ")
+                .append(formatSeconds(criticalPath.getRunningMillis()))
+                .append(" running and ")
+                .append(formatSeconds(criticalPath.getWaitingMillis()))
+                .append(" waiting for a free slot, of ")
+                .append(formatSeconds(criticalPath.getWallMillis()))
+                .append(" in total:")
+                .append(System.getProperty("line.separator"));
+        for (CriticalPath.Step step : criticalPath.getSteps()) {
+            report.append("  ")
+                    .append(step.getTask().getTaskName())
+                    .append(": ran ")
+                    .append(formatSeconds(step.getDurationMillis()));
+            if (step.getWaitMillis() >= 100)
+                report.append(", waited ").append(formatSeconds(step.getWaitMillis()));
+            if (step.getEstimatedMillis() >= 0) {
+                report.append(", estimated ")
+                        .append(formatSeconds(step.getEstimatedMillis()))
+                        .append(estimator.isFromHistory(step.getTask().getId()) ? " from history" : " from sources");
+            }
+            report.append(System.getProperty("line.separator"));
+        }
+
+        CriticalPath.Step longest = criticalPath.getLongestStep();
+        report.append("Longest task on the critical path: ")
+                .append(longest.getTask().getTaskName())
+                .append(", ")
+                .append(criticalPath.getWallMillis() > 0 ?
+                        longest.getDurationMillis() * 100 / criticalPath.getWallMillis() : 0)
+                .append("% of the run.")
+                .append(System.getProperty("line.separator"));
+        appendExecutionOutput(report.toString());
+    }
+
+    /**
+     * Formats a duration in seconds, for reports.
+     * @param millis The duration, in milliseconds.
+     * @return The duration, such as '12.3s'.
+     */
+    private static String formatSeconds(long millis) {
+        return String.format("%.1f", millis / 1000.0) + "s";
+    }
+
+    /**
+     * Executes a single task, writing all output appended while it executes to a new log of the task in
+     * the {@link TaskLogStore}, and following the output with a {@link MavenOutputParser} to publish the task's
+     * progress. The task's final event is published, and its execution recorded in the {@link BuildHistoryStore},
+     * once its artifact stage, if it has one, has completed. Returns once the maven build is over, leaving the
+     * artifact stage running on the I/O threads.
+     * @param task The {@link MavenTask} to execute.
+     * @param run The {@link RunContext} shared by every task of the run.
+     * @return A future completing with True if the task, including its artifact stage, succeeded, False otherwise.
+     */
+    private CompletableFuture<Boolean> executeTask(MavenTask task, RunContext run) {
+        LogFileWriter taskLog = TaskLogStore.getInstance().open(task);
+        CancellationToken taskToken = run.token.createChild(taskTimeoutSeconds * 1000L);
+        currentTaskLog.set(taskLog);
+        currentTaskToken.set(taskToken);
+        currentTaskParser.set(new MavenOutputParser(task.getId(), this::fireBuildEvent));
+        fireBuildEvent(new BuildEvent(task.getId(), BuildEvent.Type.STARTED));
+        long startedAt = System.currentTimeMillis();
+        BuildRecord.Builder record = new BuildRecord.Builder().taskId(task.getId());
+        CompletableFuture<Boolean> completion = null;
+        boolean succeeded = false;
+        try {
+            succeeded = buildTask(task, run, record);
+            if (!succeeded && taskToken.isCancelled()) {
+                appendExecutionOutput(
+                        "Task with name: " +
+                                task.getTaskName() +
+                                " was stopped because " +
+                                taskToken.getReason() +
+                                "." +
+                                System.getProperty("line.separator"));
+                if (!ProcessTree.canDestroyTree()) {
+                    appendExecutionOutput("Processes started by the task may still be running, as stopping them " +
+                            "along with the task needs Java 9 or later on this system." +
+                            System.getProperty("line.separator"));
                 }
+            }
+        } finally {
+            currentTaskLog.remove();
+            currentTaskToken.remove();
+            currentTaskParser.remove();
+            // The task log stays open until the artifact stage of the task has written its output to it
+            CompletableFuture<Boolean> artifactStage = run.artifactStages.get(task.getId());
+            if (artifactStage == null) {
+                taskToken.close();
+                if (taskLog != null)
+                    taskLog.close();
+                completeTask(task, record, startedAt, succeeded);
+            } else {
+                // The run waits on the completion rather than the stage, so the task is recorded before it ends
+                completion = artifactStage.handle((stageSucceeded, error) -> {
+                    boolean completed = stageSucceeded != null && stageSucceeded;
+                    try {
+                        taskToken.close();
+                        if (taskLog != null)
+                            taskLog.close();
+                    } finally {
+                        completeTask(task, record, startedAt, completed);
+                    }
+                    return completed;
+                }).exceptionally(e -> {
+                    logger.log(Level.WARNING, "Unable to complete task: " + task.getTaskName(), e);
+                    return false;
+                });
+                run.artifactStages.put(task.getId(), completion);
+            }
+        }
+        return completion != null ? completion : CompletableFuture.completedFuture(succeeded);
+    }
+
+    /**
+     * Builds a single task. Builds and runs the maven command for the task, then hands the resulting
+     * artifact to the artifact stage of the task if it needs renaming, copying or unpackaging.
+     * @param task The {@link MavenTask} to build.
+     * @param run The {@link RunContext} shared by every task of the run.
+     * @param record The {@link BuildRecord.Builder} collecting the durations and results of the task's phases.
+     * @return True if the task succeeded, False otherwise.
+     */
+    private boolean buildTask(MavenTask task, RunContext run, BuildRecord.Builder record) {
+        appendExecutionOutput(
+                "Processing Task: " +
+                        task.getTaskName() +
+                        System.getProperty("line.separator"));
+
+        // Build the command to traverse to the proper working directory.
+        File workingDirectory = new File(task.getWorkingDirectory());
+
+        // Check that the directory to do work in is a real directory.
+        if (!workingDirectory.isDirectory()) {
+            logger.warning("Provided MavenTask: " + task.getTaskName() + " has bad working directory.");
+            appendExecutionOutput(
+                    "Working directory for task: " +
+                            task.getTaskName() +
+                            " does not exist, skipping task." +
+                            System.getProperty("line.separator"));
+            return false;
+        }
+
+        // Validate that the working directory contains a POM file to execute a maven task
+        File pomFile = new File(task.getWorkingDirectory() + "/pom.xml");
+        if(!pomFile.exists()) {
+            appendExecutionOutput(
+                    "POM file for task: " +
+                            task.getTaskName() +
+                            " does not exist, skipping task." +
+                            System.getProperty("line.separator"));
+            return false;
+        }
 
-                // Build the XML POM file into an object to make identifying POM file attributes easier
-                PomInfo pomInfo = new PomInfo(pomFile);
+        // Resolve the effective POM so inherited values and '${...}' expressions are filled in
+        EffectivePom effectivePom = run.pomResolver.resolve(pomFile);
 
-                // Use the PomInfo object to retrieve what the built artifact name will be.
-                String artifactId = pomInfo.getNodeValue("project.artifactId");
-                String version = pomInfo.getNodeValue("project.version");
+        // Use the EffectivePom object to retrieve what the built artifact name will be.
+        String artifactId = effectivePom.getArtifactId();
+        String version = effectivePom.getVersion();
+
+        // Validate the artifactId exists
+        if(artifactId == null || artifactId.length() == 0) {
+            appendExecutionOutput(
+                    "POM file found no 'project.artifactId' tag, skipping task: " +
+                            task.getTaskName() +
+                            "." +
+                            System.getProperty("line.separator"));
+            return false;
+        }
 
-                // Validate the artifactId exists
-                if(artifactId == null || artifactId.length() == 0) {
+        // Validate the version exists and could be fully interpolated
+        if(version == null || version.length() == 0 || version.contains("${")) {
+            appendExecutionOutput(
+                    "POM file found no resolvable 'project.version' or 'project.parent.version' tag, skipping task: " +
+                            task.getTaskName() +
+                            "." +
+                            System.getProperty("line.separator"));
+            return false;
+        }
+
+        // Work out where the build will put the artifact, from the packaging and classifier of the project
+        ArtifactLocator locator = new ArtifactLocator(effectivePom);
+
+        // Skip the maven build if nothing it depends on has changed since it last built successfully
+        long fingerprintStart = System.nanoTime();
+        byte[] fingerprint = fingerprint(task, effectivePom, run);
+        record.fingerprint(fingerprint).fingerprintMillis((System.nanoTime() - fingerprintStart) / 1_000_000L);
+        if (skipUpToDateTasks &&
+                fingerprint != null &&
+                Arrays.equals(fingerprint, FingerprintStore.getInstance().getSuccessfulFingerprint(task.getId())) &&
+                locator.locateMain() != null) {
+            appendExecutionOutput(
+                    "Task with name: " +
+                            task.getTaskName() +
+                            " is up-to-date, skipping maven build." +
+                            System.getProperty("line.separator"));
+        } else if (skipUpToDateTasks &&
+                fingerprint != null &&
+                !task.doInstall() &&
+                ArtifactStore.getInstance().restore(fingerprint, locator.getBuildDirectory()) != null) {
+            // Install goals are always built, as restoring into target/ doesn't update the local repository
+            FingerprintStore.getInstance().recordSuccess(task.getId(), fingerprint);
+            appendExecutionOutput(
+                    "Task with name: " +
+                            task.getTaskName() +
+                            " restored its artifacts from the artifact store, skipping maven build." +
+                            System.getProperty("line.separator"));
+        } else {
+            // Forget the last successful build until this one has succeeded
+            FingerprintStore.getInstance().clearSuccess(task.getId());
+
+            // Build and execute the maven command
+            List<String> goals = new ArrayList<>();
+            if (task.cleanTarget())
+                goals.add("clean");
+
+            if (task.doInstall())
+                goals.add("install");
+            else
+                goals.add("package");
+
+            // Execute the maven build on a resident worker if asked to, otherwise fork a new maven process. Only a
+            // forked build can be held to its grant's threads and heap, as the workers' JVMs are already running
+            ProcessResult result = null;
+            if (executionMode == ExecutionMode.WORKER) {
+                result = MavenWorkerPool.getInstance().build(workingDirectory, goals, getExecutionOutput(),
+                        getCancellationToken());
+                if (result == null) {
                     appendExecutionOutput(
-                            "POM file found no 'project.artifactId' tag, skipping task: " +
+                            "No maven worker is available for task: " +
                                     task.getTaskName() +
-                                    "." +
+                                    ", forking maven instead." +
                                     System.getProperty("line.separator"));
-                    continue;
                 }
-
-                // Validate the version exists
-                if(version == null || version.length() == 0) {
-                    version = pomInfo.getNodeValue("project.parent.version");
-                    if(version == null || version.length() == 0) {
-                        appendExecutionOutput(
-                                "POM file found no 'project.version' or 'project.parent.version' tag, skipping task: " +
-                                        task.getTaskName() +
-                                        "." +
-                                        System.getProperty("line.separator"));
-                        continue;
+            }
+            if (result == null) {
+                StringBuilder commandString = new StringBuilder("mvn");
+                Map<String, String> environment = null;
+                ResourceGovernor.Grant grant = run.governor.getGrant(task.getId());
+                if (grant != null) {
+                    if (grant.getThreads() > 1)
+                        commandString.append(" -T ").append(grant.getThreads());
+                    String mavenOpts = grant.getMavenOpts(System.getenv("MAVEN_OPTS"));
+                    if (mavenOpts != null) {
+                        environment = Collections.singletonMap("MAVEN_OPTS", mavenOpts);
+                        record.heapMegabytes(grant.getHeapMegabytes());
                     }
                 }
+                for (String goal : goals)
+                    commandString.append(" ").append(goal);
+                result = CommandLine.ExecuteCommandLine(workingDirectory, commandString.toString(), environment);
+            }
+            record.buildResult(result);
+            // The parser follows the output on the pipeline's thread, so let it catch up with the build first
+            outputPipeline.flush();
+            MavenOutputParser parser = currentTaskParser.get();
+            if (parser != null && parser.isOutOfMemory())
+                record.outOfMemory(true);
+            appendExecutionOutput(
+                    "Maven build for task: " +
+                            task.getTaskName() +
+                            " finished with " +
+                            result +
+                            "." +
+                            System.getProperty("line.separator"));
+            if (!result.isSuccess()) {
+                appendExecutionOutput(
+                        "Task with name: " +
+                                task.getTaskName() +
+                                " has failed." +
+                                System.getProperty("line.separator"));
+                return false;
+            }
 
-                // Build and execute the maven command
-                commandString.append("mvn ");
-
-                if (task.cleanTarget())
-                    commandString.append("clean ");
-
-                if (task.doInstall())
-                    commandString.append("install ");
-                else
-                    commandString.append("package");
-
-                // Execute the maven build command and clear the current command string
-                CommandLine.ExecuteCommandLine(workingDirectory, commandString.toString());
-                commandString = new StringBuilder();
-
-                if(task.doRename() || task.doCopy() || task.doUnpackage()) {
-                    // Build a filter to find the built artifact
-                    String pattern = artifactId + "-" + version + "\\..*";
-                    FileFilter filter = new RegexFileFilter(pattern);
-                    File[] files = new File(workingDirectory + "/target/").listFiles(filter);
-                    String builtTargetPath;
-
-                    // If the filter can find a file, note down its absolute path, otherwise error out
-                    if (files != null && files.length > 0) {
-                        builtTargetPath = files[0].getAbsolutePath();
-                    } else {
-                        appendExecutionOutput(
-                                "Could not find a built target directory given the POM configuration for task: " +
-                                        task.getTaskName() +
-                                        ". Stopping task execution." +
-                                        System.getProperty("line.separator"));
-                        continue;
-                    }
+            // Remember the successful build, and keep its artifacts around for any later build with the same inputs
+            locator.invalidate();
+            List<BuiltArtifact> builtArtifacts = locator.locateAll();
+            if (fingerprint != null && !builtArtifacts.isEmpty()) {
+                FingerprintStore.getInstance().recordSuccess(task.getId(), fingerprint);
+                ArtifactStore.getInstance().put(fingerprint, builtArtifacts);
+            }
+        }
 
-                    // Build the rename command if the task needs to be renamed.
-                    if (task.doRename()) {
-                        // Build the new command string.
-                        commandString.append("ren ");
-                        commandString.append(builtTargetPath);
-                        commandString.append(" ");
-                        commandString.append(task.getRenameString());
-
-                        // Execute the command and reset the command string
-                        CommandLine.ExecuteCommandLine(workingDirectory, commandString.toString());
-                        commandString = new StringBuilder();
-
-                        // Find the new file, if it exists, and update the field values for use elsewhere
-                        pattern = task.getRenameString();
-                        filter = new RegexFileFilter(pattern);
-                        files = new File(workingDirectory + "/target/").listFiles(filter);
-
-                        if (files != null && files.length > 0) {
-                            builtTargetPath = files[0].getAbsolutePath();
-                        } else {
-                            appendExecutionOutput(
-                                    "Unable to find renamed file after renaming for task: " +
-                                            task.getTaskName() +
-                                            ". Stopping task execution." +
-                                            System.getProperty("line.separator"));
-                            continue;
-                        }
-                    }
+        if(task.doRename() || task.doCopy() || task.doUnpackage()) {
+            // Find the built artifact
+            BuiltArtifact builtArtifact = locator.locateMain();
 
-                    // Build the copy command if the task needs to do a copy
-                    if (task.doCopy()) {
-                        // Build the new command string
-                        commandString.append("copy /Y ");
-                        commandString.append(builtTargetPath);
-                        commandString.append(" ");
-                        commandString.append(task.getCopyToDirectory());
-
-                        // Execute the command and reset the command string
-                        CommandLine.ExecuteCommandLine(workingDirectory, commandString.toString());
-                        commandString = new StringBuilder();
-                    }
-                }
+            // If the locator can find the artifact, hand it to the artifact stage, otherwise error out
+            if (builtArtifact == null) {
                 appendExecutionOutput(
-                        "Task with name: " +
+                        "Could not find a built target directory given the POM configuration for task: " +
                                 task.getTaskName() +
-                                " has completed execution." +
+                                ". Stopping task execution." +
                                 System.getProperty("line.separator"));
+                return false;
+            }
 
-            } else {
-                appendExecutionOutput(
-                        "Skipping Task: " +
+            // Rename and copy the artifact on the I/O threads, so that it overlaps with the builds that follow
+            File builtTarget = builtArtifact.getFile();
+            Consumer<String> output = getExecutionOutput();
+            CancellationToken token = getCancellationToken();
+            run.artifactStages.put(task.getId(), CompletableFuture.supplyAsync(
+                    () -> {
+                        long stageStart = System.nanoTime();
+                        try {
+                            return runArtifactStage(task, builtTarget, output, token);
+                        } finally {
+                            record.artifactMillis((System.nanoTime() - stageStart) / 1_000_000L);
+                        }
+                    }, ioExecutor).exceptionally(e -> {
+                        logger.log(Level.WARNING, "Artifact stage failed for task: " + task.getTaskName(), e);
+                        return false;
+                    }));
+            return true;
+        }
+        appendExecutionOutput(
+                "Task with name: " +
+                        task.getTaskName() +
+                        " has completed execution." +
+                        System.getProperty("line.separator"));
+        return true;
+    }
+
+    /**
+     * Runs the artifact stage of a task, renaming, copying and unpackaging the built artifact if the task asks
+     * for it. Runs on one of the service's I/O threads.
+     * @param task The {@link MavenTask} the artifact was built by.
+     * @param builtTarget The built artifact.
+     * @param output The consumer of the stage's output, bound to the task's log.
+     * @param token The {@link CancellationToken} of the task, may be null.
+     * @return True if the stage succeeded, False otherwise.
+     */
+    private boolean runArtifactStage(MavenTask task, File builtTarget, Consumer<String> output,
+                                     CancellationToken token) {
+        Path builtTargetPath = builtTarget.toPath();
+
+        // Rename the artifact if the task asks for it
+        if (task.doRename()) {
+            try {
+                builtTargetPath = ArtifactFiles.rename(builtTargetPath, task.getRenameString());
+                output.accept(
+                        "Renamed built target for task: " +
                                 task.getTaskName() +
-                                " due to not being enabled." +
+                                " to: " +
+                                builtTargetPath.getFileName() +
+                                System.getProperty("line.separator"));
+            } catch (IOException | InvalidPathException e) {
+                logger.log(Level.WARNING, "Unable to rename: " + builtTargetPath, e);
+                output.accept(
+                        "Unable to rename built target for task: " +
+                                task.getTaskName() +
+                                ". Stopping task execution." +
+                                System.getProperty("line.separator"));
+                return false;
+            }
+        }
+
+        // Copy the artifact if the task asks for it
+        if (task.doCopy()) {
+            try {
+                ArtifactFiles.CopyMethod method = ArtifactFiles.copy(builtTargetPath,
+                        Paths.get(task.getCopyToDirectory()), HARD_LINK_COPIES, VERIFY_COPIES);
+                output.accept(
+                        "Copied built target for task: " +
+                                task.getTaskName() +
+                                " to: " +
+                                task.getCopyToDirectory() +
+                                (method == ArtifactFiles.CopyMethod.LINKED ? " as a hard link." : ".") +
+                                System.getProperty("line.separator"));
+            } catch (IOException | InvalidPathException e) {
+                logger.log(Level.WARNING, "Unable to copy: " + builtTargetPath, e);
+                output.accept(
+                        "Unable to copy built target for task: " +
+                                task.getTaskName() +
+                                ". Stopping task execution." +
+                                System.getProperty("line.separator"));
+                return false;
+            }
+        }
+
+        // Unpackage the artifact, or its copy if there is one, next to itself
+        if (task.doUnpackage()) {
+            Path archive = task.doCopy() ?
+                    Paths.get(task.getCopyToDirectory()).resolve(builtTargetPath.getFileName()) : builtTargetPath;
+            if (ArchiveExtractor.getFormat(archive) == null) {
+                output.accept(
+                        "Built target for task: " +
+                                task.getTaskName() +
+                                " is not a zip or tar archive and can't be unpackaged. Stopping task execution." +
+                                System.getProperty("line.separator"));
+                return false;
+            }
+            try {
+                Path targetDirectory = ArchiveExtractor.getDefaultTargetDirectory(archive);
+                ExtractionResult result = ArchiveExtractor.extract(archive, targetDirectory, SKIP_UNCHANGED_ENTRIES,
+                        token);
+                output.accept(
+                        "Unpackaged built target for task: " +
+                                task.getTaskName() +
+                                " to: " +
+                                targetDirectory +
+                                ", " +
+                                result +
+                                "." +
+                                System.getProperty("line.separator"));
+            } catch (IOException | InvalidPathException e) {
+                logger.log(Level.WARNING, "Unable to unpackage: " + archive, e);
+                output.accept(
+                        "Unable to unpackage built target for task: " +
+                                task.getTaskName() +
+                                ". Stopping task execution." +
                                 System.getProperty("line.separator"));
+                return false;
             }
         }
+        output.accept(
+                "Task with name: " +
+                        task.getTaskName() +
+                        " has completed execution." +
+                        System.getProperty("line.separator"));
+        return true;
+    }
+
+    /**
+     * Computes the fingerprint of a task's inputs, including its parent POM files and the fingerprints of the
+     * tasks it is built after, and notes it down for the tasks built after it. Where the artifact store knows what
+     * an upstream task's fingerprint produced, the hash of those artifacts is used instead, so that an upstream
+     * rebuild producing byte-for-byte identical artifacts doesn't force this task to rebuild.
+     * @param task The {@link MavenTask} to fingerprint.
+     * @param effectivePom The {@link EffectivePom} of the task, whose chain of parents is part of the fingerprint.
+     * @param run The {@link RunContext} shared by every task of the run.
+     * @return The fingerprint of the task, or null if it couldn't be computed.
+     */
+    private byte[] fingerprint(MavenTask task, EffectivePom effectivePom, RunContext run) {
+        // Upstream tasks that aren't part of this run are represented by their last successful build
+        List<UUID> upstreamIds = new ArrayList<>(dependencyGraph.getUpstream(task.getId()));
+        Collections.sort(upstreamIds);
+        List<byte[]> upstreamFingerprints = new ArrayList<>();
+        for (UUID upstreamId : upstreamIds) {
+            byte[] upstreamFingerprint = run.fingerprints.get(upstreamId);
+            if (upstreamFingerprint == null)
+                upstreamFingerprint = FingerprintStore.getInstance().getSuccessfulFingerprint(upstreamId);
+            if (upstreamFingerprint == null)
+                continue;
+            byte[] upstreamOutput = ArtifactStore.getInstance().getOutputHash(upstreamFingerprint);
+            upstreamFingerprints.add(upstreamOutput != null ? upstreamOutput : upstreamFingerprint);
+        }
+
+        // Parent POM files that aren't tasks themselves still decide dependency versions and plugin configuration
+        List<Path> parentPomFiles = new ArrayList<>();
+        for (EffectivePom parent = effectivePom.getParent(); parent != null; parent = parent.getParent())
+            parentPomFiles.add(parent.getPomFile().toPath());
+
+        try {
+            byte[] fingerprint = run.fingerprinter.fingerprint(task, parentPomFiles, upstreamFingerprints);
+            run.fingerprints.put(task.getId(), fingerprint);
+            return fingerprint;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to fingerprint task: " + task.getTaskName(), ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves whether tasks whose inputs haven't changed since their last successful build are skipped.
+     * @return True if up-to-date tasks are skipped, False otherwise.
+     */
+    public boolean getSkipUpToDateTasks() {
+        return skipUpToDateTasks;
     }
 
     /**
-     * Returns a new {@link ArrayList} of tasks to be used by other parts of the application.
-     * @return A new {@link ArrayList} of {@link MavenTask} objects held by the service.
+     * Sets whether tasks whose inputs haven't changed since their last successful build are skipped.
+     * @param skipUpToDateTasks True to skip up-to-date tasks, False to always build every task.
      */
-    public ArrayList<MavenTask> getTasks() {
-        return new ArrayList<>(taskList);
+    public void setSkipUpToDateTasks(boolean skipUpToDateTasks) {
+        this.skipUpToDateTasks = skipUpToDateTasks;
+    }
+
+    /**
+     * Returns the current version of the task list to be used by other parts of the application. The snapshot
+     * never changes, so it can be read from any thread and kept for as long as needed without copying it.
+     * @return The current {@link TaskSnapshot} of the {@link MavenTask} objects held by the service.
+     */
+    public TaskSnapshot getTasks() {
+        return taskSnapshot;
+    }
+
+    /**
+     * Returns the current tasks ordered so that every task comes after the tasks it depends on. Tasks that
+     * don't depend on each other keep the order of {@link #getTasks()}.
+     * @return A new {@link List} of {@link MavenTask} objects in build order.
+     */
+    public List<MavenTask> getBuildOrder() {
+        return dependencyGraph.topologicalOrder(getTasks());
+    }
+
+    /**
+     * Returns the graph of dependencies between the tasks held by the service.
+     * @return The {@link DependencyGraph} kept up-to-date by the service.
+     */
+    public DependencyGraph getDependencyGraph() {
+        return dependencyGraph;
     }
 
     /**
@@ -218,11 +864,7 @@ public class ProcessService {
      * @return A {@link MavenTask} object, or null if the task doesn't exist.
      */
     public MavenTask getTask(UUID id) {
-        for(MavenTask task : taskList) {
-            if(task.getId().equals(id))
-                return task;
-        }
-        return null;
+        return taskSnapshot.getTask(id);
     }
 
     /**
@@ -231,11 +873,7 @@ public class ProcessService {
      * @return The index of the {@link MavenTask} in the processes internal task list, or -1 if it doesn't exist.
      */
     public int getTaskIndex(UUID id) {
-        for(MavenTask task: taskList) {
-            if(task.getId().equals(id))
-                return taskList.indexOf(task);
-        }
-        return -1;
+        return taskSnapshot.indexOf(id);
     }
 
     /**
@@ -244,25 +882,59 @@ public class ProcessService {
      * @return True if object was added successfully, False otherwise.
      */
     public boolean addTask(MavenTask task) {
-        if(getTask(task.getId()) != null)
+        boolean exists;
+        synchronized (taskLock) {
+            exists = taskSnapshot.getTask(task.getId()) != null;
+            if (!exists)
+                taskSnapshot = taskSnapshot.withAdded(Collections.singletonList(task));
+        }
+        if(exists)
             return updateTask(task);
+        dependencyGraph.update(task);
 
-        taskList.add(task);
+        for (IProcessServiceListener listener : listeners) {
+            listener.taskAdded(task);
+        }
+        appendExecutionOutput(
+                "New maven task: " +
+                        task.getId() +
+                        " with name: " +
+                        task.getTaskName() +
+                        " has been added." +
+                        System.getProperty("line.separator"));
+        return true;
+    }
 
-        if(getTask(task.getId()) != null) {
-            for (IProcessServiceListener listener : listeners) {
-                listener.taskAdded(task);
-            }
-            appendExecutionOutput(
-                    "New maven task: " +
-                            task.getId() +
-                            " with name: " +
-                            task.getTaskName() +
-                            " has been added." +
-                            System.getProperty("line.separator"));
-            return true;
+    /**
+     * Adds many {@link MavenTask}s to the service's list of tasks at once, such as when a task list is loaded.
+     * Tasks already held by the service are updated in place instead. Listeners are notified once for all of the
+     * tasks, and a single message is written to the execution output rather than one per task.
+     * @param tasks The {@link MavenTask}s to add to the list, in the order they should be listed in.
+     * @return The number of tasks that were added or updated.
+     */
+    public int addTasks(List<MavenTask> tasks) {
+        if (tasks.isEmpty())
+            return 0;
+
+        int added;
+        synchronized (taskLock) {
+            int previousSize = taskSnapshot.size();
+            taskSnapshot = taskSnapshot.withAdded(tasks);
+            added = taskSnapshot.size() - previousSize;
+        }
+        for (MavenTask task : tasks)
+            dependencyGraph.update(task);
+
+        List<MavenTask> notified = Collections.unmodifiableList(new ArrayList<>(tasks));
+        for (IProcessServiceListener listener : listeners) {
+            listener.tasksAdded(notified);
         }
-        return false;
+        appendExecutionOutput(
+                added +
+                        " maven tasks have been added" +
+                        (added < tasks.size() ? " and " + (tasks.size() - added) + " updated." : ".") +
+                        System.getProperty("line.separator"));
+        return tasks.size();
     }
 
     /**
@@ -271,28 +943,27 @@ public class ProcessService {
      * @return True if the task updated successfully, False otherwise.
      */
     public boolean updateTask(MavenTask task) {
-        int indexToUpdate = getTaskIndex(task.getId());
-
-        if(indexToUpdate == -1)
+        boolean exists;
+        synchronized (taskLock) {
+            TaskSnapshot previous = taskSnapshot;
+            taskSnapshot = previous.withReplaced(task);
+            exists = taskSnapshot != previous;
+        }
+        if(!exists)
             return addTask(task);
+        dependencyGraph.update(task);
 
-
-        taskList.set(indexToUpdate, task);
-
-        if(getTask(task.getId()) != null) {
-            for (IProcessServiceListener listener : listeners) {
-                listener.taskUpdated(task);
-            }
-            appendExecutionOutput(
-                    "Maven task: " +
-                            task.getId() +
-                            " with name: " +
-                            task.getTaskName() +
-                            " has been updated." +
-                            System.getProperty("line.separator"));
-            return true;
+        for (IProcessServiceListener listener : listeners) {
+            listener.taskUpdated(task);
         }
-        return false;
+        appendExecutionOutput(
+                "Maven task: " +
+                        task.getId() +
+                        " with name: " +
+                        task.getTaskName() +
+                        " has been updated." +
+                        System.getProperty("line.separator"));
+        return true;
     }
 
     /**
@@ -301,59 +972,245 @@ public class ProcessService {
      * @return True if the object was successfully removed, False otherwise.
      */
     public boolean removeTask(MavenTask task) {
-        boolean removed = taskList.remove(task);
+        synchronized (taskLock) {
+            TaskSnapshot previous = taskSnapshot;
+            taskSnapshot = previous.without(task.getId());
+            if (taskSnapshot == previous)
+                return false;
+        }
 
-        if(removed) {
-            for (IProcessServiceListener listener : listeners) {
-                listener.taskRemoved(task);
-            }
-            appendExecutionOutput(
-                    "Maven task: " +
-                            task.getId() +
-                            " with name: " +
-                            task.getTaskName() +
-                            " has been removed." +
-                            System.getProperty("line.separator"));
-            return true;
+        dependencyGraph.remove(task.getId());
+        FingerprintStore.getInstance().remove(task.getId());
+        TaskLogStore.getInstance().remove(task.getId());
+        for (IProcessServiceListener listener : listeners) {
+            listener.taskRemoved(task);
         }
-        return false;
+        appendExecutionOutput(
+                "Maven task: " +
+                        task.getId() +
+                        " with name: " +
+                        task.getTaskName() +
+                        " has been removed." +
+                        System.getProperty("line.separator"));
+        return true;
     }
 
     /**
-     * Reorders elements in {@link #taskList} by swapping positions. This is a better method
-     * than just removing the element and inserting at the proper position as the list doesn't
-     * require resizing to a smaller, then larger size. There may even be a better way to implement
-     * this kind of re-ordering of the list, but for now, the list is small, and a bubble-sort-like
-     * implementation for re-ordering will suffice.
+     * Moves a task to another position in the task list, shifting the tasks in between by one position in a
+     * single pass.
      * @param from The index the {@link MavenTask} to be re-ordered resides at.
-     * @param to The index to move the {@link MavenTask} to.
+     * @param to The index to insert the {@link MavenTask} before, as the tasks were ordered before the move. An
+     *           index of the size of the list moves the task to the end.
      */
     public void reorderTaskPosition(int from, int to) {
-        // Handle moving the item towards the beginning of the table
-        if (from > to) {
-            while (from != to) {
-                Collections.swap(taskList, from, from - 1);
-                from--;
-            }
-        // Handle moving the item towards the end of the table
-        } else {
-            // subtracting 1 from the 'to' side of things is required when moving up, as off-by-one error otherwise.
-            to--;
-            while(from != to) {
-                Collections.swap(taskList, from, from + 1);
-                from++;
-            }
+        synchronized (taskLock) {
+            // The task being moved no longer sits before the insertion point when moving towards the end
+            int target = to > from ? to - 1 : to;
+            TaskSnapshot previous = taskSnapshot;
+            taskSnapshot = previous.withMoved(from, target);
+            if (taskSnapshot == previous)
+                return;
+        }
+
+        for (IProcessServiceListener listener : listeners) {
+            listener.tasksReordered();
         }
     }
 
+    /**
+     * Retrieves the maximum number of tasks allowed to run at the same time when processing tasks.
+     * @return The maximum number of concurrently running tasks.
+     */
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
+    /**
+     * Sets the maximum number of tasks allowed to run at the same time when processing tasks. The new
+     * value is used by the next call to {@link #executeProcessTasks()}.
+     * @param maxConcurrentTasks The maximum number of concurrently running tasks, values below 1 are treated as 1.
+     */
+    public void setMaxConcurrentTasks(int maxConcurrentTasks) {
+        this.maxConcurrentTasks = Math.max(1, maxConcurrentTasks);
+    }
+
+    /**
+     * Checks whether processing stops starting new tasks as soon as any task fails.
+     * @return True if processing fails fast, False if only the tasks depending on a failed task are skipped.
+     */
+    public boolean getFailFast() {
+        return failFast;
+    }
+
+    /**
+     * Sets whether processing stops starting new tasks as soon as any task fails. The new value is used
+     * by the next call to {@link #executeProcessTasks()}.
+     * @param failFast True to fail fast, False to only skip the tasks depending on a failed task.
+     */
+    public void setFailFast(boolean failFast) {
+        this.failFast = failFast;
+    }
+
+    /**
+     * Retrieves how long a single task may run before its processes are killed.
+     * @return The task timeout in seconds, or 0 if tasks may run for as long as they need.
+     */
+    public long getTaskTimeoutSeconds() {
+        return taskTimeoutSeconds;
+    }
+
+    /**
+     * Sets how long a single task may run before its processes are killed. The new value is used by the
+     * next call to {@link #startProcessTasks()}.
+     * @param taskTimeoutSeconds The task timeout in seconds, or 0 to let tasks run for as long as they need.
+     */
+    public void setTaskTimeoutSeconds(long taskTimeoutSeconds) {
+        this.taskTimeoutSeconds = Math.max(0, taskTimeoutSeconds);
+    }
+
+    /**
+     * Retrieves how long a whole run may take before it is cancelled.
+     * @return The run timeout in seconds, or 0 if runs may take as long as they need.
+     */
+    public long getRunTimeoutSeconds() {
+        return runTimeoutSeconds;
+    }
+
+    /**
+     * Sets how long a whole run may take before it is cancelled. The new value is used by the next call to
+     * {@link #startProcessTasks()}.
+     * @param runTimeoutSeconds The run timeout in seconds, or 0 to let runs take as long as they need.
+     */
+    public void setRunTimeoutSeconds(long runTimeoutSeconds) {
+        this.runTimeoutSeconds = Math.max(0, runTimeoutSeconds);
+    }
+
+    /**
+     * Retrieves how the maven build of each task is run.
+     * @return The {@link ExecutionMode} used for builds.
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Sets how the maven build of each task is run. The new value is used by builds started afterwards.
+     * @param executionMode The {@link ExecutionMode} to use for builds.
+     */
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
     /**
      * A public facing method to let the service know to tell listeners of the service that there is
-     * new execution output from a child process.
+     * new execution output from a child process. The output is queued on the service's {@link OutputPipeline}
+     * and handed to listeners in batches from the pipeline's own thread, so the caller never waits on listeners.
+     * Output appended from a thread executing a task is also written to that task's log.
      * @param toAppend The string to tell other listeners about.
      */
     public void appendExecutionOutput(String toAppend) {
+        LogFileWriter taskLog = currentTaskLog.get();
+        if (taskLog != null)
+            taskLog.write(toAppend);
+        outputPipeline.push(toAppend);
+    }
+
+    /**
+     * Retrieves a consumer that appends execution output on behalf of the calling thread. Output handed to the
+     * consumer from any thread is written to the log of the task the calling thread is executing, if there is one,
+     * and inspected by that task's {@link MavenOutputParser}. The parser is handed the output on the pipeline's own
+     * thread, so a slow parse never holds up the process producing the output.
+     * @return A consumer that appends execution output.
+     */
+    public Consumer<String> getExecutionOutput() {
+        LogFileWriter taskLog = currentTaskLog.get();
+        MavenOutputParser parser = currentTaskParser.get();
+        if (taskLog == null && parser == null)
+            return outputPipeline::push;
+        return output -> {
+            if (taskLog != null)
+                taskLog.write(output);
+            outputPipeline.push(output, parser);
+        };
+    }
+
+    /**
+     * Retrieves the cancellation token of the task the calling thread is executing.
+     * @return The task's {@link CancellationToken}, or null if the calling thread isn't executing a task.
+     */
+    public CancellationToken getCancellationToken() {
+        return currentTaskToken.get();
+    }
+
+    /**
+     * Waits until all execution output appended so far has been handed to the listeners of the service, giving
+     * up after the 'mdt.output.flushTimeoutMillis' system property's timeout.
+     */
+    public void flushExecutionOutput() {
+        outputPipeline.flush();
+    }
+
+    /**
+     * Sets what happens to execution output appended faster than the listeners of the service can take it.
+     * @param overflowPolicy The {@link OutputPipeline.OverflowPolicy} to use.
+     */
+    public void setOutputOverflowPolicy(OutputPipeline.OverflowPolicy overflowPolicy) {
+        outputPipeline.setOverflowPolicy(overflowPolicy);
+    }
+
+    /**
+     * Hands a batch of execution output to every listener of the service. Called from the thread of the
+     * service's {@link OutputPipeline}.
+     * @param output The batch of output.
+     */
+    private void fireProcessOutput(String output) {
         for(IProcessServiceListener listener : listeners)
-            listener.processOutputAppend(toAppend);
+            listener.processOutputAppend(output);
+    }
+
+    /**
+     * Hands a build event to every listener of the service, on the calling thread.
+     * @param event The {@link BuildEvent} to publish.
+     */
+    private void fireBuildEvent(BuildEvent event) {
+        for(IProcessServiceListener listener : listeners)
+            listener.buildEventOccurred(event);
+    }
+
+    /**
+     * Records the execution of a task that ran in the {@link BuildHistoryStore}, then publishes its final event
+     * along with the peak memory of its build if it was measured. A successful build that took much longer than
+     * its history predicted is reported, so regressions are noticed.
+     * @param task The {@link MavenTask} that completed.
+     * @param record The {@link BuildRecord.Builder} holding the durations and results of the task's phases.
+     * @param startedAt When the task started, in milliseconds since the epoch.
+     * @param succeeded Whether the task succeeded.
+     */
+    private void completeTask(MavenTask task, BuildRecord.Builder record, long startedAt, boolean succeeded) {
+        long completedAt = System.currentTimeMillis();
+        BuildRecord completed = record
+                .completedAt(completedAt)
+                .wallMillis(completedAt - startedAt)
+                .succeeded(succeeded)
+                .build();
+        long predictedMillis = BuildHistoryStore.getInstance().predictDurationMillis(task.getId());
+        BuildHistoryStore.getInstance().append(completed);
+        if (succeeded && completed.isBuilt() && predictedMillis > 0 &&
+                completed.getWallMillis() * 100L > predictedMillis * SLOW_BUILD_PERCENT &&
+                completed.getWallMillis() - predictedMillis > SLOW_BUILD_MIN_MILLIS) {
+            appendExecutionOutput(
+                    "Task with name: " +
+                            task.getTaskName() +
+                            " took " +
+                            String.format("%.1f", completed.getWallMillis() / 1000.0) +
+                            "s, slower than the " +
+                            String.format("%.1f", predictedMillis / 1000.0) +
+                            "s its recent builds took." +
+                            System.getProperty("line.separator"));
+        }
+        fireBuildEvent(new BuildEvent(task.getId(),
+                succeeded ? BuildEvent.Type.FINISHED : BuildEvent.Type.FAILED,
+                completedAt, null, 0, 0, completed.getPeakResidentBytes()));
     }
 
     /**
@@ -0,0 +1,147 @@
+package com.lukas783.mdt.service;
+
+import com.lukas783.mdt.util.CancellationToken;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A handle on a single run of {@link ProcessService#startProcessTasks()}. The handle can be used to wait on the
+ * run, or to cancel it, which stops any further tasks from starting and kills the process trees of the tasks
+ * that are running.
+ *
+ * @author Lucas Carpenter
+ */
+public class RunHandle {
+
+    // Declaration of variables used by the handle
+    private final CancellationToken token;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicInteger succeededCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicInteger skippedCount = new AtomicInteger();
+
+    /**
+     * Constructs a handle on a new run.
+     * @param token The {@link CancellationToken} of the run.
+     */
+    RunHandle(CancellationToken token) {
+        this.token = token;
+    }
+
+    /**
+     * Cancels the run. Does nothing if the run has already been cancelled or has finished.
+     */
+    public void cancel() {
+        if (!isDone())
+            token.cancel("the run was cancelled");
+    }
+
+    /**
+     * Checks whether the run has been cancelled, including by running into its timeout.
+     * @return True if the run has been cancelled, False otherwise.
+     */
+    public boolean isCancelled() {
+        return token.isCancelled();
+    }
+
+    /**
+     * Retrieves why the run was cancelled.
+     * @return The description of why the run was cancelled, or null if it hasn't been cancelled.
+     */
+    public String getCancelReason() {
+        return token.getReason();
+    }
+
+    /**
+     * Checks whether the run has finished, whether or not it was cancelled.
+     * @return True if the run has finished, False otherwise.
+     */
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Waits for the run to finish.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void await() throws InterruptedException {
+        finished.await();
+    }
+
+    /**
+     * Waits for the run to finish, giving up after a timeout.
+     * @param timeout How long to wait.
+     * @param unit The unit of the timeout.
+     * @return True if the run finished, False if the timeout ran out first.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * Retrieves how many tasks of the run succeeded, including tasks that were already up-to-date.
+     * @return The number of tasks that succeeded so far.
+     */
+    public int getSucceededCount() {
+        return succeededCount.get();
+    }
+
+    /**
+     * Retrieves how many tasks of the run failed, including tasks whose artifact stage failed after their build.
+     * @return The number of tasks that failed so far.
+     */
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Retrieves how many tasks of the run were skipped because a task they depend on failed, or the run stopped.
+     * Tasks that aren't enabled aren't counted.
+     * @return The number of tasks skipped so far.
+     */
+    public int getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * Checks whether the run finished without being cancelled, and without any of its tasks failing or being
+     * skipped.
+     * @return True if every enabled task of a finished run succeeded, False otherwise.
+     */
+    public boolean isSuccess() {
+        return isDone() && !isCancelled() && failedCount.get() == 0 && skippedCount.get() == 0;
+    }
+
+    /**
+     * Counts a task of the run that finished executing.
+     * @param succeeded True if the task succeeded, False otherwise.
+     */
+    void taskFinished(boolean succeeded) {
+        (succeeded ? succeededCount : failedCount).incrementAndGet();
+    }
+
+    /**
+     * Counts a task of the run that was skipped.
+     */
+    void taskSkipped() {
+        skippedCount.incrementAndGet();
+    }
+
+    /**
+     * Retrieves the cancellation token of the run.
+     * @return The run's {@link CancellationToken}.
+     */
+    CancellationToken getToken() {
+        return token;
+    }
+
+    /**
+     * Marks the run as finished, releasing anything waiting on it.
+     */
+    void finish() {
+        finished.countDown();
+    }
+}
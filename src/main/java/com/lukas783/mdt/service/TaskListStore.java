@@ -0,0 +1,435 @@
+package com.lukas783.mdt.service;
+
+import com.lukas783.mdt.api.IProcessServiceListener;
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.util.BinaryIO;
+import com.lukas783.mdt.util.DataDirectory;
+import com.lukas783.mdt.util.TaskListFile;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A singleton-service that keeps the workspace's task list on disk, so tasks don't have to be entered again every
+ * time the application is started. The task list is kept in two files in the application's data directory:
+ * 'tasks.xml', the human-editable form written by {@link TaskListFile}, and 'tasks.bin', a compact binary snapshot
+ * of the same tasks that is much quicker to read. The snapshot remembers the size and modified time of the XML file
+ * it was written alongside of, and is only read while the XML file hasn't changed since, so edits made by hand are
+ * always picked up. Both files are written to a temporary file first and then moved into place.
+ *
+ * Tasks are read on a background thread and handed to {@link ProcessService} in batches, so a workspace with
+ * thousands of tasks fills in gradually instead of holding up the caller. Once the workspace has been loaded, the
+ * store listens to {@link ProcessService} and saves the task list shortly after it changes, writing changes made in
+ * quick succession together.
+ *
+ * @author Lucas Carpenter
+ */
+public class TaskListStore implements IProcessServiceListener {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(TaskListStore.class.getName());
+
+    // Declaration of constants used by the store
+    private static final int FILE_MAGIC = 0x4D44544C;
+    private static final int FILE_VERSION = 1;
+    private static final int FLAG_ENABLED = 1;
+    private static final int FLAG_CLEAN = 1 << 1;
+    private static final int FLAG_INSTALL = 1 << 2;
+    private static final int FLAG_COPY = 1 << 3;
+    private static final int FLAG_RENAME = 1 << 4;
+    private static final int FLAG_UNPACKAGE = 1 << 5;
+    private static final int LOAD_BATCH_SIZE = Math.max(1, Integer.getInteger("mdt.tasks.loadBatchSize", 250));
+    private static final long SAVE_DELAY_MILLIS = Long.getLong("mdt.tasks.saveDelayMillis", 500L);
+
+    // Declaration of the internal instance to always use
+    private static TaskListStore INSTANCE;
+
+    // Declaration of variables used by the store
+    private final File listFile;
+    private final File snapshotFile;
+    private final ScheduledExecutorService saveExecutor;
+    private final AtomicReference<List<MavenTask>> pendingSave = new AtomicReference<>();
+    private boolean workspaceLoaded;
+    private volatile boolean loading;
+    private volatile boolean applyingLoad;
+    private volatile boolean changedWhileLoading;
+
+    /**
+     * The public facing method to get an instance of the class.
+     * @return An instance of {@link TaskListStore}
+     */
+    public static synchronized TaskListStore getInstance() {
+        if(INSTANCE == null)
+            INSTANCE = new TaskListStore(DataDirectory.getFile("tasks.xml"), DataDirectory.getFile("tasks.bin"));
+        return INSTANCE;
+    }
+
+    /**
+     * The private facing constructor used by the public-facing {@link #getInstance()} method
+     * to create a new service instance reference if one does not already exist. Any save still waiting to be
+     * written when the application shuts down is written straight away.
+     * @param listFile The human-editable task list file of the workspace.
+     * @param snapshotFile The binary snapshot of the workspace's task list.
+     */
+    private TaskListStore(File listFile, File snapshotFile) {
+        this.listFile = listFile;
+        this.snapshotFile = snapshotFile;
+        this.saveExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mdt-task-list-save");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush));
+    }
+
+    /**
+     * Loads the workspace's task list into {@link ProcessService}, and saves the task list whenever it changes from
+     * then on. The tasks are read on a background thread, and each batch of tasks is added to the service by the
+     * given executor, which should run them on the thread that owns the service's task list, such as the event
+     * dispatch thread. Changes made while the workspace is loading are saved once it has finished. Only the first
+     * call has any effect.
+     * @param deliverOn The {@link Executor} that adds the tasks to the service.
+     */
+    public synchronized void loadWorkspace(Executor deliverOn) {
+        if (workspaceLoaded)
+            return;
+        workspaceLoaded = true;
+        loading = true;
+        ProcessService.getInstance().addListener(this);
+
+        Thread loadThread = new Thread(() -> {
+            long start = System.nanoTime();
+            BatchDelivery delivery = new BatchDelivery(deliverOn, true);
+            readWorkspace(delivery);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            delivery.finish(() -> {
+                loading = false;
+                if (changedWhileLoading) {
+                    changedWhileLoading = false;
+                    scheduleSave();
+                }
+                logger.info("Loaded " + delivery.count + " tasks from the workspace in " + elapsed + "ms.");
+            });
+        }, "mdt-task-list-load");
+        loadThread.setDaemon(true);
+        loadThread.start();
+    }
+
+    /**
+     * Imports the tasks of a task list file into {@link ProcessService}, the same way as {@link
+     * #loadWorkspace(Executor)} does. Tasks already held by the service are updated rather than added again.
+     * @param file The task list file to import.
+     * @param deliverOn The {@link Executor} that adds the tasks to the service.
+     */
+    public void importTasks(File file, Executor deliverOn) {
+        Thread importThread = new Thread(() -> {
+            BatchDelivery delivery = new BatchDelivery(deliverOn, false);
+            try {
+                TaskListFile.read(file, delivery);
+            } catch (IOException ioe) {
+                logger.log(Level.WARNING, "Unable to import task list: " + file, ioe);
+                ProcessService.getInstance().appendExecutionOutput(
+                        "Unable to import task list: " + file + ", " + ioe.getMessage() +
+                                System.getProperty("line.separator"));
+            }
+            delivery.finish(null);
+        }, "mdt-task-list-import");
+        importThread.setDaemon(true);
+        importThread.start();
+    }
+
+    /**
+     * Exports the tasks held by {@link ProcessService} to a task list file.
+     * @param file The task list file to write.
+     * @throws IOException If the file couldn't be written.
+     */
+    public void exportTasks(File file) throws IOException {
+        TaskListFile.write(file, ProcessService.getInstance().getTasks());
+    }
+
+    /**
+     * Writes any save that is still waiting for its delay to pass straight away.
+     */
+    public void flush() {
+        List<MavenTask> tasks = pendingSave.getAndSet(null);
+        if (tasks != null)
+            save(tasks);
+    }
+
+    /**
+     * Required function from {@link IProcessServiceListener}
+     * @param processOutput The most recent output string from a command line execution.
+     */
+    @Override
+    public void processOutputAppend(String processOutput) { }
+
+    /**
+     * Required function from {@link IProcessServiceListener}. Saves the task list.
+     * @param task The {@link MavenTask} object to add to the service.
+     */
+    @Override
+    public void taskAdded(MavenTask task) {
+        scheduleSave();
+    }
+
+    /**
+     * Required function from {@link IProcessServiceListener}. Saves the task list.
+     * @param task The {@link MavenTask} object to update in the service.
+     */
+    @Override
+    public void taskUpdated(MavenTask task) {
+        scheduleSave();
+    }
+
+    /**
+     * Required function from {@link IProcessServiceListener}. Saves the task list.
+     * @param task The {@link MavenTask} object to remove from the service.
+     */
+    @Override
+    public void taskRemoved(MavenTask task) {
+        scheduleSave();
+    }
+
+    /**
+     * {@inheritDoc} Saves the task list once for all of the tasks, unless they were just loaded from the workspace.
+     */
+    @Override
+    public void tasksAdded(List<MavenTask> tasks) {
+        if (!applyingLoad)
+            scheduleSave();
+    }
+
+    /**
+     * {@inheritDoc} Saves the task list.
+     */
+    @Override
+    public void tasksReordered() {
+        scheduleSave();
+    }
+
+    /**
+     * Takes the service's current task list and saves it once the save delay has passed, unless a save is already
+     * waiting, in which case that save writes the newer task list instead. While the workspace is loading, the
+     * save is held back until loading has finished, so a partially loaded task list never replaces the one on disk.
+     */
+    private void scheduleSave() {
+        if (loading) {
+            changedWhileLoading = true;
+            return;
+        }
+        if (pendingSave.getAndSet(ProcessService.getInstance().getTasks()) == null)
+            saveExecutor.schedule(this::flush, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes the task list file and then the snapshot of it.
+     * @param tasks The tasks to save.
+     */
+    private synchronized void save(List<MavenTask> tasks) {
+        try {
+            TaskListFile.write(listFile, tasks);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to write task list file: " + listFile, ioe);
+            return;
+        }
+        writeSnapshot(tasks);
+    }
+
+    /**
+     * Reads the workspace's task list, from the snapshot if it is still current, otherwise from the task list file,
+     * after which a new snapshot is written. A task list file that can't be read is moved aside, so that it isn't
+     * overwritten by the next save and can still be fixed by hand.
+     * @param delivery The {@link BatchDelivery} to hand the tasks to.
+     */
+    private void readWorkspace(BatchDelivery delivery) {
+        if (!listFile.isFile())
+            return;
+        if (readSnapshot(delivery))
+            return;
+
+        List<MavenTask> tasks = new ArrayList<>();
+        try {
+            TaskListFile.read(listFile, task -> {
+                tasks.add(task);
+                delivery.accept(task);
+            });
+        } catch (IOException ioe) {
+            File backupFile = new File(listFile.getPath() + ".bak");
+            logger.log(Level.WARNING, "Unable to read task list file: " + listFile + ", moving it to: " +
+                    backupFile, ioe);
+            ProcessService.getInstance().appendExecutionOutput(
+                    "Unable to load the workspace's task list, it has been moved to: " + backupFile + ", " +
+                            ioe.getMessage() + System.getProperty("line.separator"));
+            try {
+                BinaryIO.replaceFile(listFile, backupFile);
+            } catch (IOException moveException) {
+                logger.log(Level.WARNING, "Unable to move task list file: " + listFile, moveException);
+            }
+            return;
+        }
+        synchronized (this) {
+            writeSnapshot(tasks);
+        }
+    }
+
+    /**
+     * Reads the tasks of the snapshot, if it was written alongside the current task list file. A corrupt snapshot
+     * is ignored, any tasks already handed over are simply updated again when the task list file is read instead.
+     * @param delivery The {@link BatchDelivery} to hand the tasks to.
+     * @return True if the tasks were read from the snapshot, False if the task list file must be read instead.
+     */
+    private boolean readSnapshot(BatchDelivery delivery) {
+        if (!snapshotFile.isFile())
+            return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION)
+                return false;
+            if (in.readLong() != listFile.length() || in.readLong() != listFile.lastModified())
+                return false;
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                UUID id = new UUID(in.readLong(), in.readLong());
+                String taskName = BinaryIO.readString(in);
+                String workingDirectory = BinaryIO.readString(in);
+                String copyToDirectory = BinaryIO.readString(in);
+                String renameString = BinaryIO.readString(in);
+                int flags = in.readUnsignedByte();
+                MavenTask task = new MavenTask.Builder()
+                        .id(id)
+                        .taskName(taskName == null ? "" : taskName)
+                        .workingDirectory(workingDirectory == null ? "" : workingDirectory)
+                        .copyToDirectory(copyToDirectory == null ? "" : copyToDirectory)
+                        .renameString(renameString == null ? "" : renameString)
+                        .enabled((flags & FLAG_ENABLED) != 0)
+                        .cleanTarget((flags & FLAG_CLEAN) != 0)
+                        .doInstall((flags & FLAG_INSTALL) != 0)
+                        .copy((flags & FLAG_COPY) != 0)
+                        .rename((flags & FLAG_RENAME) != 0)
+                        .unpackage((flags & FLAG_UNPACKAGE) != 0)
+                        .build();
+                if (task == null)
+                    throw new IOException("Task: " + id + " in the snapshot isn't valid.");
+                delivery.accept(task);
+            }
+            return true;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to read task list snapshot: " + snapshotFile +
+                    ", reading the task list file instead.", ioe);
+            return false;
+        }
+    }
+
+    /**
+     * Writes a snapshot of tasks that were just written to, or read from, the task list file. The snapshot records
+     * the size and modified time of the task list file so it can tell when it is out of date.
+     * @param tasks The tasks held by the task list file.
+     */
+    private void writeSnapshot(List<MavenTask> tasks) {
+        File temporaryFile = new File(snapshotFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(listFile.length());
+            out.writeLong(listFile.lastModified());
+            out.writeInt(tasks.size());
+            for (MavenTask task : tasks) {
+                out.writeLong(task.getId().getMostSignificantBits());
+                out.writeLong(task.getId().getLeastSignificantBits());
+                BinaryIO.writeString(out, task.getTaskName());
+                BinaryIO.writeString(out, task.getWorkingDirectory());
+                BinaryIO.writeString(out, task.getCopyToDirectory());
+                BinaryIO.writeString(out, task.getRenameString());
+                out.writeByte((task.getEnabled() ? FLAG_ENABLED : 0) |
+                        (task.cleanTarget() ? FLAG_CLEAN : 0) |
+                        (task.doInstall() ? FLAG_INSTALL : 0) |
+                        (task.doCopy() ? FLAG_COPY : 0) |
+                        (task.doRename() ? FLAG_RENAME : 0) |
+                        (task.doUnpackage() ? FLAG_UNPACKAGE : 0));
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to write task list snapshot: " + temporaryFile, ioe);
+            return;
+        }
+
+        try {
+            BinaryIO.replaceFile(temporaryFile, snapshotFile);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to replace task list snapshot: " + snapshotFile, ioe);
+        }
+    }
+
+    /**
+     * Collects tasks as they are read into batches, and hands each full batch to {@link ProcessService} on the
+     * delivery executor.
+     */
+    private class BatchDelivery implements Consumer<MavenTask> {
+
+        // Declaration of variables used by the delivery
+        private final Executor deliverOn;
+        private final boolean workspace;
+        private List<MavenTask> batch = new ArrayList<>(LOAD_BATCH_SIZE);
+        private int count;
+
+        /**
+         * Constructs a new delivery.
+         * @param deliverOn The {@link Executor} that adds the batches to the service.
+         * @param workspace True if the tasks are the workspace's own, which don't need to be saved again.
+         */
+        private BatchDelivery(Executor deliverOn, boolean workspace) {
+            this.deliverOn = deliverOn;
+            this.workspace = workspace;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void accept(MavenTask task) {
+            batch.add(task);
+            count++;
+            if (batch.size() >= LOAD_BATCH_SIZE)
+                deliver();
+        }
+
+        /**
+         * Hands over the last, partial batch, and then runs a final action on the delivery executor.
+         * @param finished The action to run once every batch has been added, may be null.
+         */
+        private void finish(Runnable finished) {
+            deliver();
+            if (finished != null)
+                deliverOn.execute(finished);
+        }
+
+        /**
+         * Hands the current batch to the delivery executor and starts a new one.
+         */
+        private void deliver() {
+            if (batch.isEmpty())
+                return;
+            List<MavenTask> tasks = batch;
+            batch = new ArrayList<>(LOAD_BATCH_SIZE);
+            deliverOn.execute(() -> {
+                applyingLoad = workspace;
+                try {
+                    ProcessService.getInstance().addTasks(tasks);
+                } finally {
+                    applyingLoad = false;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.lukas783.mdt.service;
+
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.util.DataDirectory;
+import com.lukas783.mdt.util.LogFileWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A singleton-service that keeps an append-only log file of every execution of every task. The logs of a task
+ * are kept in their own directory inside of the application's data directory, named after the time the
+ * execution started, and only the most recent executions of each task are kept.
+ *
+ * @author Lucas Carpenter
+ */
+public class TaskLogStore {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(TaskLogStore.class.getName());
+
+    // Declaration of constants used by the store
+    private static final int DEFAULT_MAX_LOGS_PER_TASK = Integer.getInteger("mdt.logs.maxPerTask", 10);
+    private static final String LOG_SUFFIX = ".log";
+
+    // Declaration of the internal instance to always use
+    private static TaskLogStore INSTANCE;
+
+    // Declaration of variables used by the store
+    private final File logDirectory;
+    private volatile int maxLogsPerTask;
+
+    /**
+     * The public facing method to get an instance of the class.
+     * @return An instance of {@link TaskLogStore}
+     */
+    public static synchronized TaskLogStore getInstance() {
+        if(INSTANCE == null)
+            INSTANCE = new TaskLogStore();
+        return INSTANCE;
+    }
+
+    /**
+     * The private facing constructor used by the public-facing {@link #getInstance()} method
+     * to create a new store if one does not already exist.
+     */
+    private TaskLogStore() {
+        logDirectory = DataDirectory.getFile("logs");
+        maxLogsPerTask = Math.max(1, DEFAULT_MAX_LOGS_PER_TASK);
+    }
+
+    /**
+     * Opens a new log for an execution of a task, removing the oldest logs of the task if it has too many.
+     * @param task The {@link MavenTask} being executed.
+     * @return A writer for the new log, or null if the log couldn't be created.
+     */
+    public synchronized LogFileWriter open(MavenTask task) {
+        File taskDirectory = getTaskDirectory(task.getId());
+        if (!taskDirectory.isDirectory() && !taskDirectory.mkdirs()) {
+            logger.warning("Unable to create log directory: " + taskDirectory);
+            return null;
+        }
+
+        // Name the log after the time, adding a counter if an execution already started in the same millisecond
+        String name = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+        File logFile = new File(taskDirectory, name + LOG_SUFFIX);
+        for (int i = 1; logFile.exists(); i++)
+            logFile = new File(taskDirectory, name + "-" + i + LOG_SUFFIX);
+
+        List<File> logs = getLogs(task.getId());
+        for (int i = maxLogsPerTask - 1; i < logs.size(); i++)
+            deleteLog(logs.get(i));
+
+        try {
+            return new LogFileWriter(logFile);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to create log: " + logFile, ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Retrieves the logs kept for a task.
+     * @param id The id of the task.
+     * @return The task's log files, newest first.
+     */
+    public synchronized List<File> getLogs(UUID id) {
+        File[] files = getTaskDirectory(id).listFiles((dir, name) -> name.endsWith(LOG_SUFFIX));
+        if (files == null)
+            return new ArrayList<>();
+        List<File> logs = new ArrayList<>(Arrays.asList(files));
+        logs.sort(Comparator.comparing(File::getName).reversed());
+        return logs;
+    }
+
+    /**
+     * Retrieves the log of the most recent execution of a task.
+     * @param id The id of the task.
+     * @return The newest log file of the task, or null if the task has no logs.
+     */
+    public File getLatestLog(UUID id) {
+        List<File> logs = getLogs(id);
+        return logs.isEmpty() ? null : logs.get(0);
+    }
+
+    /**
+     * Sets how many logs are kept for each task. The limit is applied the next time a task is executed.
+     * @param maxLogsPerTask The number of logs to keep per task, values below 1 are treated as 1.
+     */
+    public void setMaxLogsPerTask(int maxLogsPerTask) {
+        this.maxLogsPerTask = Math.max(1, maxLogsPerTask);
+    }
+
+    /**
+     * Deletes every log kept for a task.
+     * @param id The id of the task.
+     */
+    public synchronized void remove(UUID id) {
+        for (File log : getLogs(id))
+            deleteLog(log);
+        File taskDirectory = getTaskDirectory(id);
+        if (taskDirectory.isDirectory() && !taskDirectory.delete())
+            logger.warning("Unable to delete log directory: " + taskDirectory);
+    }
+
+    /**
+     * Retrieves the directory the logs of a task are kept in.
+     * @param id The id of the task.
+     * @return The task's log directory.
+     */
+    private File getTaskDirectory(UUID id) {
+        return new File(logDirectory, id.toString());
+    }
+
+    /**
+     * Deletes a log and its line index.
+     * @param log The log file to delete.
+     */
+    private void deleteLog(File log) {
+        File indexFile = LogFileWriter.getIndexFile(log);
+        if ((log.exists() && !log.delete()) || (indexFile.exists() && !indexFile.delete()))
+            logger.warning("Unable to delete log: " + log);
+    }
+}
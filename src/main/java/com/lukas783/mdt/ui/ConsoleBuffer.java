@@ -0,0 +1,162 @@
+package com.lukas783.mdt.ui;
+
+import com.lukas783.mdt.api.ILineSource;
+
+/**
+ * A fixed-capacity ring buffer of console lines, used as the model behind {@link ConsoleView}. The buffer holds
+ * at most a configured number of lines and a configured number of bytes, where a line is counted as the bytes
+ * its characters take up in memory. Once either cap is exceeded the oldest lines are evicted; the output of
+ * every task is also kept in its own log by {@link com.lukas783.mdt.service.TaskLogStore}, so evicted task output
+ * isn't lost. All methods may be called from any thread.
+ *
+ * @author Lucas Carpenter
+ */
+public class ConsoleBuffer implements ILineSource {
+
+    // Declaration of variables used by the buffer
+    private final String[] lines;
+    private final long maxBytes;
+    private final StringBuilder partialLine = new StringBuilder();
+    private int head;
+    private int size;
+    private long bytes;
+    private long evictedLines;
+    private int longestLine;
+
+    /**
+     * Constructs a new, empty buffer.
+     * @param maxLines The maximum number of complete lines to hold.
+     * @param maxBytes The maximum number of bytes of line data to hold.
+     */
+    public ConsoleBuffer(int maxLines, long maxBytes) {
+        this.lines = new String[Math.max(1, maxLines)];
+        this.maxBytes = Math.max(1, maxBytes);
+    }
+
+    /**
+     * Appends text to the buffer. Text is split into lines on '\n', and a trailing piece without a line
+     * separator is held as a partial line until the rest of it arrives.
+     * @param text The text to append.
+     */
+    public synchronized void append(String text) {
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) != -1) {
+            String line;
+            if (partialLine.length() > 0) {
+                line = partialLine.append(text, start, end).toString();
+                partialLine.setLength(0);
+            } else {
+                line = text.substring(start, end);
+            }
+            if (line.endsWith("\r"))
+                line = line.substring(0, line.length() - 1);
+            addLine(line);
+            start = end + 1;
+        }
+        if (start < text.length())
+            partialLine.append(text, start, text.length());
+    }
+
+    /**
+     * Removes every line from the buffer.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < lines.length; i++)
+            lines[i] = null;
+        evictedLines += size;
+        head = 0;
+        size = 0;
+        bytes = 0;
+        longestLine = 0;
+        partialLine.setLength(0);
+    }
+
+    /**
+     * {@inheritDoc} A trailing partial line is counted as a line.
+     */
+    @Override
+    public synchronized int getLineCount() {
+        return size + (partialLine.length() > 0 ? 1 : 0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String getLine(int index) {
+        if (index >= 0 && index < size)
+            return lines[(head + index) % lines.length];
+        if (index == size && partialLine.length() > 0)
+            return partialLine.toString();
+        return "";
+    }
+
+    /**
+     * {@inheritDoc} The longest line is remembered until the buffer is cleared, even once it is evicted.
+     */
+    @Override
+    public synchronized int getLongestLine() {
+        return Math.max(longestLine, partialLine.length());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long getEvictedLines() {
+        return evictedLines;
+    }
+
+    /**
+     * Retrieves every line currently held as a single string.
+     * @return The held lines, separated by the system line separator.
+     */
+    public synchronized String getText() {
+        StringBuilder text = new StringBuilder((int) Math.min(Integer.MAX_VALUE, bytes / 2 + size));
+        String separator = System.getProperty("line.separator");
+        for (int i = 0; i < getLineCount(); i++) {
+            if (i > 0)
+                text.append(separator);
+            text.append(getLine(i));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Adds a complete line to the end of the ring, evicting the oldest lines while either cap is exceeded.
+     * @param line The line to add.
+     */
+    private void addLine(String line) {
+        if (size == lines.length)
+            evictOldest();
+        lines[(head + size) % lines.length] = line;
+        size++;
+        bytes += byteCount(line);
+        longestLine = Math.max(longestLine, line.length());
+
+        while (bytes > maxBytes && size > 1)
+            evictOldest();
+    }
+
+    /**
+     * Evicts the oldest line.
+     */
+    private void evictOldest() {
+        String line = lines[head];
+        lines[head] = null;
+        head = (head + 1) % lines.length;
+        size--;
+        bytes -= byteCount(line);
+        evictedLines++;
+    }
+
+    /**
+     * Counts the bytes a line takes up in memory.
+     * @param line The line to count.
+     * @return The number of bytes used by the line's characters.
+     */
+    private static long byteCount(String line) {
+        return line.length() * 2L;
+    }
+}
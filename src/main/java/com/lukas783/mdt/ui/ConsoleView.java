@@ -0,0 +1,400 @@
+package com.lukas783.mdt.ui;
+
+import com.lukas783.mdt.api.ILineSource;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A read-only console component backed by an {@link ILineSource}, such as a {@link ConsoleBuffer} or a task log.
+ * Only the lines inside of the visible part of the component are painted, so the cost of repainting doesn't grow
+ * with the amount of output. While the view is scrolled to the bottom it follows new output, otherwise it stays
+ * on the lines being looked at as older lines are evicted from the source.
+ *
+ * Text can be selected by dragging with the mouse, extended with a shift-click, and copied to the clipboard with
+ * the platform's copy shortcut or the view's popup menu. The selection follows its lines as older lines are
+ * evicted, and shrinks once its first lines have been evicted themselves.
+ *
+ * @author Lucas Carpenter
+ */
+public class ConsoleView extends JComponent implements Scrollable {
+
+    // Declaration of constants used by the view
+    private static final int INSET = 2;
+
+    // Declaration of variables used by the view
+    private final ILineSource source;
+    private final int columns;
+    private final int rows;
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    private long evictedLines;
+    private int highlightedLine = -1;
+    private int anchorLine = -1;
+    private int anchorColumn;
+    private int caretLine = -1;
+    private int caretColumn;
+
+    /**
+     * Constructs a new console view.
+     * @param source The source of the lines to display.
+     * @param columns The number of columns the view would prefer to show.
+     * @param rows The number of rows the view would prefer to show.
+     */
+    public ConsoleView(ILineSource source, int columns, int rows) {
+        this.source = source;
+        this.columns = columns;
+        this.rows = rows;
+        setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        setBackground(UIManager.getColor("TextArea.background"));
+        setForeground(UIManager.getColor("TextArea.foreground"));
+        setOpaque(true);
+        setFocusable(true);
+        MouseAdapter selectionListener = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                if (!SwingUtilities.isLeftMouseButton(e))
+                    return;
+                if (e.getClickCount() == 2) {
+                    selectLines(lineAt(e.getY()), lineAt(e.getY()));
+                    return;
+                }
+                int line = lineAt(e.getY());
+                int column = columnAt(line, e.getX());
+                if (!e.isShiftDown() || anchorLine < 0) {
+                    anchorLine = line;
+                    anchorColumn = column;
+                }
+                caretLine = line;
+                caretColumn = column;
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e) || anchorLine < 0)
+                    return;
+                caretLine = lineAt(e.getY());
+                caretColumn = columnAt(caretLine, e.getX());
+                scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+                repaint();
+            }
+        };
+        addMouseListener(selectionListener);
+        addMouseMotionListener(selectionListener);
+
+        // Copy and select all through the platform's shortcuts and a popup menu
+        Action copyAction = new AbstractAction("Copy") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                copy();
+            }
+        };
+        Action selectAllAction = new AbstractAction("Select All") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                selectAll();
+            }
+        };
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_C, shortcut), "copy");
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_INSERT, KeyEvent.CTRL_MASK), "copy");
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_A, shortcut), "select-all");
+        getActionMap().put("copy", copyAction);
+        getActionMap().put("select-all", selectAllAction);
+        JPopupMenu popupMenu = new JPopupMenu();
+        popupMenu.add(copyAction);
+        popupMenu.add(selectAllAction);
+        setComponentPopupMenu(popupMenu);
+
+        evictedLines = source.getEvictedLines();
+    }
+
+    /**
+     * Lets the view know its source has changed. May be called from any thread; the view is updated on the
+     * event dispatch thread, with changes made before the update runs coalesced into it.
+     */
+    public void refresh() {
+        if (updatePending.compareAndSet(false, true))
+            SwingUtilities.invokeLater(this::update);
+    }
+
+    /**
+     * Highlights a line and scrolls the view so that it is in the middle of the visible area.
+     * @param line The index of the line, or -1 to remove the highlight.
+     */
+    public void showLine(int line) {
+        highlightedLine = line;
+        if (line >= 0) {
+            Rectangle visible = getVisibleRect();
+            int lineHeight = getLineHeight();
+            int y = Math.max(0, INSET + line * lineHeight - (visible.height - lineHeight) / 2);
+            scrollRectToVisible(new Rectangle(visible.x, y, 1, visible.height));
+        }
+        repaint();
+    }
+
+    /**
+     * Selects every line the source currently holds.
+     */
+    public void selectAll() {
+        selectLines(0, source.getLineCount() - 1);
+    }
+
+    /**
+     * Retrieves the selected text, with a line separator between each of its lines.
+     * @return The selected text, or an empty string if nothing is selected.
+     */
+    public String getSelectedText() {
+        if (!hasSelection())
+            return "";
+        boolean forward = isAnchorFirst();
+        int startLine = forward ? anchorLine : caretLine;
+        int startColumn = forward ? anchorColumn : caretColumn;
+        int endLine = forward ? caretLine : anchorLine;
+        int endColumn = forward ? caretColumn : anchorColumn;
+
+        StringBuilder text = new StringBuilder();
+        for (int i = startLine; i <= endLine; i++) {
+            String line = source.getLine(i);
+            int from = Math.min(line.length(), i == startLine ? startColumn : 0);
+            int to = Math.min(line.length(), i == endLine ? endColumn : line.length());
+            if (i > startLine)
+                text.append(System.getProperty("line.separator"));
+            if (from < to)
+                text.append(line, from, to);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Copies the selected text to the system clipboard, or the highlighted line if nothing is selected.
+     */
+    public void copy() {
+        String text = getSelectedText();
+        if (text.isEmpty() && highlightedLine >= 0)
+            text = source.getLine(highlightedLine);
+        if (!text.isEmpty())
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(text), null);
+    }
+
+    /**
+     * Selects a range of whole lines.
+     * @param first The index of the first line to select.
+     * @param last The index of the last line to select.
+     */
+    private void selectLines(int first, int last) {
+        if (last < 0 || source.getLineCount() == 0) {
+            anchorLine = caretLine = -1;
+        } else {
+            anchorLine = Math.max(0, first);
+            anchorColumn = 0;
+            caretLine = last;
+            caretColumn = source.getLine(last).length();
+        }
+        repaint();
+    }
+
+    /**
+     * Checks whether any text is selected.
+     * @return True if the selection holds at least one character or line break, False otherwise.
+     */
+    private boolean hasSelection() {
+        return anchorLine >= 0 && caretLine >= 0 && (anchorLine != caretLine || anchorColumn != caretColumn);
+    }
+
+    /**
+     * Checks whether the selection's anchor comes before its caret.
+     * @return True if the anchor is at or before the caret, False otherwise.
+     */
+    private boolean isAnchorFirst() {
+        return anchorLine < caretLine || anchorLine == caretLine && anchorColumn <= caretColumn;
+    }
+
+    /**
+     * Works out which line is at a height in the view.
+     * @param y The height, in pixels.
+     * @return The index of the line, within the lines the source holds.
+     */
+    private int lineAt(int y) {
+        int line = Math.max(0, (y - INSET) / getLineHeight());
+        return Math.max(0, Math.min(line, source.getLineCount() - 1));
+    }
+
+    /**
+     * Works out which column of a line is closest to a horizontal position in the view.
+     * @param line The index of the line.
+     * @param x The horizontal position, in pixels.
+     * @return The column, between 0 and the length of the line.
+     */
+    private int columnAt(int line, int x) {
+        int charWidth = getFontMetrics(getFont()).charWidth('m');
+        int column = Math.max(0, (x - INSET + charWidth / 2) / charWidth);
+        return Math.min(column, source.getLine(line).length());
+    }
+
+    /**
+     * Resizes the view to the source's current contents and scrolls it so that either new output or the lines
+     * being looked at stay visible.
+     */
+    private void update() {
+        updatePending.set(false);
+        long evicted = source.getEvictedLines();
+        int shift = (int) Math.min(Integer.MAX_VALUE, evicted - evictedLines);
+        evictedLines = evicted;
+
+        Rectangle visible = getVisibleRect();
+        boolean following = visible.y + visible.height >= getHeight() - getLineHeight();
+        revalidate();
+        if (getParent() instanceof JViewport) {
+            JViewport viewport = (JViewport) getParent();
+            Dimension size = getPreferredSize();
+            viewport.setViewSize(size);
+            Point position = viewport.getViewPosition();
+            if (following) {
+                position.y = Math.max(0, size.height - viewport.getExtentSize().height);
+            } else {
+                position.y = Math.max(0, position.y - shift * getLineHeight());
+            }
+            viewport.setViewPosition(position);
+        }
+        if (highlightedLine >= 0)
+            highlightedLine -= shift;
+        if (shift > 0 && anchorLine >= 0) {
+            boolean forward = isAnchorFirst();
+            anchorLine -= shift;
+            caretLine -= shift;
+            // Trim the selection to the lines still held, dropping it once all of its lines are gone
+            if (Math.max(anchorLine, caretLine) < 0) {
+                anchorLine = caretLine = -1;
+            } else if (forward && anchorLine < 0) {
+                anchorLine = 0;
+                anchorColumn = 0;
+            } else if (!forward && caretLine < 0) {
+                caretLine = 0;
+                caretColumn = 0;
+            }
+        }
+        repaint();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        g.setFont(getFont());
+        g.setColor(getForeground());
+        FontMetrics metrics = g.getFontMetrics();
+        int lineHeight = metrics.getHeight();
+        int first = Math.max(0, (clip.y - INSET) / lineHeight);
+        int last = Math.min(source.getLineCount() - 1, (clip.y + clip.height - INSET) / lineHeight);
+        if (highlightedLine >= first && highlightedLine <= last) {
+            g.setColor(UIManager.getColor("TextArea.selectionBackground"));
+            g.fillRect(clip.x, INSET + highlightedLine * lineHeight, clip.width, lineHeight);
+            g.setColor(getForeground());
+        }
+        if (hasSelection())
+            paintSelection(g, first, last, lineHeight, metrics.charWidth('m'));
+        for (int i = first; i <= last; i++)
+            g.drawString(source.getLine(i), INSET, INSET + i * lineHeight + metrics.getAscent());
+    }
+
+    /**
+     * Paints the background of the selected text on the lines being painted.
+     * @param g The {@link Graphics} to paint with.
+     * @param first The index of the first line being painted.
+     * @param last The index of the last line being painted.
+     * @param lineHeight The height of a line, in pixels.
+     * @param charWidth The width of a character, in pixels.
+     */
+    private void paintSelection(Graphics g, int first, int last, int lineHeight, int charWidth) {
+        boolean forward = isAnchorFirst();
+        int startLine = forward ? anchorLine : caretLine;
+        int startColumn = forward ? anchorColumn : caretColumn;
+        int endLine = forward ? caretLine : anchorLine;
+        int endColumn = forward ? caretColumn : anchorColumn;
+
+        g.setColor(UIManager.getColor("TextArea.selectionBackground"));
+        for (int i = Math.max(first, startLine); i <= Math.min(last, endLine); i++) {
+            int from = i == startLine ? startColumn : 0;
+            // Lines that continue onto the next line show their line break as one more selected character
+            int to = i == endLine ? endColumn : source.getLine(i).length() + 1;
+            if (to > from)
+                g.fillRect(INSET + from * charWidth, INSET + i * lineHeight, (to - from) * charWidth, lineHeight);
+        }
+        g.setColor(getForeground());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = source.getLongestLine() * metrics.charWidth('m') + INSET * 2;
+        int height = source.getLineCount() * metrics.getHeight() + INSET * 2;
+        return new Dimension(width, height);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        return new Dimension(columns * metrics.charWidth('m') + INSET * 2, rows * metrics.getHeight() + INSET * 2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? getLineHeight() : getFontMetrics(getFont()).charWidth('m');
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+
+    /**
+     * Retrieves the height of a single line in the view's font.
+     * @return The line height, in pixels.
+     */
+    private int getLineHeight() {
+        return getFontMetrics(getFont()).getHeight();
+    }
+}
@@ -1,5 +1,7 @@
 package com.lukas783.mdt.ui;
 
+import com.lukas783.mdt.service.TaskListStore;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyEvent;
@@ -38,5 +40,8 @@ public class MainPanel extends JPanel {
 
         // Set any listeners or policies needed by the components
         tabbedPane.setTabLayoutPolicy(JTabbedPane.SCROLL_TAB_LAYOUT);
+
+        // Load the workspace's tasks, now that the panels are listening for them
+        TaskListStore.getInstance().loadWorkspace(SwingUtilities::invokeLater);
     }
 }
@@ -3,19 +3,25 @@ package com.lukas783.mdt.ui;
 import com.lukas783.mdt.api.IProcessServiceListener;
 import com.lukas783.mdt.api.MavenTask;
 import com.lukas783.mdt.service.ProcessService;
+import com.lukas783.mdt.ui.actions.CancelProcessingButtonAction;
 import com.lukas783.mdt.ui.actions.ProcessButtonAction;
 
 import javax.swing.*;
-import javax.swing.text.DefaultCaret;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
 
 /**
- * A panel to display processing information. Listens to the process service to update a JTextArea
- * field with the appropriate output from the service.
+ * A panel to display processing information. Listens to the process service to update a console
+ * view with the appropriate output from the service.
  *
  * @author Lucas Carpenter
  */
 public class ProcessPanel extends JPanel implements IProcessServiceListener {
 
+    // Declaration of limits on the output kept in memory by the console
+    private static final int MAX_CONSOLE_LINES = Integer.getInteger("mdt.console.maxLines", 10000);
+    private static final long MAX_CONSOLE_BYTES = Long.getLong("mdt.console.maxBytes", 16L * 1024 * 1024);
+
     // Declaration of layout and layout constants
     private SpringLayout layout;
     private static final String NORTH = SpringLayout.NORTH;
@@ -24,9 +30,16 @@ public class ProcessPanel extends JPanel implements IProcessServiceListener {
     private static final String SOUTH = SpringLayout.SOUTH;
 
     // Declaration of components used by the panel.
-    private JTextArea outputArea;
+    private ConsoleBuffer outputBuffer;
+    private ConsoleView outputArea;
     private JScrollPane scrollPane;
     private JButton processButton;
+    private JButton cancelButton;
+    private JLabel concurrencyLabel;
+    private JSpinner concurrencySpinner;
+    private JCheckBox skipUpToDateCheckbox;
+    private JCheckBox failFastCheckbox;
+    private JCheckBox workerModeCheckbox;
 
 
     /**
@@ -38,23 +51,82 @@ public class ProcessPanel extends JPanel implements IProcessServiceListener {
         layout = new SpringLayout();
         setLayout(layout);
 
-        // Instantiate text area and its scroll pane
-        outputArea = new JTextArea(20, 120);
-        ((DefaultCaret)outputArea.getCaret()).setUpdatePolicy(DefaultCaret.ALWAYS_UPDATE);
+        // Instantiate console and its scroll pane, older task output stays available in the task logs
+        outputBuffer = new ConsoleBuffer(MAX_CONSOLE_LINES, MAX_CONSOLE_BYTES);
+        outputArea = new ConsoleView(outputBuffer, 120, 20);
+        JPopupMenu outputMenu = outputArea.getComponentPopupMenu();
+        outputMenu.addSeparator();
+        outputMenu.add(new JMenuItem("Copy All")).addActionListener(e -> Toolkit.getDefaultToolkit()
+                .getSystemClipboard().setContents(new StringSelection(outputBuffer.getText()), null));
+        outputMenu.add(new JMenuItem("Clear")).addActionListener(e -> {
+            outputBuffer.clear();
+            outputArea.refresh();
+        });
         scrollPane = new JScrollPane(outputArea);
 
         // Instantiate buttons and set listeners for the buttons
         processButton = new JButton("Process Tasks");
         processButton.addActionListener(new ProcessButtonAction());
+        cancelButton = new JButton("Cancel Processing");
+        cancelButton.addActionListener(new CancelProcessingButtonAction());
+
+        // Instantiate the spinner used to set how many tasks may run at the same time
+        concurrencyLabel = new JLabel("Parallel Tasks");
+        concurrencySpinner = new JSpinner(new SpinnerNumberModel(
+                ProcessService.getInstance().getMaxConcurrentTasks(), 1, 64, 1));
+        concurrencySpinner.addChangeListener(e -> ProcessService.getInstance().setMaxConcurrentTasks(
+                (Integer) concurrencySpinner.getValue()));
+
+        // Instantiate the checkbox used to skip tasks whose inputs haven't changed
+        skipUpToDateCheckbox = new JCheckBox("Skip Up-To-Date Tasks",
+                ProcessService.getInstance().getSkipUpToDateTasks());
+        skipUpToDateCheckbox.addActionListener(e -> ProcessService.getInstance().setSkipUpToDateTasks(
+                skipUpToDateCheckbox.isSelected()));
+
+        // Instantiate the checkbox used to stop starting tasks once any task fails
+        failFastCheckbox = new JCheckBox("Stop On First Failure", ProcessService.getInstance().getFailFast());
+        failFastCheckbox.addActionListener(e -> ProcessService.getInstance().setFailFast(
+                failFastCheckbox.isSelected()));
+
+        // Instantiate the checkbox used to run builds on resident maven JVMs instead of forking maven
+        workerModeCheckbox = new JCheckBox("Use Resident Maven Workers",
+                ProcessService.getInstance().getExecutionMode() == ProcessService.ExecutionMode.WORKER);
+        workerModeCheckbox.addActionListener(e -> ProcessService.getInstance().setExecutionMode(
+                workerModeCheckbox.isSelected() ? ProcessService.ExecutionMode.WORKER :
+                        ProcessService.ExecutionMode.FORK));
 
         // Add components to the panel
         add(scrollPane);
         add(processButton);
+        add(cancelButton);
+        add(concurrencyLabel);
+        add(concurrencySpinner);
+        add(skipUpToDateCheckbox);
+        add(failFastCheckbox);
+        add(workerModeCheckbox);
 
         // Declare layout constraints for the panel
         layout.putConstraint(NORTH, processButton, 5, NORTH, this);
         layout.putConstraint(WEST, processButton, 5, WEST, this);
 
+        layout.putConstraint(NORTH, cancelButton, 0, NORTH, processButton);
+        layout.putConstraint(WEST, cancelButton, 5, EAST, processButton);
+
+        layout.putConstraint(NORTH, concurrencyLabel, 5, NORTH, processButton);
+        layout.putConstraint(WEST, concurrencyLabel, 15, EAST, cancelButton);
+
+        layout.putConstraint(NORTH, concurrencySpinner, 0, NORTH, processButton);
+        layout.putConstraint(WEST, concurrencySpinner, 5, EAST, concurrencyLabel);
+
+        layout.putConstraint(NORTH, skipUpToDateCheckbox, 0, NORTH, processButton);
+        layout.putConstraint(WEST, skipUpToDateCheckbox, 15, EAST, concurrencySpinner);
+
+        layout.putConstraint(NORTH, failFastCheckbox, 0, NORTH, processButton);
+        layout.putConstraint(WEST, failFastCheckbox, 5, EAST, skipUpToDateCheckbox);
+
+        layout.putConstraint(NORTH, workerModeCheckbox, 0, NORTH, processButton);
+        layout.putConstraint(WEST, workerModeCheckbox, 5, EAST, failFastCheckbox);
+
         layout.putConstraint(NORTH, scrollPane, 10 ,SOUTH, processButton);
         layout.putConstraint(WEST, scrollPane, 0, WEST, processButton);
 
@@ -67,12 +139,14 @@ public class ProcessPanel extends JPanel implements IProcessServiceListener {
 
     /**
      * A method required by {@link IProcessServiceListener}. The purpose is to listen for processing
-     * output and update {@link #outputArea} appropriately.
+     * output and update {@link #outputArea} appropriately. The output arrives in batches from the service's
+     * output thread, and the console coalesces them into updates on the event dispatch thread.
      * @param processOutput The most recent output string from the process service
      */
     @Override
     public void processOutputAppend(String processOutput) {
-        outputArea.append(processOutput);
+        outputBuffer.append(processOutput);
+        outputArea.refresh();
     }
 
     @Override
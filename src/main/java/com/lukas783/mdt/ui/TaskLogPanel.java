@@ -0,0 +1,223 @@
+package com.lukas783.mdt.ui;
+
+import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.service.TaskLogStore;
+import com.lukas783.mdt.util.LogFileReader;
+
+import javax.swing.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A panel to display and search the logs kept for a task by {@link TaskLogStore}. Logs are read through a
+ * {@link LogFileReader}, so even very large logs open without being loaded into memory.
+ *
+ * @author Lucas Carpenter
+ */
+public class TaskLogPanel extends JPanel {
+
+    // Declaration of logger for debug/error messages
+    private static final Logger logger = Logger.getLogger(TaskLogPanel.class.getName());
+
+    // Declaration of constants used by the panel
+    private static final String ERROR_MARKER = "[ERROR]";
+
+    // Declaration of layout and layout constants
+    private SpringLayout layout;
+    private static final String NORTH = SpringLayout.NORTH;
+    private static final String EAST = SpringLayout.EAST;
+    private static final String WEST = SpringLayout.WEST;
+    private static final String SOUTH = SpringLayout.SOUTH;
+
+    // Declaration of components used by the panel
+    private JComboBox<File> logSelection;
+    private JTextField searchText;
+    private JCheckBox regexCheckbox;
+    private JButton findPreviousButton;
+    private JButton findNextButton;
+    private JButton previousErrorButton;
+    private JButton nextErrorButton;
+    private JLabel statusLabel;
+    private JScrollPane scrollPane;
+
+    // Declaration of variables used by the panel
+    private LogFileReader reader;
+    private ConsoleView logView;
+    private int currentLine = -1;
+    private SwingWorker<Integer, Void> search;
+
+    /**
+     * Instantiate, build, display, and attach listeners to components of the panel.
+     * @param task The {@link MavenTask} to display the logs of.
+     */
+    public TaskLogPanel(MavenTask task) {
+        super();
+        // Instantiate and set layout for the panel
+        layout = new SpringLayout();
+        setLayout(layout);
+
+        // Instantiate the log selection, newest log first
+        List<File> logs = TaskLogStore.getInstance().getLogs(task.getId());
+        logSelection = new JComboBox<>(logs.toArray(new File[0]));
+        logSelection.setRenderer(new DefaultListCellRenderer() {
+            @Override
+            public java.awt.Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                                   boolean isSelected, boolean cellHasFocus) {
+                Object name = value instanceof File ? ((File) value).getName() : value;
+                return super.getListCellRendererComponent(list, name, index, isSelected, cellHasFocus);
+            }
+        });
+        logSelection.addActionListener(e -> openLog((File) logSelection.getSelectedItem()));
+
+        // Instantiate the search components
+        searchText = new JTextField(30);
+        searchText.addActionListener(e -> find(searchText.getText(), regexCheckbox.isSelected(), true));
+        regexCheckbox = new JCheckBox("Regex");
+        findPreviousButton = new JButton("Find Previous");
+        findPreviousButton.addActionListener(e -> find(searchText.getText(), regexCheckbox.isSelected(), false));
+        findNextButton = new JButton("Find Next");
+        findNextButton.addActionListener(e -> find(searchText.getText(), regexCheckbox.isSelected(), true));
+        previousErrorButton = new JButton("Previous Error");
+        previousErrorButton.addActionListener(e -> find(ERROR_MARKER, false, false));
+        nextErrorButton = new JButton("Next Error");
+        nextErrorButton.addActionListener(e -> find(ERROR_MARKER, false, true));
+        statusLabel = new JLabel(" ");
+
+        scrollPane = new JScrollPane();
+
+        // Add components to the panel
+        add(logSelection);
+        add(searchText);
+        add(regexCheckbox);
+        add(findPreviousButton);
+        add(findNextButton);
+        add(previousErrorButton);
+        add(nextErrorButton);
+        add(scrollPane);
+        add(statusLabel);
+
+        // Declare layout constraints for the panel
+        layout.putConstraint(NORTH, logSelection, 5, NORTH, this);
+        layout.putConstraint(WEST, logSelection, 5, WEST, this);
+
+        layout.putConstraint(NORTH, searchText, 5, SOUTH, logSelection);
+        layout.putConstraint(WEST, searchText, 0, WEST, logSelection);
+
+        layout.putConstraint(NORTH, regexCheckbox, 0, NORTH, searchText);
+        layout.putConstraint(WEST, regexCheckbox, 5, EAST, searchText);
+
+        layout.putConstraint(NORTH, findPreviousButton, 0, NORTH, searchText);
+        layout.putConstraint(WEST, findPreviousButton, 5, EAST, regexCheckbox);
+
+        layout.putConstraint(NORTH, findNextButton, 0, NORTH, searchText);
+        layout.putConstraint(WEST, findNextButton, 5, EAST, findPreviousButton);
+
+        layout.putConstraint(NORTH, previousErrorButton, 0, NORTH, searchText);
+        layout.putConstraint(WEST, previousErrorButton, 15, EAST, findNextButton);
+
+        layout.putConstraint(NORTH, nextErrorButton, 0, NORTH, searchText);
+        layout.putConstraint(WEST, nextErrorButton, 5, EAST, previousErrorButton);
+
+        layout.putConstraint(NORTH, scrollPane, 10, SOUTH, searchText);
+        layout.putConstraint(WEST, scrollPane, 0, WEST, logSelection);
+
+        layout.putConstraint(NORTH, statusLabel, 5, SOUTH, scrollPane);
+        layout.putConstraint(WEST, statusLabel, 0, WEST, logSelection);
+
+        layout.putConstraint(SOUTH, this, 5, SOUTH, statusLabel);
+        layout.putConstraint(EAST, this, 5, EAST, scrollPane);
+
+        if (logs.isEmpty()) {
+            statusLabel.setText("Task with name: " + task.getTaskName() + " has no logs yet.");
+            scrollPane.setPreferredSize(new ConsoleView(new ConsoleBuffer(1, 1), 120, 30)
+                    .getPreferredScrollableViewportSize());
+        } else {
+            openLog(logs.get(0));
+        }
+    }
+
+    /**
+     * Closes the log being displayed. Should be called once the panel is no longer shown.
+     */
+    public void close() {
+        if (search != null)
+            search.cancel(true);
+        if (reader != null)
+            reader.close();
+        reader = null;
+    }
+
+    /**
+     * Opens a log and displays it in place of the log currently displayed.
+     * @param logFile The log file to open.
+     */
+    private void openLog(File logFile) {
+        close();
+        currentLine = -1;
+        try {
+            reader = new LogFileReader(logFile);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to open log: " + logFile, ioe);
+            statusLabel.setText("Unable to open log: " + logFile.getName());
+            return;
+        }
+        logView = new ConsoleView(reader, 120, 30);
+        scrollPane.setViewportView(logView);
+        scrollPane.setPreferredSize(null);
+        statusLabel.setText(reader.getLineCount() + " lines");
+    }
+
+    /**
+     * Searches the displayed log in the background, starting from the current line, and shows the line found.
+     * @param query The text, or regular expression, to search for.
+     * @param regex True if the query is a regular expression, False if it is plain text.
+     * @param forward True to search towards the end of the log, False to search towards the start.
+     */
+    private void find(String query, boolean regex, boolean forward) {
+        if (reader == null || query.isEmpty())
+            return;
+        if (search != null)
+            search.cancel(true);
+
+        LogFileReader searchedReader = reader;
+        int fromLine = currentLine >= 0 ? currentLine : (forward ? -1 : 0);
+        statusLabel.setText("Searching...");
+        search = new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return searchedReader.find(query, regex, fromLine, forward);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || searchedReader != reader)
+                    return;
+                try {
+                    int line = get();
+                    if (line < 0) {
+                        statusLabel.setText("No lines contain: " + query);
+                    } else {
+                        currentLine = line;
+                        logView.showLine(line);
+                        statusLabel.setText("Line " + (line + 1) + " of " + reader.getLineCount());
+                    }
+                } catch (ExecutionException ee) {
+                    if (ee.getCause() instanceof PatternSyntaxException) {
+                        statusLabel.setText("Invalid regular expression: " + ee.getCause().getMessage());
+                    } else {
+                        logger.log(Level.WARNING, "Unable to search log.", ee);
+                        statusLabel.setText("Unable to search log.");
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        search.execute();
+    }
+}
@@ -1,13 +1,19 @@
 package com.lukas783.mdt.ui;
 
+import com.lukas783.mdt.api.BuildEvent;
 import com.lukas783.mdt.api.IProcessServiceListener;
 import com.lukas783.mdt.api.MavenTask;
 import com.lukas783.mdt.service.ProcessService;
 import com.lukas783.mdt.ui.actions.AddNewTaskButtonAction;
+import com.lukas783.mdt.ui.actions.DiscoverProjectsButtonAction;
+import com.lukas783.mdt.ui.actions.ExportTasksButtonAction;
+import com.lukas783.mdt.ui.actions.ImportTasksButtonAction;
 import com.lukas783.mdt.ui.actions.RemoveTaskButtonAction;
+import com.lukas783.mdt.ui.actions.ViewTaskLogButtonAction;
 import com.lukas783.mdt.ui.table.*;
 
 import javax.swing.*;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -30,6 +36,10 @@ public class TaskPanel extends JPanel implements IProcessServiceListener {
     // Declaration of components used by the panel
     private JButton addNewTaskButton;
     private JButton removeTaskButton;
+    private JButton viewTaskLogButton;
+    private JButton importTasksButton;
+    private JButton exportTasksButton;
+    private JButton discoverProjectsButton;
     private JScrollPane taskTableScrollPane;
     private JTable taskTable;
     private TaskTableModel taskTableModel;
@@ -60,9 +70,25 @@ public class TaskPanel extends JPanel implements IProcessServiceListener {
         removeTaskButton = new JButton("Remove Selected Task");
         removeTaskButton.addActionListener(new RemoveTaskButtonAction(taskTable));
 
+        viewTaskLogButton = new JButton("View Task Log");
+        viewTaskLogButton.addActionListener(new ViewTaskLogButtonAction(taskTable));
+
+        importTasksButton = new JButton("Import Tasks");
+        importTasksButton.addActionListener(new ImportTasksButtonAction());
+
+        exportTasksButton = new JButton("Export Tasks");
+        exportTasksButton.addActionListener(new ExportTasksButtonAction());
+
+        discoverProjectsButton = new JButton("Discover Projects");
+        discoverProjectsButton.addActionListener(new DiscoverProjectsButtonAction());
+
         // Add components to the panel
         add(addNewTaskButton);
         add(removeTaskButton);
+        add(viewTaskLogButton);
+        add(importTasksButton);
+        add(exportTasksButton);
+        add(discoverProjectsButton);
         add(taskTableScrollPane);
 
         // Declare layout constraints for addNewTaskButton.
@@ -73,6 +99,22 @@ public class TaskPanel extends JPanel implements IProcessServiceListener {
         layout.putConstraint(NORTH, removeTaskButton, 0, NORTH, addNewTaskButton);
         layout.putConstraint(WEST, removeTaskButton, 15, EAST, addNewTaskButton);
 
+        // Declare layout constraints for viewTaskLogButton.
+        layout.putConstraint(NORTH, viewTaskLogButton, 0, NORTH, addNewTaskButton);
+        layout.putConstraint(WEST, viewTaskLogButton, 15, EAST, removeTaskButton);
+
+        // Declare layout constraints for importTasksButton.
+        layout.putConstraint(NORTH, importTasksButton, 0, NORTH, addNewTaskButton);
+        layout.putConstraint(WEST, importTasksButton, 15, EAST, viewTaskLogButton);
+
+        // Declare layout constraints for exportTasksButton.
+        layout.putConstraint(NORTH, exportTasksButton, 0, NORTH, addNewTaskButton);
+        layout.putConstraint(WEST, exportTasksButton, 15, EAST, importTasksButton);
+
+        // Declare layout constraints for discoverProjectsButton.
+        layout.putConstraint(NORTH, discoverProjectsButton, 0, NORTH, addNewTaskButton);
+        layout.putConstraint(WEST, discoverProjectsButton, 15, EAST, exportTasksButton);
+
         // Declare layout constraints for taskTableScrollPane
         layout.putConstraint(NORTH, taskTableScrollPane, 30, SOUTH, addNewTaskButton);
         layout.putConstraint(WEST, taskTableScrollPane, 0, WEST, addNewTaskButton);
@@ -97,7 +139,7 @@ public class TaskPanel extends JPanel implements IProcessServiceListener {
      */
     @Override
     public void taskAdded(MavenTask task) {
-        taskTableModel.updateTasks();
+        taskTableModel.requestRefresh();
     }
 
     /**
@@ -107,7 +149,7 @@ public class TaskPanel extends JPanel implements IProcessServiceListener {
      */
     @Override
     public void taskUpdated(MavenTask task) {
-        taskTableModel.updateTasks();
+        taskTableModel.requestRefresh();
     }
 
     /**
@@ -117,6 +159,34 @@ public class TaskPanel extends JPanel implements IProcessServiceListener {
      */
     @Override
     public void taskRemoved(MavenTask task) {
-        taskTableModel.updateTasks();
+        taskTableModel.requestRefresh();
+    }
+
+    /**
+     * Fires when many tasks are added to {@link ProcessService} at once, such as when a task list is loaded.
+     * Refreshes the table once for all of the tasks.
+     * {@inheritDoc}
+     */
+    @Override
+    public void tasksAdded(List<MavenTask> tasks) {
+        taskTableModel.requestRefresh();
+    }
+
+    /**
+     * Fires when tasks are reordered in {@link ProcessService}.
+     * {@inheritDoc}
+     */
+    @Override
+    public void tasksReordered() {
+        taskTableModel.requestRefresh();
+    }
+
+    /**
+     * Fires when a task reaches a new step during a run. Updates the status columns of the task's row.
+     * {@inheritDoc}
+     */
+    @Override
+    public void buildEventOccurred(BuildEvent event) {
+        taskTableModel.buildEventOccurred(event);
     }
 }
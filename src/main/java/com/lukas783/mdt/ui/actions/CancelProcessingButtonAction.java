@@ -0,0 +1,26 @@
+package com.lukas783.mdt.ui.actions;
+
+import com.lukas783.mdt.service.ProcessService;
+import com.lukas783.mdt.service.RunHandle;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * Handles the 'Cancel Processing' button action.
+ *
+ * @author Lucas Carpenter
+ */
+public class CancelProcessingButtonAction implements ActionListener {
+    /**
+     * Performs the event for the action. Cancels the run in progress, if there is one, killing the
+     * processes of any task that is running.
+     * @param e The event given by the action performed.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        RunHandle run = ProcessService.getInstance().getCurrentRun();
+        if (run != null)
+            run.cancel();
+    }
+}
@@ -0,0 +1,33 @@
+package com.lukas783.mdt.ui.actions;
+
+import com.lukas783.mdt.service.DiscoveryService;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+
+/**
+ * Handles the 'Discover Projects' button action.
+ *
+ * @author Lucas Carpenter
+ */
+public class DiscoverProjectsButtonAction implements ActionListener {
+
+    /**
+     * Performs the action for a given event. Displays a file selection window restricted to directories, and
+     * discovers every maven project below the selected directory through {@link DiscoveryService}, adding a task
+     * for each of them on the event dispatch thread as they are found.
+     * @param e The event fired for a given action.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        JFileChooser chooserWindow = new JFileChooser(new File("."));
+        chooserWindow.setDialogTitle("Discover Projects");
+        chooserWindow.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooserWindow.setAcceptAllFileFilterUsed(false);
+        if(chooserWindow.showOpenDialog((Component)e.getSource()) == JFileChooser.APPROVE_OPTION)
+            DiscoveryService.getInstance().discover(chooserWindow.getSelectedFile(), SwingUtilities::invokeLater);
+    }
+}
@@ -0,0 +1,52 @@
+package com.lukas783.mdt.ui.actions;
+
+import com.lukas783.mdt.service.ProcessService;
+import com.lukas783.mdt.service.TaskListStore;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handles the 'Export Tasks' button action.
+ *
+ * @author Lucas Carpenter
+ */
+public class ExportTasksButtonAction implements ActionListener {
+
+    // Declaration of logger for debug/error messages
+    private static final Logger logger = Logger.getLogger(ExportTasksButtonAction.class.getName());
+
+    /**
+     * Performs the action for a given event. Displays a file selection window restricted to task list files, and
+     * writes every task to the selected file through {@link TaskListStore}. An '.xml' extension is added to the
+     * file name if it doesn't have one.
+     * @param e The event fired for a given action.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        JFileChooser chooserWindow = new JFileChooser(new File("."));
+        chooserWindow.setDialogTitle("Export Tasks");
+        chooserWindow.setFileFilter(new FileNameExtensionFilter("Task lists (*.xml)", "xml"));
+        if(chooserWindow.showSaveDialog((Component)e.getSource()) != JFileChooser.APPROVE_OPTION)
+            return;
+
+        File file = chooserWindow.getSelectedFile();
+        if (!file.getName().toLowerCase().endsWith(".xml"))
+            file = new File(file.getParentFile(), file.getName() + ".xml");
+        try {
+            TaskListStore.getInstance().exportTasks(file);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to export tasks to: " + file, ioe);
+            ProcessService.getInstance().appendExecutionOutput(
+                    "Unable to export tasks to: " + file + ", " + ioe.getMessage() +
+                            System.getProperty("line.separator"));
+        }
+    }
+}
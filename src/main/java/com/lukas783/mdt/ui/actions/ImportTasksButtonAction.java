@@ -0,0 +1,33 @@
+package com.lukas783.mdt.ui.actions;
+
+import com.lukas783.mdt.service.TaskListStore;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+
+/**
+ * Handles the 'Import Tasks' button action.
+ *
+ * @author Lucas Carpenter
+ */
+public class ImportTasksButtonAction implements ActionListener {
+
+    /**
+     * Performs the action for a given event. Displays a file selection window restricted to task list files, and
+     * imports the tasks of the selected file through {@link TaskListStore}, adding them to the table on the event
+     * dispatch thread as they are read.
+     * @param e The event fired for a given action.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        JFileChooser chooserWindow = new JFileChooser(new File("."));
+        chooserWindow.setDialogTitle("Import Tasks");
+        chooserWindow.setFileFilter(new FileNameExtensionFilter("Task lists (*.xml)", "xml"));
+        if(chooserWindow.showOpenDialog((Component)e.getSource()) == JFileChooser.APPROVE_OPTION)
+            TaskListStore.getInstance().importTasks(chooserWindow.getSelectedFile(), SwingUtilities::invokeLater);
+    }
+}
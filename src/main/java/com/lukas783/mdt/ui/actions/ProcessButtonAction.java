@@ -6,21 +6,19 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 
 /**
- * Handles the action for processing tasks. Creates a new thread and runs the
- * {@link ProcessService#executeProcessTasks()} function as an event.
+ * Handles the action for processing tasks. Starts a run of the
+ * {@link ProcessService#startProcessTasks()} function as an event.
  *
  * @author Lucas Carpenter
  */
 public class ProcessButtonAction implements ActionListener {
     /**
-     * Performs the action related to the event by spawning a new thread to
-     * execute the {@link ProcessService#executeProcessTasks()} method.
+     * Performs the action related to the event by starting a run with the
+     * {@link ProcessService#startProcessTasks()} method, which runs on its own thread.
      * @param e The ActionEvent passed to the action.
      */
     @Override
     public void actionPerformed(ActionEvent e) {
-        new Thread(() -> {
-            ProcessService.getInstance().executeProcessTasks();
-        }).start();
+        ProcessService.getInstance().startProcessTasks();
     }
 }
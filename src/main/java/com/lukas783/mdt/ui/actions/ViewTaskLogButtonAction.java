@@ -0,0 +1,60 @@
+package com.lukas783.mdt.ui.actions;
+
+import com.lukas783.mdt.ui.TaskLogPanel;
+import com.lukas783.mdt.ui.table.TaskTableModel;
+
+import javax.swing.*;
+import javax.swing.table.TableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+/**
+ * Handles the 'View Task Log' button action.
+ *
+ * @author Lucas Carpenter
+ */
+public class ViewTaskLogButtonAction implements ActionListener {
+
+    // Declaration of variables used by the class.
+    private JTable table;
+
+    /**
+     * Constructs a new action. Sets the table to get the selected table row from.
+     * @param tableToViewFrom The table to retrieve the selected row from.
+     */
+    public ViewTaskLogButtonAction(JTable tableToViewFrom) {
+        this.table = tableToViewFrom;
+    }
+
+    /**
+     * Performs the action for a given event. Opens a new window displaying the {@link TaskLogPanel} of a
+     * {@link com.lukas783.mdt.api.MavenTask} if, and only if, the {@link JTable} provided to the action
+     * handler contains 1 selected row.
+     * @param e The event fired for a given action.
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if(table.getSelectedRowCount() == 1) {
+            TableModel model = table.getModel();
+            if (model instanceof TaskTableModel) {
+                TaskTableModel taskTableModel = (TaskTableModel) model;
+                TaskLogPanel logPanel = new TaskLogPanel(taskTableModel.getTaskAt(table.getSelectedRow()));
+                JFrame logFrame = new JFrame("Task Log");
+                logFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+                logFrame.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(WindowEvent we) {
+                        logPanel.close();
+                    }
+                });
+                logFrame.add(logPanel, BorderLayout.CENTER);
+                logFrame.pack();
+                logFrame.setLocationRelativeTo(null);
+                logFrame.setVisible(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.lukas783.mdt.ui.table;
+
+import com.lukas783.mdt.api.BuildEvent;
+
+/**
+ * The state of a single task in the current or most recent run, as shown by the status columns of the
+ * {@link TaskTableModel}. A status is immutable, every {@link BuildEvent} of the task produces a new one, so a
+ * status can be read by the event dispatch thread while the thread running the task moves it on.
+ *
+ * @author Lucas Carpenter
+ */
+final class TaskStatus {
+
+    // Declaration of variables describing the status
+    private final BuildEvent.Type type;
+    private final long startedAt;
+    private final long completedAt;
+    private final String moduleName;
+    private final int moduleIndex;
+    private final int moduleCount;
+    private final long peakResidentBytes;
+    private final long predictedMillis;
+
+    /**
+     * Constructs a {@link TaskStatus} object.
+     * @param type The type of the latest event of the task.
+     * @param startedAt When the task started running, or 0 if it hasn't.
+     * @param completedAt When the task finished, failed or was skipped, or 0 if it hasn't.
+     * @param moduleName The name of the module being built, or null if unknown.
+     * @param moduleIndex The position of the module being built, or 0 if unknown.
+     * @param moduleCount The number of modules in the build, or 0 if unknown.
+     * @param peakResidentBytes The peak memory of the build, in bytes, or -1 if unknown.
+     * @param predictedMillis How long the task is predicted to take, or -1 if unknown.
+     */
+    private TaskStatus(BuildEvent.Type type, long startedAt, long completedAt, String moduleName, int moduleIndex,
+                       int moduleCount, long peakResidentBytes, long predictedMillis) {
+        this.type = type;
+        this.startedAt = startedAt;
+        this.completedAt = completedAt;
+        this.moduleName = moduleName;
+        this.moduleIndex = moduleIndex;
+        this.moduleCount = moduleCount;
+        this.peakResidentBytes = peakResidentBytes;
+        this.predictedMillis = predictedMillis;
+    }
+
+    /**
+     * Works out the status of a task after an event.
+     * @param previous The status of the task before the event, or null if it has none yet.
+     * @param event The {@link BuildEvent} of the task.
+     * @param predictedMillis How long the task is predicted to take, or -1 to keep the previous prediction.
+     * @return The new {@link TaskStatus}.
+     */
+    static TaskStatus apply(TaskStatus previous, BuildEvent event, long predictedMillis) {
+        long predicted = predictedMillis >= 0 || previous == null ? predictedMillis : previous.predictedMillis;
+        switch (event.getType()) {
+            case QUEUED:
+                return new TaskStatus(event.getType(), 0, 0, null, 0, 0, -1, predicted);
+            case STARTED:
+                return new TaskStatus(event.getType(), event.getTimestamp(), 0, null, 0, 0, -1, predicted);
+            case MODULE_STARTED:
+                return new TaskStatus(event.getType(), startedAt(previous, event), 0, event.getModuleName(),
+                        event.getModuleIndex(), event.getModuleCount(), -1, predicted);
+            case TESTS_RUNNING:
+                return previous == null ?
+                        new TaskStatus(event.getType(), event.getTimestamp(), 0, null, 0, 0, -1, predicted) :
+                        new TaskStatus(event.getType(), previous.startedAt, 0, previous.moduleName,
+                                previous.moduleIndex, previous.moduleCount, -1, predicted);
+            default:
+                long startedAt = previous == null ? 0 : previous.startedAt;
+                return new TaskStatus(event.getType(), startedAt, event.getTimestamp(),
+                        previous == null ? null : previous.moduleName,
+                        previous == null ? 0 : previous.moduleIndex,
+                        previous == null ? 0 : previous.moduleCount,
+                        event.getPeakResidentBytes(), predicted);
+        }
+    }
+
+    /**
+     * Checks whether the task is running, so that its elapsed time and estimate keep changing.
+     * @return True if the task has started and not yet completed, False otherwise.
+     */
+    boolean isRunning() {
+        return startedAt > 0 && completedAt == 0;
+    }
+
+    /**
+     * Describes the status of the task.
+     * @return The text of the status column.
+     */
+    String describeStatus() {
+        switch (type) {
+            case QUEUED: return "Queued";
+            case STARTED: return "Running";
+            case MODULE_STARTED: return "Building " + describeModule();
+            case TESTS_RUNNING: return moduleName == null ? "Testing" : "Testing " + describeModule();
+            case FINISHED: return "Succeeded";
+            case FAILED: return "Failed";
+            case SKIPPED: return "Skipped";
+            default: return "";
+        }
+    }
+
+    /**
+     * Describes how long the task has been running, or how long it ran for.
+     * @param now The current time, in milliseconds since the epoch.
+     * @return The text of the elapsed time column, empty if the task hasn't started.
+     */
+    String describeElapsed(long now) {
+        return startedAt > 0 ? formatDuration(elapsedMillis(now)) : "";
+    }
+
+    /**
+     * Describes how much longer the running task is expected to take. The estimate is based on the task's
+     * predicted duration from its build history, or failing that, on how long the modules built so far took. A
+     * task running past its prediction falls back on its modules too, as the prediction has proven too short.
+     * @param now The current time, in milliseconds since the epoch.
+     * @return The text of the estimate column, empty if the task isn't running or no estimate can be made.
+     */
+    String describeEta(long now) {
+        if (!isRunning())
+            return "";
+        long elapsed = elapsedMillis(now);
+        if (predictedMillis > elapsed)
+            return "~" + formatDuration(predictedMillis - elapsed);
+        if (moduleIndex > 1 && moduleCount >= moduleIndex)
+            return "~" + formatDuration(elapsed * (moduleCount - moduleIndex + 1) / (moduleIndex - 1));
+        return "";
+    }
+
+    /**
+     * Describes the peak memory of the task's build.
+     * @return The text of the peak memory column, empty if it wasn't measured.
+     */
+    String describePeakResident() {
+        return peakResidentBytes >= 0 ? (peakResidentBytes >> 20) + " MB" : "";
+    }
+
+    /**
+     * Works out how long the task has been running, or how long it ran for.
+     * @param now The current time, in milliseconds since the epoch.
+     * @return The elapsed time, in milliseconds.
+     */
+    private long elapsedMillis(long now) {
+        return Math.max(0, (completedAt > 0 ? completedAt : now) - startedAt);
+    }
+
+    /**
+     * Describes the module being built and its position in the reactor.
+     * @return The module and its position, such as 'core 1.0 [2/5]'.
+     */
+    private String describeModule() {
+        return moduleName + " [" + moduleIndex + "/" + moduleCount + "]";
+    }
+
+    /**
+     * Keeps the start of a running task when one of its modules starts, in case the start event was missed.
+     * @param previous The status of the task before the event, or null if it has none yet.
+     * @param event The {@link BuildEvent} of the task.
+     * @return When the task started running.
+     */
+    private static long startedAt(TaskStatus previous, BuildEvent event) {
+        return previous != null && previous.startedAt > 0 ? previous.startedAt : event.getTimestamp();
+    }
+
+    /**
+     * Formats a duration as minutes and seconds, with hours in front once it reaches an hour.
+     * @param millis The duration, in milliseconds.
+     * @return The formatted duration, such as '4:07' or '1:02:09'.
+     */
+    private static String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        if (seconds >= 3600)
+            return String.format("%d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
@@ -1,14 +1,36 @@
 package com.lukas783.mdt.ui.table;
 
+import com.lukas783.mdt.api.BuildEvent;
 import com.lukas783.mdt.api.MavenTask;
+import com.lukas783.mdt.api.TaskSnapshot;
+import com.lukas783.mdt.service.BuildHistoryStore;
 import com.lukas783.mdt.service.ProcessService;
 
+import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 /**
  * The table model used to display and modify a {@link MavenTask} object.
  *
+ * The model shows a {@link TaskSnapshot} of the tasks held by {@link ProcessService}, and only moves on to a newer
+ * snapshot on the event dispatch thread, telling the table exactly which rows were inserted, deleted or updated
+ * between the two. Only those rows are repainted, and the selection of untouched rows is kept. Refreshes requested
+ * through {@link #requestRefresh()} are limited to a maximum rate, so a burst of changes from any thread is shown
+ * in one go.
+ *
+ * The last few columns show how each task is doing in the current or most recent run, following the
+ * {@link BuildEvent} objects published by {@link ProcessService}. Events only mark the rows of their task as
+ * changed, and the rows are repainted along with the next refresh. The elapsed time and estimate of running
+ * tasks are repainted every second.
+ *
  * @author Lucas Carpenter
  */
 public class TaskTableModel extends AbstractTableModel implements Reorderable {
@@ -16,10 +38,34 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
     // Declaration of logger for debug/error handling messages.
     private static final Logger logger = Logger.getLogger(TaskTableModel.class.getName());
 
+    // Declaration of the shortest time between two refreshes requested through requestRefresh()
+    private static final long REFRESH_INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("mdt.table.refreshMillis", 50L));
+
+    // Declaration of how often the elapsed time and estimate of running tasks are repainted
+    private static final int CLOCK_INTERVAL_MILLIS = 1000;
+
+    // Declaration of variables used by the model
+    private TaskSnapshot tasks;
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private final Timer refreshTimer;
+    private long lastRefresh;
+
+    // Declaration of the run status of each task, and the tasks whose status changed since the last refresh
+    private final Map<UUID, TaskStatus> statuses = new ConcurrentHashMap<>();
+    private final Set<UUID> changedStatuses = ConcurrentHashMap.newKeySet();
+    private final Timer clockTimer;
+
     /**
      * Constructs a new table model. Builds the internal list of values in the table.
      */
-    public TaskTableModel() { }
+    public TaskTableModel() {
+        tasks = ProcessService.getInstance().getTasks();
+        refreshTimer = new Timer(0, e -> refresh());
+        refreshTimer.setRepeats(false);
+        lastRefresh = System.nanoTime() - REFRESH_INTERVAL_NANOS;
+        clockTimer = new Timer(CLOCK_INTERVAL_MILLIS, e -> tickClock());
+    }
 
     /**
      * Retrieves the number of rows in the table.
@@ -27,7 +73,7 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
      */
     @Override
     public int getRowCount() {
-        return ProcessService.getInstance().getTasks().size();
+        return tasks.size();
     }
 
     /**
@@ -36,7 +82,7 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
      */
     @Override
     public int getColumnCount() {
-        return 11;
+        return 15;
     }
 
     /**
@@ -45,7 +91,7 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
      */
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        MavenTask task = ProcessService.getInstance().getTasks().get(rowIndex);
+        MavenTask task = tasks.get(rowIndex);
         switch(columnIndex) {
             case 1: return task.getEnabled();
             case 2: return task.getTaskName();
@@ -57,6 +103,10 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
             case 8: return task.cleanTarget();
             case 9: return task.doUnpackage();
             case 10: return task.doInstall();
+            case 11:
+            case 12:
+            case 13:
+            case 14: return getStatusValue(statuses.get(task.getId()), columnIndex);
             default: return "";
         }
     }
@@ -78,6 +128,10 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
             case 8: return "Clean Target Directory?";
             case 9: return "Untar/Unzip Result?";
             case 10: return "Install/Package";
+            case 11: return "Status";
+            case 12: return "Elapsed";
+            case 13: return "ETA";
+            case 14: return "Peak Memory";
             default: return "";
         }
     }
@@ -98,7 +152,11 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
             case 2:
             case 3:
             case 4:
-            case 5: return String.class;
+            case 5:
+            case 11:
+            case 12:
+            case 13:
+            case 14: return String.class;
 
             case 10: return InstallPackageClass.class;
             default: return Object.class;
@@ -106,12 +164,12 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
     }
 
     /**
-     * Retrieves whether a particular cell in a given row or column is edittable.
+     * Retrieves whether a particular cell in a given row or column is edittable. The status columns are read-only.
      * {@inheritDoc}
      */
     @Override
     public boolean isCellEditable(int row, int col) {
-        return col != 0;
+        return col != 0 && col < 11;
     }
 
     /**
@@ -120,8 +178,7 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
      */
     @Override
     public void setValueAt(Object value, int row, int col) {
-        MavenTask.Builder builder  = new MavenTask.Builder(
-                ProcessService.getInstance().getTasks().get(row));
+        MavenTask.Builder builder  = new MavenTask.Builder(tasks.get(row));
         switch(col) {
             case 1: builder.enabled((Boolean)value); break;
             case 2: builder.taskName((String)value); break;
@@ -139,7 +196,7 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
         }
         MavenTask updatedTask = builder.build();
         if(updatedTask != null) {
-            ProcessService.getInstance().updateTask(builder.build());
+            ProcessService.getInstance().updateTask(updatedTask);
             updateTasks();
         }
     }
@@ -153,10 +210,45 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
     }
 
     /**
-     * Updates the tasks in the table to reflect the list in {@link ProcessService#getTasks()}.
+     * Updates the tasks in the table to reflect the list in {@link ProcessService#getTasks()} straight away. Must be
+     * called on the event dispatch thread.
      */
     public void updateTasks() {
-        fireTableDataChanged();
+        TaskSnapshot current = ProcessService.getInstance().getTasks();
+        TaskSnapshot previous = tasks;
+        if (current.getVersion() == previous.getVersion())
+            return;
+        tasks = current;
+        fireChanges(previous, current);
+    }
+
+    /**
+     * Asks for the tasks in the table to be updated to reflect the list in {@link ProcessService#getTasks()}. May be
+     * called from any thread. The update happens on the event dispatch thread, straight away if the table hasn't
+     * been refreshed for a while, otherwise once the refresh interval has passed, and any further requests made in
+     * the meantime are folded into it.
+     */
+    public void requestRefresh() {
+        if (!refreshPending.compareAndSet(false, true))
+            return;
+        if (SwingUtilities.isEventDispatchThread())
+            scheduleRefresh();
+        else
+            SwingUtilities.invokeLater(this::scheduleRefresh);
+    }
+
+    /**
+     * Moves the status of a task on to reflect a build event, and asks for its row to be repainted. The task's
+     * duration is predicted from the {@link BuildHistoryStore} when it is queued or started. May be called from
+     * any thread.
+     * @param event The {@link BuildEvent} published by {@link ProcessService}.
+     */
+    public void buildEventOccurred(BuildEvent event) {
+        boolean predict = event.getType() == BuildEvent.Type.QUEUED || event.getType() == BuildEvent.Type.STARTED;
+        long predictedMillis = predict ? BuildHistoryStore.getInstance().predictDurationMillis(event.getTaskId()) : -1;
+        statuses.compute(event.getTaskId(), (id, previous) -> TaskStatus.apply(previous, event, predictedMillis));
+        changedStatuses.add(event.getTaskId());
+        requestRefresh();
     }
 
     /**
@@ -173,7 +265,7 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
      * @return A {@link MavenTask} object.
      */
     public MavenTask getTaskAt(int index) {
-        return ProcessService.getInstance().getTasks().get(index);
+        return tasks.get(index);
     }
 
     /**
@@ -189,6 +281,147 @@ public class TaskTableModel extends AbstractTableModel implements Reorderable {
 
         ProcessService.getInstance().reorderTaskPosition(fromIndex, toIndex);
         updateTasks();
-        fireTableDataChanged();
+    }
+
+    /**
+     * Refreshes the table now if the refresh interval has passed since the last refresh, otherwise starts the
+     * refresh timer for the rest of the interval.
+     */
+    private void scheduleRefresh() {
+        long wait = REFRESH_INTERVAL_NANOS - (System.nanoTime() - lastRefresh);
+        if (wait <= 0) {
+            refresh();
+        } else {
+            refreshTimer.setInitialDelay((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+            refreshTimer.restart();
+        }
+    }
+
+    /**
+     * Refreshes the table, accepting new refresh requests from then on.
+     */
+    private void refresh() {
+        refreshPending.set(false);
+        lastRefresh = System.nanoTime();
+        updateTasks();
+
+        // Repaint the rows whose status changed, and keep the clock going while any task is running
+        boolean running = false;
+        for (Iterator<UUID> iterator = changedStatuses.iterator(); iterator.hasNext(); ) {
+            UUID id = iterator.next();
+            iterator.remove();
+            int row = tasks.indexOf(id);
+            if (row != -1)
+                fireTableRowsUpdated(row, row);
+            TaskStatus status = statuses.get(id);
+            running |= status != null && status.isRunning();
+        }
+        if (running && !clockTimer.isRunning())
+            clockTimer.start();
+    }
+
+    /**
+     * Repaints the elapsed time and estimate of every running task, stopping the clock once no task is running.
+     */
+    private void tickClock() {
+        boolean running = false;
+        for (Map.Entry<UUID, TaskStatus> entry : statuses.entrySet()) {
+            if (!entry.getValue().isRunning())
+                continue;
+            running = true;
+            int row = tasks.indexOf(entry.getKey());
+            if (row != -1) {
+                fireTableCellUpdated(row, 12);
+                fireTableCellUpdated(row, 13);
+            }
+        }
+        if (!running)
+            clockTimer.stop();
+    }
+
+    /**
+     * Retrieves the value of a status column for a task.
+     * @param status The {@link TaskStatus} of the task, or null if it hasn't been part of a run.
+     * @param columnIndex The status column.
+     * @return The text to show in the column.
+     */
+    private static String getStatusValue(TaskStatus status, int columnIndex) {
+        if (status == null)
+            return "";
+        switch(columnIndex) {
+            case 11: return status.describeStatus();
+            case 12: return status.describeElapsed(System.currentTimeMillis());
+            case 13: return status.describeEta(System.currentTimeMillis());
+            case 14: return status.describePeakResident();
+            default: return "";
+        }
+    }
+
+    /**
+     * Fires the row events that turn the previous snapshot into the current one. The rows at the start and end of
+     * both snapshots that hold the same tasks are kept, and only the rows among them whose task changed are
+     * updated. The rows in between are updated if both snapshots have as many of them, as happens when a task is
+     * moved, otherwise they are deleted and the new ones inserted.
+     * @param previous The snapshot the table was showing.
+     * @param current The snapshot the table is showing now.
+     */
+    private void fireChanges(TaskSnapshot previous, TaskSnapshot current) {
+        int previousSize = previous.size();
+        int currentSize = current.size();
+        int shortest = Math.min(previousSize, currentSize);
+
+        int prefix = 0;
+        while (prefix < shortest && sameTask(previous.get(prefix), current.get(prefix)))
+            prefix++;
+        int suffix = 0;
+        while (suffix < shortest - prefix &&
+                sameTask(previous.get(previousSize - 1 - suffix), current.get(currentSize - 1 - suffix)))
+            suffix++;
+
+        // Update the kept rows whose task was replaced, before any rows move
+        fireUpdatedRuns(previous, current, 0, 0, prefix);
+
+        int previousMiddle = previousSize - prefix - suffix;
+        int currentMiddle = currentSize - prefix - suffix;
+        if (previousMiddle == currentMiddle) {
+            if (currentMiddle > 0)
+                fireTableRowsUpdated(prefix, prefix + currentMiddle - 1);
+        } else {
+            if (previousMiddle > 0)
+                fireTableRowsDeleted(prefix, prefix + previousMiddle - 1);
+            if (currentMiddle > 0)
+                fireTableRowsInserted(prefix, prefix + currentMiddle - 1);
+        }
+
+        // The kept rows at the end have moved to their current positions by now
+        fireUpdatedRuns(previous, current, previousSize - currentSize, currentSize - suffix, currentSize);
+    }
+
+    /**
+     * Fires an update for every run of kept rows whose task was replaced.
+     * @param previous The snapshot the table was showing.
+     * @param current The snapshot the table is showing now.
+     * @param offset How far the kept rows sit from their current positions in the previous snapshot.
+     * @param from The first current position to check.
+     * @param to The current position after the last one to check.
+     */
+    private void fireUpdatedRuns(TaskSnapshot previous, TaskSnapshot current, int offset, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int start = i;
+            while (i < to && previous.get(i + offset) != current.get(i))
+                i++;
+            if (i > start)
+                fireTableRowsUpdated(start, i - 1);
+        }
+    }
+
+    /**
+     * Checks whether two tasks are versions of the same task.
+     * @param first The first task.
+     * @param second The second task.
+     * @return True if both tasks have the same id, False otherwise.
+     */
+    private static boolean sameTask(MavenTask first, MavenTask second) {
+        return first == second || first.getId().equals(second.getId());
     }
 }
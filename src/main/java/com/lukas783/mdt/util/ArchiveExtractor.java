@@ -0,0 +1,1041 @@
+package com.lukas783.mdt.util;
+
+import com.lukas783.mdt.api.ExtractionResult;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * A utility file to extract zip, jar, tar and gzipped tar archives in-process. Archives are streamed through
+ * fixed size buffers, so that no entry is ever held on the heap as a whole, however large the archive is.
+ * <p>
+ * The central directory of a zip archive is memory-mapped and its entries are inflated in parallel, each straight
+ * from its own region of the archive. A tar archive has no directory, so it is read in a single streaming pass.
+ * Entries whose destination already holds the same contents can be skipped: for zip entries the size and CRC-32
+ * stored in the archive are compared against the destination, and for tar entries, which carry no checksum, the
+ * destination is compared against the entry as it streams past and is only written from the first difference on.
+ * <p>
+ * Nothing is ever written outside of the directory an archive is extracted into. Entry names are checked as they
+ * are read, and the real path of every directory an entry is written into is checked before writing, so that
+ * symbolic links already in the directory can't lead out of it. Symbolic links created from an archive are never
+ * written through, and a symbolic link may only point at a path inside the directory.
+ *
+ * @author Lucas Carpenter
+ */
+public class ArchiveExtractor {
+
+    // Declare a logger for debug/error logging
+    private static final Logger logger = Logger.getLogger(ArchiveExtractor.class.getName());
+
+    // Declaration of constants used by the extractor
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int UNIX_HOST = 3;
+
+    // Declaration of the threads zip entries are inflated on, created when first needed
+    private static ExecutorService executor;
+
+    // Declaration of the buffers each inflating thread reuses
+    private static final ThreadLocal<byte[]> inputBuffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+    private static final ThreadLocal<byte[]> outputBuffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    /**
+     * The archive formats the extractor can read.
+     */
+    public enum Format {
+        /** A zip archive, including jar, war and ear archives. */
+        ZIP,
+        /** An uncompressed tar archive. */
+        TAR,
+        /** A gzipped tar archive. */
+        TAR_GZ
+    }
+
+    /**
+     * Works out the format of an archive from its file name.
+     * @param archive The archive.
+     * @return The {@link Format} of the archive, or null if it isn't an archive the extractor can read.
+     */
+    public static Format getFormat(Path archive) {
+        String name = archive.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".zip") || name.endsWith(".jar") || name.endsWith(".war") || name.endsWith(".ear"))
+            return Format.ZIP;
+        if (name.endsWith(".tar"))
+            return Format.TAR;
+        if (name.endsWith(".tar.gz") || name.endsWith(".tgz"))
+            return Format.TAR_GZ;
+        return null;
+    }
+
+    /**
+     * Retrieves the directory an archive is extracted into by default: a directory next to the archive, named
+     * after the archive without its extension.
+     * @param archive The archive.
+     * @return The default directory to extract the archive into.
+     */
+    public static Path getDefaultTargetDirectory(Path archive) {
+        String name = archive.getFileName().toString();
+        boolean tarGz = name.toLowerCase(Locale.ROOT).endsWith(".tar.gz");
+        int extension = tarGz ? name.length() - 7 : name.lastIndexOf('.');
+        return archive.resolveSibling(extension > 0 ? name.substring(0, extension) : name + "-unpacked");
+    }
+
+    /**
+     * Extracts an archive into a directory, replacing any files already there that the archive holds entries for.
+     * @param archive The archive to extract.
+     * @param targetDirectory The directory to extract the archive into, created if it doesn't exist.
+     * @param skipUnchanged True to leave files that already match their entry untouched, False to rewrite them.
+     * @param token The {@link CancellationToken} that stops the extraction, may be null.
+     * @return An {@link ExtractionResult} describing the extraction.
+     * @throws IOException If the archive couldn't be read or extracted, or the extraction was cancelled.
+     */
+    public static ExtractionResult extract(Path archive, Path targetDirectory, boolean skipUnchanged,
+                                           CancellationToken token) throws IOException {
+        Format format = getFormat(archive);
+        if (format == null)
+            throw new IOException(archive + " is not a zip or tar archive.");
+        Path target = targetDirectory.toAbsolutePath().normalize();
+        Files.createDirectories(target);
+        Counters counters = new Counters();
+        long start = System.currentTimeMillis();
+        if (format == Format.ZIP)
+            extractZip(archive, target, skipUnchanged, token, counters);
+        else
+            extractTar(archive, target, format == Format.TAR_GZ, skipUnchanged, token, counters);
+        return new ExtractionResult(counters.entries.get(), counters.extracted.get(), counters.unchanged.get(),
+                counters.bytesWritten.get(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Extracts a zip archive, inflating its file entries in parallel.
+     * @param archive The zip archive to extract.
+     * @param target The absolute, normalized directory to extract the archive into.
+     * @param skipUnchanged True to leave files that already match their entry untouched.
+     * @param token The {@link CancellationToken} that stops the extraction, may be null.
+     * @param counters The {@link Counters} to count the extraction in.
+     * @throws IOException If the archive couldn't be read or extracted, or the extraction was cancelled.
+     */
+    private static void extractZip(Path archive, Path target, boolean skipUnchanged, CancellationToken token,
+                                   Counters counters) throws IOException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            List<ZipEntryInfo> entries = readCentralDirectory(archive, channel);
+
+            // Create every directory up front, so that the file entries can be written in any order
+            Destination destination = new Destination(target);
+            List<ZipEntryInfo> files = new ArrayList<>(entries.size());
+            for (ZipEntryInfo entry : entries) {
+                Path path = resolveEntry(target, entry.name);
+                if (entry.name.endsWith("/")) {
+                    destination.createDirectories(path);
+                } else {
+                    destination.prepareFile(path);
+                    entry.path = path;
+                    files.add(entry);
+                }
+            }
+
+            // Inflate the entries in the order they are stored in, so that reads move forward through the archive
+            files.sort(Comparator.comparingLong(entry -> entry.localHeaderOffset));
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            for (ZipEntryInfo entry : files) {
+                futures.add(getExecutor().submit(() -> {
+                    checkCancelled(token);
+                    extractZipEntry(archive, channel, entry, skipUnchanged, counters);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> future : futures)
+                    future.get();
+            } catch (ExecutionException ee) {
+                for (Future<?> future : futures)
+                    future.cancel(false);
+                if (ee.getCause() instanceof IOException)
+                    throw (IOException) ee.getCause();
+                throw new IOException("Unable to extract: " + archive, ee.getCause());
+            } catch (InterruptedException ie) {
+                for (Future<?> future : futures)
+                    future.cancel(false);
+                Thread.currentThread().interrupt();
+                throw new IOException("Extraction of: " + archive + " was interrupted.", ie);
+            }
+        }
+    }
+
+    /**
+     * Reads the central directory of a zip archive through a memory-mapping of it.
+     * @param archive The zip archive.
+     * @param channel The open channel of the zip archive.
+     * @return The entries listed in the central directory, in the order they are listed in.
+     * @throws IOException If the archive couldn't be read, or isn't a valid zip archive.
+     */
+    private static List<ZipEntryInfo> readCentralDirectory(Path archive, FileChannel channel) throws IOException {
+        // The end of central directory record sits at the very end of the archive, before a comment of up to 64 KB
+        long size = channel.size();
+        int tailLength = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + 0xFFFF);
+        ByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, size - tailLength, tailLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int end = -1;
+        for (int i = tailLength - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0)
+            throw new IOException(archive + " is not a zip archive.");
+        long entryCount = tail.getShort(end + 10) & 0xFFFF;
+        long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+        long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+
+        // Archives with too many entries or too large to describe in the record point at a zip64 record instead
+        long locatorOffset = size - tailLength + end - ZIP64_LOCATOR_SIZE;
+        if (locatorOffset >= 0 &&
+                (entryCount == 0xFFFF || directorySize == ZIP64_MAGIC || directoryOffset == ZIP64_MAGIC)) {
+            ByteBuffer locator = read(channel, locatorOffset, ZIP64_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+                ByteBuffer record = read(channel, locator.getLong(8), 56);
+                if (record.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+                    throw new IOException(archive + " has a corrupt zip64 end of central directory record.");
+                entryCount = record.getLong(32);
+                directorySize = record.getLong(40);
+                directoryOffset = record.getLong(48);
+            }
+        }
+        if (directorySize > Integer.MAX_VALUE || directoryOffset + directorySize > size)
+            throw new IOException(archive + " has a corrupt central directory.");
+
+        MappedByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, directorySize);
+        directory.order(ByteOrder.LITTLE_ENDIAN);
+        List<ZipEntryInfo> entries = new ArrayList<>((int) Math.min(entryCount, 1 << 20));
+        int position = 0;
+        while (position + CENTRAL_HEADER_SIZE <= directorySize &&
+                directory.getInt(position) == CENTRAL_HEADER_SIGNATURE) {
+            ZipEntryInfo entry = new ZipEntryInfo();
+            int host = directory.get(position + 5) & 0xFF;
+            entry.flags = directory.getShort(position + 8) & 0xFFFF;
+            entry.method = directory.getShort(position + 10) & 0xFFFF;
+            entry.crc = directory.getInt(position + 16) & 0xFFFFFFFFL;
+            entry.compressedSize = directory.getInt(position + 20) & 0xFFFFFFFFL;
+            entry.size = directory.getInt(position + 24) & 0xFFFFFFFFL;
+            int nameLength = directory.getShort(position + 28) & 0xFFFF;
+            int extraLength = directory.getShort(position + 30) & 0xFFFF;
+            int commentLength = directory.getShort(position + 32) & 0xFFFF;
+            entry.mode = host == UNIX_HOST ? (directory.getInt(position + 38) >>> 16) : 0;
+            entry.localHeaderOffset = directory.getInt(position + 42) & 0xFFFFFFFFL;
+
+            byte[] name = new byte[nameLength];
+            directory.position(position + CENTRAL_HEADER_SIZE);
+            directory.get(name);
+            entry.name = new String(name, StandardCharsets.UTF_8);
+
+            // The zip64 extra field holds, in order, whichever of the sizes and offset didn't fit in the header
+            int extra = position + CENTRAL_HEADER_SIZE + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = directory.getShort(extra) & 0xFFFF;
+                int length = directory.getShort(extra + 2) & 0xFFFF;
+                if (id == 0x0001) {
+                    int field = extra + 4;
+                    if (entry.size == ZIP64_MAGIC) {
+                        entry.size = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (entry.compressedSize == ZIP64_MAGIC) {
+                        entry.compressedSize = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (entry.localHeaderOffset == ZIP64_MAGIC)
+                        entry.localHeaderOffset = directory.getLong(field);
+                }
+                extra += 4 + length;
+            }
+            entries.add(entry);
+            position = extraEnd + commentLength;
+        }
+        if (entries.size() != entryCount)
+            logger.log(Level.WARNING, archive + " lists " + entryCount + " entries but " + entries.size() +
+                    " were found in its central directory.");
+        return entries;
+    }
+
+    /**
+     * Extracts a single file entry of a zip archive, unless its destination already matches it.
+     * @param archive The zip archive.
+     * @param channel The open channel of the zip archive, only read through positional reads.
+     * @param entry The file entry to extract.
+     * @param skipUnchanged True to leave the destination untouched if it already matches the entry.
+     * @param counters The {@link Counters} to count the extraction in.
+     * @throws IOException If the entry couldn't be read or written, or is corrupt.
+     */
+    private static void extractZipEntry(Path archive, FileChannel channel, ZipEntryInfo entry,
+                                        boolean skipUnchanged, Counters counters) throws IOException {
+        counters.entries.incrementAndGet();
+        if ((entry.flags & 1) != 0)
+            throw new IOException("Entry: " + entry.name + " of: " + archive + " is encrypted.");
+        if (skipUnchanged && Files.isRegularFile(entry.path) && Files.size(entry.path) == entry.size &&
+                Checksums.crc32(entry.path.toFile()) == entry.crc) {
+            counters.unchanged.incrementAndGet();
+            return;
+        }
+
+        // The local header repeats the name, and may carry a different extra field than the central directory
+        ByteBuffer localHeader = read(channel, entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+        if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE)
+            throw new IOException("Entry: " + entry.name + " of: " + archive + " has a corrupt local header.");
+        long dataOffset = entry.localHeaderOffset + LOCAL_HEADER_SIZE +
+                (localHeader.getShort(26) & 0xFFFF) + (localHeader.getShort(28) & 0xFFFF);
+
+        CRC32 crc = new CRC32();
+        long written;
+        try (FileChannel out = FileChannel.open(entry.path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (entry.method == METHOD_STORED)
+                written = copyStored(channel, dataOffset, entry.compressedSize, out, crc);
+            else if (entry.method == METHOD_DEFLATED)
+                written = inflate(archive, channel, dataOffset, entry, out, crc);
+            else
+                throw new IOException("Entry: " + entry.name + " of: " + archive +
+                        " uses unsupported compression method " + entry.method + ".");
+        }
+        if (written != entry.size || crc.getValue() != entry.crc)
+            throw new IOException("Entry: " + entry.name + " of: " + archive + " is corrupt.");
+        if ((entry.mode & 0111) != 0 && !entry.path.toFile().setExecutable(true))
+            logger.log(Level.FINE, "Unable to mark: " + entry.path + " as executable.");
+        counters.extracted.incrementAndGet();
+        counters.bytesWritten.addAndGet(written);
+    }
+
+    /**
+     * Copies the data of a stored zip entry to its destination.
+     * @param channel The open channel of the zip archive.
+     * @param offset The offset of the entry's data in the archive.
+     * @param length The length of the entry's data.
+     * @param out The channel of the entry's destination.
+     * @param crc The checksum to update with the entry's data.
+     * @return The number of bytes written.
+     * @throws IOException If the entry couldn't be read or written.
+     */
+    private static long copyStored(FileChannel channel, long offset, long length, FileChannel out, CRC32 crc)
+            throws IOException {
+        byte[] buffer = inputBuffers.get();
+        long position = 0;
+        while (position < length) {
+            int chunk = (int) Math.min(buffer.length, length - position);
+            readFully(channel, ByteBuffer.wrap(buffer, 0, chunk), offset + position);
+            crc.update(buffer, 0, chunk);
+            writeFully(out, ByteBuffer.wrap(buffer, 0, chunk));
+            position += chunk;
+        }
+        return position;
+    }
+
+    /**
+     * Inflates the data of a deflated zip entry to its destination, one buffer at a time.
+     * @param archive The zip archive.
+     * @param channel The open channel of the zip archive.
+     * @param offset The offset of the entry's data in the archive.
+     * @param entry The entry being inflated.
+     * @param out The channel of the entry's destination.
+     * @param crc The checksum to update with the inflated data.
+     * @return The number of bytes written.
+     * @throws IOException If the entry couldn't be read or written, or its data is corrupt.
+     */
+    private static long inflate(Path archive, FileChannel channel, long offset, ZipEntryInfo entry, FileChannel out,
+                                CRC32 crc) throws IOException {
+        byte[] input = inputBuffers.get();
+        byte[] output = outputBuffers.get();
+        Inflater inflater = new Inflater(true);
+        try {
+            long position = 0;
+            long written = 0;
+            boolean paddingSupplied = false;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (position < entry.compressedSize) {
+                        int chunk = (int) Math.min(input.length, entry.compressedSize - position);
+                        readFully(channel, ByteBuffer.wrap(input, 0, chunk), offset + position);
+                        inflater.setInput(input, 0, chunk);
+                        position += chunk;
+                    } else if (!paddingSupplied) {
+                        // Raw inflation may need one byte past the end of the data to notice that it is finished
+                        input[0] = 0;
+                        inflater.setInput(input, 0, 1);
+                        paddingSupplied = true;
+                    } else {
+                        throw new IOException("Entry: " + entry.name + " of: " + archive + " is truncated.");
+                    }
+                }
+                int inflated = inflater.inflate(output);
+                if (inflated == 0 && inflater.needsDictionary())
+                    throw new IOException("Entry: " + entry.name + " of: " + archive + " needs a preset dictionary.");
+                if (inflated > 0) {
+                    crc.update(output, 0, inflated);
+                    writeFully(out, ByteBuffer.wrap(output, 0, inflated));
+                    written += inflated;
+                }
+            }
+            return written;
+        } catch (DataFormatException dfe) {
+            throw new IOException("Entry: " + entry.name + " of: " + archive + " is corrupt.", dfe);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Extracts a tar archive in a single streaming pass. Supports ustar, GNU long names and pax path and size
+     * records.
+     * @param archive The tar archive to extract.
+     * @param target The absolute, normalized directory to extract the archive into.
+     * @param gzipped True if the archive is gzipped.
+     * @param skipUnchanged True to leave files that already match their entry untouched.
+     * @param token The {@link CancellationToken} that stops the extraction, may be null.
+     * @param counters The {@link Counters} to count the extraction in.
+     * @throws IOException If the archive couldn't be read or extracted, or the extraction was cancelled.
+     */
+    private static void extractTar(Path archive, Path target, boolean gzipped, boolean skipUnchanged,
+                                   CancellationToken token, Counters counters) throws IOException {
+        Destination destination = new Destination(target);
+        byte[] header = new byte[TAR_BLOCK_SIZE];
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] compareBuffer = new byte[BUFFER_SIZE];
+        String longName = null;
+        String longLinkName = null;
+        String paxPath = null;
+        String paxLinkPath = null;
+        long paxSize = -1;
+
+        InputStream in = new BufferedInputStream(Files.newInputStream(archive), BUFFER_SIZE);
+        try {
+            if (gzipped)
+                in = new GZIPInputStream(in, BUFFER_SIZE);
+            while (readBlock(in, header) && !isZeroBlock(header)) {
+                checkCancelled(token);
+                if (!hasValidChecksum(header))
+                    throw new IOException(archive + " has a corrupt tar header.");
+                char type = (char) header[156];
+                long size = paxSize >= 0 ? paxSize : parseNumber(header, 124, 12);
+
+                // Records that describe the entry after them
+                if (type == 'L' || type == 'K' || type == 'x' || type == 'g') {
+                    String value = readString(in, size);
+                    skipPadding(in, size);
+                    if (type == 'L')
+                        longName = trimNul(value);
+                    else if (type == 'K')
+                        longLinkName = trimNul(value);
+                    else if (type == 'x') {
+                        for (String[] record : parsePaxRecords(value)) {
+                            if (record[0].equals("path"))
+                                paxPath = record[1];
+                            else if (record[0].equals("linkpath"))
+                                paxLinkPath = record[1];
+                            else if (record[0].equals("size"))
+                                paxSize = Long.parseLong(record[1]);
+                        }
+                    }
+                    continue;
+                }
+
+                String name = paxPath != null ? paxPath : longName != null ? longName : headerName(header);
+                String linkName = paxLinkPath != null ? paxLinkPath :
+                        longLinkName != null ? longLinkName : parseString(header, 157, 100);
+                longName = longLinkName = paxPath = paxLinkPath = null;
+                paxSize = -1;
+
+                Path path = resolveEntry(target, name);
+                if (path.equals(target)) {
+                    skipFully(in, size);
+                } else if (type == '5') {
+                    destination.createDirectories(path);
+                    skipFully(in, size);
+                } else if (type == '0' || type == '\0' || type == '7') {
+                    counters.entries.incrementAndGet();
+                    destination.prepareFile(path);
+                    long written = writeTarEntry(in, size, path, skipUnchanged, buffer, compareBuffer);
+                    if (written < 0) {
+                        counters.unchanged.incrementAndGet();
+                    } else {
+                        counters.extracted.incrementAndGet();
+                        counters.bytesWritten.addAndGet(written);
+                    }
+                    if ((parseNumber(header, 100, 8) & 0111) != 0 && !path.toFile().setExecutable(true))
+                        logger.log(Level.FINE, "Unable to mark: " + path + " as executable.");
+                } else if (type == '1' || type == '2') {
+                    destination.createLink(path, linkName, type == '2');
+                    skipFully(in, size);
+                } else {
+                    logger.log(Level.FINE, "Skipping entry: " + name + " of unsupported type: " + type +
+                            " in: " + archive);
+                    skipFully(in, size);
+                }
+                skipPadding(in, size);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Streams the data of a tar entry to its destination. If the destination is already the size of the entry, it
+     * is compared against the entry as the entry streams past, and only written from the first difference on.
+     * @param in The tar stream, positioned at the entry's data.
+     * @param size The size of the entry's data.
+     * @param path The destination of the entry.
+     * @param skipUnchanged True to compare an existing destination against the entry before writing to it.
+     * @param buffer The buffer to stream the entry through.
+     * @param compareBuffer The buffer to read the existing destination into.
+     * @return The number of bytes written, or -1 if the destination already matched the entry.
+     * @throws IOException If the entry couldn't be read or written.
+     */
+    private static long writeTarEntry(InputStream in, long size, Path path, boolean skipUnchanged, byte[] buffer,
+                                      byte[] compareBuffer) throws IOException {
+        boolean compare = skipUnchanged && Files.isRegularFile(path) && Files.size(path) == size;
+        try (FileChannel out = compare ?
+                FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE) :
+                FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            long written = 0;
+            while (position < size) {
+                int chunk = (int) Math.min(buffer.length, size - position);
+                readFully(in, buffer, chunk);
+                if (compare) {
+                    readFully(out, ByteBuffer.wrap(compareBuffer, 0, chunk), position);
+                    compare = equalRanges(buffer, compareBuffer, chunk);
+                }
+                if (!compare) {
+                    ByteBuffer data = ByteBuffer.wrap(buffer, 0, chunk);
+                    while (data.hasRemaining())
+                        out.write(data, position + data.position());
+                    written += chunk;
+                }
+                position += chunk;
+            }
+            return compare ? -1 : written;
+        }
+    }
+
+    /**
+     * Resolves the name of an entry against the directory an archive is extracted into, making sure that the
+     * entry can't escape the directory.
+     * @param target The absolute, normalized directory the archive is extracted into.
+     * @param name The name of the entry.
+     * @return The path the entry is extracted to.
+     * @throws IOException If the entry would be extracted outside of the directory.
+     */
+    private static Path resolveEntry(Path target, String name) throws IOException {
+        try {
+            Path path = target.resolve(name.replace('\\', '/')).normalize();
+            if (!path.startsWith(target))
+                throw new IOException("Entry: " + name + " would be extracted outside of: " + target);
+            return path;
+        } catch (InvalidPathException ipe) {
+            throw new IOException("Entry: " + name + " is not a valid path.", ipe);
+        }
+    }
+
+    /**
+     * Throws if a token has been cancelled.
+     * @param token The {@link CancellationToken} to check, may be null.
+     * @throws IOException If the token has been cancelled.
+     */
+    private static void checkCancelled(CancellationToken token) throws IOException {
+        if (token != null && token.isCancelled())
+            throw new IOException("Extraction was cancelled because " + token.getReason() + ".");
+    }
+
+    /**
+     * Retrieves the threads zip entries are inflated on, creating them if needed. The number of threads defaults
+     * to the number of processors.
+     * @return The {@link ExecutorService} zip entries are inflated on.
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            int threads = Math.max(1, Integer.getInteger("mdt.unpack.threads",
+                    Runtime.getRuntime().availableProcessors()));
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "mdt-unpack-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Reads a little-endian region of a channel into a new buffer.
+     * @param channel The channel to read from.
+     * @param position The position to read from.
+     * @param length The number of bytes to read.
+     * @return The bytes read.
+     * @throws IOException If the channel couldn't be read, or ended before the region did.
+     */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, buffer, position);
+        return buffer;
+    }
+
+    /**
+     * Fills a buffer from a channel through positional reads, which are safe to make from several threads.
+     * @param channel The channel to read from.
+     * @param buffer The buffer to fill.
+     * @param position The position to read from.
+     * @throws IOException If the channel couldn't be read, or ended before the buffer was filled.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0)
+                throw new EOFException("Unexpected end of file.");
+        }
+    }
+
+    /**
+     * Writes the whole of a buffer to a channel.
+     * @param channel The channel to write to.
+     * @param buffer The buffer to write.
+     * @throws IOException If the channel couldn't be written to.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Fills the start of an array from a stream.
+     * @param in The stream to read from.
+     * @param buffer The array to fill.
+     * @param length The number of bytes to read.
+     * @throws IOException If the stream couldn't be read, or ended early.
+     */
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(buffer, offset, length - offset);
+            if (read < 0)
+                throw new EOFException("Unexpected end of archive.");
+            offset += read;
+        }
+    }
+
+    /**
+     * Reads a tar block from a stream.
+     * @param in The stream to read from.
+     * @param block The array to read the block into.
+     * @return True if a block was read, False if the stream was already at its end.
+     * @throws IOException If the stream couldn't be read, or ended part way through the block.
+     */
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int first = in.read(block, 0, block.length);
+        if (first < 0)
+            return false;
+        int offset = first;
+        while (offset < block.length) {
+            int read = in.read(block, offset, block.length - offset);
+            if (read < 0)
+                throw new EOFException("Unexpected end of archive.");
+            offset += read;
+        }
+        return true;
+    }
+
+    /**
+     * Skips a number of bytes of a stream.
+     * @param in The stream to skip through.
+     * @param length The number of bytes to skip.
+     * @throws IOException If the stream couldn't be read, or ended early.
+     */
+    private static void skipFully(InputStream in, long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0)
+                    throw new EOFException("Unexpected end of archive.");
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Skips the padding that rounds the data of a tar entry up to a whole number of blocks.
+     * @param in The stream to skip through, positioned just past the entry's data.
+     * @param size The size of the entry's data.
+     * @throws IOException If the stream couldn't be read, or ended early.
+     */
+    private static void skipPadding(InputStream in, long size) throws IOException {
+        long remainder = size % TAR_BLOCK_SIZE;
+        if (remainder != 0)
+            skipFully(in, TAR_BLOCK_SIZE - remainder);
+    }
+
+    /**
+     * Reads the data of a small tar entry, such as a long name or pax record, as a string.
+     * @param in The stream to read from, positioned at the entry's data.
+     * @param size The size of the entry's data.
+     * @return The data as a UTF-8 string.
+     * @throws IOException If the stream couldn't be read, or the data is too large to be a header record.
+     */
+    private static String readString(InputStream in, long size) throws IOException {
+        if (size > BUFFER_SIZE * 16)
+            throw new IOException("Tar header record of " + size + " bytes is too large.");
+        byte[] bytes = new byte[(int) size];
+        readFully(in, bytes, bytes.length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Splits the records of a pax extended header, each of the form "length key=value\n".
+     * @param value The data of the pax extended header.
+     * @return The key and value of each record.
+     */
+    private static List<String[]> parsePaxRecords(String value) {
+        List<String[]> records = new ArrayList<>();
+        for (String line : value.split("\n")) {
+            int space = line.indexOf(' ');
+            int equals = line.indexOf('=', space + 1);
+            if (space > 0 && equals > space)
+                records.add(new String[] { line.substring(space + 1, equals), line.substring(equals + 1) });
+        }
+        return records;
+    }
+
+    /**
+     * Builds the name of a tar entry from its header, joining the ustar prefix onto it if there is one.
+     * @param header The header of the entry.
+     * @return The name of the entry.
+     */
+    private static String headerName(byte[] header) {
+        String name = parseString(header, 0, 100);
+        boolean ustar = header[257] == 'u' && header[258] == 's' && header[259] == 't' &&
+                header[260] == 'a' && header[261] == 'r';
+        if (ustar) {
+            String prefix = parseString(header, 345, 155);
+            if (!prefix.isEmpty())
+                return prefix + "/" + name;
+        }
+        return name;
+    }
+
+    /**
+     * Parses a NUL terminated string field of a tar header.
+     * @param header The header.
+     * @param offset The offset of the field.
+     * @param length The length of the field.
+     * @return The value of the field.
+     */
+    private static String parseString(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0)
+            end++;
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a numeric field of a tar header, written either in octal or, for large values, in base-256.
+     * @param header The header.
+     * @param offset The offset of the field.
+     * @param length The length of the field.
+     * @return The value of the field.
+     */
+    private static long parseNumber(byte[] header, int offset, int length) {
+        long value = 0;
+        if ((header[offset] & 0x80) != 0) {
+            value = header[offset] & 0x7F;
+            for (int i = offset + 1; i < offset + length; i++)
+                value = (value << 8) | (header[i] & 0xFF);
+            return value;
+        }
+        int i = offset;
+        while (i < offset + length && (header[i] == ' ' || header[i] == 0))
+            i++;
+        while (i < offset + length && header[i] >= '0' && header[i] <= '7')
+            value = (value << 3) + (header[i++] - '0');
+        return value;
+    }
+
+    /**
+     * Checks the checksum of a tar header, which is the sum of its bytes with the checksum field taken as spaces.
+     * @param header The header.
+     * @return True if the checksum matches, False otherwise.
+     */
+    private static boolean hasValidChecksum(byte[] header) {
+        long unsigned = 0;
+        long signed = 0;
+        for (int i = 0; i < header.length; i++) {
+            byte b = i >= 148 && i < 156 ? (byte) ' ' : header[i];
+            unsigned += b & 0xFF;
+            signed += b;
+        }
+        long expected = parseNumber(header, 148, 8);
+        return expected == unsigned || expected == signed;
+    }
+
+    /**
+     * Checks whether a tar block is all zeros, which marks the end of the archive.
+     * @param block The block.
+     * @return True if the block is all zeros, False otherwise.
+     */
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares the start of two arrays.
+     * @param first The first array.
+     * @param second The second array.
+     * @param length The number of bytes to compare.
+     * @return True if the first bytes of the arrays are equal, False otherwise.
+     */
+    private static boolean equalRanges(byte[] first, byte[] second, int length) {
+        for (int i = 0; i < length; i++) {
+            if (first[i] != second[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Trims the trailing NUL characters GNU tar writes after long names.
+     * @param value The value to trim.
+     * @return The value without trailing NUL characters.
+     */
+    private static String trimNul(String value) {
+        int end = value.length();
+        while (end > 0 && value.charAt(end - 1) == 0)
+            end--;
+        return value.substring(0, end);
+    }
+
+    /**
+     * An entry listed in the central directory of a zip archive.
+     */
+    private static class ZipEntryInfo {
+        private String name;
+        private int flags;
+        private int method;
+        private long crc;
+        private long compressedSize;
+        private long size;
+        private long localHeaderOffset;
+        private int mode;
+        private Path path;
+    }
+
+    /**
+     * The directory an archive is extracted into, which creates the directories, files and links of the archive's
+     * entries while making sure that none of them is written outside of it.
+     */
+    private static class Destination {
+        private final Path target;
+        private final Path realTarget;
+        private final Set<Path> directories = new HashSet<>();
+        private final Set<Path> links = new HashSet<>();
+
+        /**
+         * Constructs the destination of an extraction.
+         * @param target The absolute, normalized directory the archive is extracted into, which must exist.
+         * @throws IOException If the real path of the directory couldn't be worked out.
+         */
+        private Destination(Path target) throws IOException {
+            this.target = target;
+            this.realTarget = target.toRealPath();
+        }
+
+        /**
+         * Creates a directory and its parents, remembering which directories were already created.
+         * @param directory The directory to create.
+         * @throws IOException If the directory couldn't be created, or would be created outside of the destination.
+         */
+        private void createDirectories(Path directory) throws IOException {
+            if (directories.contains(directory))
+                return;
+            checkNotThroughLink(directory);
+            Path existing = directory;
+            while (existing != null && !Files.exists(existing))
+                existing = existing.getParent();
+            checkInside(existing == null ? directory : existing.toRealPath(), directory);
+            Files.createDirectories(directory);
+            directories.add(directory);
+        }
+
+        /**
+         * Gets the destination of a file entry ready to be written, creating its directory and removing any
+         * symbolic link in its place, so that writing the file can't follow a link.
+         * @param path The path of the file.
+         * @throws IOException If the file would be written outside of the destination.
+         */
+        private void prepareFile(Path path) throws IOException {
+            checkNotThroughLink(path);
+            createDirectories(path.getParent());
+            checkInside(path.getParent().toRealPath(), path);
+            if (Files.isSymbolicLink(path)) {
+                Files.delete(path);
+                links.remove(path);
+            }
+        }
+
+        /**
+         * Creates a hard or symbolic link entry, as long as its target stays inside the destination. Whatever
+         * already sits at the link's path is replaced.
+         * @param path The path of the link.
+         * @param linkName The name of the link's target, relative to the archive for hard links and to the link's
+         *                 directory for symbolic links.
+         * @param symbolic True for a symbolic link, False for a hard link.
+         * @throws IOException If the link couldn't be created, or would be created or point outside of the
+         *                     destination.
+         */
+        private void createLink(Path path, String linkName, boolean symbolic) throws IOException {
+            checkNotThroughLink(path);
+            createDirectories(path.getParent());
+            Path realParent = path.getParent().toRealPath();
+            checkInside(realParent, path);
+
+            Path linkTarget;
+            if (symbolic) {
+                linkTarget = resolveLinkTarget(realParent, linkName);
+                if (linkTarget == null || !linkTarget.startsWith(realTarget))
+                    throw new IOException("Link: " + path + " would point outside of: " + target);
+            } else {
+                linkTarget = resolveEntry(target, linkName);
+                checkNotThroughLink(linkTarget);
+                if (Files.isSymbolicLink(linkTarget) || !linkTarget.toRealPath().startsWith(realTarget))
+                    throw new IOException("Link: " + path + " would point outside of: " + target);
+            }
+
+            // The replaced path, and anything below it, no longer is the directory it may have been
+            Files.deleteIfExists(path);
+            directories.removeIf(directory -> directory.startsWith(path));
+            links.remove(path);
+            try {
+                if (symbolic) {
+                    Files.createSymbolicLink(path, Paths.get(linkName));
+                    links.add(path);
+                } else {
+                    Files.createLink(path, linkTarget);
+                }
+            } catch (UnsupportedOperationException uoe) {
+                logger.log(Level.FINE, "Unable to create link: " + path, uoe);
+            }
+        }
+
+        /**
+         * Follows the target of a symbolic link one name at a time, the way the file system would, following any
+         * symbolic link on the way.
+         * @param realParent The real path of the directory the link is in.
+         * @param linkName The target of the link.
+         * @return The path the link points at, or null if it is absolute or leads through a broken link.
+         * @throws IOException If a link on the way couldn't be followed.
+         */
+        private Path resolveLinkTarget(Path realParent, String linkName) throws IOException {
+            Path name;
+            try {
+                name = Paths.get(linkName);
+            } catch (InvalidPathException ipe) {
+                throw new IOException("Link target: " + linkName + " is not a valid path.", ipe);
+            }
+            if (name.isAbsolute())
+                return null;
+            Path current = realParent;
+            for (Path element : name) {
+                String value = element.toString();
+                if (value.equals(".") || value.isEmpty())
+                    continue;
+                current = value.equals("..") ? current.getParent() : current.resolve(value);
+                if (current == null)
+                    return null;
+                if (Files.isSymbolicLink(current)) {
+                    if (!Files.exists(current))
+                        return null;
+                    current = current.toRealPath();
+                }
+            }
+            return current;
+        }
+
+        /**
+         * Makes sure that a path doesn't lead through a symbolic link created from the archive.
+         * @param path The path to check.
+         * @throws IOException If one of the path's parents is a symbolic link created from the archive.
+         */
+        private void checkNotThroughLink(Path path) throws IOException {
+            for (Path parent = path.getParent(); parent != null && parent.startsWith(target);
+                 parent = parent.getParent()) {
+                if (links.contains(parent))
+                    throw new IOException("Entry: " + path + " would be extracted through link: " + parent);
+            }
+        }
+
+        /**
+         * Makes sure that a real path is inside the destination.
+         * @param realPath The real path to check.
+         * @param path The path of the entry, used in error messages.
+         * @throws IOException If the real path is outside of the destination.
+         */
+        private void checkInside(Path realPath, Path path) throws IOException {
+            if (!realPath.startsWith(realTarget))
+                throw new IOException("Entry: " + path + " would be extracted outside of: " + target);
+        }
+    }
+
+    /**
+     * The counts of an extraction, updated from every thread taking part in it.
+     */
+    private static class Counters {
+        private final AtomicLong entries = new AtomicLong();
+        private final AtomicLong extracted = new AtomicLong();
+        private final AtomicLong unchanged = new AtomicLong();
+        private final AtomicLong bytesWritten = new AtomicLong();
+    }
+}
@@ -0,0 +1,116 @@
+package com.lukas783.mdt.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A utility file to rename and copy built artifacts in-process, without going through the system's shell.
+ * Renames are atomic where the file system supports it, and copies are written to a temporary file next to
+ * their destination before being moved into place, so that a destination never holds a partial artifact.
+ *
+ * @author Lucas Carpenter
+ */
+public class ArtifactFiles {
+
+    // Declare a logger for debug/error logging
+    private static final Logger logger = Logger.getLogger(ArtifactFiles.class.getName());
+
+    /**
+     * The ways an artifact can end up at the destination of a copy.
+     */
+    public enum CopyMethod {
+        /** The destination is a hard link to the same file as the source. */
+        LINKED,
+        /** The destination is a separate copy of the source. */
+        COPIED
+    }
+
+    /**
+     * Renames an artifact, replacing any file that already has the new name.
+     * @param source The artifact to rename.
+     * @param newName The new name of the artifact, relative to the directory it is in.
+     * @return The path of the renamed artifact.
+     * @throws IOException If the artifact couldn't be renamed.
+     */
+    public static Path rename(Path source, String newName) throws IOException {
+        Path target = source.resolveSibling(newName);
+        if (!target.equals(source))
+            BinaryIO.replaceFile(source.toFile(), target.toFile());
+        return target;
+    }
+
+    /**
+     * Copies an artifact into a directory, replacing any file of the same name already in the directory. When
+     * hard links are allowed and the directory is on the same file store as the artifact the copy is made as a
+     * hard link, otherwise the artifact's contents are transferred channel to channel, which lets the operating
+     * system copy them without passing them through the application.
+     * <p>
+     * A hard link shares its contents with the artifact, so it changes along with the artifact whenever the
+     * artifact is rewritten in place, as maven does with the artifacts in 'target/' on a build without 'clean'.
+     * Hard links should only be allowed when the artifact is never rewritten in place.
+     * @param source The artifact to copy.
+     * @param targetDirectory The directory to copy the artifact into, created if it doesn't exist.
+     * @param allowHardLink True to hard link the artifact where possible, False to always copy its contents, which
+     *                      also replaces a destination that is still a hard link to the artifact.
+     * @param verify True to compare the checksums of the artifact and its copy before moving the copy into place.
+     * @return The {@link CopyMethod} used to copy the artifact.
+     * @throws IOException If the artifact couldn't be copied, or its copy didn't match it.
+     */
+    public static CopyMethod copy(Path source, Path targetDirectory, boolean allowHardLink, boolean verify)
+            throws IOException {
+        Files.createDirectories(targetDirectory);
+        Path target = targetDirectory.resolve(source.getFileName());
+        if (allowHardLink && Files.exists(target) && Files.isSameFile(source, target))
+            return CopyMethod.LINKED;
+        Path temporary = targetDirectory.resolve("." + source.getFileName() + ".mdt-tmp");
+        Files.deleteIfExists(temporary);
+
+        // Hard link the artifact if it lives on the same file store as its destination
+        if (allowHardLink && Files.getFileStore(source).equals(Files.getFileStore(targetDirectory))) {
+            try {
+                Files.createLink(temporary, source);
+                BinaryIO.replaceFile(temporary.toFile(), target.toFile());
+                return CopyMethod.LINKED;
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.log(Level.FINE, "Unable to hard link: " + source + ", copying it instead.", e);
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        try {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                         StandardOpenOption.WRITE)) {
+                long size = in.size();
+                long position = 0;
+                while (position < size)
+                    position += in.transferTo(position, size - position, out);
+                out.force(false);
+            }
+            if (verify)
+                verifyCopy(source.toFile(), temporary.toFile());
+            BinaryIO.replaceFile(temporary.toFile(), target.toFile());
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return CopyMethod.COPIED;
+    }
+
+    /**
+     * Checks that a copy of a file has the same size and checksum as the file itself.
+     * @param source The file that was copied.
+     * @param copy The copy of the file.
+     * @throws IOException If either file couldn't be read, or the copy doesn't match the file.
+     */
+    private static void verifyCopy(File source, File copy) throws IOException {
+        if (source.length() != copy.length() || !Arrays.equals(Checksums.sha256(source), Checksums.sha256(copy)))
+            throw new IOException("Copy of: " + source + " does not match the original.");
+    }
+}
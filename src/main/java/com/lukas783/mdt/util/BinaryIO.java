@@ -0,0 +1,71 @@
+package com.lukas783.mdt.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A utility file filled with helper functions for reading and writing the compact binary files the
+ * application persists its data in.
+ *
+ * @author Lucas Carpenter
+ */
+public class BinaryIO {
+
+    // Declaration of the longest string, in bytes, a file is trusted to hold. Anything longer means the file is
+    // corrupt, and allocating room for it could run the application out of memory
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * Writes a string as a length-prefixed run of UTF-8 bytes. Unlike {@link DataOutput#writeUTF(String)}
+     * there is no limit on the length of the string, and null strings are supported.
+     * @param out The output to write to.
+     * @param value The string to write, may be null.
+     * @throws IOException If the output couldn't be written to.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     * @param in The input to read from.
+     * @return The string read, may be null.
+     * @throws IOException If the input couldn't be read from, or holds a length no string written to it could have.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1)
+            return null;
+        if (length < 0 || length > MAX_STRING_BYTES)
+            throw new IOException("Corrupt string length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replaces a file with a temporary file that has been fully written, so that a crash part way through
+     * writing never leaves a partially written file behind. An atomic move is used where the file system
+     * supports it.
+     * @param temporaryFile The fully written temporary file.
+     * @param file The file to replace.
+     * @throws IOException If the temporary file couldn't be moved.
+     */
+    public static void replaceFile(File temporaryFile, File file) throws IOException {
+        try {
+            Files.move(temporaryFile.toPath(), file.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException amnse) {
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
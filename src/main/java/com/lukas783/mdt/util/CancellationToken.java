@@ -0,0 +1,130 @@
+package com.lukas783.mdt.util;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * A token used to cancel work in progress, along with every child process registered with it. A token may
+ * have a deadline, after which it cancels itself the next time it is checked, and may have child tokens,
+ * which are cancelled along with it. Cancelling a token kills the whole process tree of every registered
+ * process straight away.
+ *
+ * @author Lucas Carpenter
+ */
+public class CancellationToken {
+
+    // Declare a logger for debug/error logging
+    private static final Logger logger = Logger.getLogger(CancellationToken.class.getName());
+
+    // Declaration of variables used by the token
+    private final CancellationToken parent;
+    private final long deadline;
+    private final List<CancellationToken> children = new CopyOnWriteArrayList<>();
+    private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+    private volatile String reason;
+
+    /**
+     * Constructs a new token.
+     * @param timeoutMillis How long until the token cancels itself, in milliseconds, or 0 for no timeout.
+     */
+    public CancellationToken(long timeoutMillis) {
+        this(null, timeoutMillis);
+    }
+
+    /**
+     * Constructs a new token.
+     * @param parent The token this token is a child of, or null if it has no parent.
+     * @param timeoutMillis How long until the token cancels itself, in milliseconds, or 0 for no timeout.
+     */
+    private CancellationToken(CancellationToken parent, long timeoutMillis) {
+        this.parent = parent;
+        this.deadline = timeoutMillis > 0 ? System.nanoTime() + timeoutMillis * 1_000_000L : 0;
+    }
+
+    /**
+     * Creates a child of the token, which is cancelled whenever the token is. The child should be closed once
+     * the work it covers is done.
+     * @param timeoutMillis How long until the child cancels itself, in milliseconds, or 0 for no timeout.
+     * @return The child token.
+     */
+    public CancellationToken createChild(long timeoutMillis) {
+        CancellationToken child = new CancellationToken(this, timeoutMillis);
+        children.add(child);
+        if (reason != null)
+            child.cancel(reason);
+        return child;
+    }
+
+    /**
+     * Detaches the token from its parent once the work it covers is done.
+     */
+    public void close() {
+        if (parent != null)
+            parent.children.remove(this);
+    }
+
+    /**
+     * Cancels the token and every child of the token, killing the process trees of all registered processes.
+     * Cancelling a token a second time does nothing.
+     * @param reason A description of why the token was cancelled.
+     */
+    public void cancel(String reason) {
+        synchronized (this) {
+            if (this.reason != null)
+                return;
+            this.reason = reason;
+        }
+        logger.info("Cancelling work in progress: " + reason);
+        for (CancellationToken child : children)
+            child.cancel(reason);
+        for (Process process : processes)
+            ProcessTree.destroy(process);
+    }
+
+    /**
+     * Checks whether the token has been cancelled, cancelling it first if its deadline or the deadline of
+     * one of its parents has passed.
+     * @return True if the token has been cancelled, False otherwise.
+     */
+    public boolean isCancelled() {
+        if (reason == null) {
+            for (CancellationToken token = this; token != null; token = token.parent) {
+                if (token.deadline != 0 && System.nanoTime() - token.deadline >= 0) {
+                    token.cancel(token.parent == null ? "the run timed out" : "the task timed out");
+                    break;
+                }
+            }
+        }
+        return reason != null;
+    }
+
+    /**
+     * Retrieves why the token was cancelled.
+     * @return The description of why the token was cancelled, or null if it hasn't been cancelled.
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Registers a process to be killed, along with every process it started, if the token is cancelled. A
+     * process registered with a token that has already been cancelled is killed straight away.
+     * @param process The process to register.
+     */
+    public void register(Process process) {
+        processes.add(process);
+        if (reason != null)
+            ProcessTree.destroy(process);
+    }
+
+    /**
+     * Unregisters a process once it has finished.
+     * @param process The process to unregister.
+     */
+    public void unregister(Process process) {
+        processes.remove(process);
+    }
+}
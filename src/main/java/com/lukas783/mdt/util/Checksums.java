@@ -0,0 +1,82 @@
+package com.lukas783.mdt.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+
+/**
+ * A utility file filled with helper functions to compute and format content hashes of files.
+ *
+ * @author Lucas Carpenter
+ */
+public class Checksums {
+
+    // Declaration of constants used by the utility
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Creates a new SHA-256 digest.
+     * @return A new {@link MessageDigest} for the SHA-256 algorithm.
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException("SHA-256 is not supported by this platform.", nsae);
+        }
+    }
+
+    /**
+     * Computes the SHA-256 hash of the contents of a file.
+     * @param file The file to hash.
+     * @return The 32 byte hash of the file's contents.
+     * @throws IOException If the file couldn't be read.
+     */
+    public static byte[] sha256(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Computes the CRC-32 checksum of the contents of a file, as stored by zip archives.
+     * @param file The file to checksum.
+     * @return The CRC-32 checksum of the file's contents.
+     * @throws IOException If the file couldn't be read.
+     */
+    public static long crc32(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Formats a hash as a lower-case hexadecimal string.
+     * @param hash The hash to format.
+     * @return The hexadecimal form of the hash.
+     */
+    public static String toHex(byte[] hash) {
+        char[] chars = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -1,9 +1,22 @@
 package com.lukas783.mdt.util;
 
+import com.lukas783.mdt.api.ProcessResult;
 import com.lukas783.mdt.service.ProcessService;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,15 +33,125 @@ public class CommandLine {
     // Declaration of constants used by the utility
     private static final boolean isWindows = System.getProperty("os.name")
             .toLowerCase().startsWith("windows");
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 32;
+    private static final long CPU_SAMPLE_MILLIS = 250;
+    private static final long DRAIN_GRACE_MILLIS = Long.getLong("mdt.process.drainGraceMillis", 5_000L);
+
+    // Declaration of the threads draining process output, and the buffers they reuse between processes
+    private static final ExecutorService drainThreads = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "mdt-process-drain-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private static final Queue<DrainBuffers> bufferPool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The buffers used to drain a single output stream, kept in {@link #bufferPool} between uses.
+     */
+    private static class DrainBuffers {
+        private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        private final StringBuilder line = new StringBuilder();
+    }
+
+    /**
+     * Executes a command line statement, serving the {@link ProcessService} with the output of the process.
+     * The process is cancelled along with the task the calling thread is executing, if there is one.
+     * @param workingDirectory The working directory to swap to during execution.
+     * @param cmd The command to execute
+     * @return The {@link ProcessResult} describing how the process finished.
+     * @see #ExecuteCommandLine(File, String, Consumer, CancellationToken)
+     */
+    public static ProcessResult ExecuteCommandLine(File workingDirectory, String cmd) {
+        return ExecuteCommandLine(workingDirectory, cmd, ProcessService.getInstance().getExecutionOutput(),
+                ProcessService.getInstance().getCancellationToken());
+    }
+
+    /**
+     * Executes a command line statement with extra environment variables, serving the {@link ProcessService} with
+     * the output of the process. The process is cancelled along with the task the calling thread is executing, if
+     * there is one.
+     * @param workingDirectory The working directory to swap to during execution.
+     * @param cmd The command to execute
+     * @param environment The environment variables to set for the process on top of the inherited ones, may be
+     *                    null.
+     * @return The {@link ProcessResult} describing how the process finished.
+     * @see #ExecuteCommandLine(File, String, Map, Consumer, CancellationToken)
+     */
+    public static ProcessResult ExecuteCommandLine(File workingDirectory, String cmd, Map<String, String> environment) {
+        return ExecuteCommandLine(workingDirectory, cmd, environment,
+                ProcessService.getInstance().getExecutionOutput(), ProcessService.getInstance().getCancellationToken());
+    }
 
     /**
-     * Executes a command line statement. Builds a process and executes the process, redirecting
-     * output of the process to a BufferedReader and serving the {@link ProcessService} with the
-     * output of the process.
+     * Executes a command line statement that can't be cancelled.
      * @param workingDirectory The working directory to swap to during execution.
      * @param cmd The command to execute
+     * @param output The consumer of each line of output, along with its line separator.
+     * @return The {@link ProcessResult} describing how the process finished.
+     * @see #ExecuteCommandLine(File, String, Consumer, CancellationToken)
      */
-    public static void ExecuteCommandLine(File workingDirectory, String cmd) {
+    public static ProcessResult ExecuteCommandLine(File workingDirectory, String cmd, Consumer<String> output) {
+        return ExecuteCommandLine(workingDirectory, cmd, output, null);
+    }
+
+    /**
+     * Executes a command line statement. Builds a process and executes the process, draining its standard
+     * output and standard error at the same time on their own threads so that neither can fill up and stall
+     * the process. Every line of output from either stream is handed to the output consumer. If the cancellation
+     * token is cancelled, or reaches its deadline, while the process runs, the process and every process it
+     * started are killed.
+     * @param workingDirectory The working directory to swap to during execution.
+     * @param cmd The command to execute
+     * @param output The consumer of each line of output, along with its line separator.
+     * @param token The {@link CancellationToken} that cancels the process, or null if it can't be cancelled.
+     * @return The {@link ProcessResult} describing how the process finished.
+     * @see #ExecuteCommandLine(File, String, Map, Consumer, CancellationToken)
+     */
+    public static ProcessResult ExecuteCommandLine(File workingDirectory, String cmd, Consumer<String> output,
+                                                   CancellationToken token) {
+        return ExecuteCommandLine(workingDirectory, cmd, null, output, token);
+    }
+
+    /**
+     * Executes a command line statement. Builds a process and executes the process, draining its standard
+     * output and standard error at the same time on their own threads so that neither can fill up and stall
+     * the process. Every line of output from either stream is handed to the output consumer. If the cancellation
+     * token is cancelled, or reaches its deadline, while the process runs, the process and every process it
+     * started are killed.
+     * @param workingDirectory The working directory to swap to during execution.
+     * @param cmd The command to execute
+     * @param environment The environment variables to set for the process on top of the inherited ones, may be
+     *                    null.
+     * @param output The consumer of each line of output, along with its line separator.
+     * @param token The {@link CancellationToken} that cancels the process, or null if it can't be cancelled.
+     * @return The {@link ProcessResult} describing how the process finished.
+     */
+    public static ProcessResult ExecuteCommandLine(File workingDirectory, String cmd, Map<String, String> environment,
+                                                   Consumer<String> output, CancellationToken token) {
+        if (token != null && token.isCancelled())
+            return new ProcessResult(ProcessResult.NOT_RUN, 0, 0, 0, 0);
+
+        long startTime = System.nanoTime();
+        Process p = null;
+        ProcessTree.Descendants descendants = new ProcessTree.Descendants();
+        AtomicBoolean abandoned = new AtomicBoolean();
+        Consumer<String> drainOutput = line -> {
+            if (!abandoned.get())
+                output.accept(line);
+        };
+        Future<Long> stdout = null;
+        Future<Long> stderr = null;
+        long cpuTime = -1;
+        long peakResidentBytes = -1;
+        int exitCode = ProcessResult.NOT_RUN;
         try {
             // Build the process as either a windows or linux process
             ProcessBuilder builder;
@@ -38,33 +161,197 @@ public class CommandLine {
                 builder = new ProcessBuilder("/bin/sh", "-c", cmd);
 
             builder.directory(workingDirectory);
-
-            // Gather environment variables (Not used atm, may need to use it later, who knows)
-            Map<String, String> env = builder.environment();
+            if (environment != null)
+                builder.environment().putAll(environment);
 
             // Start the process
-            Process p = builder.start();
+            p = builder.start();
+            if (token != null)
+                token.register(p);
+            p.getOutputStream().close();
 
-            // Redirect output of the process to a buffered reader
-            BufferedReader reader = new BufferedReader(new InputStreamReader(p.getInputStream()));
+            // Drain both output streams of the process at the same time
+            InputStream stdoutStream = p.getInputStream();
+            InputStream stderrStream = p.getErrorStream();
+            stdout = drainThreads.submit(() -> drain(stdoutStream, drainOutput));
+            stderr = drainThreads.submit(() -> drain(stderrStream, drainOutput));
 
-            // Read process output line-by-line, adding a system line separator between each line.
-            String line;
-            while((line = reader.readLine()) != null) {
-                ProcessService.getInstance().appendExecutionOutput(line);
-                ProcessService.getInstance().appendExecutionOutput(System.getProperty("line.separator"));
-            }
-
-            // Wait for the process to finish, then destroy the process and leave the function
-            p.waitFor();
-            p.destroy();
-            logger.info("Process with string: " +cmd+" finished running.");
+            // Wait for the process to finish, sampling how much processor time it has used and checking the
+            // deadline of the cancellation token along the way. Cancelling the token kills the process.
+            Map<Long, Long> cpuTimes = new HashMap<>();
+            do {
+                if (token == null || !token.isCancelled()) {
+                    cpuTime = ProcessTree.sampleCpuTime(p, cpuTimes);
+                    peakResidentBytes = Math.max(peakResidentBytes, ProcessTree.sampleResidentBytes(p));
+                    descendants.sample(p);
+                }
+            } while (!p.waitFor(CPU_SAMPLE_MILLIS, TimeUnit.MILLISECONDS));
+            exitCode = p.exitValue();
+            logger.info("Process with string: " +cmd+" finished running with exit code: " + exitCode);
         } catch(IOException ioe) {
             logger.log(Level.SEVERE, "Unable to redirect i/o for command: " + cmd, ioe);
         } catch(InterruptedException ie) {
             logger.log(Level.SEVERE, "Child process was interrupted when running command: " + cmd, ie);
+            Thread.currentThread().interrupt();
         } catch(Exception e) {
             logger.log(Level.SEVERE, "Unhandled exception...", e);
+        } finally {
+            if (p != null) {
+                if (token != null)
+                    token.unregister(p);
+                if (p.isAlive())
+                    ProcessTree.destroy(p);
+            }
+        }
+
+        // Processes left running in the background can hold the output open after the process itself has exited,
+        // so they are killed if the output isn't drained soon, and the output is given up on if that doesn't help
+        if (!awaitDrained(token, stdout, stderr)) {
+            int killed = descendants.destroyRunning();
+            logger.warning("Output of command: " + cmd + " was still held open after it finished, killed " +
+                    killed + " processes it left running.");
+            if (!awaitDrained(token, stdout, stderr)) {
+                abandoned.set(true);
+                logger.warning("Output of command: " + cmd + " is held open by a process that couldn't be " +
+                        "killed, no longer waiting for it.");
+            }
+        }
+        long stdoutBytes = getDrainedBytes(stdout, cmd);
+        long stderrBytes = getDrainedBytes(stderr, cmd);
+        long wallTime = (System.nanoTime() - startTime) / 1_000_000L;
+        return new ProcessResult(exitCode, wallTime, cpuTime, stdoutBytes, stderrBytes, peakResidentBytes);
+    }
+
+    /**
+     * Reads an output stream of a process until it ends, handing each line to the output consumer.
+     * @param stream The output stream of the process.
+     * @param output The consumer of each line of output, along with its line separator.
+     * @return The number of bytes read from the stream.
+     * @throws IOException If the stream can't be read.
+     */
+    private static long drain(InputStream stream, Consumer<String> output) throws IOException {
+        DrainBuffers buffers = bufferPool.poll();
+        if (buffers == null)
+            buffers = new DrainBuffers();
+        CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = buffers.bytes;
+        long count = 0;
+        try (InputStream in = stream) {
+            int read;
+            while ((read = in.read(bytes.array(), bytes.position(), bytes.remaining())) != -1) {
+                count += read;
+                bytes.position(bytes.position() + read);
+                bytes.flip();
+                decode(decoder, buffers, false, output);
+                bytes.compact();
+            }
+            bytes.flip();
+            decode(decoder, buffers, true, output);
+            if (buffers.line.length() > 0)
+                output.accept(buffers.line + LINE_SEPARATOR);
+        } finally {
+            bytes.clear();
+            buffers.chars.clear();
+            buffers.line.setLength(0);
+            if (bufferPool.size() < MAX_POOLED_BUFFERS)
+                bufferPool.offer(buffers);
+        }
+        return count;
+    }
+
+    /**
+     * Decodes the bytes waiting in a set of drain buffers and hands every finished line to the output consumer.
+     * @param decoder The decoder of the stream's character set.
+     * @param buffers The drain buffers of the stream.
+     * @param endOfInput True if the stream has ended, False otherwise.
+     * @param output The consumer of each line of output, along with its line separator.
+     */
+    private static void decode(CharsetDecoder decoder, DrainBuffers buffers, boolean endOfInput,
+                               Consumer<String> output) {
+        CharBuffer chars = buffers.chars;
+        CoderResult result;
+        do {
+            result = decoder.decode(buffers.bytes, chars, endOfInput);
+            if (endOfInput && !result.isOverflow())
+                result = decoder.flush(chars);
+            chars.flip();
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (c == '\n') {
+                    int length = buffers.line.length();
+                    if (length > 0 && buffers.line.charAt(length - 1) == '\r')
+                        buffers.line.setLength(length - 1);
+                    output.accept(buffers.line.append(LINE_SEPARATOR).toString());
+                    buffers.line.setLength(0);
+                } else {
+                    buffers.line.append(c);
+                }
+            }
+            chars.clear();
+        } while (result.isOverflow());
+    }
+
+    /**
+     * Waits for both streams of a process to finish draining, for at most the drain grace period, and for no
+     * longer than the cancellation token allows.
+     * @param token The {@link CancellationToken} of the process, or null if it can't be cancelled.
+     * @param stdout The future of the standard output drain, or null if it was never drained.
+     * @param stderr The future of the standard error drain, or null if it was never drained.
+     * @return True if both streams have finished draining, False otherwise.
+     */
+    private static boolean awaitDrained(CancellationToken token, Future<Long> stdout, Future<Long> stderr) {
+        long deadline = System.nanoTime() + DRAIN_GRACE_MILLIS * 1_000_000L;
+        return awaitDrained(token, stdout, deadline) && awaitDrained(token, stderr, deadline);
+    }
+
+    /**
+     * Waits for a stream of a process to finish draining, until a deadline or until the cancellation token is
+     * cancelled.
+     * @param token The {@link CancellationToken} of the process, or null if it can't be cancelled.
+     * @param drained The future of the drain, or null if the stream was never drained.
+     * @param deadline The {@link System#nanoTime()} to stop waiting at.
+     * @return True if the stream has finished draining, False otherwise.
+     */
+    private static boolean awaitDrained(CancellationToken token, Future<Long> drained, long deadline) {
+        while (drained != null && !drained.isDone()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || token != null && token.isCancelled())
+                return false;
+            try {
+                drained.get(Math.min(remaining, CPU_SAMPLE_MILLIS * 1_000_000L), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                // Checked again on the next pass, a failed drain counts as finished
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the result of a stream's drain, without waiting for a drain that hasn't finished.
+     * @param drained The future of the drain, or null if the stream was never drained.
+     * @param cmd The command the stream belongs to.
+     * @return The number of bytes drained from the stream, or 0 if the drain hasn't finished.
+     */
+    private static long getDrainedBytes(Future<Long> drained, String cmd) {
+        if (drained == null)
+            return 0;
+        if (!drained.isDone()) {
+            drained.cancel(true);
+            return 0;
+        }
+        try {
+            return drained.get();
+        } catch (InterruptedException ie) {
+            drained.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            logger.log(Level.SEVERE, "Unable to read output of command: " + cmd, ee.getCause());
         }
+        return 0;
     }
 }
@@ -0,0 +1,29 @@
+package com.lukas783.mdt.util;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+/**
+ * A utility file to locate the directory the application keeps its persistent data in. The directory defaults
+ * to '.mdt' inside of the user's home directory, and can be moved with the 'mdt.home' system property.
+ *
+ * @author Lucas Carpenter
+ */
+public class DataDirectory {
+
+    // Declare a logger for debug/error logging
+    private static final Logger logger = Logger.getLogger(DataDirectory.class.getName());
+
+    /**
+     * Retrieves a file inside of the application's data directory, creating the data directory if needed.
+     * @param name The name of the file, relative to the data directory.
+     * @return The file inside of the data directory.
+     */
+    public static File getFile(String name) {
+        File directory = new File(System.getProperty("mdt.home",
+                System.getProperty("user.home") + File.separator + ".mdt"));
+        if (!directory.isDirectory() && !directory.mkdirs())
+            logger.warning("Unable to create data directory: " + directory);
+        return new File(directory, name);
+    }
+}
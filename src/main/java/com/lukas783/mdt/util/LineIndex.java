@@ -0,0 +1,162 @@
+package com.lukas783.mdt.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A growable index of the byte offsets at which the lines of a log file start, along with the length of the
+ * longest line. The index can be saved next to the log it describes, and is only loaded back if the log is
+ * still the length it was when the index was saved.
+ *
+ * @author Lucas Carpenter
+ */
+public class LineIndex {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(LineIndex.class.getName());
+
+    // Declaration of constants used by the index
+    private static final int FILE_MAGIC = 0x4D444C49;
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Declaration of variables used by the index
+    private long[] offsets = new long[1024];
+    private int size;
+    private int longestLine;
+
+    /**
+     * Constructs a new index holding a single line starting at offset 0.
+     */
+    public LineIndex() {
+        offsets[size++] = 0;
+    }
+
+    /**
+     * Records the start of a new line.
+     * @param offset The byte offset the line starts at.
+     * @param previousLineLength The length of the line that just ended, in bytes.
+     */
+    public void addLine(long offset, int previousLineLength) {
+        if (size == offsets.length)
+            offsets = Arrays.copyOf(offsets, size * 2);
+        offsets[size++] = offset;
+        longestLine = Math.max(longestLine, previousLineLength);
+    }
+
+    /**
+     * Retrieves the number of lines started, including a last line that may still be empty.
+     * @return The number of line starts in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the byte offset a line starts at.
+     * @param line The index of the line.
+     * @return The byte offset of the line's first byte.
+     */
+    public long getOffset(int line) {
+        return offsets[line];
+    }
+
+    /**
+     * Retrieves the length of the longest finished line.
+     * @return The length of the longest line, in bytes.
+     */
+    public int getLongestLine() {
+        return longestLine;
+    }
+
+    /**
+     * Finds the line a byte offset falls in.
+     * @param offset The byte offset.
+     * @return The index of the line containing the offset.
+     */
+    public int lineAt(long offset) {
+        int line = Arrays.binarySearch(offsets, 0, size, offset);
+        return line >= 0 ? line : -line - 2;
+    }
+
+    /**
+     * Saves the index to a file, atomically replacing any index already there.
+     * @param file The file to save the index to.
+     * @param logLength The length of the log the index describes.
+     */
+    public void save(File file, long logLength) {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putLong(logLength).putInt(longestLine).putInt(size);
+            for (int i = 0; i < size; i++) {
+                if (buffer.remaining() < Long.BYTES)
+                    drain(channel, buffer);
+                buffer.putLong(offsets[i]);
+            }
+            drain(channel, buffer);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to write line index to: " + file, ioe);
+            return;
+        }
+        try {
+            BinaryIO.replaceFile(temporaryFile, file);
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to replace line index: " + file, ioe);
+        }
+    }
+
+    /**
+     * Loads an index from a file.
+     * @param file The file to load the index from.
+     * @param logLength The current length of the log the index describes.
+     * @return The loaded index, or null if there is no usable index for a log of that length.
+     */
+    public static LineIndex load(File file, long logLength) {
+        if (!file.isFile())
+            return null;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE)
+                return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION || buffer.getLong() != logLength)
+                return null;
+            int longestLine = buffer.getInt();
+            int size = buffer.getInt();
+            if (size < 1 || buffer.remaining() != (long) size * Long.BYTES)
+                return null;
+
+            LineIndex index = new LineIndex();
+            index.longestLine = longestLine;
+            index.offsets = new long[size];
+            buffer.asLongBuffer().get(index.offsets);
+            index.size = size;
+            return index;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to read line index: " + file + ", the log will be re-indexed.", ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the contents of a buffer to a channel and empties the buffer.
+     * @param channel The channel to write to.
+     * @param buffer The buffer to write.
+     * @throws IOException If the channel can't be written to.
+     */
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,283 @@
+package com.lukas783.mdt.util;
+
+import com.lukas783.mdt.api.ILineSource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a log file through memory-mapped buffers, so that even very large logs can be opened and searched
+ * without being loaded onto the heap. Lines are located through the {@link LineIndex} saved by
+ * {@link LogFileWriter}, or through a single scan of the mapped log if there is no usable index. The reader
+ * sees the log as it was when the reader was opened.
+ *
+ * @author Lucas Carpenter
+ */
+public class LogFileReader implements ILineSource, Closeable {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(LogFileReader.class.getName());
+
+    // Declaration of constants used by the reader
+    private static final int SEGMENT_SIZE = 1 << 30;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    // Declaration of variables used by the reader
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long length;
+    private final LineIndex index;
+    private final int lineCount;
+
+    /**
+     * Opens a log file for reading.
+     * @param file The log file to read.
+     * @throws IOException If the log file can't be opened or mapped.
+     */
+    public LogFileReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            length = channel.size();
+            segments = new MappedByteBuffer[(int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i * SEGMENT_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, length - start));
+            }
+        } catch (IOException ioe) {
+            channel.close();
+            throw ioe;
+        }
+
+        LineIndex savedIndex = LineIndex.load(LogFileWriter.getIndexFile(file), length);
+        index = savedIndex != null ? savedIndex : buildIndex();
+        // A log ending in a line separator has an empty line start at its very end, which isn't shown
+        int lines = index.size();
+        if (lines > 0 && index.getOffset(lines - 1) >= length)
+            lines--;
+        lineCount = lines;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * {@inheritDoc} Lines longer than 64 KiB are cut short.
+     */
+    @Override
+    public String getLine(int line) {
+        if (line < 0 || line >= lineCount)
+            return "";
+        long start = index.getOffset(line);
+        int lineLength = (int) Math.min(MAX_LINE_LENGTH, getLineEnd(line) - start);
+        byte[] bytes = new byte[lineLength];
+        read(start, bytes, lineLength);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLongestLine() {
+        return Math.min(MAX_LINE_LENGTH, index.getLongestLine());
+    }
+
+    /**
+     * {@inheritDoc} Lines are never removed from a log.
+     */
+    @Override
+    public long getEvictedLines() {
+        return 0;
+    }
+
+    /**
+     * Retrieves the line index of the log.
+     * @return The log's line index.
+     */
+    public LineIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Searches for the next line containing some text, wrapping around the end of the log.
+     * @param query The text, or regular expression, to search for.
+     * @param regex True if the query is a regular expression, False if it is plain text.
+     * @param fromLine The line to start searching from, not including the line itself.
+     * @param forward True to search towards the end of the log, False to search towards the start.
+     * @return The index of the next line containing the query, or -1 if no line contains it.
+     * @throws java.util.regex.PatternSyntaxException If the query is not a valid regular expression.
+     */
+    public int find(String query, boolean regex, int fromLine, boolean forward) {
+        if (lineCount == 0 || query.isEmpty())
+            return -1;
+        Matcher matcher = regex ? Pattern.compile(query).matcher("") : null;
+        byte[] needle = query.getBytes(StandardCharsets.UTF_8);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(1024);
+
+        int line = fromLine;
+        for (int checked = 0; checked < lineCount; checked++) {
+            line = forward ? (line + 1) % lineCount : (line - 1 + lineCount) % lineCount;
+            if (matcher == null) {
+                if (contains(line, needle))
+                    return line;
+            } else {
+                chars = decodeLine(line, decoder, chars);
+                if (matcher.reset(chars).find())
+                    return line;
+            }
+            if (Thread.currentThread().isInterrupted())
+                return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Closes the log. Lines can't be read once the reader is closed.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to close log.", ioe);
+        }
+    }
+
+    /**
+     * Builds a line index by scanning the mapped log for line separators.
+     * @return The built line index.
+     */
+    private LineIndex buildIndex() {
+        LineIndex built = new LineIndex();
+        long lineStart = 0;
+        for (int i = 0; i < segments.length; i++) {
+            MappedByteBuffer segment = segments[i];
+            long segmentStart = (long) i * SEGMENT_SIZE;
+            int limit = segment.limit();
+            for (int j = 0; j < limit; j++) {
+                if (segment.get(j) == '\n') {
+                    long nextLine = segmentStart + j + 1;
+                    built.addLine(nextLine, (int) Math.min(Integer.MAX_VALUE, nextLine - 1 - lineStart));
+                    lineStart = nextLine;
+                }
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Finds where a line ends, not including its line separator.
+     * @param line The index of the line.
+     * @return The byte offset just past the last byte of the line's text.
+     */
+    private long getLineEnd(int line) {
+        long start = index.getOffset(line);
+        long end = line + 1 < index.size() ? index.getOffset(line + 1) : length;
+        if (end > start && byteAt(end - 1) == '\n')
+            end--;
+        if (end > start && byteAt(end - 1) == '\r')
+            end--;
+        return end;
+    }
+
+    /**
+     * Checks whether a line contains a sequence of bytes, reading straight from the mapped log.
+     * @param line The index of the line.
+     * @param needle The bytes to look for.
+     * @return True if the line contains the bytes, False otherwise.
+     */
+    private boolean contains(int line, byte[] needle) {
+        long start = index.getOffset(line);
+        long last = getLineEnd(line) - needle.length;
+        for (long position = start; position <= last; position++) {
+            int matched = 0;
+            while (matched < needle.length && byteAt(position + matched) == needle[matched])
+                matched++;
+            if (matched == needle.length)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Decodes a line into a reusable character buffer.
+     * @param line The index of the line.
+     * @param decoder The decoder to use.
+     * @param chars The buffer to decode into.
+     * @return The buffer holding the decoded line, a larger buffer than the one given if it was too small.
+     */
+    private CharBuffer decodeLine(int line, CharsetDecoder decoder, CharBuffer chars) {
+        long start = index.getOffset(line);
+        int lineLength = (int) Math.min(MAX_LINE_LENGTH, getLineEnd(line) - start);
+        if (chars.capacity() < lineLength)
+            chars = CharBuffer.allocate(lineLength);
+        chars.clear();
+
+        ByteBuffer bytes;
+        int segment = (int) (start / SEGMENT_SIZE);
+        int segmentOffset = (int) (start % SEGMENT_SIZE);
+        if (segmentOffset + lineLength <= segments[segment].limit()) {
+            bytes = segments[segment].duplicate();
+            bytes.position(segmentOffset);
+            bytes.limit(segmentOffset + lineLength);
+        } else {
+            // The line crosses into the next segment, so it has to be copied out
+            byte[] copy = new byte[lineLength];
+            read(start, copy, lineLength);
+            bytes = ByteBuffer.wrap(copy);
+        }
+        decoder.reset();
+        decoder.decode(bytes, chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        return chars;
+    }
+
+    /**
+     * Reads a single byte from the mapped log.
+     * @param position The byte offset to read.
+     * @return The byte at the offset.
+     */
+    private byte byteAt(long position) {
+        return segments[(int) (position / SEGMENT_SIZE)].get((int) (position % SEGMENT_SIZE));
+    }
+
+    /**
+     * Copies bytes out of the mapped log.
+     * @param position The byte offset to start copying from.
+     * @param destination The array to copy into.
+     * @param count The number of bytes to copy.
+     */
+    private void read(long position, byte[] destination, int count) {
+        int copied = 0;
+        while (copied < count) {
+            ByteBuffer segment = segments[(int) (position / SEGMENT_SIZE)].duplicate();
+            segment.position((int) (position % SEGMENT_SIZE));
+            int length = Math.min(segment.remaining(), count - copied);
+            segment.get(destination, copied, length);
+            copied += length;
+            position += length;
+        }
+    }
+}
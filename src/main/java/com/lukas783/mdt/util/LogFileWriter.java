@@ -0,0 +1,148 @@
+package com.lukas783.mdt.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appends text to a log file through a buffered NIO channel, keeping a {@link LineIndex} of the log up to date
+ * as it goes. The index is saved next to the log when the writer is closed, so that {@link LogFileReader} can
+ * open the log without scanning it. The writer may be used from several threads at the same time.
+ *
+ * @author Lucas Carpenter
+ */
+public class LogFileWriter implements Closeable {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(LogFileWriter.class.getName());
+
+    // Declaration of constants used by the writer
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Declaration of variables used by the writer
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final LineIndex index = new LineIndex();
+    private long position;
+    private boolean failed;
+
+    /**
+     * Opens a log file for appending, creating it if it doesn't exist.
+     * @param file The log file to write to.
+     * @throws IOException If the log file can't be opened.
+     */
+    public LogFileWriter(File file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        // Continue the index of anything already in the log
+        LineIndex existing = LineIndex.load(getIndexFile(file), channel.size());
+        if (channel.size() > 0 && existing == null) {
+            try (LogFileReader reader = new LogFileReader(file)) {
+                existing = reader.getIndex();
+            }
+        }
+        if (existing != null) {
+            for (int i = 1; i < existing.size(); i++)
+                index.addLine(existing.getOffset(i), existing.getLongestLine());
+        }
+        position = channel.size();
+    }
+
+    /**
+     * Appends text to the log.
+     * @param text The text to append.
+     */
+    public synchronized void write(String text) {
+        if (failed)
+            return;
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        long lineStart = index.getOffset(index.size() - 1);
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                long nextLine = position + i + 1;
+                index.addLine(nextLine, (int) Math.min(Integer.MAX_VALUE, nextLine - 1 - lineStart));
+                lineStart = nextLine;
+            }
+        }
+        position += bytes.length;
+
+        int offset = 0;
+        try {
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining())
+                    drain();
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        } catch (IOException ioe) {
+            failed = true;
+            logger.log(Level.WARNING, "Unable to write to log: " + file + ", further output won't be logged.", ioe);
+        }
+    }
+
+    /**
+     * Writes any buffered text out to the log file.
+     */
+    public synchronized void flush() {
+        if (failed)
+            return;
+        try {
+            drain();
+        } catch (IOException ioe) {
+            failed = true;
+            logger.log(Level.WARNING, "Unable to write to log: " + file + ", further output won't be logged.", ioe);
+        }
+    }
+
+    /**
+     * Retrieves the log file being written to.
+     * @return The log file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Flushes and closes the log, then saves its line index.
+     */
+    @Override
+    public synchronized void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to close log: " + file, ioe);
+        }
+        if (!failed)
+            index.save(getIndexFile(file), position);
+    }
+
+    /**
+     * Retrieves the file the line index of a log is saved to.
+     * @param logFile The log file.
+     * @return The line index file of the log.
+     */
+    public static File getIndexFile(File logFile) {
+        return new File(logFile.getPath() + ".idx");
+    }
+
+    /**
+     * Writes the contents of the buffer to the channel and empties the buffer.
+     * @throws IOException If the channel can't be written to.
+     */
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
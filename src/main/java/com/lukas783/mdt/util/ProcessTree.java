@@ -0,0 +1,490 @@
+package com.lukas783.mdt.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A utility file to inspect or kill a child process along with every process it started. The process handle API
+ * used to look at the tree was added after the Java version the application targets, so it is looked up
+ * reflectively, and every method degrades gracefully when it isn't available. Without it, on Unix systems, the
+ * process id is read from the process object's own field, and the processes it started are found through the
+ * parent process id of every process, read from '/proc' where it is available and from 'ps' otherwise. Trees are
+ * then killed with 'kill', and their processor time and memory are sampled from '/proc'. Windows offers no way to
+ * find the process id of a child process on Java 8, so there only the process itself can be killed, and
+ * {@link #canDestroyTree()} tells callers so.
+ *
+ * @author Lucas Carpenter
+ */
+public class ProcessTree {
+
+    // Declare a logger for debug/error logging
+    private static final Logger logger = Logger.getLogger(ProcessTree.class.getName());
+
+    // Declaration of the reflected process handle methods, null if the running Java version doesn't have them
+    private static final Method toHandle;
+    private static final Method pid;
+    private static final Method info;
+    private static final Method descendants;
+    private static final Method totalCpuDuration;
+    private static final Method destroyForcibly;
+
+    // Declaration of the directory holding the status of every running process, on systems that have one
+    private static final File PROC_DIRECTORY = new File("/proc");
+
+    // Declaration of the length of a clock tick in '/proc' stat files, fixed at 1/100th of a second for user space
+    private static final long NANOS_PER_CLOCK_TICK = 10_000_000L;
+
+    // Declaration of how long to wait on the 'ps' and 'kill' commands used without process handles
+    private static final long COMMAND_TIMEOUT_MILLIS = 5_000L;
+
+    // Declaration of the positions of the fields of a '/proc' stat file, counted from the field after the name
+    private static final int STAT_PARENT_ID = 1;
+    private static final int STAT_USER_TIME = 11;
+    private static final int STAT_SYSTEM_TIME = 12;
+    private static final int STAT_START_TIME = 19;
+
+    static {
+        Method[] methods = new Method[6];
+        try {
+            Class<?> handleClass = Class.forName("java.lang.ProcessHandle");
+            methods[0] = Process.class.getMethod("toHandle");
+            methods[1] = handleClass.getMethod("pid");
+            methods[2] = handleClass.getMethod("info");
+            methods[3] = handleClass.getMethod("descendants");
+            methods[4] = Class.forName("java.lang.ProcessHandle$Info").getMethod("totalCpuDuration");
+            methods[5] = handleClass.getMethod("destroyForcibly");
+        } catch (ReflectiveOperationException roe) {
+            logger.fine("Process handles are not available, process trees can't be inspected.");
+            methods = new Method[6];
+        }
+        toHandle = methods[0];
+        pid = methods[1];
+        info = methods[2];
+        descendants = methods[3];
+        totalCpuDuration = methods[4];
+        destroyForcibly = methods[5];
+    }
+
+    /**
+     * Checks whether process trees can be inspected on the running Java version.
+     * @return True if process handles are available, False otherwise.
+     */
+    public static boolean isSupported() {
+        return toHandle != null;
+    }
+
+    /**
+     * Checks whether {@link #destroy(Process)} kills the processes a process started along with the process itself,
+     * which needs process handles on Windows.
+     * @return True if whole process trees can be killed, False if only the process itself can be.
+     */
+    public static boolean canDestroyTree() {
+        return isSupported() || File.separatorChar == '/';
+    }
+
+    /**
+     * Samples the processor time used so far by a process and every process it started. The time of each
+     * process is remembered by its process id, keeping the highest sample, so that processes which have
+     * since exited are still counted in the total.
+     * @param process The process to sample.
+     * @param cpuTimes The highest processor time seen for each process id, in nanoseconds, updated by the sample.
+     * @return The total processor time of every process sampled so far, in milliseconds, or -1 if it couldn't
+     *         be sampled.
+     */
+    public static long sampleCpuTime(Process process, Map<Long, Long> cpuTimes) {
+        if (!isSupported()) {
+            long processId = PROC_DIRECTORY.isDirectory() ? processIdField(process) : -1;
+            if (processId < 0 || !sampleProcCpuTime(processId, cpuTimes))
+                return -1;
+            for (long childId : findDescendants(processId))
+                sampleProcCpuTime(childId, cpuTimes);
+        } else {
+            try {
+                Object handle = toHandle.invoke(process);
+                sampleCpuTime(handle, cpuTimes);
+                try (Stream<?> children = (Stream<?>) descendants.invoke(handle)) {
+                    children.forEach(child -> sampleCpuTime(child, cpuTimes));
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.log(Level.FINE, "Unable to sample processor time of process tree.", e);
+                return -1;
+            }
+        }
+        long total = 0;
+        for (long cpuTime : cpuTimes.values())
+            total += cpuTime;
+        return total / 1_000_000L;
+    }
+
+    /**
+     * Samples the memory currently held by a process and every process it started, as the sum of their resident
+     * set sizes. Only supported where the '/proc' file system is available.
+     * @param process The process to sample.
+     * @return The resident set size of the process tree, in bytes, or -1 if it couldn't be sampled.
+     */
+    public static long sampleResidentBytes(Process process) {
+        if (!PROC_DIRECTORY.isDirectory())
+            return -1;
+        if (!isSupported()) {
+            long processId = processIdField(process);
+            if (processId < 0)
+                return -1;
+            long total = residentBytes(processId);
+            if (total < 0)
+                return -1;
+            for (long childId : findDescendants(processId))
+                total += Math.max(0, residentBytes(childId));
+            return total;
+        }
+        try {
+            Object handle = toHandle.invoke(process);
+            long total = residentBytes((Long) pid.invoke(handle));
+            if (total < 0)
+                return -1;
+            Object[] children;
+            try (Stream<?> descendantStream = (Stream<?>) descendants.invoke(handle)) {
+                children = descendantStream.toArray();
+            }
+            for (Object child : children)
+                total += Math.max(0, residentBytes((Long) pid.invoke(child)));
+            return total;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.FINE, "Unable to sample memory of process tree.", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Forcibly kills a process along with every process it started. The descendants are found before the
+     * process itself is killed, as they can't be traced back to it afterwards. Where {@link #canDestroyTree()}
+     * doesn't hold, only the process itself is killed.
+     * @param process The process to kill.
+     */
+    public static void destroy(Process process) {
+        if (!isSupported()) {
+            long processId = File.separatorChar == '/' ? processIdField(process) : -1;
+            List<Long> children = processId < 0 ? new ArrayList<>() : findDescendants(processId);
+            process.destroyForcibly();
+            kill(children);
+            return;
+        }
+        try {
+            Object handle = toHandle.invoke(process);
+            Object[] children;
+            try (Stream<?> descendantStream = (Stream<?>) descendants.invoke(handle)) {
+                children = descendantStream.toArray();
+            }
+            process.destroyForcibly();
+            for (Object child : children)
+                destroyForcibly.invoke(child);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.WARNING, "Unable to kill process tree, only killing the process itself.", e);
+        }
+        process.destroyForcibly();
+    }
+
+    /**
+     * Keeps track of every process a process has started, so that the ones still running once the process itself
+     * has exited can be killed. A process that has exited can't be traced back to the process that started it,
+     * so the descendants have to be sampled while it is still running.
+     */
+    public static class Descendants {
+
+        // Declaration of the handle of every descendant seen, by process id, or without process handles the time
+        // each descendant started at, read from '/proc'
+        private final Map<Long, Object> handles = new HashMap<>();
+        private final Map<Long, Long> startTimes = new HashMap<>();
+
+        /**
+         * Adds every process currently descending from a process to the ones tracked.
+         * @param process The process whose descendants to track.
+         */
+        public void sample(Process process) {
+            if (!isSupported()) {
+                long processId = PROC_DIRECTORY.isDirectory() ? processIdField(process) : -1;
+                if (processId < 0)
+                    return;
+                for (long childId : findDescendants(processId)) {
+                    long startTime = procStartTime(childId);
+                    if (startTime >= 0)
+                        startTimes.put(childId, startTime);
+                }
+                return;
+            }
+            try {
+                Object[] children;
+                try (Stream<?> descendantStream = (Stream<?>) descendants.invoke(toHandle.invoke(process))) {
+                    children = descendantStream.toArray();
+                }
+                for (Object child : children)
+                    handles.put((Long) pid.invoke(child), child);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.log(Level.FINE, "Unable to sample descendants of process.", e);
+            }
+        }
+
+        /**
+         * Forcibly kills every tracked process that is still running. A handle only ever kills the process it was
+         * taken of, even if its process id has since been reused. Without process handles, a process is only killed
+         * if the process now holding its id started at the same time.
+         * @return The number of processes that were still running and have been killed.
+         */
+        public int destroyRunning() {
+            List<Long> running = new ArrayList<>();
+            for (Map.Entry<Long, Long> startTime : startTimes.entrySet()) {
+                if (procStartTime(startTime.getKey()) == startTime.getValue())
+                    running.add(startTime.getKey());
+            }
+            startTimes.clear();
+            int destroyed = kill(running) ? running.size() : 0;
+            for (Object handle : handles.values()) {
+                try {
+                    if ((Boolean) destroyForcibly.invoke(handle))
+                        destroyed++;
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    logger.log(Level.FINE, "Unable to kill process.", e);
+                }
+            }
+            handles.clear();
+            return destroyed;
+        }
+    }
+
+    /**
+     * Samples the processor time used so far by a single process.
+     * @param handle The process handle of the process.
+     * @param cpuTimes The highest processor time seen for each process id, in nanoseconds, updated by the sample.
+     */
+    private static void sampleCpuTime(Object handle, Map<Long, Long> cpuTimes) {
+        try {
+            Optional<?> duration = (Optional<?>) totalCpuDuration.invoke(info.invoke(handle));
+            if (duration.isPresent())
+                cpuTimes.merge((Long) pid.invoke(handle), ((Duration) duration.get()).toNanos(), Math::max);
+        } catch (ReflectiveOperationException roe) {
+            logger.log(Level.FINE, "Unable to sample processor time of process.", roe);
+        }
+    }
+
+    /**
+     * Reads the process id of a process from the process object's own field, for Java versions without process
+     * handles.
+     * @param process The process.
+     * @return The process id, or -1 if the process object has no such field or it couldn't be read.
+     */
+    private static long processIdField(Process process) {
+        try {
+            Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return ((Number) field.get(process)).longValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.FINE, "Unable to read the process id of process.", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Finds every process descending from a process through the parent process id of every process, read from
+     * '/proc' where it is available and from 'ps' otherwise.
+     * @param processId The id of the process.
+     * @return The ids of the process's descendants, empty if there are none or they couldn't be listed.
+     */
+    private static List<Long> findDescendants(long processId) {
+        Map<Long, List<Long>> children = PROC_DIRECTORY.isDirectory() ? procChildren() : psChildren();
+
+        List<Long> descendants = new ArrayList<>();
+        Deque<Long> queue = new ArrayDeque<>();
+        queue.add(processId);
+        while (!queue.isEmpty()) {
+            List<Long> direct = children.get(queue.poll());
+            if (direct == null)
+                continue;
+            for (long childId : direct) {
+                if (childId != processId && !descendants.contains(childId)) {
+                    descendants.add(childId);
+                    queue.add(childId);
+                }
+            }
+        }
+        return descendants;
+    }
+
+    /**
+     * Lists the child processes of every process from the parent process id in each process's '/proc' stat file.
+     * @return The ids of the children of each process, by the id of the process.
+     */
+    private static Map<Long, List<Long>> procChildren() {
+        Map<Long, List<Long>> children = new HashMap<>();
+        File[] processDirectories = PROC_DIRECTORY.listFiles();
+        if (processDirectories == null)
+            return children;
+        for (File directory : processDirectories) {
+            String name = directory.getName();
+            if (name.isEmpty() || !Character.isDigit(name.charAt(0)))
+                continue;
+            long processId = Long.parseLong(name);
+            long parentId = statField(readStat(processId), STAT_PARENT_ID);
+            if (parentId > 0)
+                children.computeIfAbsent(parentId, id -> new ArrayList<>()).add(processId);
+        }
+        return children;
+    }
+
+    /**
+     * Lists the child processes of every process from the process id and parent process id columns of 'ps'.
+     * @return The ids of the children of each process, by the id of the process, empty if 'ps' couldn't be run.
+     */
+    private static Map<Long, List<Long>> psChildren() {
+        Map<Long, List<Long>> children = new HashMap<>();
+        try {
+            Process ps = new ProcessBuilder("ps", "-A", "-o", "pid=", "-o", "ppid=").redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(ps.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.trim().split("\\s+");
+                    if (fields.length == 2) {
+                        children.computeIfAbsent(Long.parseLong(fields[1]), id -> new ArrayList<>())
+                                .add(Long.parseLong(fields[0]));
+                    }
+                }
+            } finally {
+                if (!ps.waitFor(COMMAND_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+                    ps.destroyForcibly();
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.log(Level.FINE, "Unable to list processes with ps.", e);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return children;
+    }
+
+    /**
+     * Forcibly kills processes by their process ids with the 'kill' command.
+     * @param processIds The ids of the processes to kill.
+     * @return True if every process was killed, False if any of them couldn't be.
+     */
+    private static boolean kill(List<Long> processIds) {
+        if (processIds.isEmpty())
+            return true;
+        List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add("-KILL");
+        for (long processId : processIds)
+            command.add(Long.toString(processId));
+        try {
+            Process kill = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(new File("/dev/null")).start();
+            if (!kill.waitFor(COMMAND_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                kill.destroyForcibly();
+                return false;
+            }
+            return kill.exitValue() == 0;
+        } catch (IOException ioe) {
+            logger.log(Level.WARNING, "Unable to kill processes: " + processIds, ioe);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Samples the processor time used so far by a single process from its '/proc' stat file.
+     * @param processId The id of the process.
+     * @param cpuTimes The highest processor time seen for each process id, in nanoseconds, updated by the sample.
+     * @return True if the process could be sampled, False otherwise.
+     */
+    private static boolean sampleProcCpuTime(long processId, Map<Long, Long> cpuTimes) {
+        String[] fields = readStat(processId);
+        long userTime = statField(fields, STAT_USER_TIME);
+        long systemTime = statField(fields, STAT_SYSTEM_TIME);
+        if (userTime < 0 || systemTime < 0)
+            return false;
+        cpuTimes.merge(processId, (userTime + systemTime) * NANOS_PER_CLOCK_TICK, Math::max);
+        return true;
+    }
+
+    /**
+     * Reads when a process started from its '/proc' stat file, which tells a process apart from a later process
+     * given the same process id.
+     * @param processId The id of the process.
+     * @return The start time of the process in clock ticks since boot, or -1 if it isn't running.
+     */
+    private static long procStartTime(long processId) {
+        return statField(readStat(processId), STAT_START_TIME);
+    }
+
+    /**
+     * Reads the fields of a process's '/proc' stat file. The file reads 'pid (name) state ppid ...', where the name
+     * may itself hold spaces and parentheses, so only the fields after its last ')' are returned.
+     * @param processId The id of the process.
+     * @return The fields following the name, starting with the state, or an empty array if the file couldn't be
+     *         read, such as for a process that has since exited.
+     */
+    private static String[] readStat(long processId) {
+        File statFile = new File(PROC_DIRECTORY, processId + File.separator + "stat");
+        try (BufferedReader reader = new BufferedReader(new FileReader(statFile))) {
+            String line = reader.readLine();
+            int nameEnd = line == null ? -1 : line.lastIndexOf(')');
+            return nameEnd < 0 ? new String[0] : line.substring(nameEnd + 1).trim().split("\\s+");
+        } catch (IOException ioe) {
+            return new String[0];
+        }
+    }
+
+    /**
+     * Parses a single numeric field of a '/proc' stat file.
+     * @param fields The fields read by {@link #readStat(long)}.
+     * @param index The position of the field, counted from the state.
+     * @return The value of the field, or -1 if it is missing or not a number.
+     */
+    private static long statField(String[] fields, int index) {
+        if (index >= fields.length)
+            return -1;
+        try {
+            return Long.parseLong(fields[index]);
+        } catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the resident set size of a single process from its '/proc' status file.
+     * @param processId The id of the process.
+     * @return The resident set size of the process, in bytes, or -1 if it couldn't be read.
+     */
+    private static long residentBytes(long processId) {
+        File statusFile = new File(PROC_DIRECTORY, processId + File.separator + "status");
+        try (BufferedReader reader = new BufferedReader(new FileReader(statusFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmRSS:")) {
+                    String[] fields = line.substring("VmRSS:".length()).trim().split("\\s+");
+                    return Long.parseLong(fields[0]) * 1024L;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.log(Level.FINE, "Unable to read memory of process: " + processId, e);
+        }
+        return -1;
+    }
+}
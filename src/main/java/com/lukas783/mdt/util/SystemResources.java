@@ -0,0 +1,260 @@
+package com.lukas783.mdt.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A utility file to find out how much processor time and memory the application, and the builds it starts, may
+ * use. Inside a container the limits of the control group the application runs in apply, read from either
+ * version of the cgroup file system. The limits of every control group from the application's own up to the root
+ * are read, as each of them applies. A control group's usage counts the page cache its files were read into, so
+ * the inactive part of that cache, which the kernel reclaims when memory runs short, isn't counted as used. Memory
+ * is further limited to what '/proc/meminfo' reports as available.
+ * Where none of these files exist, only the number of processors the JVM sees is known.
+ *
+ * @author Lucas Carpenter
+ */
+public class SystemResources {
+
+    // Declare a logger for debug/error logging
+    private static final Logger logger = Logger.getLogger(SystemResources.class.getName());
+
+    // Declaration of the files the limits are read from
+    private static final File CGROUP_ROOT = new File("/sys/fs/cgroup");
+    private static final File PROC_CGROUP = new File("/proc/self/cgroup");
+    private static final File PROC_MEMINFO = new File("/proc/meminfo");
+
+    // Declaration of the smallest value a cgroup version 1 memory limit is treated as unlimited from
+    private static final long UNLIMITED_MEMORY = 1L << 60;
+
+    /**
+     * Works out how many processors the application may keep busy, the smaller of the processors the JVM sees
+     * and the processor quota of its control groups, rounded up.
+     * @return The number of processors, at least 1.
+     */
+    public static int availableProcessors() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        // cgroup v2 keeps the quota and period on one line, such as '200000 100000' or 'max 100000'
+        for (File directory : controlGroupDirectories(null)) {
+            String[] fields = readFields(new File(directory, "cpu.max"));
+            if (fields.length == 2 && !fields[0].equals("max"))
+                processors = Math.min(processors, quotaProcessors(parseLong(fields[0]), parseLong(fields[1])));
+        }
+        for (File directory : controlGroupDirectories("cpu")) {
+            long quota = parseLong(readFirstLine(new File(directory, "cpu.cfs_quota_us")));
+            long period = parseLong(readFirstLine(new File(directory, "cpu.cfs_period_us")));
+            if (quota > 0)
+                processors = Math.min(processors, quotaProcessors(quota, period));
+        }
+        return Math.max(1, processors);
+    }
+
+    /**
+     * Works out how much memory the application and the builds it starts may still take, the smallest of the
+     * memory '/proc/meminfo' reports as available and the room left below the limit of each of its control groups.
+     * Like the available memory of '/proc/meminfo', the room left treats inactive file cache as free.
+     * @return The available memory in bytes, or -1 if it couldn't be worked out.
+     */
+    public static long availableMemoryBytes() {
+        long available = readMemAvailable();
+        for (File directory : controlGroupDirectories(null)) {
+            String limit = readFirstLine(new File(directory, "memory.max"));
+            if (limit != null && !limit.equals("max"))
+                available = min(available, room(parseLong(limit), workingSet(
+                        parseLong(readFirstLine(new File(directory, "memory.current"))),
+                        readStat(new File(directory, "memory.stat"), "inactive_file"))));
+        }
+        for (File directory : controlGroupDirectories("memory")) {
+            long limit = parseLong(readFirstLine(new File(directory, "memory.limit_in_bytes")));
+            if (limit > 0 && limit < UNLIMITED_MEMORY)
+                available = min(available, room(limit, workingSet(
+                        parseLong(readFirstLine(new File(directory, "memory.usage_in_bytes"))),
+                        readStat(new File(directory, "memory.stat"), "total_inactive_file"))));
+        }
+        return available;
+    }
+
+    /**
+     * Finds the directories of the control groups the application belongs to for a controller, from its own
+     * control group up to the root of the hierarchy.
+     * @param controller The name of a cgroup version 1 controller, such as 'cpu', or null for the unified
+     *                   cgroup version 2 hierarchy.
+     * @return The existing control group directories, innermost first, empty if there are none.
+     */
+    private static List<File> controlGroupDirectories(String controller) {
+        List<File> directories = new ArrayList<>();
+        File base = controller == null ? CGROUP_ROOT : new File(CGROUP_ROOT, controller);
+        if (controller == null && !new File(base, "cgroup.controllers").isFile())
+            base = new File(CGROUP_ROOT, "unified");
+        if (!base.isDirectory())
+            return directories;
+
+        String path = null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(PROC_CGROUP))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Each line reads 'id:controllers:path', with empty controllers for the unified hierarchy
+                String[] parts = line.split(":", 3);
+                if (parts.length < 3)
+                    continue;
+                boolean matches = controller == null ?
+                        parts[0].equals("0") && parts[1].isEmpty() :
+                        Arrays.asList(parts[1].split(",")).contains(controller);
+                if (matches)
+                    path = parts[2];
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Unable to read control groups of the application.", ioe);
+        }
+
+        File directory = path == null ? base : new File(base, path);
+        // Inside a container the application's own path may not be visible, leaving only the root
+        while (!directory.isDirectory() && directory.getPath().length() > base.getPath().length())
+            directory = directory.getParentFile();
+        while (directory != null && directory.getPath().length() >= base.getPath().length()) {
+            directories.add(directory);
+            directory = directory.getParentFile();
+        }
+        return directories;
+    }
+
+    /**
+     * Reads how much memory '/proc/meminfo' reports as available for starting new applications.
+     * @return The available memory in bytes, or -1 if it couldn't be read.
+     */
+    private static long readMemAvailable() {
+        try (BufferedReader reader = new BufferedReader(new FileReader(PROC_MEMINFO))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("MemAvailable:")) {
+                    String[] fields = line.substring("MemAvailable:".length()).trim().split("\\s+");
+                    return parseLong(fields[0]) * 1024L;
+                }
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Unable to read available memory.", ioe);
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a single value from a control group's 'memory.stat' file, which holds a name and a value per line.
+     * @param file The file to read.
+     * @param name The name of the value, such as 'inactive_file'.
+     * @return The value, or -1 if the file or the value couldn't be read.
+     */
+    private static long readStat(File file, String name) {
+        if (!file.isFile())
+            return -1;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(name + " "))
+                    return parseLong(line.substring(name.length() + 1));
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Unable to read: " + file, ioe);
+        }
+        return -1;
+    }
+
+    /**
+     * Works out how much of a control group's memory usage can't be reclaimed, its usage less its inactive file
+     * cache.
+     * @param usage The memory in use in bytes, or -1 if unknown.
+     * @param inactiveFile The inactive file cache in bytes, or -1 if unknown.
+     * @return The memory in use that can't be reclaimed in bytes, or -1 if the usage is unknown.
+     */
+    private static long workingSet(long usage, long inactiveFile) {
+        if (usage < 0 || inactiveFile < 0)
+            return usage;
+        return Math.max(0, usage - inactiveFile);
+    }
+
+    /**
+     * Works out the room left below a memory limit.
+     * @param limit The limit in bytes.
+     * @param usage The memory in use in bytes, or -1 if unknown.
+     * @return The room left in bytes, or the limit itself if the usage is unknown.
+     */
+    private static long room(long limit, long usage) {
+        if (limit < 0)
+            return -1;
+        return usage < 0 ? limit : Math.max(0, limit - usage);
+    }
+
+    /**
+     * Converts a processor quota into a number of processors, rounding up.
+     * @param quota The processor time allowed per period.
+     * @param period The length of a period.
+     * @return The number of processors the quota keeps busy, at least 1.
+     */
+    private static int quotaProcessors(long quota, long period) {
+        if (quota <= 0 || period <= 0)
+            return Integer.MAX_VALUE;
+        return (int) Math.max(1, (quota + period - 1) / period);
+    }
+
+    /**
+     * Retrieves the smaller of two amounts of memory, where -1 means unknown.
+     * @param first The first amount.
+     * @param second The second amount.
+     * @return The smaller known amount, or -1 if neither is known.
+     */
+    private static long min(long first, long second) {
+        if (first < 0)
+            return second;
+        if (second < 0)
+            return first;
+        return Math.min(first, second);
+    }
+
+    /**
+     * Reads the whitespace separated fields on the first line of a file.
+     * @param file The file to read.
+     * @return The fields, empty if the file couldn't be read.
+     */
+    private static String[] readFields(File file) {
+        String line = readFirstLine(file);
+        return line == null || line.isEmpty() ? new String[0] : line.split("\\s+");
+    }
+
+    /**
+     * Reads the first line of a file.
+     * @param file The file to read.
+     * @return The trimmed first line, or null if the file doesn't exist or couldn't be read.
+     */
+    private static String readFirstLine(File file) {
+        if (!file.isFile())
+            return null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            return line == null ? null : line.trim();
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Unable to read: " + file, ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Parses a whole number read from a file.
+     * @param value The text to parse, may be null.
+     * @return The number, or -1 if the text isn't a number.
+     */
+    private static long parseLong(String value) {
+        if (value == null)
+            return -1;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+}
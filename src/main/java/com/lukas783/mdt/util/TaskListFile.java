@@ -0,0 +1,230 @@
+package com.lukas783.mdt.util;
+
+import com.lukas783.mdt.api.MavenTask;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * A utility file to read and write task lists in a human-editable XML form. Each task is a single 'task' element,
+ * with its flags as attributes and its paths as child elements:
+ * <pre>
+ * &lt;tasks version="1"&gt;
+ *   &lt;task id="..." name="core" enabled="true" clean="true" install="false" copy="true" rename="false"
+ *         unpackage="false"&gt;
+ *     &lt;workingDirectory&gt;/work/core&lt;/workingDirectory&gt;
+ *     &lt;copyToDirectory&gt;/deploy&lt;/copyToDirectory&gt;
+ *   &lt;/task&gt;
+ * &lt;/tasks&gt;
+ * </pre>
+ * A task without an id is given a new one when it is read, so task lists can be written by hand.
+ *
+ * @author Lucas Carpenter
+ */
+public class TaskListFile {
+
+    // Declaration of constants used by the file format
+    private static final String FORMAT_VERSION = "1";
+
+    // Declaration of the factories used to create stream readers and writers, without DTD or external entity support
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+    static {
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Reads the tasks of a task list file.
+     * @param file The task list file to read.
+     * @return The tasks of the file, in the order they are listed in.
+     * @throws IOException If the file couldn't be read, isn't a task list, or lists an invalid task.
+     */
+    public static List<MavenTask> read(File file) throws IOException {
+        List<MavenTask> tasks = new ArrayList<>();
+        read(file, tasks::add);
+        return tasks;
+    }
+
+    /**
+     * Reads the tasks of a task list file one at a time, handing each task over as soon as it has been read so that
+     * large task lists can be used before the whole file has been read.
+     * @param file The task list file to read.
+     * @param consumer The {@link Consumer} to hand each task to, in the order they are listed in.
+     * @throws IOException If the file couldn't be read, isn't a task list, or lists an invalid task.
+     */
+    public static void read(File file, Consumer<MavenTask> consumer) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader;
+            synchronized (inputFactory) {
+                reader = inputFactory.createXMLStreamReader(in);
+            }
+            try {
+                reader.nextTag();
+                if (!reader.getLocalName().equals("tasks"))
+                    throw new IOException(file + " is not a task list.");
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    if (!reader.getLocalName().equals("task"))
+                        throw new IOException("Unexpected element: " + reader.getLocalName() + " in: " + file);
+                    consumer.accept(readTask(reader, file));
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException xse) {
+            throw new IOException(file + " is not a valid task list.", xse);
+        }
+    }
+
+    /**
+     * Writes tasks to a task list file. The tasks are written to a temporary file that then replaces the task list
+     * file, so a failed write never leaves a partially written task list behind.
+     * @param file The task list file to write.
+     * @param tasks The tasks to write, in the order they should be listed in.
+     * @throws IOException If the file couldn't be written.
+     */
+    public static void write(File file, List<MavenTask> tasks) throws IOException {
+        File temporaryFile = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+            XMLStreamWriter writer;
+            synchronized (outputFactory) {
+                writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+            }
+            try {
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeCharacters(System.lineSeparator());
+                writer.writeStartElement("tasks");
+                writer.writeAttribute("version", FORMAT_VERSION);
+                for (MavenTask task : tasks)
+                    writeTask(writer, task);
+                writer.writeCharacters(System.lineSeparator());
+                writer.writeEndElement();
+                writer.writeCharacters(System.lineSeparator());
+                writer.writeEndDocument();
+            } finally {
+                writer.close();
+            }
+        } catch (XMLStreamException xse) {
+            if (!temporaryFile.delete())
+                temporaryFile.deleteOnExit();
+            throw new IOException("Unable to write task list: " + file, xse);
+        }
+        BinaryIO.replaceFile(temporaryFile, file);
+    }
+
+    /**
+     * Reads a single 'task' element.
+     * @param reader The {@link XMLStreamReader} positioned at the start of the element.
+     * @param file The task list file, used in error messages.
+     * @return The {@link MavenTask} the element describes.
+     * @throws XMLStreamException If the file isn't well-formed XML.
+     * @throws IOException If the element doesn't describe a valid task.
+     */
+    private static MavenTask readTask(XMLStreamReader reader, File file) throws XMLStreamException, IOException {
+        String id = reader.getAttributeValue(null, "id");
+        String taskName = attribute(reader, "name", "");
+        MavenTask.Builder builder = new MavenTask.Builder()
+                .taskName(taskName)
+                .enabled(Boolean.parseBoolean(attribute(reader, "enabled", "true")))
+                .cleanTarget(Boolean.parseBoolean(attribute(reader, "clean", "false")))
+                .doInstall(Boolean.parseBoolean(attribute(reader, "install", "false")))
+                .copy(Boolean.parseBoolean(attribute(reader, "copy", "false")))
+                .rename(Boolean.parseBoolean(attribute(reader, "rename", "false")))
+                .unpackage(Boolean.parseBoolean(attribute(reader, "unpackage", "false")))
+                .workingDirectory("")
+                .copyToDirectory("")
+                .renameString("");
+        if (id != null) {
+            try {
+                builder.id(UUID.fromString(id));
+            } catch (IllegalArgumentException iae) {
+                throw new IOException("Task: " + id + " in: " + file + " doesn't have a valid id.", iae);
+            }
+        }
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            String value = reader.getElementText().trim();
+            if (name.equals("workingDirectory"))
+                builder.workingDirectory(value);
+            else if (name.equals("copyToDirectory"))
+                builder.copyToDirectory(value);
+            else if (name.equals("renameString"))
+                builder.renameString(value);
+        }
+
+        MavenTask task = builder.build();
+        if (task == null)
+            throw new IOException("Task: " + taskName + " in: " + file + " is missing a name, " +
+                    "working directory, or the copy-to directory or rename string its flags ask for.");
+        return task;
+    }
+
+    /**
+     * Writes a single task as a 'task' element, leaving out paths the task doesn't have.
+     * @param writer The {@link XMLStreamWriter} to write to.
+     * @param task The {@link MavenTask} to write.
+     * @throws XMLStreamException If the element couldn't be written.
+     */
+    private static void writeTask(XMLStreamWriter writer, MavenTask task) throws XMLStreamException {
+        writer.writeCharacters(System.lineSeparator() + "  ");
+        writer.writeStartElement("task");
+        writer.writeAttribute("id", task.getId().toString());
+        writer.writeAttribute("name", task.getTaskName());
+        writer.writeAttribute("enabled", Boolean.toString(task.getEnabled()));
+        writer.writeAttribute("clean", Boolean.toString(task.cleanTarget()));
+        writer.writeAttribute("install", Boolean.toString(task.doInstall()));
+        writer.writeAttribute("copy", Boolean.toString(task.doCopy()));
+        writer.writeAttribute("rename", Boolean.toString(task.doRename()));
+        writer.writeAttribute("unpackage", Boolean.toString(task.doUnpackage()));
+        writeElement(writer, "workingDirectory", task.getWorkingDirectory());
+        writeElement(writer, "copyToDirectory", task.getCopyToDirectory());
+        writeElement(writer, "renameString", task.getRenameString());
+        writer.writeCharacters(System.lineSeparator() + "  ");
+        writer.writeEndElement();
+    }
+
+    /**
+     * Writes a child element of a 'task' element, unless its value is empty.
+     * @param writer The {@link XMLStreamWriter} to write to.
+     * @param name The name of the element.
+     * @param value The text of the element, may be null.
+     * @throws XMLStreamException If the element couldn't be written.
+     */
+    private static void writeElement(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        if (value == null || value.isEmpty())
+            return;
+        writer.writeCharacters(System.lineSeparator() + "    ");
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    /**
+     * Retrieves an attribute of the element the reader is positioned at.
+     * @param reader The {@link XMLStreamReader} positioned at a start element.
+     * @param name The name of the attribute.
+     * @param defaultValue The value to use if the element doesn't have the attribute.
+     * @return The value of the attribute, or the default value.
+     */
+    private static String attribute(XMLStreamReader reader, String name, String defaultValue) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? defaultValue : value.trim();
+    }
+}
@@ -0,0 +1,193 @@
+package com.lukas783.mdt.worker;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The entry-point of a resident Maven worker JVM. Loads Maven from a Maven installation once, then runs one
+ * build for every request read from standard input, for as long as standard input stays open. Build output is
+ * written to standard output and standard error, and each build ends with a line on standard output starting
+ * with the nonce the worker was started with, followed by the exit code of the build, the heap the worker held
+ * after its last garbage collection, and its maximum heap.
+ * <p>
+ * A request is a single line of tab separated fields: the word 'BUILD', the working directory of the build,
+ * then each argument to pass to maven. The line 'EXIT' stops the worker.
+ *
+ * @author Lucas Carpenter
+ */
+public class MavenWorkerMain {
+
+    // Declaration of constants used by the worker
+    private static final String MAVEN_CLI_CLASS = "org.apache.maven.cli.MavenCli";
+
+    /**
+     * The entry-point of the worker.
+     * @param args The Maven installation directory, followed by the nonce that marks the end of each build.
+     * @throws Exception If Maven can't be loaded from the installation directory.
+     */
+    public static void main(String[] args) throws Exception {
+        File mavenHome = new File(args[0]);
+        String nonce = args[1];
+        File mavenConf = new File(mavenHome, "conf");
+        System.setProperty("maven.home", mavenHome.getAbsolutePath());
+        System.setProperty("maven.conf", mavenConf.getAbsolutePath());
+
+        // Load maven the same way its launcher does, with the logging configuration and every library of the
+        // installation on one class path
+        List<URL> classPath = new ArrayList<>();
+        classPath.add(new File(mavenConf, "logging").toURI().toURL());
+        for (String directory : new String[] {"boot", "lib/ext", "lib"}) {
+            File[] jars = new File(mavenHome, directory).listFiles((dir, name) -> name.endsWith(".jar"));
+            if (jars != null) {
+                Arrays.sort(jars);
+                for (File jar : jars)
+                    classPath.add(jar.toURI().toURL());
+            }
+        }
+        ClassLoader mavenLoader = new URLClassLoader(classPath.toArray(new URL[0]),
+                ClassLoader.getSystemClassLoader().getParent());
+        Thread.currentThread().setContextClassLoader(mavenLoader);
+        Class<?> cliClass = mavenLoader.loadClass(MAVEN_CLI_CLASS);
+        Method doMain = cliClass.getMethod("doMain", String[].class, String.class, PrintStream.class,
+                PrintStream.class);
+
+        // Keep track of whether the build ended its output with a line separator, so the end marker is on its own line
+        PrintStream realOut = System.out;
+        PrintStream realErr = System.err;
+        LastByteOutputStream trackedOut = new LastByteOutputStream(new FileOutputStream(FileDescriptor.out));
+        PrintStream buildOut = new PrintStream(trackedOut, true, StandardCharsets.UTF_8.name());
+        PrintStream buildErr = new PrintStream(new FileOutputStream(FileDescriptor.err), true,
+                StandardCharsets.UTF_8.name());
+
+        BufferedReader requests = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String request;
+        while ((request = requests.readLine()) != null) {
+            String[] fields = request.split("\t");
+            if ("EXIT".equals(fields[0]))
+                break;
+            if (!"BUILD".equals(fields[0]) || fields.length < 2)
+                continue;
+
+            String workingDirectory = fields[1];
+            String[] mavenArgs = Arrays.copyOfRange(fields, 2, fields.length);
+            System.setProperty("user.dir", workingDirectory);
+            System.setProperty("maven.multiModuleProjectDirectory", findProjectRoot(new File(workingDirectory)));
+
+            int exitCode;
+            try {
+                // A new MavenCli is used for every build, only the loaded classes are shared between builds
+                Object cli = cliClass.getConstructor().newInstance();
+                exitCode = (Integer) doMain.invoke(cli, mavenArgs, workingDirectory, buildOut, buildErr);
+            } catch (Throwable t) {
+                t.printStackTrace(buildErr);
+                exitCode = 1;
+            } finally {
+                System.setOut(realOut);
+                System.setErr(realErr);
+            }
+
+            buildOut.flush();
+            buildErr.flush();
+            if (trackedOut.getLastByte() != '\n' && trackedOut.getLastByte() != -1)
+                buildOut.println();
+            buildOut.println(nonce + " " + exitCode + " " + getRetainedHeap() + " " + Runtime.getRuntime().maxMemory());
+            trackedOut.reset();
+        }
+    }
+
+    /**
+     * Works out how much heap the worker still held after its last garbage collection, which unlike the heap in
+     * use right now isn't inflated by garbage that simply hasn't been collected yet, summed over every heap pool.
+     * @return The heap held after the last garbage collection, in bytes, or the heap in use right now if the
+     *         garbage collector doesn't report it.
+     */
+    private static long getRetainedHeap() {
+        long retained = 0;
+        boolean reported = false;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+            if (usage != null) {
+                retained += usage.getUsed();
+                reported = true;
+            }
+        }
+        if (reported)
+            return retained;
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Finds the root directory of the project being built, the way maven's launcher does, by looking for the
+     * nearest directory holding a '.mvn' directory.
+     * @param workingDirectory The working directory of the build.
+     * @return The nearest directory holding a '.mvn' directory, or the working directory if there is none.
+     */
+    private static String findProjectRoot(File workingDirectory) {
+        for (File directory = workingDirectory.getAbsoluteFile(); directory != null;
+             directory = directory.getParentFile()) {
+            if (new File(directory, ".mvn").isDirectory())
+                return directory.getAbsolutePath();
+        }
+        return workingDirectory.getAbsolutePath();
+    }
+
+    /**
+     * An output stream that remembers the last byte written through it.
+     */
+    private static class LastByteOutputStream extends FilterOutputStream {
+        private volatile int lastByte = -1;
+
+        /**
+         * Constructs a new stream.
+         * @param out The stream to write through to.
+         */
+        private LastByteOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            lastByte = b & 0xFF;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (len > 0)
+                lastByte = b[off + len - 1] & 0xFF;
+        }
+
+        /**
+         * Retrieves the last byte written through the stream.
+         * @return The last byte written, or -1 if nothing has been written since the stream was reset.
+         */
+        private int getLastByte() {
+            return lastByte;
+        }
+
+        /**
+         * Forgets the last byte written through the stream.
+         */
+        private void reset() {
+            lastByte = -1;
+        }
+    }
+}
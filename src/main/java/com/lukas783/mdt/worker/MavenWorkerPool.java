@@ -0,0 +1,206 @@
+package com.lukas783.mdt.worker;
+
+import com.lukas783.mdt.api.ProcessResult;
+import com.lukas783.mdt.util.CancellationToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A singleton pool of resident Maven worker JVMs. Workers are started the first time they are needed and kept
+ * warm between builds, so that a build doesn't pay for starting a JVM and loading Maven. A worker is replaced
+ * once it has run a configured number of builds, or once the heap it still holds after garbage collection crosses a
+ * configured fraction of its maximum heap, as Maven doesn't fully clean up after itself between builds.
+ *
+ * @author Lucas Carpenter
+ */
+public class MavenWorkerPool {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(MavenWorkerPool.class.getName());
+
+    // Declaration of the defaults used by the pool
+    private static final int DEFAULT_MAX_BUILDS = Integer.getInteger("mdt.worker.maxBuilds", 25);
+    private static final double DEFAULT_MAX_HEAP_USAGE =
+            Double.parseDouble(System.getProperty("mdt.worker.maxHeapUsage", "0.75"));
+
+    // Declaration of the internal instance to always use
+    private static MavenWorkerPool INSTANCE;
+
+    // Declaration of variables used by the pool
+    private final Deque<MavenWorkerProcess> idleWorkers = new ArrayDeque<>();
+    private final List<MavenWorkerProcess> allWorkers = new ArrayList<>();
+    private final File mavenHome;
+    private final List<String> jvmOptions;
+    private volatile int maxBuilds;
+    private volatile double maxHeapUsage;
+
+    /**
+     * The public facing method to get an instance of the class.
+     * @return An instance of {@link MavenWorkerPool}
+     */
+    public static synchronized MavenWorkerPool getInstance() {
+        if(INSTANCE == null)
+            INSTANCE = new MavenWorkerPool();
+        return INSTANCE;
+    }
+
+    /**
+     * The private facing constructor used by the public-facing {@link #getInstance()} method
+     * to create a new pool if one does not already exist.
+     */
+    private MavenWorkerPool() {
+        mavenHome = findMavenHome();
+        String options = System.getProperty("mdt.worker.jvmOptions", System.getenv("MAVEN_OPTS"));
+        jvmOptions = options == null || options.trim().isEmpty() ?
+                new ArrayList<>() : Arrays.asList(options.trim().split("\\s+"));
+        maxBuilds = Math.max(1, DEFAULT_MAX_BUILDS);
+        maxHeapUsage = DEFAULT_MAX_HEAP_USAGE;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+    }
+
+    /**
+     * Checks whether workers can be started, which needs a Maven installation to be found.
+     * @return True if the pool found a Maven installation, False otherwise.
+     */
+    public boolean isAvailable() {
+        return mavenHome != null;
+    }
+
+    /**
+     * Runs a maven build on an idle worker, starting a new worker if none are idle.
+     * @param workingDirectory The working directory of the build.
+     * @param mavenArgs The arguments to pass to maven.
+     * @param output The consumer of each line of output, along with its line separator.
+     * @param token The {@link CancellationToken} that cancels the build, or null if it can't be cancelled.
+     * @return The {@link ProcessResult} describing how the build finished, or null if no worker could be started.
+     */
+    public ProcessResult build(File workingDirectory, List<String> mavenArgs, Consumer<String> output,
+                               CancellationToken token) {
+        MavenWorkerProcess worker = acquire();
+        if (worker == null)
+            return null;
+        ProcessResult result = null;
+        try {
+            result = worker.build(workingDirectory, mavenArgs, output, token);
+        } finally {
+            release(worker);
+        }
+        return result;
+    }
+
+    /**
+     * Sets how many builds a worker runs before it is replaced.
+     * @param maxBuilds The number of builds per worker, values below 1 are treated as 1.
+     */
+    public void setMaxBuilds(int maxBuilds) {
+        this.maxBuilds = Math.max(1, maxBuilds);
+    }
+
+    /**
+     * Sets the fraction of its maximum heap a worker may still hold after garbage collection before it is replaced.
+     * @param maxHeapUsage The fraction of the maximum heap, between 0 and 1.
+     */
+    public void setMaxHeapUsage(double maxHeapUsage) {
+        this.maxHeapUsage = maxHeapUsage;
+    }
+
+    /**
+     * Stops every worker in the pool. Workers running a build are stopped once the build has finished.
+     */
+    public synchronized void shutdown() {
+        for (MavenWorkerProcess worker : idleWorkers)
+            worker.shutdown();
+        allWorkers.removeAll(idleWorkers);
+        idleWorkers.clear();
+    }
+
+    /**
+     * Takes an idle worker out of the pool, or starts a new one if there are none.
+     * @return A worker, or null if no worker could be started.
+     */
+    private MavenWorkerProcess acquire() {
+        if (mavenHome == null)
+            return null;
+        synchronized (this) {
+            while (!idleWorkers.isEmpty()) {
+                MavenWorkerProcess worker = idleWorkers.poll();
+                if (worker.isUsable())
+                    return worker;
+                allWorkers.remove(worker);
+            }
+        }
+        try {
+            MavenWorkerProcess worker = new MavenWorkerProcess(mavenHome, jvmOptions);
+            synchronized (this) {
+                allWorkers.add(worker);
+            }
+            return worker;
+        } catch (IOException ioe) {
+            logger.log(Level.SEVERE, "Unable to start maven worker.", ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Returns a worker to the pool after a build, replacing it if it is worn out or broken.
+     * @param worker The worker to return.
+     */
+    private void release(MavenWorkerProcess worker) {
+        boolean recycle = !worker.isUsable() ||
+                worker.getBuilds() >= maxBuilds ||
+                worker.getHeapUsage() > maxHeapUsage;
+        synchronized (this) {
+            if (!recycle) {
+                idleWorkers.push(worker);
+                return;
+            }
+            allWorkers.remove(worker);
+        }
+        logger.info("Recycling maven worker after " + worker.getBuilds() + " builds, heap usage: " +
+                String.format("%.0f%%", worker.getHeapUsage() * 100));
+        worker.shutdown();
+    }
+
+    /**
+     * Finds the Maven installation to load Maven from, checking the 'mdt.maven.home' system property, then the
+     * MAVEN_HOME and M2_HOME environment variables, then the 'mvn' command on the path.
+     * @return The Maven installation directory, or null if none could be found.
+     */
+    private static File findMavenHome() {
+        List<String> candidates = new ArrayList<>();
+        candidates.add(System.getProperty("mdt.maven.home"));
+        candidates.add(System.getenv("MAVEN_HOME"));
+        candidates.add(System.getenv("M2_HOME"));
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String directory : path.split(File.pathSeparator)) {
+                File mvn = new File(directory, "mvn");
+                if (mvn.isFile()) {
+                    try {
+                        File realBin = mvn.toPath().toRealPath().toFile().getParentFile();
+                        candidates.add(realBin.getParent());
+                    } catch (IOException ioe) {
+                        logger.log(Level.FINE, "Unable to resolve maven command: " + mvn, ioe);
+                    }
+                }
+            }
+        }
+
+        for (String candidate : candidates) {
+            if (candidate != null && new File(candidate, "lib").isDirectory() &&
+                    new File(candidate, "boot").isDirectory())
+                return new File(candidate);
+        }
+        logger.warning("Unable to find a maven installation, resident maven workers are not available.");
+        return null;
+    }
+}
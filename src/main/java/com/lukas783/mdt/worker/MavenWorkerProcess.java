@@ -0,0 +1,212 @@
+package com.lukas783.mdt.worker;
+
+import com.lukas783.mdt.api.ProcessResult;
+import com.lukas783.mdt.util.CancellationToken;
+import com.lukas783.mdt.util.ProcessTree;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The application's side of a single resident Maven worker JVM running {@link MavenWorkerMain}. Runs one build
+ * at a time on the worker, handing the worker's output to the consumer of the build in progress.
+ *
+ * @author Lucas Carpenter
+ */
+public class MavenWorkerProcess {
+
+    // Declaration of logger for debug/error handling messages.
+    private static final Logger logger = Logger.getLogger(MavenWorkerProcess.class.getName());
+
+    // Declaration of constants used by the worker
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+    private static final long CANCEL_CHECK_MILLIS = 250;
+
+    // Declaration of the thread checking the cancellation tokens of builds in progress
+    private static final ScheduledExecutorService cancelChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mdt-worker-cancel-checker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Declaration of variables used by the worker
+    private final Process process;
+    private final String nonce;
+    private final BufferedReader stdout;
+    private final Writer stdin;
+    private volatile Consumer<String> currentOutput;
+    private volatile long stderrChars;
+    private int builds;
+    private long heapUsed;
+    private long heapMax;
+    private boolean broken;
+
+    /**
+     * Starts a new worker JVM.
+     * @param mavenHome The Maven installation the worker loads Maven from.
+     * @param jvmOptions Options passed to the worker JVM.
+     * @throws IOException If the worker JVM can't be started.
+     */
+    public MavenWorkerProcess(File mavenHome, List<String> jvmOptions) throws IOException {
+        nonce = "@@mdt-worker-" + UUID.randomUUID();
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MavenWorkerMain.class.getName());
+        command.add(mavenHome.getAbsolutePath());
+        command.add(nonce);
+
+        process = new ProcessBuilder(command).start();
+        stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+        // Standard error is drained for the whole life of the worker and handed to whichever build is running
+        Thread stderrDrain = new Thread(this::drainStderr, "mdt-worker-stderr");
+        stderrDrain.setDaemon(true);
+        stderrDrain.start();
+    }
+
+    /**
+     * Runs a maven build on the worker, blocking until it finishes. If the cancellation token is cancelled while
+     * the build runs, the worker JVM is killed, as a build can't be stopped part way through any other way.
+     * The output sizes of the result are counted in characters, as the worker's output is already decoded.
+     * @param workingDirectory The working directory of the build.
+     * @param mavenArgs The arguments to pass to maven.
+     * @param output The consumer of each line of output, along with its line separator.
+     * @param token The {@link CancellationToken} that cancels the build, or null if it can't be cancelled.
+     * @return The {@link ProcessResult} describing how the build finished.
+     */
+    public synchronized ProcessResult build(File workingDirectory, List<String> mavenArgs, Consumer<String> output,
+                                            CancellationToken token) {
+        long startTime = System.nanoTime();
+        Map<Long, Long> cpuTimes = new HashMap<>();
+        long startCpuTime = ProcessTree.sampleCpuTime(process, cpuTimes);
+        long stdoutChars = 0;
+        long startStderrChars = stderrChars;
+        int exitCode = ProcessResult.NOT_RUN;
+        long endCpuTime = -1;
+
+        currentOutput = output;
+        ScheduledFuture<?> cancelCheck = null;
+        if (token != null) {
+            token.register(process);
+            cancelCheck = cancelChecker.scheduleWithFixedDelay(token::isCancelled,
+                    CANCEL_CHECK_MILLIS, CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        try {
+            StringBuilder request = new StringBuilder("BUILD\t").append(workingDirectory.getAbsolutePath());
+            for (String arg : mavenArgs)
+                request.append('\t').append(arg);
+            stdin.write(request.append('\n').toString());
+            stdin.flush();
+
+            String line;
+            while ((line = stdout.readLine()) != null) {
+                if (line.startsWith(nonce)) {
+                    String[] fields = line.substring(nonce.length()).trim().split(" ");
+                    exitCode = Integer.parseInt(fields[0]);
+                    heapUsed = Long.parseLong(fields[1]);
+                    heapMax = Long.parseLong(fields[2]);
+                    break;
+                }
+                stdoutChars += line.length() + 1;
+                output.accept(line + LINE_SEPARATOR);
+            }
+            if (line == null)
+                broken = true;
+            else
+                endCpuTime = ProcessTree.sampleCpuTime(process, cpuTimes);
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Lost connection to maven worker.", e);
+            broken = true;
+        } finally {
+            if (cancelCheck != null)
+                cancelCheck.cancel(false);
+            if (token != null)
+                token.unregister(process);
+            currentOutput = null;
+        }
+        builds++;
+
+        long cpuTime = startCpuTime >= 0 && endCpuTime >= 0 ? endCpuTime - startCpuTime : -1;
+        long wallTime = (System.nanoTime() - startTime) / 1_000_000L;
+        return new ProcessResult(exitCode, wallTime, cpuTime, stdoutChars, stderrChars - startStderrChars,
+                ProcessTree.sampleResidentBytes(process));
+    }
+
+    /**
+     * Retrieves how many builds the worker has run.
+     * @return The number of builds run by the worker.
+     */
+    public synchronized int getBuilds() {
+        return builds;
+    }
+
+    /**
+     * Retrieves the fraction of its maximum heap the worker still held after its last garbage collection, as of
+     * when its last build finished.
+     * @return The used fraction of the worker's heap, or 0 if no build has finished yet.
+     */
+    public synchronized double getHeapUsage() {
+        return heapMax > 0 ? (double) heapUsed / heapMax : 0;
+    }
+
+    /**
+     * Checks whether the worker can still run builds.
+     * @return True if the worker is running and hasn't lost its connection, False otherwise.
+     */
+    public synchronized boolean isUsable() {
+        return !broken && process.isAlive();
+    }
+
+    /**
+     * Stops the worker, asking it to exit and killing it if it doesn't exit promptly.
+     */
+    public void shutdown() {
+        try {
+            stdin.write("EXIT\n");
+            stdin.flush();
+            if (process.waitFor(5, TimeUnit.SECONDS))
+                return;
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Unable to ask maven worker to exit.", ioe);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        ProcessTree.destroy(process);
+    }
+
+    /**
+     * Reads the worker's standard error until the worker exits, handing each line to the build in progress.
+     */
+    private void drainStderr() {
+        try (BufferedReader stderr = new BufferedReader(new InputStreamReader(process.getErrorStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = stderr.readLine()) != null) {
+                stderrChars += line.length() + 1;
+                Consumer<String> output = currentOutput;
+                if (output != null)
+                    output.accept(line + LINE_SEPARATOR);
+                else
+                    logger.info("Maven worker: " + line);
+            }
+        } catch (IOException ioe) {
+            logger.log(Level.FINE, "Maven worker standard error closed.", ioe);
+        }
+    }
+}
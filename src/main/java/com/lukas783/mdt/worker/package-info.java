@@ -0,0 +1,6 @@
+/**
+ * A group of classes that keep long-lived Maven JVMs running between tasks, so that builds don't pay for
+ * starting a new JVM and loading Maven every time. {@link com.lukas783.mdt.worker.MavenWorkerMain} runs inside
+ * of each worker JVM and must not depend on the rest of the application.
+ */
+package com.lukas783.mdt.worker;